@@ -15,6 +15,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.data.mongodb.config.EnableMongoAuditing;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.client.RestTemplate;
@@ -29,6 +30,7 @@ import java.util.Optional;
 @EnableElasticsearchRepositories(basePackages = "org.senju.eshopeule.repository.es")
 @EnableJpaAuditing(auditorAwareRef = "auditorAware")
 @EnableMongoAuditing(auditorAwareRef = "auditorAware")
+@EnableScheduling
 public class ApplicationConfig {
 
     @Bean
@@ -1,8 +1,12 @@
 package org.senju.eshopeule.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.repository.redis.IdempotencyKeyRepository;
 import org.senju.eshopeule.security.SimpleUserDetailsService;
+import org.senju.eshopeule.security.filter.IdempotencyKeyFilter;
 import org.senju.eshopeule.security.filter.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -20,6 +24,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.AuthenticationEntryPoint;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -38,6 +43,14 @@ public class SecurityConfig {
     private final AuthenticationProvider jwtAuthenticationProvider;
     private final SimpleUserDetailsService userDetailsService;
     private final AuthenticationEntryPoint restAuthenticationEntryPoint;
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.in-flight-expiration}")
+    private long idempotencyInFlightExpirationInSeconds;
+
+    @Value("${idempotency.wait-timeout}")
+    private long idempotencyWaitTimeoutInMillis;
 
 
     @Bean
@@ -58,13 +71,15 @@ public class SecurityConfig {
                 .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
 //                .addFilterAfter(csrfTokenLoggingFilter, CsrfFilter.class)
                 .addFilterBefore(new JwtAuthenticationFilter(authenticationManager(http), restAuthenticationEntryPoint), UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(new IdempotencyKeyFilter(idempotencyKeyRepository, objectMapper,
+                        idempotencyInFlightExpirationInSeconds, idempotencyWaitTimeoutInMillis), AuthorizationFilter.class)
                 .oauth2Login(c -> c.successHandler(oauth2AuthenticationSuccessHandler))
                 .authorizeHttpRequests(c -> c
-                        .requestMatchers(HttpMethod.GET, STAFF_API, ROLE_API, "/api/r/*/stat/brand", "/api/r/*/stat/order",
+                        .requestMatchers(HttpMethod.GET, STAFF_API, ROLE_API, SEARCH_INDEX_API, "/api/r/*/stat/brand", "/api/r/*/stat/order",
                                 "/api/r/*/stat/prod/**", "/api/r/*/stat/cate/**",
                                 "/api/r/*/stat/cus/age-range", "/api/r/*/stat/cus/age-group",
                                 "/api/r/*/stat/cus/gender", "/api/r/*/stat/cus/active").hasAuthority(ADMIN_READ.getPermName())
-                        .requestMatchers(HttpMethod.POST, STAFF_API, ROLE_API).hasAuthority(ADMIN_WRITE.getPermName())
+                        .requestMatchers(HttpMethod.POST, STAFF_API, ROLE_API, SEARCH_INDEX_API).hasAuthority(ADMIN_WRITE.getPermName())
                         .requestMatchers(HttpMethod.PUT, STAFF_API, ROLE_API).hasAuthority(ADMIN_WRITE.getPermName())
                         .requestMatchers(HttpMethod.DELETE, STAFF_API, ROLE_API).hasAuthority(ADMIN_WRITE.getPermName())
 
@@ -80,9 +95,9 @@ public class SecurityConfig {
 
                         .requestMatchers("/api/r/*/order").hasAnyAuthority(CUS_READ.getPermName(), STAFF_READ.getPermName())
                         .requestMatchers("/api/r/*/order/cancel").hasAnyAuthority(CUS_WRITE.getPermName(), STAFF_WRITE.getPermName())
-                        .requestMatchers("/api/r/*/order/m/all").hasAuthority(STAFF_READ.getPermName())
-                        .requestMatchers("/api/r/*/order/history").hasAuthority(CUS_READ.getPermName())
-                        .requestMatchers("/api/r/*/order/crt", "/api/r/*/order/ba", "/api/r/*/cm", "/api/r/*/rating/**").hasAuthority(CUS_WRITE.getPermName())
+                        .requestMatchers("/api/r/*/order/m/all", "/api/r/*/order/m/all/cursor").hasAuthority(STAFF_READ.getPermName())
+                        .requestMatchers("/api/r/*/order/history", "/api/r/*/order/history/cursor").hasAuthority(CUS_READ.getPermName())
+                        .requestMatchers("/api/r/*/order/crt", "/api/r/*/order/ba", "/api/r/*/order/ba/all", "/api/r/*/cm", "/api/r/*/rating/**").hasAuthority(CUS_WRITE.getPermName())
                         .requestMatchers("/api/r/*/order/m/complete", "/api/r/*/order/m/ship").hasAuthority(STAFF_WRITE.getPermName())
 
 
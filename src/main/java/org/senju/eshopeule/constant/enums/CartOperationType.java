@@ -0,0 +1,7 @@
+package org.senju.eshopeule.constant.enums;
+
+public enum CartOperationType {
+    ADD,
+    SET,
+    REMOVE
+}
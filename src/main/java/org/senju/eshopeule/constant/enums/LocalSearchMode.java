@@ -0,0 +1,7 @@
+package org.senju.eshopeule.constant.enums;
+
+public enum LocalSearchMode {
+    OFF,
+    FALLBACK,
+    PRIMARY
+}
@@ -25,7 +25,11 @@ public final class NotificationType {
     @RequiredArgsConstructor
     public enum ContentType {
         FORGOT_PASSWORD("Reset password"),
-        VERIFY_SIGNUP("Verify register account");
+        VERIFY_SIGNUP("Verify register account"),
+        ORDER_CREATED("Your order has been placed"),
+        ORDER_SHIPPING("Your order is on its way"),
+        ORDER_COMPLETED("Your order has been delivered"),
+        ORDER_CANCELLED("Your order has been cancelled");
 
         private final String contentName;
     }
@@ -0,0 +1,25 @@
+package org.senju.eshopeule.constant.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.exceptions.PagingException;
+
+import java.util.Arrays;
+
+@Getter
+@RequiredArgsConstructor
+public enum SearchFacet {
+    BRAND("brand"),
+    CATEGORY("category"),
+    PRICE("price"),
+    DISCOUNTED_PRICE("discounted_price");
+
+    private final String facetName;
+
+    public static SearchFacet fromFacetName(String facetName) {
+        return Arrays.stream(values())
+                .filter(facet -> facet.facetName.equalsIgnoreCase(facetName.strip()))
+                .findFirst()
+                .orElseThrow(() -> new PagingException("Unsupported facet: " + facetName));
+    }
+}
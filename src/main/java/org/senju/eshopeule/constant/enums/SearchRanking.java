@@ -0,0 +1,23 @@
+package org.senju.eshopeule.constant.enums;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.exceptions.PagingException;
+
+import java.util.Arrays;
+
+@Getter
+@RequiredArgsConstructor
+public enum SearchRanking {
+    RELEVANCE("relevance"),
+    POPULARITY("popularity");
+
+    private final String rankingName;
+
+    public static SearchRanking fromRankingName(String rankingName) {
+        return Arrays.stream(values())
+                .filter(ranking -> ranking.rankingName.equalsIgnoreCase(rankingName.strip()))
+                .findFirst()
+                .orElseThrow(() -> new PagingException("Unsupported ranking: " + rankingName));
+    }
+}
@@ -3,4 +3,6 @@ package org.senju.eshopeule.constant.exceptionMessage;
 public final class CartExceptionMsg {
     public static final String ONLY_ONE_ACTIVE_CART_MSG = "Each customer can have only one active cart";
     public static final String QUANTITY_EXCEEDED_MSG = "Quantity exceeded";
+    public static final String UNSUPPORTED_CART_OPERATION_MSG = "Unsupported cart operation: %s";
+    public static final String CART_OPERATION_QUANTITY_REQUIRED_MSG = "Quantity of %s operation is required";
 }
@@ -0,0 +1,7 @@
+package org.senju.eshopeule.constant.exceptionMessage;
+
+public final class IdempotencyExceptionMsg {
+    public static final String IDEMPOTENCY_KEY_INVALID_MSG = "Idempotency-Key must not be blank or longer than %d characters";
+    public static final String IDEMPOTENCY_KEY_IN_PROGRESS_MSG = "A request with the same Idempotency-Key is still being processed";
+    public static final String IDEMPOTENCY_KEY_REUSED_MSG = "Idempotency-Key has already been used for a different request";
+}
@@ -13,5 +13,6 @@ public final class OrderExceptionMsg {
     public static final String ORDER_ITEM_NOT_FOUND_WITH_ID_AND_USERNAME_MSG = "Order item not found with ID [%s] and Username [%s]";
     public static final String ERROR_UPDATE_ORDER_STATUS = "Error update order status";
     public static final String NOT_ALLOWED_TO_ORDER = "Product not allowed to order with ID [%s]";
+    public static final String OUT_OF_STOCK_MSG = "One or more products are out of stock or not allowed to order";
     public static final String NOT_ALLOWED_TO_CANCEL_ORDER = "Order not allowed to cancel with username or permission invalid";
 }
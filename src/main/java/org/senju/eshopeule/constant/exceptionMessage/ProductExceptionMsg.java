@@ -20,6 +20,10 @@ public final class ProductExceptionMsg {
     public static final String PRODUCT_NOT_FOUND_WITH_ID_MSG = "Product not found with id: %s";
     public static final String PRODUCT_NOT_FOUND_WITH_SLUG_MSG = "Product not found with slug: %s";
     public static final String PRODUCT_ALREADY_EXISTS_WITH_SLUG_MSG = "Product already exists with slug: %s";
+    public static final String PRODUCT_ALREADY_HOT_ITEM_MSG = "Product with id %s is already a hot item";
+    public static final String PRODUCT_NOT_HOT_ITEM_MSG = "Product with id %s is not a hot item";
+    public static final String PRODUCT_HOT_ITEM_QUANTITY_LOCKED_MSG = "Quantity of product with id %s cannot be changed while it is a hot item";
+    public static final String PRODUCT_QUANTITY_BELOW_RESERVED_MSG = "Quantity of product with id %s cannot be lower than its reserved quantity";
 
 
     public static final String PROD_ES_DOC_NOT_FOUND_WITH_PRODUCT_ID_MSG = "Product Elasticsearch document not found with product ID [%s]";
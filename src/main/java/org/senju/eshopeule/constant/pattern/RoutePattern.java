@@ -15,4 +15,5 @@ public final class RoutePattern {
     public static final String BRAND_API = PRIVATE_PREFIX + "/*/brand/**";
     public static final String PRODUCT_API = PRIVATE_PREFIX + "/*/prod/**";
     public static final String CART_API = PRIVATE_PREFIX + "/*/cart/**";
+    public static final String SEARCH_INDEX_API = PRIVATE_PREFIX + "/*/search-index/**";
 }
@@ -4,6 +4,7 @@ import io.swagger.v3.oas.annotations.Operation;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.senju.eshopeule.dto.CartItemDTO;
+import org.senju.eshopeule.dto.request.CartOperationsRequest;
 import org.senju.eshopeule.dto.response.BaseResponse;
 import org.senju.eshopeule.dto.response.SimpleResponse;
 import org.senju.eshopeule.exceptions.CartException;
@@ -44,6 +45,17 @@ public class CartController {
         }
     }
 
+    @PostMapping(path = "/bulk")
+    @Operation(summary = "Add, update or remove many cart items at once")
+    public ResponseEntity<? extends BaseResponse> applyCartOperations(@Valid @RequestBody CartOperationsRequest request) {
+        logger.info("Apply {} cart operations", request.getOperations().size());
+        try {
+            return ResponseEntity.ok(cartService.applyOperations(request.getOperations()));
+        } catch (NotFoundException | CartException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
     @DeleteMapping(path = "/del/prod")
     @Operation(summary = "Remove cart item with product ID")
     public ResponseEntity<? extends BaseResponse> deleteCartItemWithProductId(@RequestParam("id") String productId) {
@@ -74,7 +74,33 @@ public class OrderController {
         }
     }
 
+    @GetMapping(path = "/history/cursor")
+    @Operation(summary = "Get order history of current customer with cursor")
+    public ResponseEntity<? extends BaseResponse> getMyOrderHistoryWithCursor(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = OrderPageable.DEFAULT_PAGE_SIZE) int pageSize
+    ) {
+        logger.info("Get order history of current customer with cursor");
+        try {
+            return ResponseEntity.ok(orderService.getOrderHistory(cursor, pageSize));
+        } catch (PagingException | NotFoundException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
 
+    @GetMapping(path = "/m/all/cursor")
+    @Operation(summary = "Get all orders with cursor")
+    public ResponseEntity<? extends BaseResponse> getAllOrdersWithCursor(
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = OrderPageable.DEFAULT_PAGE_SIZE) int pageSize
+    ) {
+        logger.info("Get all orders with cursor");
+        try {
+            return ResponseEntity.ok(orderService.getAllOrder(cursor, pageSize));
+        } catch (PagingException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
 
     @PostMapping(path = "/crt")
     @Operation(summary = "Create new order")
@@ -100,6 +126,17 @@ public class OrderController {
         }
     }
 
+    @PostMapping(path = "/ba/all")
+    @Operation(summary = "Buy again all items of a order")
+    public ResponseEntity<? extends BaseResponse> buyAgainOrder(@RequestParam("id") String orderId) {
+        logger.info("Buy again all items of order {}", orderId);
+        try {
+            return ResponseEntity.ok(orderService.buyAgainOrder(orderId));
+        } catch (NotFoundException | OrderException | CartException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
     @PutMapping(path = "/m/complete")
     @Operation(summary = "Update completed order with ID")
     public ResponseEntity<? extends BaseResponse> updateCompletedOrder(@RequestParam("id") String orderId) {
@@ -12,10 +12,13 @@ import org.senju.eshopeule.exceptions.NotFoundException;
 import org.senju.eshopeule.exceptions.ObjectAlreadyExistsException;
 import org.senju.eshopeule.exceptions.PagingException;
 import org.senju.eshopeule.exceptions.ProductException;
+import org.senju.eshopeule.service.HotStockService;
+import org.senju.eshopeule.service.ProductDetailViewService;
 import org.senju.eshopeule.service.ProductService;
 import org.senju.eshopeule.utils.PaginationUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
@@ -28,6 +31,8 @@ import static org.senju.eshopeule.constant.pattern.RoutePattern.*;
 public class ProductController {
 
     private final ProductService productService;
+    private final HotStockService hotStockService;
+    private final ProductDetailViewService productDetailViewService;
     private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
 
     @GetMapping(path = PUBLIC_PREFIX + "/v1/prod")
@@ -148,6 +153,78 @@ public class ProductController {
         }
     }
 
+    @GetMapping(path = PUBLIC_PREFIX + "/v1/prod/slice/brand")
+    @Operation(summary = "Get product slice with brand's ID and cursor")
+    public ResponseEntity<? extends BaseResponse> getProductSliceByBrandId(
+            @RequestParam("id") String brandId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = ProductPageable.DEFAULT_PAGE_SIZE) int pageSize,
+            @RequestParam(name = "sortField", required = false, defaultValue = ProductPageable.DEFAULT_SORT_FIELD) String sortField,
+            @RequestParam(name = "sortDir", required = false, defaultValue = ProductPageable.DEFAULT_SORT_DIRECTION) String sortDirection,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") boolean withApproximateTotal) {
+        logger.info("Get product slice with brand id: {}", brandId);
+        try {
+            return ResponseEntity.ok(
+                    productService.getProductSliceByBrandId(brandId, cursor, pageSize, sortField, sortDirection, withApproximateTotal));
+        } catch (PagingException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
+    @GetMapping(path = PUBLIC_PREFIX + "/v1/prod/slice/brand/{brandSlug}")
+    @Operation(summary = "Get product slice with brand's slug and cursor")
+    public ResponseEntity<? extends BaseResponse> getProductSliceByBrandSlug(
+            @PathVariable("brandSlug") String brandSlug,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = ProductPageable.DEFAULT_PAGE_SIZE) int pageSize,
+            @RequestParam(name = "sortField", required = false, defaultValue = ProductPageable.DEFAULT_SORT_FIELD) String sortField,
+            @RequestParam(name = "sortDir", required = false, defaultValue = ProductPageable.DEFAULT_SORT_DIRECTION) String sortDirection,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") boolean withApproximateTotal) {
+        logger.info("Get product slice with brand slug: {}", brandSlug);
+        try {
+            return ResponseEntity.ok(
+                    productService.getProductSliceByBrandSlug(brandSlug, cursor, pageSize, sortField, sortDirection, withApproximateTotal));
+        } catch (PagingException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
+    @GetMapping(path = PUBLIC_PREFIX + "/v1/prod/slice/category")
+    @Operation(summary = "Get product slice with category's ID and cursor")
+    public ResponseEntity<? extends BaseResponse> getProductSliceByCategoryId(
+            @RequestParam("id") String categoryId,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = ProductPageable.DEFAULT_PAGE_SIZE) int pageSize,
+            @RequestParam(name = "sortField", required = false, defaultValue = ProductPageable.DEFAULT_SORT_FIELD) String sortField,
+            @RequestParam(name = "sortDir", required = false, defaultValue = ProductPageable.DEFAULT_SORT_DIRECTION) String sortDirection,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") boolean withApproximateTotal) {
+        logger.info("Get product slice with category id: {}", categoryId);
+        try {
+            return ResponseEntity.ok(
+                    productService.getProductSliceByCategoryId(categoryId, cursor, pageSize, sortField, sortDirection, withApproximateTotal));
+        } catch (PagingException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
+    @GetMapping(path = PUBLIC_PREFIX + "/v1/prod/slice/category/{categorySlug}")
+    @Operation(summary = "Get product slice with category's slug and cursor")
+    public ResponseEntity<? extends BaseResponse> getProductSliceByCategorySlug(
+            @PathVariable("categorySlug") String categorySlug,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "pageSize", required = false, defaultValue = ProductPageable.DEFAULT_PAGE_SIZE) int pageSize,
+            @RequestParam(name = "sortField", required = false, defaultValue = ProductPageable.DEFAULT_SORT_FIELD) String sortField,
+            @RequestParam(name = "sortDir", required = false, defaultValue = ProductPageable.DEFAULT_SORT_DIRECTION) String sortDirection,
+            @RequestParam(name = "withTotal", required = false, defaultValue = "false") boolean withApproximateTotal) {
+        logger.info("Get product slice with category slug: {}", categorySlug);
+        try {
+            return ResponseEntity.ok(
+                    productService.getProductSliceByCategorySlug(categorySlug, cursor, pageSize, sortField, sortDirection, withApproximateTotal));
+        } catch (PagingException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
     @PostMapping(path = PRIVATE_PREFIX + "/v1/prod")
     @Operation(summary = "Create new product")
     public ResponseEntity<? extends BaseResponse> createNewProduct(
@@ -183,4 +260,45 @@ public class ProductController {
             return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
         }
     }
+
+    @PutMapping(path = PRIVATE_PREFIX + "/v1/prod/hot")
+    @Operation(summary = "Move stock of product with ID to sharded hot stock counters")
+    public ResponseEntity<? extends BaseResponse> enableHotItem(@RequestParam("id") String productId) {
+        logger.info("Enable hot item for product with id: {}", productId);
+        try {
+            hotStockService.enableHotItem(productId);
+            return ResponseEntity.ok(new SimpleResponse("Enable hot item successfully!"));
+        } catch (NotFoundException | ProductException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
+    @DeleteMapping(path = PRIVATE_PREFIX + "/v1/prod/hot")
+    @Operation(summary = "Move stock of product with ID back from hot stock counters")
+    public ResponseEntity<? extends BaseResponse> disableHotItem(@RequestParam("id") String productId) {
+        logger.info("Disable hot item for product with id: {}", productId);
+        try {
+            hotStockService.disableHotItem(productId);
+            return ResponseEntity.ok(new SimpleResponse("Disable hot item successfully!"));
+        } catch (ProductException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
+    @GetMapping(path = PRIVATE_PREFIX + "/v1/prod/view/rebuild")
+    @Operation(summary = "Get progress of the current or last full rebuild of product detail views")
+    public ResponseEntity<? extends BaseResponse> getProductViewRebuildProgress() {
+        return ResponseEntity.ok(productDetailViewService.getRebuildProgress());
+    }
+
+    @PostMapping(path = PRIVATE_PREFIX + "/v1/prod/view/rebuild")
+    @Operation(summary = "Rebuild the detail view of every product")
+    public ResponseEntity<? extends BaseResponse> startProductViewRebuild() {
+        logger.info("Start full rebuild of product detail views");
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(productDetailViewService.startFullRebuild());
+        } catch (ProductException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
 }
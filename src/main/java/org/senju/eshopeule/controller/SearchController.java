@@ -1,11 +1,15 @@
 package org.senju.eshopeule.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
 import org.senju.eshopeule.constant.pagination.ProductPageable;
 import org.senju.eshopeule.dto.response.BaseResponse;
 import org.senju.eshopeule.dto.response.SimpleResponse;
+import org.senju.eshopeule.dto.response.SuggestionResponse;
 import org.senju.eshopeule.exceptions.PagingException;
 import org.senju.eshopeule.service.SearchingService;
+import org.senju.eshopeule.service.SuggestionService;
 import org.senju.eshopeule.utils.PaginationUtil;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,7 +17,10 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @RestController
 @RequiredArgsConstructor
@@ -21,6 +28,7 @@ import java.util.List;
 public class SearchController {
 
     private final SearchingService searchingService;
+    private final SuggestionService suggestionService;
 
     @GetMapping
     public ResponseEntity<? extends BaseResponse> search(
@@ -29,17 +37,44 @@ public class SearchController {
             @RequestParam(value = "categories", required = false) List<String> categoryNames,
             @RequestParam(value = "minPrice", required = false) Double minPrice,
             @RequestParam(value = "maxPrice", required = false) Double maxPrice,
+            @RequestParam(value = "facets", required = false) List<String> facetNames,
             @RequestParam(name = "pageNo", required = false, defaultValue = ProductPageable.DEFAULT_PAGE_NO) int pageNo,
             @RequestParam(name = "pageSize", required = false, defaultValue = ProductPageable.DEFAULT_PAGE_SIZE) int pageSize,
             @RequestParam(name = "sortField", required = false, defaultValue = "price") String sortField,
-            @RequestParam(name = "sortDir", required = false, defaultValue = ProductPageable.DEFAULT_SORT_DIRECTION) String sortDirection
+            @RequestParam(name = "sortDir", required = false, defaultValue = ProductPageable.DEFAULT_SORT_DIRECTION) String sortDirection,
+            @RequestParam(name = "ranking", required = false) String rankingName,
+            @RequestParam(name = "cursor", required = false) String cursor
     ) {
         try {
-            return ResponseEntity.ok(searchingService.search(keyword, brandName, categoryNames, minPrice, maxPrice,
-                    PaginationUtil.findPaginated(pageNo, pageSize, sortField, sortDirection)));
+            final Set<SearchFacet> facets = facetNames == null ? Set.of() : facetNames.stream()
+                    .map(SearchFacet::fromFacetName)
+                    .collect(Collectors.toCollection(() -> EnumSet.noneOf(SearchFacet.class)));
+            final SearchRanking ranking = rankingName == null ? SearchRanking.RELEVANCE : SearchRanking.fromRankingName(rankingName);
+            // Popularity ranking orders by score, so the sort field does not apply.
+            final boolean sortByScore = ranking == SearchRanking.POPULARITY;
+            // Passing the cursor parameter, even empty, switches to search_after paging on a point in time.
+            if (cursor != null) {
+                PaginationUtil.checkValidPageSize(pageSize);
+                return ResponseEntity.ok(searchingService.searchWithCursor(keyword, brandName, categoryNames, minPrice, maxPrice,
+                        facets, ranking, cursor, sortByScore
+                                ? PaginationUtil.findPaginated(1, pageSize)
+                                : PaginationUtil.findPaginated(1, pageSize, sortField, sortDirection)));
+            }
+            return ResponseEntity.ok(searchingService.search(keyword, brandName, categoryNames, minPrice, maxPrice, facets, ranking,
+                    sortByScore
+                            ? PaginationUtil.findPaginated(pageNo, pageSize)
+                            : PaginationUtil.findPaginated(pageNo, pageSize, sortField, sortDirection)));
         } catch (PagingException ex) {
             return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
         }
 
     }
+
+    @GetMapping(path = "/suggest")
+    public ResponseEntity<? extends BaseResponse> suggest(
+            @RequestParam(value = "prefix") String prefix,
+            @RequestParam(value = "size", required = false, defaultValue = "10") int size
+    ) {
+        return ResponseEntity.ok(new SuggestionResponse(suggestionService.suggest(prefix, size)));
+    }
 }
@@ -0,0 +1,55 @@
+package org.senju.eshopeule.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.dto.response.BaseResponse;
+import org.senju.eshopeule.dto.response.SimpleResponse;
+import org.senju.eshopeule.exceptions.ProductException;
+import org.senju.eshopeule.service.CatalogCascadeService;
+import org.senju.eshopeule.service.ProductReindexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collection;
+
+import static org.senju.eshopeule.constant.pattern.RoutePattern.PRIVATE_PREFIX;
+
+@RestController
+@RequiredArgsConstructor
+@RequestMapping(path = PRIVATE_PREFIX + "/v1/search-index")
+public class SearchIndexController {
+
+    private final ProductReindexService productReindexService;
+    private final CatalogCascadeService catalogCascadeService;
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexController.class);
+
+    @GetMapping(path = "/reindex")
+    @Operation(summary = "Get progress of the current or last products reindex job")
+    public ResponseEntity<? extends BaseResponse> getReindexProgress() {
+        return ResponseEntity.ok(productReindexService.getProgress());
+    }
+
+    @PostMapping(path = "/reindex")
+    @Operation(summary = "Start a full or incremental reindex of products")
+    public ResponseEntity<? extends BaseResponse> startReindex(
+            @RequestParam(name = "incremental", required = false, defaultValue = "false") boolean incremental
+    ) {
+        logger.info("Start {} reindex of products", incremental ? "incremental" : "full");
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(incremental
+                    ? productReindexService.startIncrementalReindex()
+                    : productReindexService.startFullReindex());
+        } catch (ProductException ex) {
+            return ResponseEntity.badRequest().body(new SimpleResponse(ex.getMessage()));
+        }
+    }
+
+    @GetMapping(path = "/cascade")
+    @Operation(summary = "Get progress of recent brand and category cascades into the products index")
+    public ResponseEntity<Collection<? extends BaseResponse>> getCascadeProgress() {
+        return ResponseEntity.ok(catalogCascadeService.getProgress());
+    }
+}
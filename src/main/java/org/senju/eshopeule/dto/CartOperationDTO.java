@@ -0,0 +1,39 @@
+package org.senju.eshopeule.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import lombok.*;
+
+import java.io.Serial;
+
+/**
+ * One change of a bulk cart update. {@code ADD} adds the quantity to the item, {@code SET}
+ * replaces it and removes the item at 0, {@code REMOVE} drops the item, or all items of the
+ * product when no option is given.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class CartOperationDTO implements BaseDTO {
+
+    @Serial
+    private static final long serialVersionUID = 5132690717416233918L;
+
+    @NotBlank(message = "Operation type is required")
+    private String type;
+
+    @NotBlank(message = "Product ID is required")
+    @JsonProperty(value = "product_id")
+    private String productId;
+
+    @JsonProperty(value = "option_id")
+    private String optionId;
+
+    @Min(value = 0, message = "Product's quantity must not be negative")
+    private Integer quantity;
+}
@@ -0,0 +1,54 @@
+package org.senju.eshopeule.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serial;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class CatalogCascadeProgressDTO implements BaseDTO {
+
+    @Serial
+    private static final long serialVersionUID = 6403187725931254019L;
+
+    private String id;
+
+    private String trigger;
+
+    @JsonProperty(value = "aggregate_id")
+    private String aggregateId;
+
+    private String field;
+
+    @JsonProperty(value = "stale_value")
+    private String staleValue;
+
+    private String status;
+
+    @JsonProperty(value = "matched_count")
+    private Long matchedCount;
+
+    @JsonProperty(value = "enqueued_count")
+    private Long enqueuedCount;
+
+    @JsonProperty(value = "docs_per_second")
+    private Double docsPerSecond;
+
+    @JsonProperty(value = "submitted_on")
+    private LocalDateTime submittedOn;
+
+    @JsonProperty(value = "started_on")
+    private LocalDateTime startedOn;
+
+    @JsonProperty(value = "finished_on")
+    private LocalDateTime finishedOn;
+
+    private String error;
+}
@@ -0,0 +1,22 @@
+package org.senju.eshopeule.dto;
+
+import lombok.*;
+
+import java.io.Serial;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public final class RangeFacetDTO implements BaseDTO {
+
+    @Serial
+    private static final long serialVersionUID = -4712381196059023657L;
+
+    private double from;
+
+    private double to;
+
+    private long count;
+}
@@ -0,0 +1,41 @@
+package org.senju.eshopeule.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serial;
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ReindexProgressDTO implements BaseDTO {
+
+    @Serial
+    private static final long serialVersionUID = 2854061937402251836L;
+
+    private String mode;
+
+    private String status;
+
+    @JsonProperty(value = "target_index")
+    private String targetIndex;
+
+    @JsonProperty(value = "indexed_count")
+    private Long indexedCount;
+
+    @JsonProperty(value = "docs_per_second")
+    private Double docsPerSecond;
+
+    @JsonProperty(value = "started_on")
+    private LocalDateTime startedOn;
+
+    @JsonProperty(value = "finished_on")
+    private LocalDateTime finishedOn;
+
+    private String error;
+}
@@ -0,0 +1,29 @@
+package org.senju.eshopeule.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.*;
+
+import java.io.Serial;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class SearchFacetsDTO implements BaseDTO {
+
+    @Serial
+    private static final long serialVersionUID = 1459013762980532248L;
+
+    private List<TermFacetDTO> brands;
+
+    private List<TermFacetDTO> categories;
+
+    private List<RangeFacetDTO> prices;
+
+    @JsonProperty("discounted_prices")
+    private List<RangeFacetDTO> discountedPrices;
+}
@@ -0,0 +1,20 @@
+package org.senju.eshopeule.dto;
+
+import lombok.*;
+
+import java.io.Serial;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public final class TermFacetDTO implements BaseDTO {
+
+    @Serial
+    private static final long serialVersionUID = 6034125518946720113L;
+
+    private String value;
+
+    private long count;
+}
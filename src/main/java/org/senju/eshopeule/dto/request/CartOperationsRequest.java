@@ -0,0 +1,22 @@
+package org.senju.eshopeule.dto.request;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import org.senju.eshopeule.dto.CartOperationDTO;
+
+import java.io.Serial;
+import java.util.List;
+
+@Getter
+public final class CartOperationsRequest implements BaseRequest {
+
+    @Serial
+    private static final long serialVersionUID = 7261402931578230417L;
+
+    @Valid
+    @NotEmpty(message = "Operations are required")
+    @Size(max = 100, message = "At most 100 operations are allowed")
+    private List<CartOperationDTO> operations;
+}
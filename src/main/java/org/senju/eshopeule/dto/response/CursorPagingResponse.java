@@ -0,0 +1,22 @@
+package org.senju.eshopeule.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.senju.eshopeule.dto.BaseDTO;
+
+@Getter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public abstract class CursorPagingResponse implements BaseDTO {
+
+    @JsonProperty(value = "next_cursor")
+    private String nextCursor;
+
+    @JsonProperty(value = "page_size")
+    private int pageSize;
+
+    @JsonProperty(value = "has_next")
+    private boolean hasNext;
+}
@@ -0,0 +1,25 @@
+package org.senju.eshopeule.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+import org.senju.eshopeule.dto.OrderDTO;
+
+import java.io.Serial;
+import java.util.List;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class OrderSliceResponse extends CursorPagingResponse {
+
+    @Serial
+    private static final long serialVersionUID = -3180653478125530914L;
+
+    private List<OrderDTO> orders;
+
+    public OrderSliceResponse(String nextCursor, int pageSize, boolean hasNext, List<OrderDTO> orders) {
+        super(nextCursor, pageSize, hasNext);
+        this.orders = orders;
+    }
+}
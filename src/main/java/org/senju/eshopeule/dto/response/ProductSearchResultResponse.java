@@ -5,10 +5,10 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 import org.senju.eshopeule.dto.ProductDTO;
+import org.senju.eshopeule.dto.SearchFacetsDTO;
 
 import java.io.Serial;
 import java.util.List;
-import java.util.Map;
 
 @Getter
 @Setter
@@ -19,14 +19,14 @@ public class ProductSearchResultResponse extends PagingResponse {
 
     private List<? extends ProductDTO> products;
 
-    private Map<String, Map<String, Long>> aggregations;
+    private SearchFacetsDTO facets;
 
     public ProductSearchResultResponse(long totalElements, int totalPages, int pageNo,
                                        int pageSize, boolean isLast,
                                        List<? extends ProductDTO> products,
-                                       Map<String, Map<String, Long>> aggregations) {
+                                       SearchFacetsDTO facets) {
         super(totalElements, totalPages, pageNo, pageSize, isLast);
-        this.aggregations = aggregations;
+        this.facets = facets;
         this.products = products;
     }
 }
@@ -0,0 +1,31 @@
+package org.senju.eshopeule.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Getter;
+import lombok.Setter;
+import org.senju.eshopeule.dto.ProductDTO;
+import org.senju.eshopeule.dto.SearchFacetsDTO;
+
+import java.io.Serial;
+import java.util.List;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ProductSearchSliceResponse extends CursorPagingResponse {
+
+    @Serial
+    private static final long serialVersionUID = -6930413387604172385L;
+
+    private List<? extends ProductDTO> products;
+
+    private SearchFacetsDTO facets;
+
+    public ProductSearchSliceResponse(String nextCursor, int pageSize, boolean hasNext,
+                                      List<? extends ProductDTO> products,
+                                      SearchFacetsDTO facets) {
+        super(nextCursor, pageSize, hasNext);
+        this.products = products;
+        this.facets = facets;
+    }
+}
@@ -0,0 +1,30 @@
+package org.senju.eshopeule.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Getter;
+import lombok.Setter;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+
+import java.io.Serial;
+import java.util.List;
+
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public final class ProductSliceResponse extends CursorPagingResponse {
+
+    @Serial
+    private static final long serialVersionUID = 5417092651347386903L;
+
+    private List<ProductSimpleDTO> products;
+
+    @JsonProperty(value = "approximate_total")
+    private Long approximateTotal;
+
+    public ProductSliceResponse(String nextCursor, int pageSize, boolean hasNext, List<ProductSimpleDTO> products, Long approximateTotal) {
+        super(nextCursor, pageSize, hasNext);
+        this.products = products;
+        this.approximateTotal = approximateTotal;
+    }
+}
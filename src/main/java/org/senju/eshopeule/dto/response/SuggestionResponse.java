@@ -0,0 +1,17 @@
+package org.senju.eshopeule.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.Serial;
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public final class SuggestionResponse implements BaseResponse {
+    @Serial
+    private static final long serialVersionUID = 2871940036257463820L;
+    private List<String> suggestions;
+}
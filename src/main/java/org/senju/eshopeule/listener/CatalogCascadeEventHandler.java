@@ -0,0 +1,28 @@
+package org.senju.eshopeule.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.service.CatalogCascadeService;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+import static org.senju.eshopeule.model.outbox.OutboxEventType.*;
+
+@Component
+@RequiredArgsConstructor
+public class CatalogCascadeEventHandler implements OutboxEventHandler {
+
+    private final CatalogCascadeService catalogCascadeService;
+
+    @Override
+    public Set<OutboxEventType> getSupportedTypes() {
+        return Set.of(BRAND_RENAMED, BRAND_DELETED, CATEGORY_RENAMED, CATEGORY_DELETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        catalogCascadeService.submit(event.getType(), event.getAggregateId(), event.getPayload());
+    }
+}
@@ -0,0 +1,42 @@
+package org.senju.eshopeule.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.constant.enums.NotificationType;
+import org.senju.eshopeule.dto.NotificationDTO;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.repository.jpa.OrderRepository;
+import org.senju.eshopeule.service.NotificationService;
+import org.senju.eshopeule.utils.MessageUtil;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+import static org.senju.eshopeule.constant.enums.NotificationType.SendMethodType.EMAIL;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.*;
+
+/**
+ * Emails the customer whenever their order is placed, shipped, completed or cancelled. A failed
+ * send fails the event, so the relay retries it with backoff.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderNotificationEventHandler implements OutboxEventHandler {
+
+    private final OrderRepository orderRepository;
+    private final NotificationService emailNotificationService;
+
+    @Override
+    public Set<OutboxEventType> getSupportedTypes() {
+        return Set.of(ORDER_CREATED, ORDER_SHIPPING, ORDER_COMPLETED, ORDER_CANCELLED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        final String orderId = event.getAggregateId();
+        orderRepository.getCustomerEmailById(orderId).ifPresent(email -> {
+            final NotificationType type = new NotificationType(EMAIL, NotificationType.ContentType.valueOf(event.getType().name()));
+            emailNotificationService.sendNotification(MessageUtil.buildMessage(new NotificationDTO(type, orderId, email)));
+        });
+    }
+}
@@ -0,0 +1,37 @@
+package org.senju.eshopeule.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.repository.jpa.OrderItemRepository;
+import org.senju.eshopeule.service.ProductPopularityService;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.senju.eshopeule.model.outbox.OutboxEventType.ORDER_COMPLETED;
+
+/**
+ * Refreshes the popularity signals of the products of a completed order right away, instead of
+ * leaving their ordered quantities to the next periodic refresh. Only completed orders count
+ * towards those quantities, so the other order events do not change them.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderStatisticsEventHandler implements OutboxEventHandler {
+
+    private final OrderItemRepository orderItemRepository;
+    private final ProductPopularityService productPopularityService;
+
+    @Override
+    public Set<OutboxEventType> getSupportedTypes() {
+        return Set.of(ORDER_COMPLETED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        final List<String> productIds = orderItemRepository.getProductIdsByOrderId(event.getAggregateId());
+        if (!productIds.isEmpty()) productPopularityService.refreshSignals(productIds);
+    }
+}
@@ -0,0 +1,27 @@
+package org.senju.eshopeule.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Component
+@RequiredArgsConstructor
+public class OutboxEventDispatcher {
+
+    private final List<OutboxEventHandler> handlers;
+
+    /**
+     * Runs every handler registered for the event type in its own transaction, so a failing
+     * handler does not roll back the relay batch that holds the row locks.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void dispatch(OutboxEvent event) {
+        handlers.stream()
+                .filter(h -> h.getSupportedTypes().contains(event.getType()))
+                .forEach(h -> h.handle(event));
+    }
+}
@@ -0,0 +1,13 @@
+package org.senju.eshopeule.listener;
+
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+
+import java.util.Set;
+
+public interface OutboxEventHandler {
+
+    Set<OutboxEventType> getSupportedTypes();
+
+    void handle(OutboxEvent event);
+}
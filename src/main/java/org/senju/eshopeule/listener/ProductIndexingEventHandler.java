@@ -0,0 +1,28 @@
+package org.senju.eshopeule.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.service.ProductIndexingService;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+import static org.senju.eshopeule.model.outbox.OutboxEventType.*;
+
+@Component
+@RequiredArgsConstructor
+public class ProductIndexingEventHandler implements OutboxEventHandler {
+
+    private final ProductIndexingService productIndexingService;
+
+    @Override
+    public Set<OutboxEventType> getSupportedTypes() {
+        return Set.of(PRODUCT_CREATED, PRODUCT_UPDATED, PRODUCT_DELETED, PRODUCT_IMAGES_CHANGED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        productIndexingService.enqueue(event.getAggregateId());
+    }
+}
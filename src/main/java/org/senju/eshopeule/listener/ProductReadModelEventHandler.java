@@ -0,0 +1,35 @@
+package org.senju.eshopeule.listener;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.service.ProductCacheService;
+import org.senju.eshopeule.service.ProductDetailViewService;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.senju.eshopeule.model.outbox.OutboxEventType.*;
+
+@Component
+@RequiredArgsConstructor
+public class ProductReadModelEventHandler implements OutboxEventHandler {
+
+    private final ProductDetailViewService productDetailViewService;
+    private final ProductCacheService productCacheService;
+
+    @Override
+    public Set<OutboxEventType> getSupportedTypes() {
+        return Set.of(PRODUCT_CREATED, PRODUCT_UPDATED, PRODUCT_DELETED, PRODUCT_IMAGES_CHANGED,
+                PRODUCT_OPTIONS_CHANGED, PRODUCT_META_CHANGED);
+    }
+
+    @Override
+    public void handle(OutboxEvent event) {
+        // The cache is evicted after the rebuild, otherwise a miss in between caches the old view.
+        final List<String> productIds = List.of(event.getAggregateId());
+        productDetailViewService.rebuild(productIds);
+        productCacheService.evict(productIds);
+    }
+}
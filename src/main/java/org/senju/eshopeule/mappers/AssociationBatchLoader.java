@@ -0,0 +1,144 @@
+package org.senju.eshopeule.mappers;
+
+import org.senju.eshopeule.dto.ProductAttributeValueDTO;
+import org.senju.eshopeule.dto.ProductOptionDTO;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.model.product.ProductMeta;
+import org.senju.eshopeule.repository.jpa.ProductImageRepository;
+import org.senju.eshopeule.repository.jpa.ProductOptionRepository;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.mongodb.ProductMetaRepository;
+import org.senju.eshopeule.repository.projection.OptionAttributeValueView;
+import org.senju.eshopeule.repository.projection.ProductSummaryView;
+import org.senju.eshopeule.repository.projection.ProductThumbnailView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves the associations of DTOs assembled from many entities in one query per kind of
+ * association instead of one per entity. While {@link #assemble(Supplier)} runs, mappers only
+ * register the keys they need together with the setter of the DTO, the keys of each kind are
+ * then resolved with a single {@code IN} query before the assembled result is returned.
+ * Outside of an assembly every association is loaded right away, as single DTOs need no batching.
+ */
+@Component
+public class AssociationBatchLoader {
+
+    private static final ThreadLocal<Batch> CURRENT_BATCH = new ThreadLocal<>();
+    private static final Logger logger = LoggerFactory.getLogger(AssociationBatchLoader.class);
+
+    private final Map<Association<?>, Function<Set<String>, Map<String, ?>>> resolvers;
+
+    public AssociationBatchLoader(ProductSimpleMapper productSimpleMapper,
+                                  ProductRepository productRepository,
+                                  ProductImageRepository productImageRepository,
+                                  ProductOptionRepository productOptionRepository,
+                                  ProductMetaRepository productMetaRepository) {
+        this.resolvers = Map.of(
+                Association.PRODUCT_THUMBNAIL, ids -> productImageRepository.getThumbnailsByProductIds(ids).stream()
+                        .filter(v -> v.getImageUrl() != null)
+                        .collect(Collectors.toMap(ProductThumbnailView::getProductId, ProductThumbnailView::getImageUrl)),
+                Association.PRODUCT_SUMMARY, ids -> productRepository.getSummariesByIds(ids).stream()
+                        .collect(Collectors.toMap(ProductSummaryView::getId, productSimpleMapper::convertToDTO)),
+                Association.OPTION_SUMMARY, ids -> this.toProductOptionDTOs(productOptionRepository.getOptionAttributeValuesByIds(ids)),
+                Association.PRODUCT_META, ids -> productMetaRepository.findAllByProductIdIn(ids).stream()
+                        .collect(Collectors.toMap(ProductMeta::getProductId, Function.identity(), (first, second) -> first))
+        );
+    }
+
+    /**
+     * Runs the assembly of DTOs and resolves all associations its mappers registered. Nested
+     * assemblies join the outer one.
+     */
+    public <T> T assemble(Supplier<T> assembly) {
+        if (CURRENT_BATCH.get() != null) return assembly.get();
+        final Batch batch = new Batch();
+        CURRENT_BATCH.set(batch);
+        try {
+            final T result = assembly.get();
+            this.dispatch(batch);
+            return result;
+        } finally {
+            CURRENT_BATCH.remove();
+        }
+    }
+
+    /**
+     * Passes the associated value of the key to the consumer, once the current assembly is
+     * resolved or right away from the fallback when no assembly is running. Missing values
+     * are passed as {@code null}.
+     */
+    public static <V> void load(Association<V> association, String key, Consumer<V> consumer, Supplier<V> fallback) {
+        final Batch batch = CURRENT_BATCH.get();
+        if (batch == null || key == null) {
+            consumer.accept(fallback.get());
+            return;
+        }
+        batch.register(association, key, consumer);
+    }
+
+    private void dispatch(Batch batch) {
+        // Consumers may register further associations, keep going until nothing is left.
+        while (!batch.pending.isEmpty()) {
+            final Map<Association<?>, Map<String, List<Consumer<Object>>>> pending = new LinkedHashMap<>(batch.pending);
+            batch.pending.clear();
+            pending.forEach((association, consumers) -> {
+                final Map<String, ?> values = resolvers.get(association).apply(consumers.keySet());
+                logger.debug("Resolved {} of {} keys of {}", values.size(), consumers.size(), association);
+                consumers.forEach((key, keyConsumers) ->
+                        keyConsumers.forEach(consumer -> consumer.accept(values.get(key))));
+            });
+        }
+    }
+
+    private Map<String, ProductOptionDTO> toProductOptionDTOs(List<OptionAttributeValueView> rows) {
+        final Map<String, ProductOptionDTO> options = new HashMap<>();
+        for (OptionAttributeValueView row : rows) {
+            final ProductOptionDTO option = options.computeIfAbsent(row.getOptionId(), id -> ProductOptionDTO.builder()
+                    .id(id)
+                    .name(row.getOptionName())
+                    .build());
+            if (row.getAttributeName() == null) continue;
+            if (option.getAttributes() == null) option.setAttributes(new HashMap<>());
+            option.getAttributes().putIfAbsent(row.getAttributeName(), new ProductAttributeValueDTO(row.getValue()));
+        }
+        return options;
+    }
+
+    public static final class Association<V> {
+
+        public static final Association<String> PRODUCT_THUMBNAIL = new Association<>("product_thumbnail");
+        public static final Association<ProductSimpleDTO> PRODUCT_SUMMARY = new Association<>("product_summary");
+        public static final Association<ProductOptionDTO> OPTION_SUMMARY = new Association<>("option_summary");
+        public static final Association<ProductMeta> PRODUCT_META = new Association<>("product_meta");
+
+        private final String name;
+
+        private Association(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private static final class Batch {
+        private final Map<Association<?>, Map<String, List<Consumer<Object>>>> pending = new LinkedHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        private <V> void register(Association<V> association, String key, Consumer<V> consumer) {
+            pending.computeIfAbsent(association, a -> new LinkedHashMap<>())
+                    .computeIfAbsent(key, k -> new ArrayList<>())
+                    .add((Consumer<Object>) consumer);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package org.senju.eshopeule.mappers;
 
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import org.mapstruct.*;
 import org.mapstruct.factory.Mappers;
 import org.senju.eshopeule.dto.*;
 import org.senju.eshopeule.model.cart.CartItem;
@@ -11,6 +10,9 @@ import org.senju.eshopeule.model.product.ProductOption;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.OPTION_SUMMARY;
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.PRODUCT_SUMMARY;
+
 @Mapper(componentModel = "spring")
 public abstract class CartItemMapper implements BaseMapper<CartItem, CartItemDTO> {
 
@@ -21,8 +23,9 @@ public abstract class CartItemMapper implements BaseMapper<CartItem, CartItemDTO
     public abstract CartItem convertToEntity(CartItemDTO dto);
 
     @Override
-    @Mapping(target = "product", expression = "java(mappingProduct(entity))")
-    @Mapping(target = "option", expression = "java(mappingOption(entity))")
+    @BeanMapping(builder = @Builder(disableBuilder = true))
+    @Mapping(target = "product", ignore = true)
+    @Mapping(target = "option", ignore = true)
     public abstract CartItemDTO convertToDTO(CartItem entity);
 
     protected Product mappingProduct(CartItemDTO dto) {
@@ -35,6 +38,16 @@ public abstract class CartItemMapper implements BaseMapper<CartItem, CartItemDTO
         return ProductOption.builder().id(dto.getOption().getId()).build();
     }
 
+    @AfterMapping
+    protected void mappingAssociations(CartItem entity, @MappingTarget CartItemDTO dto) {
+        if (entity.getProduct() != null) {
+            AssociationBatchLoader.load(PRODUCT_SUMMARY, entity.getProduct().getId(), dto::setProduct, () -> mappingProduct(entity));
+        }
+        if (entity.getOption() != null) {
+            AssociationBatchLoader.load(OPTION_SUMMARY, entity.getOption().getId(), dto::setOption, () -> mappingOption(entity));
+        }
+    }
+
     protected ProductSimpleDTO mappingProduct(CartItem entity) {
         if (entity.getProduct() == null) return null;
         return Mappers.getMapper(ProductSimpleMapper.class).convertToDTO(entity.getProduct());
@@ -1,7 +1,6 @@
 package org.senju.eshopeule.mappers;
 
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import org.mapstruct.*;
 import org.mapstruct.factory.Mappers;
 import org.senju.eshopeule.dto.OrderItemDTO;
 import org.senju.eshopeule.dto.ProductAttributeValueDTO;
@@ -13,6 +12,9 @@ import org.senju.eshopeule.model.product.ProductOption;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.OPTION_SUMMARY;
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.PRODUCT_SUMMARY;
+
 @Mapper(componentModel = "spring")
 public abstract class OrderItemMapper implements BaseMapper<OrderItem, OrderItemDTO> {
 
@@ -20,10 +22,21 @@ public abstract class OrderItemMapper implements BaseMapper<OrderItem, OrderItem
     public final OrderItem convertToEntity(OrderItemDTO dto) {return null;}
 
     @Override
-    @Mapping(target = "option", expression = "java(mappingOption(entity))")
-    @Mapping(target = "product", expression = "java(mappingProduct(entity))")
+    @BeanMapping(builder = @Builder(disableBuilder = true))
+    @Mapping(target = "option", ignore = true)
+    @Mapping(target = "product", ignore = true)
     public abstract OrderItemDTO convertToDTO(OrderItem entity);
 
+    @AfterMapping
+    protected void mappingAssociations(OrderItem entity, @MappingTarget OrderItemDTO dto) {
+        if (entity.getProduct() != null) {
+            AssociationBatchLoader.load(PRODUCT_SUMMARY, entity.getProduct().getId(), dto::setProduct, () -> mappingProduct(entity));
+        }
+        if (entity.getOption() != null) {
+            AssociationBatchLoader.load(OPTION_SUMMARY, entity.getOption().getId(), dto::setOption, () -> mappingOption(entity));
+        }
+    }
+
     protected ProductSimpleDTO mappingProduct(OrderItem entity) {
         if (entity.getProduct() == null) return null;
         return Mappers.getMapper(ProductSimpleMapper.class).convertToDTO(entity.getProduct());
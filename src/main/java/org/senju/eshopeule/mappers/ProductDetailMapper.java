@@ -1,7 +1,6 @@
 package org.senju.eshopeule.mappers;
 
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import org.mapstruct.*;
 import org.mapstruct.factory.Mappers;
 import org.senju.eshopeule.dto.*;
 import org.senju.eshopeule.model.product.*;
@@ -10,6 +9,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.List;
 
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.PRODUCT_META;
+
 @Mapper(componentModel = "spring")
 public abstract class ProductDetailMapper implements ProductMapper<ProductDetailDTO> {
 
@@ -20,11 +21,12 @@ public abstract class ProductDetailMapper implements ProductMapper<ProductDetail
     public final Product convertToEntity(ProductDetailDTO dto) {return null;}
 
     @Override
+    @BeanMapping(builder = @Builder(disableBuilder = true))
     @Mapping(target = "brand", expression = "java(mappingBrand(entity))")
     @Mapping(target = "categories", expression = "java(mappingCategories(entity))")
     @Mapping(target = "imageUrls", expression = "java(mappingImageUrls(entity))")
     @Mapping(target = "options", expression = "java(mappingOptions(entity))")
-    @Mapping(target = "productMeta", expression = "java(mappingProductMeta(entity))")
+    @Mapping(target = "productMeta", ignore = true)
     @Mapping(target = "createdOn", expression = "java(entity.getCreatedOn())")
     @Mapping(target = "createdBy", expression = "java(entity.getCreatedBy())")
     @Mapping(target = "lastModifiedOn", expression = "java(entity.getLastModifiedOn())")
@@ -61,8 +63,17 @@ public abstract class ProductDetailMapper implements ProductMapper<ProductDetail
                 .toList();
     }
 
-    protected ProductMetaDTO mappingProductMeta(Product entity) {
-        final var prodMeta = productMetaRepository.findByProductId(entity.getId()).orElse(null);
+    @AfterMapping
+    protected void mappingProductMeta(Product entity, @MappingTarget ProductDetailDTO dto) {
+        AssociationBatchLoader.load(
+                PRODUCT_META,
+                entity.getId(),
+                prodMeta -> dto.setProductMeta(mappingProductMeta(prodMeta)),
+                () -> productMetaRepository.findByProductId(entity.getId()).orElse(null)
+        );
+    }
+
+    protected ProductMetaDTO mappingProductMeta(ProductMeta prodMeta) {
         if (prodMeta == null) return null;
         return Mappers.getMapper(ProductMetaMapper.class).convertToDTO(prodMeta);
     }
@@ -1,7 +1,6 @@
 package org.senju.eshopeule.mappers;
 
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import org.mapstruct.*;
 import org.senju.eshopeule.dto.ProductAttributeValueDTO;
 import org.senju.eshopeule.dto.ProductMetaDTO;
 import org.senju.eshopeule.dto.ProductOptionDTO;
@@ -14,6 +13,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.PRODUCT_META;
+
 @Mapper(componentModel = "spring")
 public abstract class ProductPubMapper implements ProductMapper<ProductPubDTO> {
 
@@ -24,11 +25,12 @@ public abstract class ProductPubMapper implements ProductMapper<ProductPubDTO> {
     public final Product convertToEntity(ProductPubDTO dto) {return null;}
 
     @Override
+    @BeanMapping(builder = @Builder(disableBuilder = true))
     @Mapping(target = "brand", expression = "java(mappingBrand(entity))")
     @Mapping(target = "categories", expression = "java(mappingCategories(entity))")
     @Mapping(target = "imageUrls", expression = "java(mappingImageUrls(entity))")
     @Mapping(target = "options", expression = "java(mappingOptions(entity))")
-    @Mapping(target = "productMeta", expression = "java(mappingProductMeta(entity))")
+    @Mapping(target = "productMeta", ignore = true)
     public abstract ProductPubDTO convertToDTO(Product entity);
 
     protected String mappingBrand(Product entity) {
@@ -62,8 +64,17 @@ public abstract class ProductPubMapper implements ProductMapper<ProductPubDTO> {
                 ));
     }
 
-    protected ProductMetaDTO mappingProductMeta(Product entity) {
-        var prodMeta = productMetaRepository.findByProductId(entity.getId()).orElse(null);
+    @AfterMapping
+    protected void mappingProductMeta(Product entity, @MappingTarget ProductPubDTO dto) {
+        AssociationBatchLoader.load(
+                PRODUCT_META,
+                entity.getId(),
+                prodMeta -> dto.setProductMeta(mappingProductMeta(prodMeta)),
+                () -> productMetaRepository.findByProductId(entity.getId()).orElse(null)
+        );
+    }
+
+    protected ProductMetaDTO mappingProductMeta(ProductMeta prodMeta) {
         if (prodMeta == null) return null;
         return ProductMetaDTO.builder()
                 .metaDescription(prodMeta.getMetaDescription())
@@ -15,6 +15,7 @@ public abstract class ProductPutMapper implements ProductMapper<ProductPutDTO> {
 
 
     @BeanMapping(nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE)
+    @Mapping(target = "quantity", ignore = true)
     @Mapping(target = "brand", ignore = true)
     @Mapping(target = "productCategories", ignore = true)
     @Mapping(target = "productImages", ignore = true)
@@ -1,9 +1,11 @@
 package org.senju.eshopeule.mappers;
 
-import org.mapstruct.Mapper;
-import org.mapstruct.Mapping;
+import org.mapstruct.*;
 import org.senju.eshopeule.dto.ProductSimpleDTO;
 import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.repository.projection.ProductSummaryView;
+
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.PRODUCT_THUMBNAIL;
 
 @Mapper(componentModel = "spring")
 public abstract class ProductSimpleMapper implements ProductMapper<ProductSimpleDTO> {
@@ -12,9 +14,17 @@ public abstract class ProductSimpleMapper implements ProductMapper<ProductSimple
     public final Product convertToEntity(ProductSimpleDTO dto) {return null;}
 
     @Override
-    @Mapping(target = "imageUrl", expression = "java(mappingImageUrl(entity))")
+    @BeanMapping(builder = @Builder(disableBuilder = true))
+    @Mapping(target = "imageUrl", ignore = true)
     public abstract ProductSimpleDTO convertToDTO(Product entity);
 
+    public abstract ProductSimpleDTO convertToDTO(ProductSummaryView view);
+
+    @AfterMapping
+    protected void mappingImageUrl(Product entity, @MappingTarget ProductSimpleDTO dto) {
+        AssociationBatchLoader.load(PRODUCT_THUMBNAIL, entity.getId(), dto::setImageUrl, () -> mappingImageUrl(entity));
+    }
+
     protected String mappingImageUrl(Product entity) {
         if (entity.getProductImages() == null || entity.getProductImages().isEmpty()) return null;
         return entity.getProductImages().get(0).getImageUrl();
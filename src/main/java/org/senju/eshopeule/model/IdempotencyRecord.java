@@ -0,0 +1,27 @@
+package org.senju.eshopeule.model;
+
+import lombok.*;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 4196581342771530921L;
+
+    private String fingerprint;
+
+    private boolean completed;
+
+    private int status;
+
+    private String contentType;
+
+    private String body;
+}
@@ -0,0 +1,26 @@
+package org.senju.eshopeule.model;
+
+import lombok.*;
+import org.senju.eshopeule.dto.ProductPubDTO;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * Public product as cached in Redis, with the version of the read model document it was read
+ * from.
+ */
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCacheEntry implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 4719620455129374168L;
+
+    private long version;
+
+    private ProductPubDTO product;
+}
@@ -0,0 +1,34 @@
+package org.senju.eshopeule.model;
+
+import lombok.*;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.dto.SearchFacetsDTO;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.List;
+
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultCacheEntry implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = -1826537395023118470L;
+
+    private long totalElements;
+
+    private int totalPages;
+
+    private int pageNo;
+
+    private int pageSize;
+
+    private boolean last;
+
+    private List<ProductSimpleDTO> products;
+
+    private SearchFacetsDTO facets;
+}
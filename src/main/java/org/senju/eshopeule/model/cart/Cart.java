@@ -16,7 +16,10 @@ import static jakarta.persistence.CascadeType.*;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "carts")
+@Table(
+        name = "carts",
+        indexes = @Index(name = "idx_carts_status_last_modified_on", columnList = "status, last_modified_on")
+)
 public class Cart extends AbstractAuditEntity {
 
     @Id
@@ -33,6 +36,11 @@ public class Cart extends AbstractAuditEntity {
     @Enumerated(EnumType.STRING)
     private CartStatus status;
 
+    /**
+     * Version of the cached cart last written to this row, only set when carts are kept in Redis.
+     */
+    private Long cacheVersion;
+
 
     @Override
     public int hashCode() {
@@ -2,5 +2,6 @@ package org.senju.eshopeule.model.cart;
 
 public enum CartStatus {
     ACTIVE,
-    COMPLETED
+    COMPLETED,
+    ABANDONED
 }
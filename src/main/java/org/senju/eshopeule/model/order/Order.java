@@ -14,7 +14,13 @@ import java.util.List;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "orders")
+@Table(
+        name = "orders",
+        indexes = {
+                @Index(name = "idx_orders_customer_id_created_on_id", columnList = "customer_id, created_on DESC, id DESC"),
+                @Index(name = "idx_orders_created_on_id", columnList = "created_on DESC, id DESC")
+        }
+)
 public class Order extends AbstractAuditEntity {
 
     @Id
@@ -0,0 +1,8 @@
+package org.senju.eshopeule.model.order;
+
+public enum ReservationStatus {
+    RESERVED,
+    RELEASED,
+    EXPIRED,
+    CONVERTED
+}
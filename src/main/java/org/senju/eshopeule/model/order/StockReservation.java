@@ -0,0 +1,62 @@
+package org.senju.eshopeule.model.order;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.senju.eshopeule.model.AbstractAuditEntity;
+import org.senju.eshopeule.model.product.Product;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "stock_reservations",
+        indexes = {
+                @Index(name = "idx_stock_reservations_order_id", columnList = "order_id"),
+                @Index(name = "idx_stock_reservations_status_expires_on", columnList = "status, expires_on")
+        }
+)
+public class StockReservation extends AbstractAuditEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_id", nullable = false)
+    private Order order;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "order_item_id", nullable = false, unique = true)
+    private OrderItem orderItem;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "product_id", nullable = false)
+    private Product product;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private ReservationStatus status = ReservationStatus.RESERVED;
+
+    private LocalDateTime expiresOn;
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof StockReservation)) return false;
+        return id != null && id.equals(((StockReservation) obj).getId());
+    }
+}
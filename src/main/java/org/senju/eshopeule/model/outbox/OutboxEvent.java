@@ -0,0 +1,65 @@
+package org.senju.eshopeule.model.outbox;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.senju.eshopeule.model.AbstractAuditEntity;
+
+import java.time.LocalDateTime;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "outbox_events",
+        indexes = {
+                @Index(name = "idx_outbox_events_status_available_on", columnList = "status, available_on"),
+                @Index(name = "idx_outbox_events_status_last_modified_on", columnList = "status, last_modified_on"),
+                @Index(name = "idx_outbox_events_type_created_on", columnList = "type, created_on")
+        }
+)
+public class OutboxEvent extends AbstractAuditEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType type;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private OutboxEventStatus status = OutboxEventStatus.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(nullable = false)
+    private LocalDateTime availableOn;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof OutboxEvent)) return false;
+        return id != null && id.equals(((OutboxEvent) obj).getId());
+    }
+}
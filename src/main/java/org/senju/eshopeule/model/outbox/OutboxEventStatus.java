@@ -0,0 +1,5 @@
+package org.senju.eshopeule.model.outbox;
+
+public enum OutboxEventStatus {
+    PENDING, PROCESSED, FAILED
+}
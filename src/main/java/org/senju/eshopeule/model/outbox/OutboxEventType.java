@@ -0,0 +1,18 @@
+package org.senju.eshopeule.model.outbox;
+
+public enum OutboxEventType {
+    PRODUCT_CREATED,
+    PRODUCT_UPDATED,
+    PRODUCT_DELETED,
+    PRODUCT_IMAGES_CHANGED,
+    PRODUCT_OPTIONS_CHANGED,
+    PRODUCT_META_CHANGED,
+    BRAND_RENAMED,
+    BRAND_DELETED,
+    CATEGORY_RENAMED,
+    CATEGORY_DELETED,
+    ORDER_CREATED,
+    ORDER_SHIPPING,
+    ORDER_COMPLETED,
+    ORDER_CANCELLED
+}
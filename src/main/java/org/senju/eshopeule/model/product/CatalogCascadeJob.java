@@ -0,0 +1,77 @@
+package org.senju.eshopeule.model.product;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.senju.eshopeule.model.AbstractAuditEntity;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+
+import java.time.LocalDateTime;
+
+/**
+ * A re-sync of the products still indexed with the stale name of a brand or category. The job
+ * records the last product it handed to the indexing queue, so a job whose node died resumes
+ * after that product once its claim expires.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "catalog_cascade_jobs",
+        indexes = @Index(name = "idx_catalog_cascade_jobs_status_created_on", columnList = "status, created_on")
+)
+public class CatalogCascadeJob extends AbstractAuditEntity {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private OutboxEventType trigger;
+
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false)
+    private String field;
+
+    @Column(nullable = false)
+    private String staleValue;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    @Builder.Default
+    private CatalogCascadeJobStatus status = CatalogCascadeJobStatus.PENDING;
+
+    private Long matchedCount;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long enqueuedCount = 0L;
+
+    private String lastProductId;
+
+    private LocalDateTime startedOn;
+
+    private LocalDateTime finishedOn;
+
+    private LocalDateTime claimedUntil;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof CatalogCascadeJob)) return false;
+        return id != null && id.equals(((CatalogCascadeJob) obj).getId());
+    }
+}
@@ -0,0 +1,5 @@
+package org.senju.eshopeule.model.product;
+
+public enum CatalogCascadeJobStatus {
+    PENDING, RUNNING, COMPLETED
+}
@@ -2,6 +2,7 @@ package org.senju.eshopeule.model.product;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.senju.eshopeule.model.AbstractAuditEntity;
 
 import java.util.List;
@@ -16,7 +17,14 @@ import static jakarta.persistence.CascadeType.REMOVE;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "products")
+@Table(
+        name = "products",
+        indexes = {
+                @Index(name = "idx_products_brand_id_name_id", columnList = "brand_id, name, id"),
+                @Index(name = "idx_products_brand_id_price_id", columnList = "brand_id, price, id"),
+                @Index(name = "idx_products_brand_id_last_modified_on_id", columnList = "brand_id, last_modified_on, id")
+        }
+)
 public class Product extends AbstractAuditEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
@@ -37,9 +45,15 @@ public class Product extends AbstractAuditEntity {
 
     private Double discount;
 
-    @Column(nullable = false)
+    // Stock columns are only written by atomic native statements, never by saving a loaded product.
+    @Column(nullable = false, updatable = false)
     private Long quantity;
 
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("0")
+    @Builder.Default
+    private Long reserved = 0L;
+
     @Column(nullable = false)
     private Boolean hasOptions;
 
@@ -49,6 +63,11 @@ public class Product extends AbstractAuditEntity {
     @Column(nullable = false)
     private Boolean isAllowedToOrder;
 
+    @Column(nullable = false, updatable = false)
+    @ColumnDefault("false")
+    @Builder.Default
+    private Boolean isHotItem = false;
+
     private String description;
 
     @ManyToOne
@@ -59,6 +78,7 @@ public class Product extends AbstractAuditEntity {
     private List<ProductCategory> productCategories;
 
     @OneToMany(mappedBy = "product", cascade = REMOVE)
+    @OrderBy("createdOn ASC, id ASC")
     private List<ProductImage> productImages;
 
     @OneToMany(mappedBy = "product", cascade = {REMOVE, PERSIST})
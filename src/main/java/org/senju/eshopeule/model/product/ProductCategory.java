@@ -10,7 +10,10 @@ import org.senju.eshopeule.model.BaseEntity;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "product_category")
+@Table(
+        name = "product_category",
+        indexes = @Index(name = "idx_product_category_category_id_product_id", columnList = "category_id, product_id")
+)
 public class ProductCategory implements BaseEntity {
 
     @Id
@@ -0,0 +1,41 @@
+package org.senju.eshopeule.model.product;
+
+import jakarta.persistence.Id;
+import lombok.*;
+import org.senju.eshopeule.dto.ProductDetailDTO;
+import org.senju.eshopeule.dto.ProductPubDTO;
+import org.senju.eshopeule.model.BaseEntity;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Precomputed detail of one product, keyed by the product id. The version is the database time
+ * at which the rebuild started reading, a rebuild only replaces a document of an older version.
+ * Deleted products keep a tombstone so that a late rebuild cannot bring them back.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Document(collection = "product_detail_views")
+public class ProductDetailView implements BaseEntity {
+
+    @Id
+    private String id;
+
+    @Indexed
+    private String slug;
+
+    private Long version;
+
+    private boolean deleted;
+
+    private ProductDetailDTO detail;
+
+    private ProductPubDTO publication;
+
+    private LocalDateTime rebuiltOn;
+}
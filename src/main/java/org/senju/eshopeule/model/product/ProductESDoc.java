@@ -3,10 +3,12 @@ package org.senju.eshopeule.model.product;
 import jakarta.persistence.Id;
 import lombok.*;
 import org.senju.eshopeule.model.BaseEntity;
+import org.springframework.data.elasticsearch.annotations.CompletionField;
 import org.springframework.data.elasticsearch.annotations.Document;
 import org.springframework.data.elasticsearch.annotations.Field;
 import org.springframework.data.elasticsearch.annotations.FieldType;
 import org.springframework.data.elasticsearch.annotations.Setting;
+import org.springframework.data.elasticsearch.core.suggest.Completion;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -39,6 +41,9 @@ public class ProductESDoc implements BaseEntity {
     @Field(type = FieldType.Double)
     private Double discount;
 
+    @Field(type = FieldType.Double)
+    private Double discountedPrice;
+
     private Boolean isPublished;
 
     private Boolean isAllowedToOrder;
@@ -53,4 +58,16 @@ public class ProductESDoc implements BaseEntity {
 
     @Field(type = FieldType.Date, format = date_hour_minute_second)
     private LocalDateTime lastModifiedOn;
+
+    @Field(type = FieldType.Long)
+    private Long orderedQuantity;
+
+    @Field(type = FieldType.Long)
+    private Long viewCount;
+
+    @Field(type = FieldType.Double)
+    private Double averageRating;
+
+    @CompletionField(maxInputLength = 100)
+    private Completion suggest;
 }
@@ -2,15 +2,21 @@ package org.senju.eshopeule.model.product;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
 import org.senju.eshopeule.model.BaseEntity;
 
+import java.time.LocalDateTime;
+
 @Getter
 @Setter
 @Builder
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
-@Table(name = "product_images")
+@Table(
+        name = "product_images",
+        indexes = @Index(name = "idx_product_images_product_id_created_on", columnList = "product_id, created_on, id")
+)
 public class ProductImage implements BaseEntity {
 
     @Id
@@ -27,6 +33,12 @@ public class ProductImage implements BaseEntity {
     @JoinColumn(name = "product_id", nullable = false)
     private Product product;
 
+    /**
+     * The oldest image of a product is its thumbnail, ties are broken by id.
+     */
+    @CreationTimestamp
+    private LocalDateTime createdOn;
+
     @Override
     public int hashCode() {
         return getClass().hashCode();
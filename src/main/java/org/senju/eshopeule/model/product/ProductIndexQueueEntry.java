@@ -0,0 +1,46 @@
+package org.senju.eshopeule.model.product;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.senju.eshopeule.model.BaseEntity;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product waiting to be indexed. While a batch is indexed its rows carry the claim of the
+ * batch until it is done or the claim expires.
+ */
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(
+        name = "product_index_queue",
+        indexes = @Index(name = "idx_product_index_queue_enqueued_on", columnList = "enqueued_on")
+)
+public class ProductIndexQueueEntry implements BaseEntity {
+
+    @Id
+    private String productId;
+
+    @Column(nullable = false)
+    private LocalDateTime enqueuedOn;
+
+    private String claimId;
+
+    private LocalDateTime claimedUntil;
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ProductIndexQueueEntry)) return false;
+        return productId != null && productId.equals(((ProductIndexQueueEntry) obj).getProductId());
+    }
+}
@@ -0,0 +1,46 @@
+package org.senju.eshopeule.model.product;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.senju.eshopeule.model.AbstractAuditEntity;
+
+@Getter
+@Setter
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "product_popularity")
+public class ProductPopularity extends AbstractAuditEntity {
+
+    @Id
+    private String productId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long orderedQuantity = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long viewCount = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Double averageRating = 0.0;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long ratingCount = 0L;
+
+    @Override
+    public int hashCode() {
+        return getClass().hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof ProductPopularity)) return false;
+        return productId != null && productId.equals(((ProductPopularity) obj).getProductId());
+    }
+}
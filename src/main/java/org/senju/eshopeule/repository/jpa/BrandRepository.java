@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,4 +17,7 @@ public interface BrandRepository extends JpaRepository<Brand, String> {
 
     @Query(value = "SELECT EXISTS (SELECT 1 FROM brands WHERE (name = :name OR slug = :slug) AND id != :id)", nativeQuery = true)
     boolean checkBrandExistsWithNameOrSlugExceptId(@Param("name") String name, @Param("slug") String slug, @Param("id") String id);
+
+    @Query(value = "SELECT name FROM brands", nativeQuery = true)
+    List<String> getAllBrandNames();
 }
@@ -1,7 +1,6 @@
 package org.senju.eshopeule.repository.jpa;
 
 import org.senju.eshopeule.model.cart.CartItem;
-import org.senju.eshopeule.repository.projection.CartItemQuantityView;
 import org.senju.eshopeule.repository.projection.CartItemView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
@@ -10,26 +9,42 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 @Repository
 public interface CartItemRepository extends JpaRepository<CartItem, String> {
 
-    @Query(value = "SELECT id, quantity FROM cart_items " +
-            "WHERE cart_id = :cartId AND product_id = :prodId " +
-            "AND ((option_id = :opId) OR (option_id IS NULL AND :opId IS NULL))", nativeQuery = true)
-    Optional<CartItemQuantityView> getItemQuantityView(@Param("cartId") String cartId, @Param("prodId") String productId, @Param("opId") String optionId);
-
-
-    @Query(value = "SELECT DISTINCT ci.id, ci.quantity AS itemQuantity, ci.product_id, ci.option_id, p.price, p.discount, p.quantity AS productQuantity " +
+    @Query(value = "SELECT DISTINCT ci.id, ci.quantity AS itemQuantity, ci.product_id, ci.option_id, p.price, p.discount, p.quantity - p.reserved AS productQuantity " +
             "FROM cart_items AS ci INNER JOIN products AS p ON ci.product_id = p.id WHERE ci.cart_id = :cartId", nativeQuery = true)
     List<CartItemView> getItemViewByCartId(@Param("cartId") String cartItemId);
 
-    @Transactional
+    /**
+     * Adds the quantity to the item of the cart, inserted first if there is none.
+     *
+     * @return 0 if the resulting quantity of an existing item would exceed the available stock
+     * of the product as read when the row is locked
+     */
+    @Modifying
+    @Query(value = "INSERT INTO cart_items (id, cart_id, product_id, option_id, quantity, created_on, created_by, last_modified_on, last_modified_by) " +
+            "VALUES (CAST(gen_random_uuid() AS VARCHAR), :cartId, :prodId, :opId, :quantity, now(), :username, now(), :username) " +
+            "ON CONFLICT (cart_id, product_id, option_id) DO UPDATE " +
+            "SET quantity = cart_items.quantity + excluded.quantity, " +
+            "last_modified_on = excluded.last_modified_on, last_modified_by = excluded.last_modified_by " +
+            "WHERE cart_items.quantity + excluded.quantity <= (SELECT p.quantity - p.reserved FROM products AS p WHERE p.id = excluded.product_id)", nativeQuery = true)
+    int upsertQuantity(@Param("cartId") String cartId,
+                       @Param("prodId") String productId,
+                       @Param("opId") String optionId,
+                       @Param("quantity") int quantity,
+                       @Param("username") String username);
+
+    @Modifying
+    @Query(value = "DELETE FROM cart_items WHERE cart_id = :cId", nativeQuery = true)
+    void deleteByCartId(@Param("cId") String cartId);
+
     @Modifying
-    @Query(value = "UPDATE cart_items SET quantity = :quantity WHERE id = :itemId", nativeQuery = true)
-    void updateQuantityById(@Param("itemId") String itemId, @Param("quantity") Integer quantity);
+    @Query(value = "DELETE FROM cart_items WHERE cart_id IN :cIds", nativeQuery = true)
+    int deleteByCartIds(@Param("cIds") Collection<String> cartIds);
 
     @Transactional
     @Modifying
@@ -8,7 +8,10 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, String> {
@@ -16,6 +19,40 @@ public interface CartRepository extends JpaRepository<Cart, String> {
     @Query(value = "SELECT c FROM Cart c WHERE c.customer.user.username = :cusName AND c.status = 'ACTIVE'")
     List<Cart> getActiveCartByUsername(@Param("cusName") String username);
 
+    /**
+     * Returns the active cart of the customer, created first if there is none. Relies on the
+     * unique index of active carts per customer, so concurrent calls end up with the same cart.
+     */
+    @Transactional
+    @Query(value = "INSERT INTO carts (id, customer_id, status, created_on, created_by, last_modified_on, last_modified_by) " +
+            "SELECT CAST(gen_random_uuid() AS VARCHAR), cus.id, 'ACTIVE', now(), :username, now(), :username " +
+            "FROM customers AS cus INNER JOIN users AS u ON cus.user_id = u.id WHERE u.username = :username " +
+            "ON CONFLICT (customer_id) WHERE status = 'ACTIVE' " +
+            "DO UPDATE SET last_modified_on = now() " +
+            "RETURNING id", nativeQuery = true)
+    Optional<String> getOrCreateActiveCartIdByUsername(@Param("username") String username);
+
+    /**
+     * Moves the cache version of an active cart forward, a cart already at the same or a newer
+     * version is left as it is.
+     */
+    @Modifying
+    @Query(value = "UPDATE carts SET cache_version = :version, last_modified_on = now() " +
+            "WHERE id = :cartId AND status = 'ACTIVE' AND COALESCE(cache_version, 0) < :version", nativeQuery = true)
+    int advanceCacheVersion(@Param("cartId") String cartId, @Param("version") long version);
+
+    @Query(value = "SELECT id FROM carts WHERE status = 'ACTIVE' AND last_modified_on < :before " +
+            "ORDER BY last_modified_on LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> lockAbandonedCartIds(@Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE carts SET status = 'ABANDONED', last_modified_on = now() " +
+            "WHERE id IN :cartIds AND status = 'ACTIVE'", nativeQuery = true)
+    int updateAbandonedCartWithIds(@Param("cartIds") Collection<String> cartIds);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM carts WHERE id = :cartId AND status = 'ACTIVE')", nativeQuery = true)
+    boolean checkActiveById(@Param("cartId") String cartId);
+
     @Transactional
     @Modifying
     @Query(value = "UPDATE carts SET status = 'COMPLETED' " +
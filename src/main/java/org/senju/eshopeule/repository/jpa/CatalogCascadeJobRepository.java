@@ -0,0 +1,67 @@
+package org.senju.eshopeule.repository.jpa;
+
+import org.senju.eshopeule.model.product.CatalogCascadeJob;
+import org.senju.eshopeule.model.product.CatalogCascadeJobStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CatalogCascadeJobRepository extends JpaRepository<CatalogCascadeJob, String> {
+
+    Optional<CatalogCascadeJob> findFirstByFieldAndStaleValueAndStatus(String field, String staleValue, CatalogCascadeJobStatus status);
+
+    List<CatalogCascadeJob> findAllByOrderByCreatedOnDesc(Pageable pageable);
+
+    long countByStatusIn(Collection<CatalogCascadeJobStatus> statuses);
+
+    /**
+     * Claims the oldest job that is waiting or whose node stopped extending its claim, jobs
+     * locked by another node are skipped.
+     */
+    @Transactional
+    @Query(value = "UPDATE catalog_cascade_jobs SET status = 'RUNNING', started_on = COALESCE(started_on, now()), " +
+            "claimed_until = now() + :claimTimeout * INTERVAL '1 millisecond' " +
+            "WHERE id IN (SELECT id FROM catalog_cascade_jobs " +
+            "WHERE status IN ('PENDING', 'RUNNING') AND (claimed_until IS NULL OR claimed_until < now()) " +
+            "ORDER BY created_on LIMIT 1 FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id", nativeQuery = true)
+    List<String> claim(@Param("claimTimeout") long claimTimeoutInMillis);
+
+    /**
+     * Records a batch handed to the indexing queue and extends the claim of the job.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE catalog_cascade_jobs SET last_product_id = :lastProductId, " +
+            "enqueued_count = enqueued_count + :enqueued, matched_count = COALESCE(matched_count, :matched), " +
+            "claimed_until = now() + :claimTimeout * INTERVAL '1 millisecond', last_modified_on = now() " +
+            "WHERE id = :jobId", nativeQuery = true)
+    int saveProgress(@Param("jobId") String jobId,
+                     @Param("lastProductId") String lastProductId,
+                     @Param("enqueued") long enqueuedCount,
+                     @Param("matched") Long matchedCount,
+                     @Param("claimTimeout") long claimTimeoutInMillis);
+
+    /**
+     * Keeps the claim, the job is retried once it expires.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE catalog_cascade_jobs SET error = :error, last_modified_on = now() WHERE id = :jobId", nativeQuery = true)
+    int recordError(@Param("jobId") String jobId, @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE catalog_cascade_jobs SET status = 'COMPLETED', error = NULL, finished_on = now(), " +
+            "claimed_until = NULL, last_modified_on = now() WHERE id = :jobId", nativeQuery = true)
+    int complete(@Param("jobId") String jobId);
+}
@@ -32,4 +32,7 @@ public interface CategoryRepository extends JpaRepository<Category, String> {
     @Query(value = "UPDATE categories SET parent_id = NULL WHERE parent_id = :parentId", nativeQuery = true)
     void updateChildBeforeDeleteParent(@Param("parentId") String parentId);
 
+    @Query(value = "SELECT name FROM categories WHERE is_published = TRUE", nativeQuery = true)
+    List<String> getAllPublishedCategoryNames();
+
 }
@@ -1,12 +1,14 @@
 package org.senju.eshopeule.repository.jpa;
 
 import org.senju.eshopeule.model.order.OrderItem;
+import org.senju.eshopeule.repository.projection.OrderItemQuantityView;
 import org.senju.eshopeule.repository.projection.OrderItemView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -20,12 +22,20 @@ public interface OrderItemRepository extends JpaRepository<OrderItem, String> {
             "WHERE u.username = :un AND oi.id = :oiId)", nativeQuery = true)
     boolean checkExistsByUsername(@Param("oiId") String oderItemId, @Param("un") String username);
 
-    @Query(value = "SELECT oi.id, oi.product_id, p.quantity AS productQuantity, p.price, p.discount, oi.option_id " +
+    @Query(value = "SELECT oi.id, oi.product_id, p.quantity - p.reserved AS productQuantity, p.price, p.discount, oi.option_id " +
             "FROM order_items AS oi " +
             "INNER JOIN products AS p ON oi.product_id = p.id " +
             "WHERE oi.id = :oiId", nativeQuery = true)
     Optional<OrderItemView> getItemViewById(@Param("oiId") String orderItemId);
 
+    @Query(value = "SELECT product_id AS productId, option_id AS optionId, SUM(quantity) AS quantity " +
+            "FROM order_items WHERE order_id = :orderId " +
+            "GROUP BY product_id, option_id", nativeQuery = true)
+    List<OrderItemQuantityView> getItemQuantitiesByOrderId(@Param("orderId") String orderId);
+
+    @Query(value = "SELECT DISTINCT product_id FROM order_items WHERE order_id = :orderId", nativeQuery = true)
+    List<String> getProductIdsByOrderId(@Param("orderId") String orderId);
+
     @Query(value = "SELECT EXISTS (SELECT 1 FROM order_items AS oi " +
             "INNER JOIN orders AS o ON oi.order_id = o.id " +
             "WHERE oi.product_id = :productId AND o.customer_id = :customerId AND o.status = 'COMPLETED')", nativeQuery = true)
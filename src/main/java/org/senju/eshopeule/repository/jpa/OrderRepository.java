@@ -3,10 +3,18 @@ package org.senju.eshopeule.repository.jpa;
 import org.senju.eshopeule.model.order.Order;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, String> {
@@ -17,6 +25,44 @@ public interface OrderRepository extends JpaRepository<Order, String> {
             "WHERE u.username = :un AND o.id = :oId)", nativeQuery = true)
     boolean checkExistsByUsername(@Param("oId") String orderId, @Param("un") String username);
 
-    @Query(value = "SELECT o FROM Order o WHERE o.customer.user.username = :username")
-    Page<Order> getAllOrderWithUsername(@Param("username") String username, Pageable pageable);
+    @Query(value = "SELECT u.email FROM orders AS o " +
+            "INNER JOIN customers AS c ON o.customer_id = c.id " +
+            "INNER JOIN users AS u ON c.user_id = u.id " +
+            "WHERE o.id = :oId", nativeQuery = true)
+    Optional<String> getCustomerEmailById(@Param("oId") String orderId);
+
+    @Query(value = "SELECT o.id FROM Order o")
+    Page<String> getAllOrderIds(Pageable pageable);
+
+    @Query(value = "SELECT o.id FROM Order o WHERE o.customer.user.username = :username")
+    Page<String> getAllOrderIdsWithUsername(@Param("username") String username, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"customer", "transaction", "items"})
+    @Query(value = "SELECT o FROM Order o WHERE o.id IN :ids")
+    List<Order> findAllDetailByIds(@Param("ids") Collection<String> orderIds);
+
+    @Query(value = "SELECT id FROM orders WHERE customer_id = :cusId " +
+            "ORDER BY created_on DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<String> getFirstOrderSliceIdsWithCustomerId(@Param("cusId") String customerId, @Param("limit") int limit);
+
+    @Query(value = "SELECT id FROM orders WHERE customer_id = :cusId " +
+            "AND (created_on, id) < (:createdOn, :id) " +
+            "ORDER BY created_on DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<String> getOrderSliceIdsWithCustomerId(@Param("cusId") String customerId,
+                                            @Param("createdOn") LocalDateTime createdOn,
+                                            @Param("id") String id,
+                                            @Param("limit") int limit);
+
+    @Query(value = "SELECT id FROM orders ORDER BY created_on DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<String> getFirstOrderSliceIds(@Param("limit") int limit);
+
+    @Query(value = "SELECT id FROM orders WHERE (created_on, id) < (:createdOn, :id) " +
+            "ORDER BY created_on DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<String> getOrderSliceIds(@Param("createdOn") LocalDateTime createdOn, @Param("id") String id, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE orders SET status = 'CANCELLED', last_modified_on = now() " +
+            "WHERE id IN :orderIds AND status = 'PROCESSING'", nativeQuery = true)
+    void updateCancelledOrderWithIds(@Param("orderIds") List<String> orderIds);
 }
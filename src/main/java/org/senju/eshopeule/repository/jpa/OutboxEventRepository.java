@@ -0,0 +1,34 @@
+package org.senju.eshopeule.repository.jpa;
+
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, String> {
+
+    @Query(value = "SELECT * FROM outbox_events " +
+            "WHERE status = 'PENDING' AND available_on <= now() " +
+            "ORDER BY available_on, created_on " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> findAvailableForUpdate(@Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events WHERE id IN (" +
+            "SELECT id FROM outbox_events WHERE status = :status AND last_modified_on < :before " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int deleteByStatusBefore(@Param("status") String status, @Param("before") LocalDateTime before, @Param("limit") int limit);
+
+    List<OutboxEvent> findByTypeInAndCreatedOnGreaterThanEqualOrderByCreatedOn(Collection<OutboxEventType> types,
+                                                                             LocalDateTime createdOn);
+}
@@ -1,6 +1,7 @@
 package org.senju.eshopeule.repository.jpa;
 
 import org.senju.eshopeule.model.product.ProductImage;
+import org.senju.eshopeule.repository.projection.ProductThumbnailView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -8,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,4 +29,9 @@ public interface ProductImageRepository extends JpaRepository<ProductImage, Stri
     @Modifying
     @Query(value = "DELETE FROM product_images WHERE product_id = :prodId", nativeQuery = true)
     void deleteByProductId(@Param("prodId") String productId);
+
+    @Query(value = "SELECT DISTINCT ON (product_id) product_id AS productId, image_url AS imageUrl " +
+            "FROM product_images WHERE product_id IN :prodIds " +
+            "ORDER BY product_id, created_on, id", nativeQuery = true)
+    List<ProductThumbnailView> getThumbnailsByProductIds(@Param("prodIds") Collection<String> productIds);
 }
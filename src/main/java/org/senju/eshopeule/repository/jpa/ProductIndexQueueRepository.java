@@ -0,0 +1,63 @@
+package org.senju.eshopeule.repository.jpa;
+
+import org.senju.eshopeule.model.product.ProductIndexQueueEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface ProductIndexQueueRepository extends JpaRepository<ProductIndexQueueEntry, String> {
+
+    /**
+     * Marks products to be indexed. A product already waiting keeps its place, one being indexed
+     * right now loses the claim of its batch, so it stays queued once the batch is done.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO product_index_queue (product_id, enqueued_on) " +
+            "SELECT id, now() FROM products WHERE id IN :prodIds ORDER BY id " +
+            "ON CONFLICT (product_id) DO UPDATE SET claim_id = NULL", nativeQuery = true)
+    int enqueueAll(@Param("prodIds") Collection<String> productIds);
+
+    /**
+     * Claims the products that waited at least the coalescing window and are not claimed by a
+     * running batch, rows locked by another node are skipped.
+     */
+    @Transactional
+    @Query(value = "UPDATE product_index_queue SET claim_id = :claimId, " +
+            "claimed_until = now() + :claimTimeout * INTERVAL '1 millisecond' " +
+            "WHERE product_id IN (SELECT product_id FROM product_index_queue " +
+            "WHERE enqueued_on <= now() - :window * INTERVAL '1 millisecond' " +
+            "AND (claimed_until IS NULL OR claimed_until < now()) " +
+            "ORDER BY enqueued_on LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "RETURNING product_id", nativeQuery = true)
+    List<String> claim(@Param("claimId") String claimId,
+                       @Param("window") long coalesceWindowInMillis,
+                       @Param("claimTimeout") long claimTimeoutInMillis,
+                       @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM product_index_queue WHERE claim_id = :claimId", nativeQuery = true)
+    int deleteByClaimId(@Param("claimId") String claimId);
+
+    /**
+     * Products enqueued again while their batch was indexed are available to the next batch
+     * right away instead of once the claim expires.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE product_index_queue SET claimed_until = NULL " +
+            "WHERE product_id IN :prodIds AND claim_id IS NULL AND claimed_until IS NOT NULL", nativeQuery = true)
+    int releaseRequeued(@Param("prodIds") Collection<String> productIds);
+
+    @Query(value = "SELECT COALESCE(EXTRACT(EPOCH FROM now() - MIN(enqueued_on)) * 1000, 0) " +
+            "FROM product_index_queue", nativeQuery = true)
+    double getLagInMillis();
+}
@@ -1,11 +1,14 @@
 package org.senju.eshopeule.repository.jpa;
 
 import org.senju.eshopeule.model.product.ProductOption;
+import org.senju.eshopeule.repository.projection.OptionAttributeValueView;
+import org.senju.eshopeule.repository.projection.ProductOptionOwnerView;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +23,21 @@ public interface ProductOptionRepository extends JpaRepository<ProductOption, St
     @Query(value = "SELECT EXISTS (SELECT 1 FROM product_options AS po WHERE po.product_id = :prodId)", nativeQuery = true)
     boolean checkHasOptionsWithProductId(@Param("prodId") String productId);
 
+    @Query(value = "SELECT id, product_id AS productId FROM product_options WHERE id IN :optionIds", nativeQuery = true)
+    List<ProductOptionOwnerView> getOwnersByIds(@Param("optionIds") Collection<String> optionIds);
+
     @Query(value = "SELECT COUNT(DISTINCT id) FROM product_options WHERE id IN :optionIds", nativeQuery = true)
     int countDistinctByIds(@Param("optionIds") List<String> optionIds);
+
+    @Query(value = "SELECT DISTINCT po.product_id FROM product_options AS po " +
+            "JOIN product_attribute_values AS pav ON pav.product_option_id = po.id " +
+            "WHERE pav.product_attribute_id = :attrId", nativeQuery = true)
+    List<String> getProductIdsWithAttributeId(@Param("attrId") String attributeId);
+
+    @Query(value = "SELECT po.id AS optionId, po.name AS optionName, pa.name AS attributeName, pav.value AS value " +
+            "FROM product_options AS po " +
+            "LEFT JOIN product_attribute_values AS pav ON pav.product_option_id = po.id " +
+            "LEFT JOIN product_attributes AS pa ON pa.id = pav.product_attribute_id " +
+            "WHERE po.id IN :optionIds", nativeQuery = true)
+    List<OptionAttributeValueView> getOptionAttributeValuesByIds(@Param("optionIds") Collection<String> optionIds);
 }
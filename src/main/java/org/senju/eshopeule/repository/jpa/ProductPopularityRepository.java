@@ -0,0 +1,9 @@
+package org.senju.eshopeule.repository.jpa;
+
+import org.senju.eshopeule.model.product.ProductPopularity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ProductPopularityRepository extends JpaRepository<ProductPopularity, String> {
+}
@@ -1,14 +1,23 @@
 package org.senju.eshopeule.repository.jpa;
 
 import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.repository.projection.ProductCartRuleView;
+import org.senju.eshopeule.repository.projection.ProductNameView;
 import org.senju.eshopeule.repository.projection.ProductQuantityView;
+import org.senju.eshopeule.repository.projection.ProductSummaryView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -16,17 +25,45 @@ public interface ProductRepository extends JpaRepository<Product, String> {
 
     Optional<Product> findBySlug(String slug);
 
-    @Query(value = "SELECT p FROM Product p WHERE p.brand.id = :brandId")
-    Page<Product> findAllByBrandId(@Param("brandId") String brandId, Pageable pageable);
+    @Query(value = "SELECT p.id, p.name, p.slug, p.price, p.discount, img.image_url AS imageUrl " +
+            "FROM products AS p " +
+            "LEFT JOIN LATERAL (SELECT pi.image_url FROM product_images AS pi " +
+            "WHERE pi.product_id = p.id ORDER BY pi.created_on, pi.id LIMIT 1) AS img ON TRUE " +
+            "WHERE p.brand_id = :brandId",
+            countQuery = "SELECT COUNT(*) FROM products WHERE brand_id = :brandId",
+            nativeQuery = true)
+    Page<ProductSummaryView> getSummariesByBrandId(@Param("brandId") String brandId, Pageable pageable);
 
-    @Query(value = "SELECT p FROM Product p WHERE p.brand.name = :brandSlug")
-    Page<Product> findAllByBrandSlug(@Param("brandSlug") String brandSlug, Pageable pageable);
+    @Query(value = "SELECT p.id, p.name, p.slug, p.price, p.discount, img.image_url AS imageUrl " +
+            "FROM products AS p " +
+            "LEFT JOIN LATERAL (SELECT pi.image_url FROM product_images AS pi " +
+            "WHERE pi.product_id = p.id ORDER BY pi.created_on, pi.id LIMIT 1) AS img ON TRUE " +
+            "WHERE p.brand_id = (SELECT b.id FROM brands AS b WHERE b.slug = :brandSlug)",
+            countQuery = "SELECT COUNT(*) FROM products " +
+                    "WHERE brand_id = (SELECT b.id FROM brands AS b WHERE b.slug = :brandSlug)",
+            nativeQuery = true)
+    Page<ProductSummaryView> getSummariesByBrandSlug(@Param("brandSlug") String brandSlug, Pageable pageable);
 
-    @Query(value = "SELECT p FROM Product p JOIN ProductCategory pc WHERE pc.category.id = :categoryId")
-    Page<Product> findAllByCategoryId(@Param("categoryId") String categoryId, Pageable pageable);
+    @Query(value = "SELECT p.id, p.name, p.slug, p.price, p.discount, img.image_url AS imageUrl " +
+            "FROM products AS p " +
+            "LEFT JOIN LATERAL (SELECT pi.image_url FROM product_images AS pi " +
+            "WHERE pi.product_id = p.id ORDER BY pi.created_on, pi.id LIMIT 1) AS img ON TRUE " +
+            "WHERE EXISTS (SELECT 1 FROM product_category AS pc " +
+            "WHERE pc.product_id = p.id AND pc.category_id = :categoryId)",
+            countQuery = "SELECT COUNT(*) FROM product_category WHERE category_id = :categoryId",
+            nativeQuery = true)
+    Page<ProductSummaryView> getSummariesByCategoryId(@Param("categoryId") String categoryId, Pageable pageable);
 
-    @Query(value = "SELECT p FROM Product p JOIN ProductCategory pc WHERE pc.category.slug = :cateSlug")
-    Page<Product> findAllByCategorySlug(@Param("cateSlug") String categorySlug, Pageable pageable);
+    @Query(value = "SELECT p.id, p.name, p.slug, p.price, p.discount, img.image_url AS imageUrl " +
+            "FROM products AS p " +
+            "LEFT JOIN LATERAL (SELECT pi.image_url FROM product_images AS pi " +
+            "WHERE pi.product_id = p.id ORDER BY pi.created_on, pi.id LIMIT 1) AS img ON TRUE " +
+            "WHERE EXISTS (SELECT 1 FROM product_category AS pc JOIN categories AS c ON c.id = pc.category_id " +
+            "WHERE pc.product_id = p.id AND c.slug = :cateSlug)",
+            countQuery = "SELECT COUNT(*) FROM product_category AS pc JOIN categories AS c ON c.id = pc.category_id " +
+                    "WHERE c.slug = :cateSlug",
+            nativeQuery = true)
+    Page<ProductSummaryView> getSummariesByCategorySlug(@Param("cateSlug") String categorySlug, Pageable pageable);
 
     @Query(value = "SELECT EXISTS (SELECT 1 FROM products WHERE slug = :slug)", nativeQuery = true)
     boolean checkExistsWithSlug(@Param("slug") String slug);
@@ -34,12 +71,89 @@ public interface ProductRepository extends JpaRepository<Product, String> {
     @Query(value = "SELECT EXISTS (SELECT 1 FROM products WHERE slug = :slug AND id != :prodId)", nativeQuery = true)
     boolean checkExistsWithSlugExceptId(@Param("prodId") String productId, @Param("slug") String slug);
 
-    @Query(value = "SELECT id, quantity FROM products WHERE id = :prodId", nativeQuery = true)
+    @Query(value = "SELECT id, quantity - reserved AS quantity FROM products WHERE id = :prodId", nativeQuery = true)
     ProductQuantityView getQuantityViewById(@Param("prodId") String productId);
 
     @Query(value = "SELECT EXISTS " +
             "(SELECT 1 FROM products " +
             "WHERE is_published = TRUE AND is_allowed_to_order = TRUE " +
-            "AND quantity > 0 AND id = :prodId)", nativeQuery = true)
+            "AND quantity - reserved > 0 AND id = :prodId)", nativeQuery = true)
     boolean checkAllowedToOrder(@Param("prodId") String productId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE products AS p SET quantity = p.quantity + r.quantity " +
+            "FROM (SELECT product_id, SUM(quantity) AS quantity FROM order_items " +
+            "WHERE order_id = :orderId GROUP BY product_id) AS r " +
+            "WHERE p.id = r.product_id", nativeQuery = true)
+    int restockByOrderId(@Param("orderId") String orderId);
+
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM products WHERE id = :prodId AND is_hot_item = TRUE)", nativeQuery = true)
+    boolean checkHotItem(@Param("prodId") String productId);
+
+    @Query(value = "SELECT COUNT(*) FROM products " +
+            "WHERE id IN :prodIds AND is_hot_item = TRUE " +
+            "AND is_published = TRUE AND is_allowed_to_order = TRUE", nativeQuery = true)
+    long countOrderableHotItems(@Param("prodIds") Collection<String> productIds);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE products SET quantity = :quantity " +
+            "WHERE id = :prodId AND reserved <= :quantity AND is_hot_item = FALSE", nativeQuery = true)
+    int updateQuantityById(@Param("prodId") String productId, @Param("quantity") long quantity);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE products SET is_hot_item = TRUE WHERE id = :prodId AND is_hot_item = FALSE", nativeQuery = true)
+    int markHotItemById(@Param("prodId") String productId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE products SET is_hot_item = :isHotItem WHERE id = :prodId", nativeQuery = true)
+    int updateHotItemById(@Param("prodId") String productId, @Param("isHotItem") boolean isHotItem);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE products SET reserved = reserved + :quantity WHERE id = :prodId", nativeQuery = true)
+    void increaseReservedById(@Param("prodId") String productId, @Param("quantity") long quantity);
+
+    // Also called after the surrounding transaction completed, so it always runs in its own.
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Modifying
+    @Query(value = "UPDATE products SET reserved = reserved - :quantity WHERE id = :prodId", nativeQuery = true)
+    void decreaseReservedById(@Param("prodId") String productId, @Param("quantity") long quantity);
+
+    @Query(value = "SELECT id, name, is_published AS isPublished FROM products", nativeQuery = true)
+    List<ProductNameView> getAllProductNames();
+
+    @Query(value = "SELECT id, name, is_published AS isPublished FROM products WHERE last_modified_on >= :since", nativeQuery = true)
+    List<ProductNameView> getProductNamesModifiedSince(@Param("since") LocalDateTime since);
+
+    @Query(value = "SELECT p.id, p.is_published AND p.is_allowed_to_order AS orderable, " +
+            "EXISTS (SELECT 1 FROM product_options AS po WHERE po.product_id = p.id) AS hasOptions, " +
+            "p.quantity - p.reserved AS availableQuantity " +
+            "FROM products AS p WHERE p.id = :prodId", nativeQuery = true)
+    Optional<ProductCartRuleView> getCartRuleById(@Param("prodId") String productId);
+
+    @Query(value = "SELECT p.id, p.is_published AND p.is_allowed_to_order AS orderable, " +
+            "EXISTS (SELECT 1 FROM product_options AS po WHERE po.product_id = p.id) AS hasOptions, " +
+            "p.quantity - p.reserved AS availableQuantity " +
+            "FROM products AS p WHERE p.id IN :prodIds", nativeQuery = true)
+    List<ProductCartRuleView> getCartRulesByIds(@Param("prodIds") Collection<String> productIds);
+
+    @Query(value = "SELECT quantity FROM products WHERE id = :prodId", nativeQuery = true)
+    Long getQuantityById(@Param("prodId") String productId);
+
+    @Query(value = "SELECT id FROM products WHERE id > :afterId ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<String> getIdsAfter(@Param("afterId") String afterId, @Param("limit") int limit);
+
+    @Query(value = "SELECT CAST(EXTRACT(EPOCH FROM clock_timestamp()) * 1000000 AS BIGINT)", nativeQuery = true)
+    long getCurrentTimeInMicros();
+
+    @Query(value = "SELECT p.id, p.name, p.slug, p.price, p.discount, img.image_url AS imageUrl " +
+            "FROM products AS p " +
+            "LEFT JOIN LATERAL (SELECT pi.image_url FROM product_images AS pi " +
+            "WHERE pi.product_id = p.id ORDER BY pi.created_on, pi.id LIMIT 1) AS img ON TRUE " +
+            "WHERE p.id IN :prodIds", nativeQuery = true)
+    List<ProductSummaryView> getSummariesByIds(@Param("prodIds") Collection<String> productIds);
 }
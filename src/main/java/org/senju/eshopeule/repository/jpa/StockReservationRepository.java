@@ -0,0 +1,60 @@
+package org.senju.eshopeule.repository.jpa;
+
+import org.senju.eshopeule.model.order.StockReservation;
+import org.senju.eshopeule.repository.projection.ReservedQuantityView;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public interface StockReservationRepository extends JpaRepository<StockReservation, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE products AS p SET reserved = p.reserved + r.quantity " +
+            "FROM (SELECT product_id, SUM(quantity) AS quantity FROM order_items " +
+            "WHERE order_id = :orderId GROUP BY product_id) AS r " +
+            "WHERE p.id = r.product_id " +
+            "AND p.is_published = TRUE AND p.is_allowed_to_order = TRUE AND p.is_hot_item = FALSE " +
+            "AND p.quantity - p.reserved >= r.quantity", nativeQuery = true)
+    int reserveStockByOrderId(@Param("orderId") String orderId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "WITH released AS (" +
+            "UPDATE stock_reservations SET status = :status, last_modified_on = now() " +
+            "WHERE order_id IN :orderIds AND status = 'RESERVED' " +
+            "RETURNING product_id, quantity) " +
+            "UPDATE products AS p SET reserved = p.reserved - r.quantity " +
+            "FROM (SELECT product_id, SUM(quantity) AS quantity FROM released GROUP BY product_id) AS r " +
+            "WHERE p.id = r.product_id", nativeQuery = true)
+    int releaseByOrderIds(@Param("orderIds") List<String> orderIds, @Param("status") String status);
+
+    @Transactional
+    @Modifying
+    @Query(value = "WITH converted AS (" +
+            "UPDATE stock_reservations SET status = 'CONVERTED', last_modified_on = now() " +
+            "WHERE order_id = :orderId AND status = 'RESERVED' " +
+            "RETURNING product_id, quantity) " +
+            "UPDATE products AS p SET quantity = p.quantity - r.quantity, reserved = p.reserved - r.quantity " +
+            "FROM (SELECT product_id, SUM(quantity) AS quantity FROM converted GROUP BY product_id) AS r " +
+            "WHERE p.id = r.product_id", nativeQuery = true)
+    int convertByOrderId(@Param("orderId") String orderId);
+
+    @Query(value = "SELECT sr.product_id AS productId, SUM(sr.quantity) AS quantity " +
+            "FROM stock_reservations AS sr " +
+            "INNER JOIN products AS p ON sr.product_id = p.id " +
+            "WHERE sr.order_id IN :orderIds AND sr.status = 'RESERVED' AND p.is_hot_item = TRUE " +
+            "GROUP BY sr.product_id", nativeQuery = true)
+    List<ReservedQuantityView> getHotReservedQuantityByOrderIds(@Param("orderIds") List<String> orderIds);
+
+    @Query(value = "SELECT sr.order_id FROM stock_reservations AS sr " +
+            "WHERE sr.status = 'RESERVED' AND sr.expires_on < now() " +
+            "LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<String> findExpiredOrderIds(@Param("limit") int limit);
+}
@@ -2,8 +2,21 @@ package org.senju.eshopeule.repository.jpa;
 
 import org.senju.eshopeule.model.order.Transaction;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, String> {
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE transactions SET status = 'CANCELLED', last_modified_on = now() " +
+            "WHERE order_id IN :orderIds AND status = 'PENDING' " +
+            "AND order_id IN (SELECT id FROM orders WHERE status = 'CANCELLED')", nativeQuery = true)
+    void updateCancelledTransactionWithOrderIds(@Param("orderIds") List<String> orderIds);
 }
@@ -0,0 +1,299 @@
+package org.senju.eshopeule.repository.lucene;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.lucene.analysis.*;
+import org.apache.lucene.analysis.ngram.EdgeNGramTokenFilter;
+import org.apache.lucene.analysis.standard.StandardTokenizer;
+import org.apache.lucene.document.*;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.senju.eshopeule.constant.enums.LocalSearchMode;
+import org.senju.eshopeule.model.product.ProductESDoc;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+
+/**
+ * Product index kept in-process in a Lucene index on local disk. It is fed by the background
+ * product indexer on the node that indexes a change, and every node also catches up on its own
+ * with the products modified since the watermark stored in its last commit, so an empty or
+ * stale index rebuilds itself after a restart. Unpublished products are removed, and products
+ * still carrying the name of a deleted brand or category are found by that name and re-synced.
+ */
+@Component
+public class LuceneProductIndex {
+
+    public static final String PRODUCT_ID_FIELD = "productId";
+    public static final String NAME_FIELD = "name";
+    public static final String SLUG_FIELD = "slug";
+    public static final String PRICE_FIELD = "price";
+    public static final String DISCOUNT_FIELD = "discount";
+    public static final String DISCOUNTED_PRICE_FIELD = "discountedPrice";
+    public static final String IMAGE_URL_FIELD = "imageUrl";
+    public static final String BRAND_FIELD = "brand";
+    public static final String BRAND_KEY_FIELD = "brandKey";
+    public static final String CATEGORIES_FIELD = "categories";
+    public static final String CATEGORY_KEY_FIELD = "categoryKey";
+    public static final String LAST_MODIFIED_FIELD = "lastModifiedOn";
+
+    public static final Analyzer SEARCH_ANALYZER = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            final Tokenizer tokenizer = new StandardTokenizer();
+            return new TokenStreamComponents(tokenizer, new LowerCaseFilter(tokenizer));
+        }
+    };
+
+    // Mirrors the autocomplete_index analyzer of the Elasticsearch index.
+    private static final Analyzer INDEX_ANALYZER = new Analyzer() {
+        @Override
+        protected TokenStreamComponents createComponents(String fieldName) {
+            final Tokenizer tokenizer = new StandardTokenizer();
+            final TokenStream stream = new EdgeNGramTokenFilter(new LowerCaseFilter(tokenizer), 1, 50, false);
+            return new TokenStreamComponents(tokenizer, stream);
+        }
+    };
+
+    private static final String NAMESPACE = "org.senju.mybatis.ProductIndexXmlMapper";
+    private static final String WATERMARK_KEY = "watermark";
+    private static final Duration WATERMARK_SKEW = Duration.ofMinutes(1);
+    private static final int CATCH_UP_BATCH_SIZE = 1000;
+    private static final Logger logger = LoggerFactory.getLogger(LuceneProductIndex.class);
+
+    private final SqlSession sqlSession;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private MMapDirectory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private LocalDateTime watermark;
+
+    @Value("${search.local.mode}")
+    private LocalSearchMode mode;
+
+    @Value("${search.local.path}")
+    private String indexPath;
+
+    public LuceneProductIndex(SqlSession sqlSession, PlatformTransactionManager transactionManager) {
+        this.sqlSession = sqlSession;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!this.isEnabled()) return;
+        this.directory = new MMapDirectory(Path.of(indexPath));
+        this.writer = new IndexWriter(directory, new IndexWriterConfig(INDEX_ANALYZER)
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+        this.searcherManager = new SearcherManager(writer, null);
+        if (writer.getLiveCommitData() != null) {
+            for (Map.Entry<String, String> entry : writer.getLiveCommitData()) {
+                if (WATERMARK_KEY.equals(entry.getKey())) this.watermark = LocalDateTime.parse(entry.getValue());
+            }
+        }
+        logger.info("Opened local product index at {} with {} documents", indexPath, writer.getDocStats().numDocs);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        if (writer == null) return;
+        searcherManager.close();
+        writer.close();
+        directory.close();
+    }
+
+    public boolean isEnabled() {
+        return mode != LocalSearchMode.OFF;
+    }
+
+    public void index(Collection<ProductESDoc> documents) {
+        if (!this.isEnabled() || documents.isEmpty()) return;
+        try {
+            for (ProductESDoc doc : documents) {
+                final Term id = new Term(PRODUCT_ID_FIELD, doc.getProductId());
+                // Deleting a product unpublishes it, it is no longer searchable.
+                if (Boolean.FALSE.equals(doc.getIsPublished())) writer.deleteDocuments(id);
+                else writer.updateDocument(id, this.toDocument(doc));
+            }
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void delete(Collection<String> productIds) {
+        if (!this.isEnabled() || productIds.isEmpty()) return;
+        try {
+            writer.deleteDocuments(productIds.stream().map(productId -> new Term(PRODUCT_ID_FIELD, productId)).toArray(Term[]::new));
+            searcherManager.maybeRefresh();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.local.catch-up-interval}")
+    public synchronized void catchUp() {
+        if (!this.isEnabled()) return;
+        final LocalDateTime startedOn = LocalDateTime.now();
+        final Map<String, Object> params = new HashMap<>();
+        params.put("modifiedSince", watermark != null ? watermark.minus(WATERMARK_SKEW) : null);
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<ProductESDoc> cursor = sqlSession.selectCursor(NAMESPACE + ".streamProductIndexDocuments", params)) {
+                    final List<ProductESDoc> batch = new ArrayList<>(CATCH_UP_BATCH_SIZE);
+                    for (ProductESDoc doc : cursor) {
+                        batch.add(doc);
+                        if (batch.size() == CATCH_UP_BATCH_SIZE) {
+                            this.index(batch);
+                            batch.clear();
+                        }
+                    }
+                    this.index(batch);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                if (params.get("modifiedSince") != null) this.resyncDeletedCatalogNames(params);
+            });
+            writer.setLiveCommitData(Map.of(WATERMARK_KEY, startedOn.toString()).entrySet());
+            writer.commit();
+            this.watermark = startedOn;
+        } catch (IOException | RuntimeException ex) {
+            logger.error("Failed to catch up local product index: {}", ex.getMessage());
+        }
+    }
+
+    /**
+     * Re-syncs the products whose document still holds the name of a brand or category deleted
+     * since the watermark. Products that are gone from the database are removed.
+     */
+    private void resyncDeletedCatalogNames(Map<String, Object> params) {
+        final Set<String> productIds = new TreeSet<>();
+        for (Map<String, Object> deleted : sqlSession.<Map<String, Object>>selectList(NAMESPACE + ".getDeletedCatalogNames", params)) {
+            final String field = "BRAND_DELETED".equals(deleted.get("type")) ? BRAND_KEY_FIELD : CATEGORY_KEY_FIELD;
+            productIds.addAll(this.findProductIds(new Term(field, ((String) deleted.get("payload")).toLowerCase(Locale.ROOT))));
+        }
+        final List<String> ids = new ArrayList<>(productIds);
+        for (int from = 0; from < ids.size(); from += CATCH_UP_BATCH_SIZE) {
+            final List<String> batchIds = ids.subList(from, Math.min(from + CATCH_UP_BATCH_SIZE, ids.size()));
+            final List<ProductESDoc> documents = sqlSession.selectList(NAMESPACE + ".getProductIndexDocuments", Map.of("productIds", batchIds));
+            this.index(documents);
+            final Set<String> missingIds = new HashSet<>(batchIds);
+            documents.forEach(doc -> missingIds.remove(doc.getProductId()));
+            this.delete(missingIds);
+        }
+    }
+
+    private List<String> findProductIds(Term term) {
+        final IndexSearcher searcher = this.acquireSearcher();
+        try {
+            final TermQuery query = new TermQuery(term);
+            final int count = searcher.count(query);
+            if (count == 0) return List.of();
+            final StoredFields storedFields = searcher.storedFields();
+            final List<String> productIds = new ArrayList<>(count);
+            for (ScoreDoc scoreDoc : searcher.search(query, count).scoreDocs) {
+                productIds.add(storedFields.document(scoreDoc.doc, Set.of(PRODUCT_ID_FIELD)).get(PRODUCT_ID_FIELD));
+            }
+            return productIds;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            this.releaseSearcher(searcher);
+        }
+    }
+
+    public IndexSearcher acquireSearcher() {
+        try {
+            return searcherManager.acquire();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public void releaseSearcher(IndexSearcher searcher) {
+        try {
+            searcherManager.release(searcher);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public ProductESDoc toProductDoc(Document document) {
+        final IndexableField lastModifiedOn = document.getField(LAST_MODIFIED_FIELD);
+        return ProductESDoc.builder()
+                .productId(document.get(PRODUCT_ID_FIELD))
+                .name(document.get(NAME_FIELD))
+                .slug(document.get(SLUG_FIELD))
+                .price(this.getDouble(document, PRICE_FIELD))
+                .discount(this.getDouble(document, DISCOUNT_FIELD))
+                .imageUrl(document.get(IMAGE_URL_FIELD))
+                .brand(document.get(BRAND_FIELD))
+                .categories(List.of(document.getValues(CATEGORIES_FIELD)))
+                .lastModifiedOn(lastModifiedOn != null
+                        ? LocalDateTime.ofInstant(Instant.ofEpochMilli(lastModifiedOn.numericValue().longValue()), ZoneOffset.UTC)
+                        : null)
+                .build();
+    }
+
+    private Document toDocument(ProductESDoc doc) {
+        final Document document = new Document();
+        document.add(new StringField(PRODUCT_ID_FIELD, doc.getProductId(), Field.Store.YES));
+        document.add(new SortedDocValuesField(PRODUCT_ID_FIELD, new BytesRef(doc.getProductId())));
+        document.add(new TextField(NAME_FIELD, doc.getName(), Field.Store.YES));
+        if (doc.getSlug() != null) document.add(new StoredField(SLUG_FIELD, doc.getSlug()));
+        if (doc.getImageUrl() != null) document.add(new StoredField(IMAGE_URL_FIELD, doc.getImageUrl()));
+        if (doc.getPrice() != null) document.add(new DoubleField(PRICE_FIELD, doc.getPrice(), Field.Store.YES));
+        if (doc.getDiscount() != null) document.add(new StoredField(DISCOUNT_FIELD, doc.getDiscount()));
+        if (doc.getDiscountedPrice() != null) {
+            document.add(new DoubleField(DISCOUNTED_PRICE_FIELD, doc.getDiscountedPrice(), Field.Store.NO));
+        }
+        if (doc.getBrand() != null && !doc.getBrand().isEmpty()) {
+            document.add(new StringField(BRAND_KEY_FIELD, doc.getBrand().toLowerCase(Locale.ROOT), Field.Store.NO));
+            document.add(new SortedSetDocValuesField(BRAND_FIELD, new BytesRef(doc.getBrand())));
+            document.add(new StoredField(BRAND_FIELD, doc.getBrand()));
+        }
+        if (doc.getCategories() != null) {
+            for (String category : doc.getCategories()) {
+                if (category == null) continue;
+                document.add(new StringField(CATEGORY_KEY_FIELD, category.toLowerCase(Locale.ROOT), Field.Store.NO));
+                document.add(new SortedSetDocValuesField(CATEGORIES_FIELD, new BytesRef(category)));
+                document.add(new StoredField(CATEGORIES_FIELD, category));
+            }
+        }
+        if (doc.getLastModifiedOn() != null) {
+            document.add(new LongField(LAST_MODIFIED_FIELD, doc.getLastModifiedOn().toInstant(ZoneOffset.UTC).toEpochMilli(), Field.Store.YES));
+        }
+        return document;
+    }
+
+    private Double getDouble(Document document, String field) {
+        final IndexableField value = document.getField(field);
+        return value != null && value.numericValue() != null ? value.numericValue().doubleValue() : null;
+    }
+}
@@ -0,0 +1,11 @@
+package org.senju.eshopeule.repository.mongodb;
+
+import org.senju.eshopeule.model.product.ProductDetailView;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.util.Optional;
+
+public interface ProductDetailViewRepository extends MongoRepository<ProductDetailView, String> {
+
+    Optional<ProductDetailView> findFirstBySlugAndDeletedIsFalseOrderByVersionDesc(String slug);
+}
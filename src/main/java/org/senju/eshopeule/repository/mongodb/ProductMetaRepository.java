@@ -3,6 +3,8 @@ package org.senju.eshopeule.repository.mongodb;
 import org.senju.eshopeule.model.product.ProductMeta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ProductMetaRepository extends MongoRepository<ProductMeta, String> {
@@ -10,4 +12,6 @@ public interface ProductMetaRepository extends MongoRepository<ProductMeta, Stri
     Optional<ProductMeta> findByProductId(String productId);
 
     void deleteByProductId(String productId);
+
+    List<ProductMeta> findAllByProductIdIn(Collection<String> productIds);
 }
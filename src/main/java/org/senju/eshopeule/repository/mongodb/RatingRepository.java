@@ -1,11 +1,15 @@
 package org.senju.eshopeule.repository.mongodb;
 
 import org.senju.eshopeule.model.rating.Rating;
+import org.senju.eshopeule.repository.projection.ProductRatingView;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +18,10 @@ public interface RatingRepository extends MongoRepository<Rating, String> {
     Page<Rating> findAllByProductId(String productId, Pageable pageRequest);
 
     Optional<Rating> findByProductIdAndCustomerId(String productId, String customerId);
+
+    @Aggregation(pipeline = {
+            "{ $match: { productId: { $in: ?0 } } }",
+            "{ $group: { _id: '$productId', averageRating: { $avg: '$ratingStar' }, ratingCount: { $sum: 1 } } }"
+    })
+    List<ProductRatingView> getRatingSummariesByProductIds(Collection<String> productIds);
 }
@@ -0,0 +1,8 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface OptionAttributeValueView {
+    String getOptionId();
+    String getOptionName();
+    String getAttributeName();
+    String getValue();
+}
@@ -0,0 +1,7 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface OrderItemQuantityView {
+    String getProductId();
+    String getOptionId();
+    Long getQuantity();
+}
@@ -0,0 +1,19 @@
+package org.senju.eshopeule.repository.projection;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Row of a keyset product listing, carrying the value of the sort key as text for the next cursor.
+ */
+@Getter
+@Setter
+public class ProductCardRow implements ProductSummaryView {
+    private String id;
+    private String name;
+    private String slug;
+    private Double price;
+    private Double discount;
+    private String imageUrl;
+    private String sortValue;
+}
@@ -0,0 +1,8 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface ProductCartRuleView {
+    String getId();
+    Boolean getOrderable();
+    Boolean getHasOptions();
+    Long getAvailableQuantity();
+}
@@ -0,0 +1,7 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface ProductNameView {
+    String getId();
+    String getName();
+    Boolean getIsPublished();
+}
@@ -1,6 +1,6 @@
 package org.senju.eshopeule.repository.projection;
 
-public interface CartItemQuantityView {
+public interface ProductOptionOwnerView {
     String getId();
-    Integer getQuantity();
+    String getProductId();
 }
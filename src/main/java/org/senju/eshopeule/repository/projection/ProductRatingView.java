@@ -0,0 +1,7 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface ProductRatingView {
+    String getId();
+    Double getAverageRating();
+    Long getRatingCount();
+}
@@ -0,0 +1,10 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface ProductSummaryView {
+    String getId();
+    String getName();
+    String getSlug();
+    Double getPrice();
+    Double getDiscount();
+    String getImageUrl();
+}
@@ -0,0 +1,6 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface ProductThumbnailView {
+    String getProductId();
+    String getImageUrl();
+}
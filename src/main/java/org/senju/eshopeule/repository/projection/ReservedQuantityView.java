@@ -0,0 +1,6 @@
+package org.senju.eshopeule.repository.projection;
+
+public interface ReservedQuantityView {
+    String getProductId();
+    Long getQuantity();
+}
@@ -0,0 +1,258 @@
+package org.senju.eshopeule.repository.redis;
+
+import org.senju.eshopeule.constant.enums.CartOperationType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Active carts kept as one hash per customer. Besides the item quantities the hash holds the
+ * customer, the persisted cart (if any) and a version bumped by every change. Changed carts
+ * are listed in a sorted set by the time of their first unflushed change.
+ */
+@Component
+public final class ActiveCartRepository {
+
+    public static final String CUSTOMER_ID_FIELD = "customer_id";
+    public static final String CART_ID_FIELD = "cart_id";
+    public static final String VERSION_FIELD = "version";
+    public static final String ITEM_FIELD_PREFIX = "item:";
+
+    private static final String prefixKey = "active_cart:";
+    private static final String DIRTY_KEY = prefixKey + "dirty";
+    private static final String ITEM_SEPARATOR = ":";
+
+    public static final long MISSING = -2;
+    public static final long EXCEEDED = -1;
+
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 1 then return 0 end " +
+            "for i = 2, #ARGV, 2 do redis.call('HSET', KEYS[1], ARGV[i], ARGV[i + 1]) end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[1]) " +
+            "return 1",
+            Long.class
+    );
+
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local updated = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0') + tonumber(ARGV[2]) " +
+            "if updated > tonumber(ARGV[3]) then return -1 end " +
+            "if updated <= 0 then redis.call('HDEL', KEYS[1], ARGV[1]) " +
+            "else redis.call('HSET', KEYS[1], ARGV[1], updated) end " +
+            "redis.call('HINCRBY', KEYS[1], 'version', 1) " +
+            "redis.call('ZADD', KEYS[2], 'NX', ARGV[4], ARGV[5]) " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[6]) " +
+            "return math.max(updated, 0)",
+            Long.class
+    );
+
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local removed = 0 " +
+            "for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "  if string.sub(field, 1, 5) == 'item:' then " +
+            "    local productId, optionId = string.match(field, '^item:([^:]*):(.*)$') " +
+            "    if (ARGV[1] == 'product' and productId == ARGV[2]) or (ARGV[1] == 'option' and optionId == ARGV[2]) then " +
+            "      redis.call('HDEL', KEYS[1], field) " +
+            "      removed = removed + 1 " +
+            "    end " +
+            "  end " +
+            "end " +
+            "if removed > 0 then " +
+            "  redis.call('HINCRBY', KEYS[1], 'version', 1) " +
+            "  redis.call('ZADD', KEYS[2], 'NX', ARGV[3], ARGV[4]) " +
+            "end " +
+            "return removed",
+            Long.class
+    );
+
+    private static final RedisScript<Long> APPLY_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return -2 end " +
+            "local updated = {} " +
+            "for i = 4, #ARGV, 4 do " +
+            "  local mode, target = ARGV[i], ARGV[i + 1] " +
+            "  if mode == 'remove' then " +
+            "    local prefix = 'item:' .. target " +
+            "    local function matches(field) " +
+            "      return field == prefix or string.sub(field, 1, #prefix + 1) == prefix .. ':' " +
+            "    end " +
+            "    for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do " +
+            "      if matches(field) then updated[field] = 0 end " +
+            "    end " +
+            "    for field, _ in pairs(updated) do " +
+            "      if matches(field) then updated[field] = 0 end " +
+            "    end " +
+            "  else " +
+            "    local current = updated[target] or tonumber(redis.call('HGET', KEYS[1], target) or '0') " +
+            "    local value = tonumber(ARGV[i + 2]) " +
+            "    if mode == 'add' then value = current + value end " +
+            "    if value > tonumber(ARGV[i + 3]) then return -1 end " +
+            "    updated[target] = value " +
+            "  end " +
+            "end " +
+            "local changed = 0 " +
+            "for field, value in pairs(updated) do " +
+            "  if value <= 0 then changed = changed + redis.call('HDEL', KEYS[1], field) " +
+            "  else redis.call('HSET', KEYS[1], field, value) changed = changed + 1 end " +
+            "end " +
+            "if changed > 0 then " +
+            "  redis.call('HINCRBY', KEYS[1], 'version', 1) " +
+            "  redis.call('ZADD', KEYS[2], 'NX', ARGV[1], ARGV[2]) " +
+            "end " +
+            "redis.call('EXPIRE', KEYS[1], ARGV[3]) " +
+            "return changed",
+            Long.class
+    );
+
+    private static final RedisScript<Long> ACKNOWLEDGE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then redis.call('ZREM', KEYS[2], ARGV[2]) return 1 end " +
+            "if ARGV[3] ~= '' then redis.call('HSET', KEYS[1], 'cart_id', ARGV[3]) end " +
+            "if redis.call('HGET', KEYS[1], 'version') == ARGV[1] then redis.call('ZREM', KEYS[2], ARGV[2]) return 1 end " +
+            "return 0",
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${cart.redis.idle-ttl}")
+    private long idleTtlInSeconds;
+
+    public ActiveCartRepository(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public Map<String, String> get(String username) {
+        final HashOperations<String, String, String> hashOps = redisTemplate.opsForHash();
+        return hashOps.entries(cartKey(username));
+    }
+
+    /**
+     * Seeds the cart of a customer from the database unless it is already cached, in which case
+     * the cached cart is newer or the same.
+     */
+    public void loadIfAbsent(String username, Map<String, String> fields) {
+        final List<String> args = new ArrayList<>(fields.size() * 2 + 1);
+        args.add(String.valueOf(idleTtlInSeconds));
+        fields.forEach((field, value) -> {
+            args.add(field);
+            args.add(value);
+        });
+        redisTemplate.execute(LOAD_SCRIPT, List.of(cartKey(username)), args.toArray());
+    }
+
+    /**
+     * Adds {@code delta} to the quantity of an item unless the result exceeds {@code maxQuantity}.
+     *
+     * @return the new quantity, {@link #EXCEEDED} or {@link #MISSING} if the cart is not cached
+     */
+    public long addQuantity(String username, String productId, String optionId, long delta, long maxQuantity) {
+        final Long result = redisTemplate.execute(
+                ADD_SCRIPT,
+                List.of(cartKey(username), DIRTY_KEY),
+                itemField(productId, optionId),
+                String.valueOf(delta),
+                String.valueOf(maxQuantity),
+                String.valueOf(System.currentTimeMillis()),
+                username,
+                String.valueOf(idleTtlInSeconds)
+        );
+        return result != null ? result : MISSING;
+    }
+
+    /**
+     * @return the number of removed items or {@link #MISSING} if the cart is not cached
+     */
+    public long removeItemsOfProduct(String username, String productId) {
+        return this.removeItems(username, "product", productId);
+    }
+
+    /**
+     * @return the number of removed items or {@link #MISSING} if the cart is not cached
+     */
+    public long removeItemsOfOption(String username, String optionId) {
+        return this.removeItems(username, "option", optionId);
+    }
+
+    private long removeItems(String username, String by, String id) {
+        final Long result = redisTemplate.execute(
+                REMOVE_SCRIPT,
+                List.of(cartKey(username), DIRTY_KEY),
+                by, id, String.valueOf(System.currentTimeMillis()), username
+        );
+        return result != null ? result : MISSING;
+    }
+
+    /**
+     * Applies all changes or none of them, if one would exceed its maximum quantity.
+     *
+     * @return the number of changed items, {@link #EXCEEDED} or {@link #MISSING} if the cart is not cached
+     */
+    public long applyChanges(String username, List<ItemChange> changes) {
+        final List<String> args = new ArrayList<>(changes.size() * 4 + 3);
+        args.add(String.valueOf(System.currentTimeMillis()));
+        args.add(username);
+        args.add(String.valueOf(idleTtlInSeconds));
+        for (ItemChange change : changes) {
+            // Removing by product matches the product id, with an option the exact item field.
+            args.add(change.type().name().toLowerCase());
+            args.add(change.type() == CartOperationType.REMOVE
+                    ? (change.optionId() != null ? change.productId() + ITEM_SEPARATOR + change.optionId() : change.productId())
+                    : itemField(change.productId(), change.optionId()));
+            args.add(String.valueOf(change.quantity()));
+            args.add(String.valueOf(change.maxQuantity()));
+        }
+        final Long result = redisTemplate.execute(APPLY_SCRIPT, List.of(cartKey(username), DIRTY_KEY), args.toArray());
+        return result != null ? result : MISSING;
+    }
+
+    public List<String> getDirtyUsernames(long changedBefore, int limit) {
+        final Set<String> usernames = redisTemplate.opsForZSet().rangeByScore(DIRTY_KEY, 0, changedBefore, 0, limit);
+        return usernames != null ? new ArrayList<>(usernames) : Collections.emptyList();
+    }
+
+    public boolean isDirty(String username) {
+        return redisTemplate.opsForZSet().score(DIRTY_KEY, username) != null;
+    }
+
+    /**
+     * Records that the given version of the cart is persisted. The cart stays marked as changed
+     * if it was changed again meanwhile.
+     */
+    public boolean acknowledgeFlush(String username, String version, String cartId) {
+        final Long result = redisTemplate.execute(
+                ACKNOWLEDGE_SCRIPT,
+                List.of(cartKey(username), DIRTY_KEY),
+                version, username, cartId != null ? cartId : ""
+        );
+        return result != null && result == 1;
+    }
+
+    public void delete(String username) {
+        redisTemplate.delete(cartKey(username));
+        redisTemplate.opsForZSet().remove(DIRTY_KEY, username);
+    }
+
+    public static String itemField(String productId, String optionId) {
+        return ITEM_FIELD_PREFIX + productId + ITEM_SEPARATOR + (optionId != null ? optionId : "");
+    }
+
+    /**
+     * @return the product id and the option id (or {@code null}) of an item field
+     */
+    public static String[] parseItemField(String field) {
+        final String[] ids = field.substring(ITEM_FIELD_PREFIX.length()).split(ITEM_SEPARATOR, 2);
+        return new String[]{ids[0], ids.length > 1 && !ids[1].isEmpty() ? ids[1] : null};
+    }
+
+    public record ItemChange(CartOperationType type, String productId, String optionId, long quantity, long maxQuantity) {
+    }
+
+    private static String cartKey(String username) {
+        return prefixKey + "user:" + username;
+    }
+}
@@ -0,0 +1,196 @@
+package org.senju.eshopeule.repository.redis;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public final class HotStockRepository {
+
+    private static final String HOT_PRODUCTS_KEY = "hot_stock:products";
+    private static final String prefixKey = "hot_stock:";
+
+    private static final RedisScript<Long> TAKE_SCRIPT = new DefaultRedisScript<>(
+            "local available = redis.call('GET', KEYS[1]) " +
+            "if not available then return -1 end " +
+            "local taken = math.min(tonumber(available), tonumber(ARGV[1])) " +
+            "if taken <= 0 then return 0 end " +
+            "redis.call('DECRBY', KEYS[1], taken) " +
+            "redis.call('INCRBY', KEYS[2], taken) " +
+            "return taken",
+            Long.class
+    );
+
+    private static final RedisScript<Long> RESTORE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('EXISTS', KEYS[1]) == 0 then return 0 end " +
+            "redis.call('INCRBY', KEYS[1], ARGV[1]) " +
+            "if ARGV[2] == '1' then redis.call('DECRBY', KEYS[2], ARGV[1]) end " +
+            "return 1",
+            Long.class
+    );
+
+    private static final RedisScript<Long> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local consumed = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "if consumed ~= 0 then redis.call('DECRBY', KEYS[1], consumed) end " +
+            "return consumed",
+            Long.class
+    );
+
+    private static final RedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>(
+            "local consumed = tonumber(redis.call('GET', KEYS[2]) or '0') " +
+            "local available = math.max(tonumber(ARGV[1]) - consumed, 0) " +
+            "redis.call('SET', KEYS[1], available) " +
+            "return available",
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${hot-stock.stripes}")
+    private int stripes;
+
+    public HotStockRepository(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public Set<String> getHotProductIds() {
+        final Set<String> productIds = redisTemplate.opsForSet().members(HOT_PRODUCTS_KEY);
+        return productIds != null ? productIds : Collections.emptySet();
+    }
+
+    public Set<String> filterHotProductIds(Collection<String> productIds) {
+        if (productIds.isEmpty()) return Collections.emptySet();
+        final Map<Object, Boolean> membership = redisTemplate.opsForSet().isMember(HOT_PRODUCTS_KEY, productIds.toArray());
+        final Set<String> hotProductIds = new HashSet<>();
+        if (membership != null) {
+            membership.forEach((productId, isHot) -> {
+                if (Boolean.TRUE.equals(isHot)) hotProductIds.add((String) productId);
+            });
+        }
+        return hotProductIds;
+    }
+
+    /**
+     * Takes up to {@code quantity} units from the stripes of a product, starting at a random
+     * stripe and moving on to the next one while the current stripe is short.
+     *
+     * @return the units taken from each stripe; if they add up to less than {@code quantity}
+     * there is not enough stock and the caller has to {@link #restore} them.
+     */
+    public Map<Integer, Long> take(String productId, long quantity) {
+        final Map<Integer, Long> takenByStripe = new HashMap<>();
+        final int start = ThreadLocalRandom.current().nextInt(stripes);
+        long remaining = quantity;
+        for (int i = 0; i < stripes && remaining > 0; i++) {
+            final int stripe = (start + i) % stripes;
+            final Long taken = redisTemplate.execute(
+                    TAKE_SCRIPT,
+                    List.of(availableKey(productId, stripe), consumedKey(productId, stripe)),
+                    String.valueOf(remaining)
+            );
+            if (taken != null && taken > 0) {
+                takenByStripe.put(stripe, taken);
+                remaining -= taken;
+            }
+        }
+        return takenByStripe;
+    }
+
+    /**
+     * Puts units back on the stripes they were taken from. A stripe whose counter is gone, because
+     * admission to the product was closed, is left alone.
+     *
+     * @return the units that could not be put back
+     */
+    public long restore(String productId, Map<Integer, Long> quantityByStripe, boolean revertConsumed) {
+        long unrestored = 0;
+        for (Map.Entry<Integer, Long> entry : quantityByStripe.entrySet()) {
+            final Long restored = redisTemplate.execute(
+                    RESTORE_SCRIPT,
+                    List.of(availableKey(productId, entry.getKey()), consumedKey(productId, entry.getKey())),
+                    String.valueOf(entry.getValue()), revertConsumed ? "1" : "0"
+            );
+            if (restored == null || restored == 0) unrestored += entry.getValue();
+        }
+        return unrestored;
+    }
+
+    public void giveBack(String productId, long quantity) {
+        restore(productId, Map.of(ThreadLocalRandom.current().nextInt(stripes), quantity), false);
+    }
+
+    public long getAvailableQuantity(String productId) {
+        final List<String> values = redisTemplate.opsForValue().multiGet(
+                stripeKeys(productId, true)
+        );
+        if (values == null) return 0;
+        return values.stream()
+                .filter(Objects::nonNull)
+                .mapToLong(Long::parseLong)
+                .sum();
+    }
+
+    /**
+     * Atomically takes the consumed counters of a product so they can be added to the
+     * reserved quantity in the database. If that fails the amounts must be handed back with
+     * {@link #undrain}.
+     */
+    public Map<Integer, Long> drainConsumed(String productId) {
+        final Map<Integer, Long> drainedByStripe = new HashMap<>();
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            final Long drained = redisTemplate.execute(DRAIN_SCRIPT, List.of(consumedKey(productId, stripe)));
+            if (drained != null && drained != 0) drainedByStripe.put(stripe, drained);
+        }
+        return drainedByStripe;
+    }
+
+    public void undrain(String productId, Map<Integer, Long> drainedByStripe) {
+        drainedByStripe.forEach((stripe, quantity) ->
+                redisTemplate.opsForValue().increment(consumedKey(productId, stripe), quantity));
+    }
+
+    public void load(String productId, long availableQuantity) {
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            final long share = availableQuantity / stripes + (stripe < availableQuantity % stripes ? 1 : 0);
+            redisTemplate.execute(
+                    RESET_SCRIPT,
+                    List.of(availableKey(productId, stripe), consumedKey(productId, stripe)),
+                    String.valueOf(share)
+            );
+        }
+        redisTemplate.opsForSet().add(HOT_PRODUCTS_KEY, productId);
+    }
+
+    public void closeAdmission(String productId) {
+        redisTemplate.opsForSet().remove(HOT_PRODUCTS_KEY, productId);
+        redisTemplate.delete(stripeKeys(productId, true));
+    }
+
+    public void delete(String productId) {
+        redisTemplate.delete(stripeKeys(productId, false));
+    }
+
+    private List<String> stripeKeys(String productId, boolean availableOnly) {
+        final List<String> keys = new ArrayList<>();
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            keys.add(availableKey(productId, stripe));
+            if (!availableOnly) {
+                keys.add(consumedKey(productId, stripe));
+            }
+        }
+        return keys;
+    }
+
+    private static String availableKey(String productId, int stripe) {
+        return prefixKey + "{" + productId + ":" + stripe + "}:available";
+    }
+
+    private static String consumedKey(String productId, int stripe) {
+        return prefixKey + "{" + productId + ":" + stripe + "}:consumed";
+    }
+}
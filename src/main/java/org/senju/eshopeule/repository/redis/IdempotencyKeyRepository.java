@@ -0,0 +1,29 @@
+package org.senju.eshopeule.repository.redis;
+
+import org.senju.eshopeule.model.IdempotencyRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+public final class IdempotencyKeyRepository extends RedisRepository<IdempotencyRecord> {
+
+    private static final String prefixKey = "idempotency_key:";
+
+    @Value("${idempotency.key-expiration}")
+    private long timeToLiveInSeconds;
+
+    public IdempotencyKeyRepository(RedisTemplate<String, Object> redisTemplate) {
+        super(redisTemplate);
+    }
+
+    @Override
+    protected String getPrefixKey() {
+        return prefixKey;
+    }
+
+    @Override
+    protected long getTimeToLiveInSeconds() {
+        return timeToLiveInSeconds;
+    }
+}
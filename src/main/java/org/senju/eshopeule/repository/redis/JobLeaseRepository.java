@@ -0,0 +1,54 @@
+package org.senju.eshopeule.repository.redis;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Time limited leases of scheduled jobs that must run on a single node at a time. A lease is
+ * only extended or released by the node holding it, and lapses on its own if that node dies.
+ */
+@Component
+public final class JobLeaseRepository {
+
+    private static final String prefixKey = "job_lease:";
+
+    private static final RedisScript<Long> EXTEND_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "return redis.call('PEXPIRE', KEYS[1], ARGV[2])",
+            Long.class
+    );
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) ~= ARGV[1] then return 0 end " +
+            "return redis.call('DEL', KEYS[1])",
+            Long.class
+    );
+
+    private final StringRedisTemplate redisTemplate;
+
+    public JobLeaseRepository(StringRedisTemplate redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public boolean tryAcquire(String job, String owner, Duration ttl) {
+        return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(prefixKey + job, owner, ttl));
+    }
+
+    /**
+     * @return {@code false} if the lease lapsed and may be held by another node
+     */
+    public boolean extend(String job, String owner, Duration ttl) {
+        final Long result = redisTemplate.execute(
+                EXTEND_SCRIPT, List.of(prefixKey + job), owner, String.valueOf(ttl.toMillis()));
+        return result != null && result == 1;
+    }
+
+    public void release(String job, String owner) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(prefixKey + job), owner);
+    }
+}
@@ -0,0 +1,65 @@
+package org.senju.eshopeule.repository.redis;
+
+import org.senju.eshopeule.model.ProductCacheEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.GenericToStringSerializer;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public final class ProductCacheRepository extends RedisRepository<ProductCacheEntry> {
+
+    private static final String prefixKey = "product_cache:entry:";
+    private static final String versionPrefixKey = "product_cache:version:";
+
+    private static final RedisScript<Long> SAVE_UNLESS_NEWER_SCRIPT = new DefaultRedisScript<>(
+            "local current = redis.call('GET', KEYS[2]) " +
+            "if current and tonumber(current) > tonumber(ARGV[2]) then return 0 end " +
+            "redis.call('SET', KEYS[1], ARGV[1], 'EX', ARGV[3]) " +
+            "redis.call('SET', KEYS[2], ARGV[2], 'EX', ARGV[3]) " +
+            "return 1",
+            Long.class
+    );
+
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${product-cache.l2-ttl}")
+    private long timeToLiveInSeconds;
+
+    public ProductCacheRepository(RedisTemplate<String, Object> redisTemplate) {
+        super(redisTemplate);
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * Caches the entry unless an entry of a newer read model version was cached before. The
+     * version is kept when the entry is deleted, so a load that read the read model before a
+     * change cannot put the old product back once a newer one was cached.
+     *
+     * @return {@code false} if a newer version was cached
+     */
+    public boolean saveUnlessNewer(String productId, ProductCacheEntry entry, long timeToLiveInSeconds) {
+        final Long saved = redisTemplate.execute(
+                SAVE_UNLESS_NEWER_SCRIPT,
+                redisTemplate.getValueSerializer(),
+                new GenericToStringSerializer<>(Long.class),
+                List.of(prefixKey + productId, versionPrefixKey + productId),
+                entry, entry.getVersion(), timeToLiveInSeconds
+        );
+        return saved != null && saved == 1;
+    }
+
+    @Override
+    protected String getPrefixKey() {
+        return prefixKey;
+    }
+
+    @Override
+    protected long getTimeToLiveInSeconds() {
+        return timeToLiveInSeconds;
+    }
+}
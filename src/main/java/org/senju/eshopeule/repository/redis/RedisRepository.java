@@ -16,6 +16,16 @@ public abstract class RedisRepository<T> {
         redisTemplate.opsForValue().set(getPrefixKey() + key, value, getTimeToLiveInSeconds(), TimeUnit.SECONDS);
     }
 
+    public void save(@NotNull String key, T value, long timeToLiveInSeconds) {
+        redisTemplate.opsForValue().set(getPrefixKey() + key, value, timeToLiveInSeconds, TimeUnit.SECONDS);
+    }
+
+    public boolean saveIfAbsent(@NotNull String key, T value, long timeToLiveInSeconds) {
+        return Boolean.TRUE.equals(
+                redisTemplate.opsForValue().setIfAbsent(getPrefixKey() + key, value, timeToLiveInSeconds, TimeUnit.SECONDS)
+        );
+    }
+
     @SuppressWarnings("unchecked")
     public T getByKey(@NotNull String key) {
         return (T) redisTemplate.opsForValue().get(getPrefixKey() + key);
@@ -0,0 +1,29 @@
+package org.senju.eshopeule.repository.redis;
+
+import org.senju.eshopeule.model.SearchResultCacheEntry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+@Component
+public final class SearchResultCacheRepository extends RedisRepository<SearchResultCacheEntry> {
+
+    private static final String prefixKey = "search_result:";
+
+    @Value("${search.cache.keyword-ttl}")
+    private long timeToLiveInSeconds;
+
+    public SearchResultCacheRepository(RedisTemplate<String, Object> redisTemplate) {
+        super(redisTemplate);
+    }
+
+    @Override
+    protected String getPrefixKey() {
+        return prefixKey;
+    }
+
+    @Override
+    protected long getTimeToLiveInSeconds() {
+        return timeToLiveInSeconds;
+    }
+}
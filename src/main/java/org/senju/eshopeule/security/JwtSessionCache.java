@@ -0,0 +1,143 @@
+package org.senju.eshopeule.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verified access tokens with the user details they were authenticated with, so repeated
+ * requests with the same token skip the Redis lookup of the token and the user query. Entries
+ * live at most until the token expires. Logouts, new logins and changes of passwords, accounts
+ * or roles invalidate the sessions of the affected users on every node over pub/sub, within a
+ * transaction once it commits. A session loaded while its user was invalidated is not cached.
+ */
+@Component
+public final class JwtSessionCache {
+
+    private static final String INVALIDATION_CHANNEL = "jwt_session:invalidation";
+    private static final String ALL_USERS = "*";
+    private static final Duration INVALIDATION_MEMORY = Duration.ofMinutes(1);
+    private static final Logger logger = LoggerFactory.getLogger(JwtSessionCache.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Cache<String, Session> sessions;
+    private final Cache<String, Long> recentInvalidations;
+    private volatile long allInvalidatedAt;
+
+    public JwtSessionCache(StringRedisTemplate redisTemplate,
+                           RedisMessageListenerContainer listenerContainer,
+                           MeterRegistry meterRegistry,
+                           @Value("${security.jwt.session-cache.max-size}") long maxSize,
+                           @Value("${security.jwt.session-cache.ttl}") long ttlInSeconds) {
+        this.redisTemplate = redisTemplate;
+        final long maxTtlInNanos = TimeUnit.SECONDS.toNanos(ttlInSeconds);
+        this.sessions = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, Session>() {
+                    @Override
+                    public long expireAfterCreate(String token, Session session, long currentTime) {
+                        final long untilExpiry = TimeUnit.MILLISECONDS.toNanos(session.expiresAt() - System.currentTimeMillis());
+                        return Math.max(0, Math.min(untilExpiry, maxTtlInNanos));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Session session, long currentTime, long currentDuration) {
+                        return this.expireAfterCreate(token, session, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Session session, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        this.recentInvalidations = Caffeine.newBuilder()
+                .expireAfterWrite(INVALIDATION_MEMORY)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, sessions, "jwt.session.cache");
+        listenerContainer.addMessageListener(
+                (message, pattern) -> this.invalidateLocally(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(INVALIDATION_CHANNEL)
+        );
+    }
+
+    public UserDetails get(String accessToken) {
+        final Session session = sessions.getIfPresent(accessToken);
+        return session != null ? session.user() : null;
+    }
+
+    /**
+     * Caches the session unless its user was invalidated after {@code loadedSince}.
+     */
+    public void put(String accessToken, UserDetails user, Date expiresAt, long loadedSince) {
+        if (allInvalidatedAt >= loadedSince) return;
+        final Long invalidatedAt = recentInvalidations.getIfPresent(user.getUsername());
+        if (invalidatedAt != null && invalidatedAt >= loadedSince) return;
+        sessions.put(accessToken, new Session(user, expiresAt.getTime()));
+    }
+
+    public void invalidate(String username) {
+        this.publish(username);
+    }
+
+    public void invalidateAll() {
+        this.publish(ALL_USERS);
+    }
+
+    private void publish(String target) {
+        this.invalidateLocally(target);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            this.broadcast(target);
+            return;
+        }
+        // Invalidate again after the commit, a session loaded meanwhile saw the old state.
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateLocally(target);
+                broadcast(target);
+            }
+        });
+    }
+
+    private void broadcast(String target) {
+        try {
+            redisTemplate.convertAndSend(INVALIDATION_CHANNEL, target);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to broadcast invalidation of sessions of {}: {}", target, ex.getMessage());
+        }
+    }
+
+    private void invalidateLocally(String target) {
+        final long now = System.currentTimeMillis();
+        if (ALL_USERS.equals(target)) {
+            allInvalidatedAt = now;
+            sessions.invalidateAll();
+            return;
+        }
+        recentInvalidations.put(target, now);
+        sessions.asMap().values().removeIf(session -> session.user().getUsername().equals(target));
+    }
+
+    private record Session(UserDetails user, long expiresAt) {
+    }
+}
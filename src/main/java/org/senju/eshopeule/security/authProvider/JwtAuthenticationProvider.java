@@ -1,11 +1,13 @@
 package org.senju.eshopeule.security.authProvider;
 
 
+import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import org.senju.eshopeule.exceptions.JwtAuthenticationException;
 import org.senju.eshopeule.repository.redis.RedisRepository;
 import org.senju.eshopeule.security.JwtAuthenticationToken;
+import org.senju.eshopeule.security.JwtSessionCache;
 import org.senju.eshopeule.security.SimpleUserDetailsService;
 import org.senju.eshopeule.utils.JwtUtil;
 import org.slf4j.Logger;
@@ -27,6 +29,7 @@ public class JwtAuthenticationProvider implements AuthenticationProvider {
     private final JwtUtil jwtUtil;
     private final SimpleUserDetailsService userDetailsService;
     private final RedisRepository<String> accessTokenRepository;
+    private final JwtSessionCache sessionCache;
 
     private final UserDetailsChecker authenticationChecks = new SimplePreUserDetailsChecker();
 
@@ -37,14 +40,19 @@ public class JwtAuthenticationProvider implements AuthenticationProvider {
         Assert.isInstanceOf(JwtAuthenticationToken.class, authentication, "Only JwtAuthenticationToken is supported");
         final JwtAuthenticationToken auth = (JwtAuthenticationToken) authentication;
         final String accessToken = auth.getAccessToken();
+        final UserDetails cachedUser = sessionCache.get(accessToken);
+        if (cachedUser != null) return new JwtAuthenticationToken(cachedUser, cachedUser.getAuthorities(), accessToken);
         try {
-            final String username = jwtUtil.extractUsername(accessToken);
+            final long loadStartedAt = System.currentTimeMillis();
+            final Claims claims = jwtUtil.extractAllClaims(accessToken);
+            final String username = claims.getSubject();
             final String storedToken = accessTokenRepository.getByKey(username);
             if (storedToken == null || !storedToken.equals(accessToken)) {
                 throw new JwtAuthenticationException(JWT_TOKEN_INVALID_ERROR_MSG);
             }
             UserDetails user = userDetailsService.loadUserDetailsByUsername(username);
             this.authenticationChecks.check(user);
+            sessionCache.put(accessToken, user, claims.getExpiration(), loadStartedAt);
             return new JwtAuthenticationToken(user, user.getAuthorities(), accessToken);
         } catch (JwtException e) {
             throw new JwtAuthenticationException(e.getMessage());
@@ -0,0 +1,270 @@
+package org.senju.eshopeule.security.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.Part;
+import org.senju.eshopeule.dto.response.SimpleResponse;
+import org.senju.eshopeule.model.IdempotencyRecord;
+import org.senju.eshopeule.repository.redis.IdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AuthenticationTrustResolver;
+import org.springframework.security.authentication.AuthenticationTrustResolverImpl;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import static org.senju.eshopeule.constant.exceptionMessage.IdempotencyExceptionMsg.*;
+
+/**
+ * Honors the {@code Idempotency-Key} header on mutating requests of authenticated users.
+ * The first request marks the key as in flight, duplicates arriving meanwhile wait for it to
+ * finish or get 409, and duplicates arriving afterward get the stored response replayed. If the
+ * first request fails, a waiting duplicate takes the key over and is processed itself. A key
+ * reused with another method, URI or body gets 422. The filter runs after authorization, so
+ * denied requests are never stored. Keys are scoped to the user, anonymous requests share no
+ * scope and are passed through untouched.
+ */
+public final class IdempotencyKeyFilter extends OncePerRequestFilter {
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+    private static final long POLL_INTERVAL_IN_MILLIS = 50;
+    private static final Set<String> MUTATING_METHODS = Set.of(
+            HttpMethod.POST.name(), HttpMethod.PUT.name(), HttpMethod.PATCH.name(), HttpMethod.DELETE.name()
+    );
+    private static final AuthenticationTrustResolver trustResolver = new AuthenticationTrustResolverImpl();
+    private static final Logger logger = LoggerFactory.getLogger(IdempotencyKeyFilter.class);
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final long inFlightExpirationInSeconds;
+    private final long waitTimeoutInMillis;
+
+    public IdempotencyKeyFilter(IdempotencyKeyRepository idempotencyKeyRepository,
+                                ObjectMapper objectMapper,
+                                long inFlightExpirationInSeconds,
+                                long waitTimeoutInMillis) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.inFlightExpirationInSeconds = inFlightExpirationInSeconds;
+        this.waitTimeoutInMillis = waitTimeoutInMillis;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return request.getHeader(IDEMPOTENCY_KEY_HEADER) == null || !MUTATING_METHODS.contains(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated() || trustResolver.isAnonymous(authentication)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final String idempotencyKey = request.getHeader(IDEMPOTENCY_KEY_HEADER).strip();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            writeError(response, HttpStatus.BAD_REQUEST, String.format(IDEMPOTENCY_KEY_INVALID_MSG, MAX_KEY_LENGTH));
+            return;
+        }
+
+        final String key = authentication.getName() + ":" + idempotencyKey;
+        final MessageDigest bodyDigest = newBodyDigest();
+        final HttpServletRequest bufferedRequest = this.digestBody(request, bodyDigest);
+        final String fingerprint = request.getMethod() + " " + request.getRequestURI()
+                + (request.getQueryString() != null ? "?" + request.getQueryString() : "")
+                + " " + Base64.getEncoder().encodeToString(bodyDigest.digest());
+        final IdempotencyRecord inFlight = IdempotencyRecord.builder()
+                .fingerprint(fingerprint)
+                .completed(false)
+                .build();
+
+        final long deadline = System.currentTimeMillis() + waitTimeoutInMillis;
+        IdempotencyRecord existed;
+        do {
+            if (idempotencyKeyRepository.saveIfAbsent(key, inFlight, inFlightExpirationInSeconds)) {
+                this.process(key, fingerprint, bufferedRequest, response, chain);
+                return;
+            }
+            existed = this.awaitCompletion(key, fingerprint, deadline);
+            // A missing record means the first request failed and released the key, try to take it over.
+        } while (existed == null && System.currentTimeMillis() < deadline && !Thread.currentThread().isInterrupted());
+
+        if (existed == null) {
+            writeError(response, HttpStatus.CONFLICT, IDEMPOTENCY_KEY_IN_PROGRESS_MSG);
+        } else if (!existed.getFingerprint().equals(fingerprint)) {
+            writeError(response, HttpStatus.UNPROCESSABLE_ENTITY, IDEMPOTENCY_KEY_REUSED_MSG);
+        } else if (!existed.isCompleted()) {
+            writeError(response, HttpStatus.CONFLICT, IDEMPOTENCY_KEY_IN_PROGRESS_MSG);
+        } else {
+            logger.debug("Replay response of idempotency key {}", key);
+            response.setStatus(existed.getStatus());
+            response.setHeader(IDEMPOTENT_REPLAYED_HEADER, Boolean.TRUE.toString());
+            if (existed.getContentType() != null) response.setContentType(existed.getContentType());
+            if (existed.getBody() != null) response.getOutputStream().write(existed.getBody().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void process(String key, String fingerprint, HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws ServletException, IOException {
+        final ContentCachingResponseWrapper responseWrapper = new ContentCachingResponseWrapper(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, responseWrapper);
+            if (responseWrapper.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value()) {
+                idempotencyKeyRepository.save(key, IdempotencyRecord.builder()
+                        .fingerprint(fingerprint)
+                        .completed(true)
+                        .status(responseWrapper.getStatus())
+                        .contentType(responseWrapper.getContentType())
+                        .body(new String(responseWrapper.getContentAsByteArray(), StandardCharsets.UTF_8))
+                        .build());
+                completed = true;
+            }
+        } finally {
+            // Server errors and exceptions leave nothing behind, so the client can retry with the same key.
+            if (!completed) idempotencyKeyRepository.deleteByKey(key);
+            responseWrapper.copyBodyToResponse();
+        }
+    }
+
+    private IdempotencyRecord awaitCompletion(String key, String fingerprint, long deadline) {
+        IdempotencyRecord existed = idempotencyKeyRepository.getByKey(key);
+        // A different request under the same key is rejected right away, there is nothing to wait for.
+        while (existed != null && !existed.isCompleted() && existed.getFingerprint().equals(fingerprint)
+                && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_IN_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            existed = idempotencyKeyRepository.getByKey(key);
+        }
+        return existed;
+    }
+
+    /**
+     * Feeds the body into the digest. Multipart and form bodies are parsed by the container, their
+     * parts and parameters are digested; any other body is read here and replayed to the chain.
+     */
+    private HttpServletRequest digestBody(HttpServletRequest request, MessageDigest digest) throws ServletException, IOException {
+        final String contentType = request.getContentType() != null ? request.getContentType().toLowerCase(Locale.ROOT) : "";
+        if (contentType.startsWith(MediaType.MULTIPART_FORM_DATA_VALUE)) {
+            for (Part part : request.getParts()) {
+                digest.update(part.getName().getBytes(StandardCharsets.UTF_8));
+                if (part.getSubmittedFileName() != null) digest.update(part.getSubmittedFileName().getBytes(StandardCharsets.UTF_8));
+                try (InputStream content = part.getInputStream()) {
+                    digest.update(content.readAllBytes());
+                }
+            }
+            return request;
+        }
+        if (contentType.startsWith(MediaType.APPLICATION_FORM_URLENCODED_VALUE)) {
+            new TreeMap<>(request.getParameterMap()).forEach((name, values) -> {
+                digest.update(name.getBytes(StandardCharsets.UTF_8));
+                for (String value : values) digest.update(value.getBytes(StandardCharsets.UTF_8));
+            });
+            return request;
+        }
+        final byte[] body = request.getInputStream().readAllBytes();
+        digest.update(body);
+        return new BufferedBodyRequest(request, body);
+    }
+
+    private static MessageDigest newBodyDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(objectMapper.writeValueAsBytes(new SimpleResponse(message)));
+    }
+
+    private static final class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        private BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            final ByteArrayInputStream content = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return content.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    // The body is buffered, all of it is available at once.
+                    try {
+                        if (!this.isFinished()) readListener.onDataAvailable();
+                        if (this.isFinished()) readListener.onAllDataRead();
+                    } catch (IOException ex) {
+                        readListener.onError(ex);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return content.read();
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) {
+                    return content.read(b, off, len);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() throws UnsupportedEncodingException {
+            final String encoding = getCharacterEncoding() != null ? getCharacterEncoding() : StandardCharsets.UTF_8.name();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body), encoding));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.senju.eshopeule.constant.enums.JwtClaims;
 import org.senju.eshopeule.constant.enums.TokenType;
 import org.senju.eshopeule.dto.response.LoginResponse;
 import org.senju.eshopeule.repository.redis.RedisRepository;
+import org.senju.eshopeule.security.JwtSessionCache;
 import org.senju.eshopeule.utils.JwtUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -33,6 +34,7 @@ public final class OAuth2AuthenticationSuccessHandler implements AuthenticationS
     private final ObjectMapper objectMapper;
     private final RedisRepository<String> accessTokenRepository;
     private final RedisRepository<String> refreshTokenRepository;
+    private final JwtSessionCache sessionCache;
 
     private final JwtUtil jwtUtil;
 
@@ -51,6 +53,7 @@ public final class OAuth2AuthenticationSuccessHandler implements AuthenticationS
                         username
                 );
                 accessTokenRepository.save(username, accessToken);
+                sessionCache.invalidate(username);
 
                 final String refreshToken = jwtUtil.generateRefreshToken(
                         Map.of(JwtClaims.TYPE.getClaimName(), TokenType.REFRESH_TOKEN.getTypeName()),
@@ -0,0 +1,6 @@
+package org.senju.eshopeule.service;
+
+public interface AbandonedCartService {
+
+    void sweepAbandonedCarts();
+}
@@ -2,6 +2,7 @@ package org.senju.eshopeule.service;
 
 import org.senju.eshopeule.dto.CartDTO;
 import org.senju.eshopeule.dto.CartItemDTO;
+import org.senju.eshopeule.dto.CartOperationDTO;
 
 import java.util.List;
 
@@ -11,8 +12,23 @@ public interface CartService {
 
     CartDTO addToCart(CartItemDTO item);
 
+    /**
+     * Applies all operations to the cart of the current user at once, either all or none of them.
+     */
+    CartDTO applyOperations(List<CartOperationDTO> operations);
+
     void deleteCartItemByProductId(String productId);
 
     void deleteCartItemByOptionId(String optionId);
 
+    /**
+     * Writes pending changes of the cart of the customer to the database before it is read from there.
+     */
+    void flushActiveCart(String username);
+
+    /**
+     * Drops the cached cart of the customer once the current transaction checked it out.
+     */
+    void clearActiveCart(String username);
+
 }
@@ -0,0 +1,13 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.dto.CatalogCascadeProgressDTO;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+
+import java.util.List;
+
+public interface CatalogCascadeService {
+
+    CatalogCascadeProgressDTO submit(OutboxEventType trigger, String aggregateId, String staleValue);
+
+    List<CatalogCascadeProgressDTO> getProgress();
+}
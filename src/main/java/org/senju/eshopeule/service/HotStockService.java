@@ -0,0 +1,21 @@
+package org.senju.eshopeule.service;
+
+import java.util.Map;
+import java.util.Set;
+
+public interface HotStockService {
+
+    void enableHotItem(String productId);
+
+    void disableHotItem(String productId);
+
+    Set<String> filterHotProductIds(Set<String> productIds);
+
+    Long getAvailableQuantity(String productId);
+
+    boolean acquire(Map<String, Long> quantityByProductId);
+
+    void giveBack(Map<String, Long> quantityByProductId);
+
+    void reconcileConsumedStock();
+}
@@ -1,8 +1,10 @@
 package org.senju.eshopeule.service;
 
+import org.senju.eshopeule.dto.CartDTO;
 import org.senju.eshopeule.dto.OrderDTO;
 import org.senju.eshopeule.dto.request.CreateOrderRequest;
 import org.senju.eshopeule.dto.response.OrderPagingResponse;
+import org.senju.eshopeule.dto.response.OrderSliceResponse;
 import org.springframework.data.domain.Pageable;
 
 public interface OrderService {
@@ -13,10 +15,16 @@ public interface OrderService {
 
     OrderPagingResponse getOrderHistory(Pageable pageRequest);
 
+    OrderSliceResponse getAllOrder(String cursor, int pageSize);
+
+    OrderSliceResponse getOrderHistory(String cursor, int pageSize);
+
     void createOrder(CreateOrderRequest request);
 
     void buyAgainOrderItem(String orderItemId);
 
+    CartDTO buyAgainOrder(String orderId);
+
     void updateCompletedOrder(String orderId);
 
     void updateShippingOrder(String orderId);
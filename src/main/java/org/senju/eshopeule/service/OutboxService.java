@@ -0,0 +1,18 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+
+import java.util.Collection;
+
+public interface OutboxService {
+
+    void publish(OutboxEventType type, String aggregateId);
+
+    void publish(OutboxEventType type, String aggregateId, String payload);
+
+    void publish(OutboxEventType type, Collection<String> aggregateIds);
+
+    void relay();
+
+    void purgeCompleted();
+}
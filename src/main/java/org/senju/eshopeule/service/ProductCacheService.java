@@ -0,0 +1,16 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.dto.ProductPubDTO;
+
+import java.util.Collection;
+
+public interface ProductCacheService {
+
+    ProductPubDTO getById(String productId);
+
+    ProductPubDTO getBySlug(String productSlug);
+
+    void evict(String productId);
+
+    void evict(Collection<String> productIds);
+}
@@ -0,0 +1,24 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.dto.ProductDetailDTO;
+import org.senju.eshopeule.dto.ReindexProgressDTO;
+import org.senju.eshopeule.model.product.ProductDetailView;
+
+import java.util.Collection;
+
+public interface ProductDetailViewService {
+
+    ProductDetailDTO getDetailById(String productId);
+
+    ProductDetailDTO getDetailBySlug(String productSlug);
+
+    ProductDetailView getViewById(String productId);
+
+    ProductDetailView getViewBySlug(String productSlug);
+
+    void rebuild(Collection<String> productIds);
+
+    ReindexProgressDTO startFullRebuild();
+
+    ReindexProgressDTO getRebuildProgress();
+}
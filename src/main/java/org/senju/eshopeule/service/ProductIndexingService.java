@@ -0,0 +1,16 @@
+package org.senju.eshopeule.service;
+
+import java.util.Collection;
+
+public interface ProductIndexingService {
+
+    void enqueue(String productId);
+
+    void enqueue(Collection<String> productIds);
+
+    void flush();
+
+    void startDualWrite(String indexName);
+
+    void stopDualWrite();
+}
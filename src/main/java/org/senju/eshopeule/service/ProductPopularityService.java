@@ -0,0 +1,12 @@
+package org.senju.eshopeule.service;
+
+import java.util.Collection;
+
+public interface ProductPopularityService {
+
+    void recordView(String productId);
+
+    void refreshSignals();
+
+    void refreshSignals(Collection<String> productIds);
+}
@@ -0,0 +1,12 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.dto.ReindexProgressDTO;
+
+public interface ProductReindexService {
+
+    ReindexProgressDTO startFullReindex();
+
+    ReindexProgressDTO startIncrementalReindex();
+
+    ReindexProgressDTO getProgress();
+}
@@ -4,6 +4,7 @@ import org.senju.eshopeule.dto.ProductDTO;
 import org.senju.eshopeule.dto.ProductPostDTO;
 import org.senju.eshopeule.dto.ProductPutDTO;
 import org.senju.eshopeule.dto.response.ProductPagingResponse;
+import org.senju.eshopeule.dto.response.ProductSliceResponse;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -25,6 +26,14 @@ public interface ProductService {
 
     ProductPagingResponse getAllProductByCategorySlug(String categorySlug, Pageable pageRequest);
 
+    ProductSliceResponse getProductSliceByBrandId(String brandId, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal);
+
+    ProductSliceResponse getProductSliceByBrandSlug(String brandSlug, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal);
+
+    ProductSliceResponse getProductSliceByCategoryId(String categoryId, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal);
+
+    ProductSliceResponse getProductSliceByCategorySlug(String categorySlug, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal);
+
     ProductDTO createNewProduct(ProductPostDTO dto, MultipartFile[] images);
 
     ProductDTO updateProduct(ProductPutDTO dto);
@@ -0,0 +1,20 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+public interface SearchResultCacheService {
+
+    ProductSearchResultResponse get(String keyword, String brandName, List<String> categoryNames,
+                                    Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                    SearchRanking ranking, Pageable pageRequest,
+                                    Supplier<ProductSearchResultResponse> loader);
+
+    void invalidate();
+}
@@ -1,12 +1,21 @@
 package org.senju.eshopeule.service;
 
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
 import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.dto.response.ProductSearchSliceResponse;
 import org.springframework.data.domain.Pageable;
 
 import java.util.List;
+import java.util.Set;
 
 public interface SearchingService {
 
     ProductSearchResultResponse search(String keyword, String brandName, List<String> categoryNames,
-                                       Double minPrice, Double maxPrice, Pageable pageRequest);
+                                       Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                       SearchRanking ranking, Pageable pageRequest);
+
+    ProductSearchSliceResponse searchWithCursor(String keyword, String brandName, List<String> categoryNames,
+                                                Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                                SearchRanking ranking, String cursor, Pageable pageRequest);
 }
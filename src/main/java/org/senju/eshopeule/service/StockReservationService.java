@@ -0,0 +1,14 @@
+package org.senju.eshopeule.service;
+
+import org.senju.eshopeule.model.order.Order;
+
+public interface StockReservationService {
+
+    void reserve(Order order);
+
+    void release(String orderId);
+
+    void commit(String orderId);
+
+    void releaseExpiredReservations();
+}
@@ -0,0 +1,10 @@
+package org.senju.eshopeule.service;
+
+import java.util.List;
+
+public interface SuggestionService {
+
+    List<String> suggest(String prefix, int size);
+
+    void refresh();
+}
@@ -0,0 +1,157 @@
+package org.senju.eshopeule.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.senju.eshopeule.repository.jpa.CartItemRepository;
+import org.senju.eshopeule.repository.jpa.CartRepository;
+import org.senju.eshopeule.repository.redis.JobLeaseRepository;
+import org.senju.eshopeule.service.AbandonedCartService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Abandons active carts that were not changed for a while and deletes their items. Carts are
+ * swept in small batches, each in its own short transaction with a pause in between, so row
+ * locks stay brief and autovacuum can keep up. Batches skip carts locked by a concurrent change
+ * or checkout.
+ * Only the node holding the sweeper lease runs a sweep. The sweep and its pauses run on a
+ * thread of their own, the scheduler only starts it.
+ */
+@Service
+public class AbandonedCartServiceImpl implements AbandonedCartService {
+
+    private static final String JOB_NAME = "abandoned_cart_sweeper";
+    private static final Duration LEASE_TTL = Duration.ofMinutes(1);
+    private static final Logger logger = LoggerFactory.getLogger(AbandonedCartServiceImpl.class);
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ExecutorService sweeper = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean sweeping = new AtomicBoolean(false);
+
+    private final Timer sweepTimer;
+    private final Counter cartCounter;
+    private final Counter itemCounter;
+    private final DistributionSummary cartsPerRun;
+    private final DistributionSummary itemsPerRun;
+
+    @Value("${cart.sweeper.abandoned-after}")
+    private long abandonedAfterInSeconds;
+
+    @Value("${cart.sweeper.batch-size}")
+    private int batchSize;
+
+    @Value("${cart.sweeper.batch-pause}")
+    private long batchPauseInMillis;
+
+    @Value("${cart.sweeper.max-batches-per-run}")
+    private int maxBatchesPerRun;
+
+    public AbandonedCartServiceImpl(CartRepository cartRepository,
+                                    CartItemRepository cartItemRepository,
+                                    JobLeaseRepository jobLeaseRepository,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sweepTimer = meterRegistry.timer("cart.sweeper.run");
+        this.cartCounter = meterRegistry.counter("cart.sweeper.rows", "table", "carts");
+        this.itemCounter = meterRegistry.counter("cart.sweeper.rows", "table", "cart_items");
+        this.cartsPerRun = meterRegistry.summary("cart.sweeper.run.rows", "table", "carts");
+        this.itemsPerRun = meterRegistry.summary("cart.sweeper.run.rows", "table", "cart_items");
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        sweeper.shutdownNow();
+        sweeper.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${cart.sweeper.interval}")
+    public void sweepAbandonedCarts() {
+        if (!sweeping.compareAndSet(false, true)) return;
+        try {
+            sweeper.execute(() -> {
+                try {
+                    this.sweepUnderLease();
+                } finally {
+                    sweeping.set(false);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            sweeping.set(false);
+        }
+    }
+
+    private void sweepUnderLease() {
+        if (!jobLeaseRepository.tryAcquire(JOB_NAME, nodeId, LEASE_TTL)) return;
+        try {
+            sweepTimer.record(this::sweep);
+        } finally {
+            jobLeaseRepository.release(JOB_NAME, nodeId);
+        }
+    }
+
+    private void sweep() {
+        final LocalDateTime before = LocalDateTime.now().minusSeconds(abandonedAfterInSeconds);
+        long sweptCarts = 0;
+        long sweptItems = 0;
+        int batches = 0;
+        try {
+            while (true) {
+                final SweptBatch batch = transactionTemplate.execute(status -> this.sweepBatch(before));
+                sweptCarts += batch.carts();
+                sweptItems += batch.items();
+                cartCounter.increment(batch.carts());
+                itemCounter.increment(batch.items());
+                if (++batches >= maxBatchesPerRun || batch.carts() < batchSize) break;
+                if (!jobLeaseRepository.extend(JOB_NAME, nodeId, LEASE_TTL)) {
+                    logger.warn("Lost the abandoned cart sweeper lease after {} batches", batches);
+                    break;
+                }
+                Thread.sleep(batchPauseInMillis);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            cartsPerRun.record(sweptCarts);
+            itemsPerRun.record(sweptItems);
+        }
+        if (sweptCarts > 0) logger.info("Abandoned {} carts with {} items in {} batches", sweptCarts, sweptItems, batches);
+    }
+
+    private SweptBatch sweepBatch(LocalDateTime before) {
+        final List<String> cartIds = cartRepository.lockAbandonedCartIds(before, batchSize);
+        if (cartIds.isEmpty()) return new SweptBatch(0, 0);
+        final int items = cartItemRepository.deleteByCartIds(cartIds);
+        final int carts = cartRepository.updateAbandonedCartWithIds(cartIds);
+        return new SweptBatch(carts, items);
+    }
+
+    private record SweptBatch(int carts, int items) {
+    }
+}
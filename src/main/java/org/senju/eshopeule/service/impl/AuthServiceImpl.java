@@ -21,6 +21,7 @@ import org.senju.eshopeule.repository.redis.RedisRepository;
 import org.senju.eshopeule.repository.jpa.RoleRepository;
 import org.senju.eshopeule.repository.jpa.UserRepository;
 import org.senju.eshopeule.repository.projection.LoginInfoView;
+import org.senju.eshopeule.security.JwtSessionCache;
 import org.senju.eshopeule.service.AuthService;
 import org.senju.eshopeule.service.NotificationService;
 import org.senju.eshopeule.utils.JwtUtil;
@@ -59,6 +60,7 @@ public class AuthServiceImpl implements AuthService {
     private final RedisRepository<RegistrationRequest> tmpUserRedisRepository;
     private final NotificationService emailNotificationService;
     private final JwtUtil jwtUtil;
+    private final JwtSessionCache sessionCache;
 
     @Override
     public LoginResponse authenticate(final LoginRequest request) {
@@ -190,6 +192,7 @@ public class AuthServiceImpl implements AuthService {
     public void logout(String identifier) {
         accessTokenRepository.deleteByKey(identifier);
         refreshTokenRepository.deleteByKey(identifier);
+        sessionCache.invalidate(identifier);
     }
 
     @Override
@@ -200,6 +203,7 @@ public class AuthServiceImpl implements AuthService {
             throw new ChangePasswordException(CHANGE_PASSWORD_ERROR_MSG);
         }
         userRepository.updatePasswordWithUsername(principal, passwordEncoder.encode(request.getNewPassword()));
+        sessionCache.invalidate(principal);
     }
 
     @Override
@@ -214,6 +218,7 @@ public class AuthServiceImpl implements AuthService {
             NotificationDTO notification = new NotificationDTO(type, newPassword, email);
             emailNotificationService.sendNotification(MessageUtil.buildMessage(notification));
             userRepository.updatePasswordWithEmail(email, passwordEncoder.encode(newPassword));
+            userRepository.getUsernameByEmail(email).ifPresent(sessionCache::invalidate);
         } catch (SendNotificationException ex) {
             throw new ChangePasswordException(ex.getMessage());
         }
@@ -222,6 +227,7 @@ public class AuthServiceImpl implements AuthService {
     private Pair<String, String> generateAuthToken(String username) {
         accessTokenRepository.deleteByKey(username);
         refreshTokenRepository.deleteByKey(username);
+        sessionCache.invalidate(username);
 
         final String newAccessToken = jwtUtil.generateAccessToken(
                 Collections.singletonMap(JwtClaims.TYPE.getClaimName(), TokenType.ACCESS_TOKEN.getTypeName()),
@@ -8,6 +8,7 @@ import org.senju.eshopeule.mappers.BrandMapper;
 import org.senju.eshopeule.model.product.Brand;
 import org.senju.eshopeule.repository.jpa.BrandRepository;
 import org.senju.eshopeule.service.BrandService;
+import org.senju.eshopeule.service.OutboxService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -18,6 +19,8 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.senju.eshopeule.constant.exceptionMessage.BrandExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.BRAND_DELETED;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.BRAND_RENAMED;
 
 @Service
 @Transactional
@@ -26,6 +29,7 @@ public class BrandServiceImpl implements BrandService {
 
     private final BrandRepository brandRepository;
     private final BrandMapper brandMapper;
+    private final OutboxService outboxService;
 
     @Override
     public void createNewBrand(BrandDTO dto)  {
@@ -42,10 +46,14 @@ public class BrandServiceImpl implements BrandService {
         Brand loadedBrand = brandRepository.findById(dto.getId()).orElseThrow(
                 () -> new NotFoundException(
                         String.format(BRAND_NOT_FOUND_WITH_ID_MSG, dto.getId())));
+        final String previousName = loadedBrand.getName();
         brandMapper.updateFromDTO(dto, loadedBrand);
         if (brandRepository.checkBrandExistsWithNameOrSlugExceptId(loadedBrand.getName(), loadedBrand.getSlug(), loadedBrand.getId())) {
             throw new ObjectAlreadyExistsException(BRAND_ALREADY_EXISTS_MSG);
         }
+        if (!previousName.equals(loadedBrand.getName())) {
+            outboxService.publish(BRAND_RENAMED, loadedBrand.getId(), previousName);
+        }
         return brandMapper.convertToDTO(brandRepository.save(loadedBrand));
     }
 
@@ -69,6 +77,9 @@ public class BrandServiceImpl implements BrandService {
     @Override
     @CacheEvict(cacheNames = "brandCache", key = "#id")
     public void deleteById(String id) {
-        brandRepository.deleteById(id);
+        brandRepository.findById(id).ifPresent(brand -> {
+            brandRepository.delete(brand);
+            outboxService.publish(BRAND_DELETED, id, brand.getName());
+        });
     }
 }
@@ -0,0 +1,107 @@
+package org.senju.eshopeule.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.constant.enums.CartOperationType;
+import org.senju.eshopeule.dto.CartOperationDTO;
+import org.senju.eshopeule.exceptions.CartException;
+import org.senju.eshopeule.exceptions.NotFoundException;
+import org.senju.eshopeule.repository.jpa.ProductOptionRepository;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.projection.ProductCartRuleView;
+import org.senju.eshopeule.repository.projection.ProductOptionOwnerView;
+import org.senju.eshopeule.service.HotStockService;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.senju.eshopeule.constant.exceptionMessage.CartExceptionMsg.*;
+import static org.senju.eshopeule.constant.exceptionMessage.OrderExceptionMsg.NOT_ALLOWED_TO_ORDER;
+import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+
+/**
+ * Validates the operations of a bulk cart update with the same rules as a single add to cart,
+ * but loads the referenced products and options with one query each.
+ */
+@Component
+@RequiredArgsConstructor
+public class CartOperationValidator {
+
+    private final ProductRepository productRepository;
+    private final ProductOptionRepository optionRepository;
+    private final HotStockService hotStockService;
+
+    public List<CartOperation> validate(List<CartOperationDTO> operations) {
+        final Set<String> productIds = operations.stream()
+                .map(CartOperationDTO::getProductId)
+                .collect(Collectors.toSet());
+        final Map<String, ProductCartRuleView> rules = productRepository.getCartRulesByIds(productIds).stream()
+                .collect(Collectors.toMap(ProductCartRuleView::getId, Function.identity()));
+        final Set<String> optionIds = operations.stream()
+                .map(CartOperationDTO::getOptionId)
+                .filter(id -> id != null && !id.isBlank())
+                .collect(Collectors.toSet());
+        final Map<String, String> optionOwners = optionIds.isEmpty()
+                ? Map.of()
+                : optionRepository.getOwnersByIds(optionIds).stream()
+                        .collect(Collectors.toMap(ProductOptionOwnerView::getId, ProductOptionOwnerView::getProductId));
+        final Set<String> hotProductIds = hotStockService.filterHotProductIds(rules.keySet());
+
+        final Map<String, Long> availableQuantities = new HashMap<>();
+        final List<CartOperation> validated = new ArrayList<>(operations.size());
+        for (CartOperationDTO operation : operations) {
+            final CartOperationType type = this.parseType(operation.getType());
+            final String productId = operation.getProductId();
+            final ProductCartRuleView rule = rules.get(productId);
+            if (rule == null) throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, productId));
+
+            String optionId = operation.getOptionId() != null && !operation.getOptionId().isBlank() ? operation.getOptionId() : null;
+            if (optionId != null && !productId.equals(optionOwners.get(optionId))) {
+                throw new NotFoundException(String.format(PROD_OPTION_NOT_FOUND_WITH_ID_MSG, optionId));
+            }
+            if (type == CartOperationType.REMOVE) {
+                validated.add(new CartOperation(type, productId, optionId, 0, 0));
+                continue;
+            }
+
+            if (operation.getQuantity() == null) throw new CartException(String.format(CART_OPERATION_QUANTITY_REQUIRED_MSG, type));
+            final long availableQuantity = availableQuantities.computeIfAbsent(
+                    productId, id -> this.getAvailableQuantity(rule, hotProductIds));
+            if (operation.getQuantity() > 0 && !(Boolean.TRUE.equals(rule.getOrderable()) && availableQuantity > 0)) {
+                throw new CartException(String.format(NOT_ALLOWED_TO_ORDER, productId));
+            }
+            if (Boolean.TRUE.equals(rule.getHasOptions())) {
+                if (optionId == null) throw new NotFoundException(PROD_OPTION_NOT_FOUND_MSG);
+            } else {
+                optionId = null;
+            }
+            if (operation.getQuantity() > availableQuantity) throw new CartException(QUANTITY_EXCEEDED_MSG);
+            validated.add(new CartOperation(type, productId, optionId, operation.getQuantity(), availableQuantity));
+        }
+        return validated;
+    }
+
+    private CartOperationType parseType(String type) {
+        try {
+            return CartOperationType.valueOf(type.toUpperCase());
+        } catch (IllegalArgumentException ex) {
+            throw new CartException(String.format(UNSUPPORTED_CART_OPERATION_MSG, type));
+        }
+    }
+
+    private long getAvailableQuantity(ProductCartRuleView rule, Set<String> hotProductIds) {
+        if (hotProductIds.contains(rule.getId())) {
+            final Long hotAvailableQuantity = hotStockService.getAvailableQuantity(rule.getId());
+            if (hotAvailableQuantity != null) return hotAvailableQuantity;
+        }
+        return rule.getAvailableQuantity();
+    }
+
+    /**
+     * A validated operation, {@code maxQuantity} is the stock the resulting quantity of the item
+     * may not exceed.
+     */
+    public record CartOperation(CartOperationType type, String productId, String optionId, int quantity, long maxQuantity) {
+    }
+}
@@ -1,20 +1,25 @@
 package org.senju.eshopeule.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.constant.enums.CartOperationType;
 import org.senju.eshopeule.dto.CartDTO;
 import org.senju.eshopeule.dto.CartItemDTO;
+import org.senju.eshopeule.dto.CartOperationDTO;
 import org.senju.eshopeule.exceptions.CartException;
 import org.senju.eshopeule.exceptions.NotFoundException;
-import org.senju.eshopeule.mappers.CartItemMapper;
+import org.senju.eshopeule.mappers.AssociationBatchLoader;
 import org.senju.eshopeule.mappers.CartMapper;
 import org.senju.eshopeule.model.cart.Cart;
 import org.senju.eshopeule.model.cart.CartItem;
 import org.senju.eshopeule.model.cart.CartStatus;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.product.ProductOption;
 import org.senju.eshopeule.model.user.Customer;
 import org.senju.eshopeule.repository.jpa.*;
-import org.senju.eshopeule.repository.projection.CartItemQuantityView;
-import org.senju.eshopeule.repository.projection.ProductQuantityView;
+import org.senju.eshopeule.service.HotStockService;
 import org.senju.eshopeule.service.CartService;
+import org.senju.eshopeule.service.impl.CartOperationValidator.CartOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -29,18 +34,22 @@ import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.
 
 @Service
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "cart.store", havingValue = "database", matchIfMissing = true)
 public class CartServiceImpl implements CartService {
     private final CartMapper cartMapper;
-    private final CartItemMapper cartItemMapper;
+    private final AssociationBatchLoader associationBatchLoader;
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final CustomerRepository customerRepository;
     private final ProductRepository productRepository;
     private final ProductOptionRepository optionRepository;
+    private final HotStockService hotStockService;
+    private final CartOperationValidator cartOperationValidator;
 
     @Override
     public CartDTO getCartOfCurrentUser() {
-        return cartMapper.convertToDTO(this.getLatestCartOfCurrentUser());
+        final Cart cart = this.getLatestCartOfCurrentUser();
+        return associationBatchLoader.assemble(() -> cartMapper.convertToDTO(cart));
     }
 
     @Override
@@ -64,52 +73,108 @@ public class CartServiceImpl implements CartService {
             itemDTO.setOption(null);
         }
 
-        final ProductQuantityView prodQuantityView = productRepository.getQuantityViewById(itemDTO.getProduct().getId());
-        if (itemDTO.getQuantity() > prodQuantityView.getQuantity()) {
+        final Long hotAvailableQuantity = hotStockService.getAvailableQuantity(itemDTO.getProduct().getId());
+        final long availableQuantity = hotAvailableQuantity != null
+                ? hotAvailableQuantity
+                : productRepository.getQuantityViewById(itemDTO.getProduct().getId()).getQuantity();
+        if (itemDTO.getQuantity() > availableQuantity) {
             throw new CartException(QUANTITY_EXCEEDED_MSG);
         }
 
-        final Cart activeCart = this.getLatestCartOfCurrentUser();
+        final String username = this.getCurrentUsername();
+        final String cartId = cartRepository.getOrCreateActiveCartIdByUsername(username).orElseThrow(
+                () -> new NotFoundException(String.format(CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG, username))
+        );
+        final int upserted = cartItemRepository.upsertQuantity(
+                cartId,
+                itemDTO.getProduct().getId(),
+                itemDTO.getOption() != null ? itemDTO.getOption().getId() : null,
+                itemDTO.getQuantity(),
+                username
+        );
+        if (upserted == 0) throw new CartException(QUANTITY_EXCEEDED_MSG);
+
+        final Cart savedCart = cartRepository.getReferenceById(cartId);
+        return associationBatchLoader.assemble(() -> cartMapper.convertToDTO(savedCart));
+    }
 
-        if (activeCart.getId() == null) {
-            CartItem newItem = cartItemMapper.convertToEntity(itemDTO);
-            activeCart.setItems(List.of(newItem));
-            newItem.setCart(activeCart);
-        } else {
-            final CartItemQuantityView existedItemQuantity;
-
-//            if (itemDTO.getOption() != null) {
-//                existedItemQuantity = cartItemRepository
-//                        .getItemQuantityView(activeCart.getId(), itemDTO.getProduct().getId(), itemDTO.getOption().getId())
-//                        .orElse(null);
-//            } else {
-//                existedItemQuantity = cartItemRepository
-//                        .getItemQuantityView(activeCart.getId(), itemDTO.getProduct().getId())
-//                        .orElse(null);
-//            }
-
-            existedItemQuantity = cartItemRepository
-                    .getItemQuantityView(activeCart.getId(), itemDTO.getProduct().getId(), itemDTO.getOption() != null ? itemDTO.getOption().getId() : null)
-                    .orElse(null);
-
-            if (existedItemQuantity != null) {
-                if (existedItemQuantity.getQuantity() + itemDTO.getQuantity() > prodQuantityView.getQuantity()) {
-                    throw new CartException(QUANTITY_EXCEEDED_MSG);
-                }
-                cartItemRepository.updateQuantityById(
-                        existedItemQuantity.getId(),
-                        existedItemQuantity.getQuantity() + itemDTO.getQuantity());
+    /**
+     * Applies the operations to the loaded items, so the changes go out as batched inserts,
+     * updates and deletes when the transaction is flushed. Creating or finding the active cart
+     * locks it, concurrent changes of the cart wait for the whole batch.
+     */
+    @Override
+    @Transactional
+    public CartDTO applyOperations(List<CartOperationDTO> operations) {
+        final List<CartOperation> validated = cartOperationValidator.validate(operations);
+        final String username = this.getCurrentUsername();
+        final String cartId = cartRepository.getOrCreateActiveCartIdByUsername(username).orElseThrow(
+                () -> new NotFoundException(String.format(CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG, username))
+        );
+        final Cart cart = cartRepository.getReferenceById(cartId);
+        if (cart.getItems() == null) cart.setItems(new ArrayList<>());
+
+        final Map<String, CartItem> items = new LinkedHashMap<>();
+        cart.getItems().forEach(item -> items.put(
+                this.itemKey(item.getProduct().getId(), item.getOption() != null ? item.getOption().getId() : null), item));
+        // Items removed and added again are kept, the flush would insert them before the delete.
+        final Map<String, CartItem> removed = new HashMap<>();
+        final List<CartItem> added = new ArrayList<>();
+
+        for (CartOperation operation : validated) {
+            final String key = this.itemKey(operation.productId(), operation.optionId());
+            if (operation.type() == CartOperationType.REMOVE) {
+                items.entrySet().removeIf(entry -> {
+                    final CartItem item = entry.getValue();
+                    final boolean matches = item.getProduct().getId().equals(operation.productId()) && (operation.optionId() == null
+                            || (item.getOption() != null && item.getOption().getId().equals(operation.optionId())));
+                    if (matches) removed.put(entry.getKey(), item);
+                    return matches;
+                });
+                continue;
+            }
+
+            final CartItem existing = items.get(key);
+            final int quantity = operation.type() == CartOperationType.ADD
+                    ? (existing != null ? existing.getQuantity() : 0) + operation.quantity()
+                    : operation.quantity();
+            if (quantity > operation.maxQuantity()) throw new CartException(QUANTITY_EXCEEDED_MSG);
+
+            if (quantity <= 0) {
+                if (existing != null) removed.put(key, items.remove(key));
+            } else if (existing != null) {
+                existing.setQuantity(quantity);
+            } else if (removed.containsKey(key)) {
+                final CartItem restored = removed.remove(key);
+                restored.setQuantity(quantity);
+                items.put(key, restored);
             } else {
-                CartItem newItem = cartItemMapper.convertToEntity(itemDTO);
-                activeCart.getItems().add(newItem);
-                newItem.setCart(activeCart);
-                cartItemRepository.save(newItem);
+                final CartItem item = CartItem.builder()
+                        .cart(cart)
+                        .product(Product.builder().id(operation.productId()).build())
+                        .option(operation.optionId() != null ? ProductOption.builder().id(operation.optionId()).build() : null)
+                        .quantity(quantity)
+                        .build();
+                items.put(key, item);
+                added.add(item);
             }
         }
 
-        return cartMapper.convertToDTO(cartRepository.save(activeCart));
+        // Items added and removed within the batch were never stored.
+        added.removeAll(removed.values());
+        final List<CartItem> deleted = removed.values().stream()
+                .filter(item -> item.getId() != null)
+                .toList();
+        cart.getItems().removeAll(deleted);
+        cart.getItems().addAll(added);
+        cartItemRepository.deleteAll(deleted);
+        cartItemRepository.saveAll(added);
+        return associationBatchLoader.assemble(() -> cartMapper.convertToDTO(cart));
     }
 
+    private String itemKey(String productId, String optionId) {
+        return productId + ":" + optionId;
+    }
 
     @Override
     @Transactional
@@ -134,12 +199,18 @@ public class CartServiceImpl implements CartService {
         cartItemRepository.deleteByCartIdAndOptionId(activeCart.getId(), optionId);
     }
 
+    @Override
+    public void flushActiveCart(String username) {
+        // Carts are written to the database right away.
+    }
 
-    private Cart getLatestCartOfCurrentUser() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        String username = authentication.getName();
-        if (username == null || username.isBlank()) throw new CartException("Username is invalid");
+    @Override
+    public void clearActiveCart(String username) {
+        // Checked out carts are completed in the database only.
+    }
 
+    private Cart getLatestCartOfCurrentUser() {
+        final String username = this.getCurrentUsername();
         List<Cart> activeCartList = cartRepository.getActiveCartByUsername(username);
         if (activeCartList.size() > 1) throw new CartException(ONLY_ONE_ACTIVE_CART_MSG);
 
@@ -156,4 +227,11 @@ public class CartServiceImpl implements CartService {
 
         return activeCartList.stream().findFirst().get();
     }
+
+    private String getCurrentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
+        if (username == null || username.isBlank()) throw new CartException("Username is invalid");
+        return username;
+    }
 }
@@ -0,0 +1,282 @@
+package org.senju.eshopeule.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.senju.eshopeule.dto.CatalogCascadeProgressDTO;
+import org.senju.eshopeule.exceptions.ProductException;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.model.product.CatalogCascadeJob;
+import org.senju.eshopeule.model.product.CatalogCascadeJobStatus;
+import org.senju.eshopeule.model.product.ProductESDoc;
+import org.senju.eshopeule.repository.jpa.CatalogCascadeJobRepository;
+import org.senju.eshopeule.service.CatalogCascadeService;
+import org.senju.eshopeule.service.ProductCacheService;
+import org.senju.eshopeule.service.ProductDetailViewService;
+import org.senju.eshopeule.service.ProductIndexingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.query.FetchSourceFilterBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Re-syncs products whose indexed document still carries the old name of a renamed or deleted
+ * brand or category. The affected documents are found in the index by the stale name, so the
+ * cascade also covers category deletes whose product links are already gone from the database.
+ * Their ids go through the regular indexing queue at a capped rate, one job at a time per node,
+ * so a rename touching many products neither blocks the admin request nor floods Elasticsearch.
+ * Jobs are stored with the last product they enqueued: a job is claimed by one node, and a job
+ * whose node died or failed is resumed by any node once its claim expires.
+ */
+@Service
+public class CatalogCascadeServiceImpl implements CatalogCascadeService {
+
+    private static final String PRODUCT_ID_FIELD = "productId";
+    private static final String BRAND_FIELD = "brand";
+    private static final String CATEGORIES_FIELD = "categories";
+    private static final Set<CatalogCascadeJobStatus> UNFINISHED = Set.of(CatalogCascadeJobStatus.PENDING, CatalogCascadeJobStatus.RUNNING);
+    private static final Logger logger = LoggerFactory.getLogger(CatalogCascadeServiceImpl.class);
+
+    private final ElasticsearchOperations esOperations;
+    private final ProductIndexingService productIndexingService;
+    private final ProductDetailViewService productDetailViewService;
+    private final ProductCacheService productCacheService;
+    private final CatalogCascadeJobRepository catalogCascadeJobRepository;
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final Counter enqueuedCounter;
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+
+    @Value("${product-indexing.cascade.batch-size}")
+    private int batchSize;
+
+    @Value("${product-indexing.cascade.max-products-per-second}")
+    private int maxProductsPerSecond;
+
+    @Value("${product-indexing.cascade.history-size}")
+    private int historySize;
+
+    @Value("${product-indexing.cascade.claim-timeout}")
+    private long claimTimeoutInMillis;
+
+    public CatalogCascadeServiceImpl(ElasticsearchOperations esOperations,
+                                     ProductIndexingService productIndexingService,
+                                     ProductDetailViewService productDetailViewService,
+                                     ProductCacheService productCacheService,
+                                     CatalogCascadeJobRepository catalogCascadeJobRepository,
+                                     MeterRegistry meterRegistry) {
+        this.esOperations = esOperations;
+        this.productIndexingService = productIndexingService;
+        this.productDetailViewService = productDetailViewService;
+        this.productCacheService = productCacheService;
+        this.catalogCascadeJobRepository = catalogCascadeJobRepository;
+        Gauge.builder("catalog.cascade.jobs.active", this, CatalogCascadeServiceImpl::getUnfinishedJobCount)
+                .register(meterRegistry);
+        this.enqueuedCounter = meterRegistry.counter("catalog.cascade.products");
+        this.completedCounter = meterRegistry.counter("catalog.cascade.jobs", "result", "completed");
+        this.failedCounter = meterRegistry.counter("catalog.cascade.jobs", "result", "failed");
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // An interrupted job keeps its progress and is resumed once its claim expires.
+        worker.shutdownNow();
+        worker.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stores the job in the transaction of the caller, so the outbox event triggering it is only
+     * marked as processed together with the job.
+     */
+    @Override
+    public CatalogCascadeProgressDTO submit(OutboxEventType trigger, String aggregateId, String staleValue) {
+        final String field = switch (trigger) {
+            case BRAND_RENAMED, BRAND_DELETED -> BRAND_FIELD;
+            case CATEGORY_RENAMED, CATEGORY_DELETED -> CATEGORIES_FIELD;
+            default -> throw new ProductException("Unsupported cascade trigger: " + trigger);
+        };
+        if (staleValue == null || staleValue.isBlank()) {
+            throw new ProductException("Missing stale value of cascade trigger: " + trigger);
+        }
+
+        // A job still waiting for the same stale value already covers this one.
+        final CatalogCascadeJob pending = catalogCascadeJobRepository
+                .findFirstByFieldAndStaleValueAndStatus(field, staleValue, CatalogCascadeJobStatus.PENDING)
+                .orElse(null);
+        if (pending != null) return this.toDTO(pending);
+
+        final CatalogCascadeJob job = catalogCascadeJobRepository.save(CatalogCascadeJob.builder()
+                .trigger(trigger)
+                .aggregateId(aggregateId)
+                .field(field)
+                .staleValue(staleValue)
+                .build());
+        logger.info("Submitted cascade {} of {} '{}' for {}", job.getId(), field, staleValue, trigger);
+        return this.toDTO(job);
+    }
+
+    @Override
+    public List<CatalogCascadeProgressDTO> getProgress() {
+        return catalogCascadeJobRepository.findAllByOrderByCreatedOnDesc(PageRequest.of(0, historySize)).stream()
+                .map(this::toDTO)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${product-indexing.cascade.poll-interval}")
+    public void runPendingJobs() {
+        if (!draining.compareAndSet(false, true)) return;
+        try {
+            worker.execute(() -> {
+                try {
+                    this.drainJobs();
+                } finally {
+                    draining.set(false);
+                }
+            });
+        } catch (RuntimeException ex) {
+            // Rejected once the worker is shut down.
+            draining.set(false);
+        }
+    }
+
+    private void drainJobs() {
+        while (!Thread.currentThread().isInterrupted()) {
+            final List<String> claimed;
+            try {
+                claimed = catalogCascadeJobRepository.claim(claimTimeoutInMillis);
+            } catch (RuntimeException ex) {
+                logger.error("Failed to claim cascade job: {}", ex.getMessage());
+                return;
+            }
+            if (claimed.isEmpty()) return;
+            catalogCascadeJobRepository.findById(claimed.getFirst()).ifPresent(this::run);
+        }
+    }
+
+    private void run(CatalogCascadeJob job) {
+        final long startedAt = System.currentTimeMillis();
+        long enqueuedCount = 0;
+        String lastProductId = job.getLastProductId();
+        try {
+            int fetched;
+            do {
+                final SearchHits<ProductESDoc> hits = esOperations.search(
+                        this.buildAffectedProductsQuery(job, lastProductId), ProductESDoc.class);
+                fetched = hits.getSearchHits().size();
+                if (fetched == 0) break;
+
+                final List<String> productIds = hits.stream()
+                        .map(SearchHit::getContent)
+                        .map(ProductESDoc::getProductId)
+                        .toList();
+                productIndexingService.enqueue(productIds);
+                productDetailViewService.rebuild(productIds);
+                productCacheService.evict(productIds);
+                lastProductId = productIds.getLast();
+                catalogCascadeJobRepository.saveProgress(job.getId(), lastProductId, productIds.size(),
+                        job.getLastProductId() == null && enqueuedCount == 0 ? hits.getTotalHits() : null,
+                        claimTimeoutInMillis);
+                enqueuedCount += productIds.size();
+                enqueuedCounter.increment(productIds.size());
+
+                if (!this.throttle(startedAt, enqueuedCount)) return;
+            } while (fetched == batchSize);
+            catalogCascadeJobRepository.complete(job.getId());
+            completedCounter.increment();
+            logger.info("Cascade {} enqueued {} products", job.getId(), job.getEnqueuedCount() + enqueuedCount);
+        } catch (RuntimeException ex) {
+            // The job keeps its claim until it expires and is then resumed after the last enqueued product.
+            failedCounter.increment();
+            logger.error("Cascade {} failed after {} products: {}", job.getId(), job.getEnqueuedCount() + enqueuedCount, ex.getMessage(), ex);
+            catalogCascadeJobRepository.recordError(job.getId(), ex.getMessage());
+        }
+    }
+
+    private NativeQuery buildAffectedProductsQuery(CatalogCascadeJob job, String lastProductId) {
+        final var nativeQueryBuilder = NativeQuery.builder()
+                .withQuery(q -> q
+                        .term(t -> t
+                                .field(job.getField())
+                                .value(job.getStaleValue())
+                        )
+                )
+                .withSourceFilter(new FetchSourceFilterBuilder().withIncludes(PRODUCT_ID_FIELD).build())
+                .withSort(Sort.by(Sort.Direction.ASC, PRODUCT_ID_FIELD))
+                .withMaxResults(batchSize)
+                .withTrackTotalHits(lastProductId == null);
+        if (lastProductId != null) nativeQueryBuilder.withSearchAfter(List.of(lastProductId));
+        return nativeQueryBuilder.build();
+    }
+
+    /**
+     * @return {@code false} if interrupted while waiting
+     */
+    private boolean throttle(long startedAt, long enqueuedCount) {
+        if (maxProductsPerSecond <= 0) return !Thread.currentThread().isInterrupted();
+        final long expectedElapsed = enqueuedCount * 1000 / maxProductsPerSecond;
+        final long elapsed = System.currentTimeMillis() - startedAt;
+        if (expectedElapsed <= elapsed) return !Thread.currentThread().isInterrupted();
+        try {
+            Thread.sleep(expectedElapsed - elapsed);
+            return true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private double getUnfinishedJobCount() {
+        try {
+            return catalogCascadeJobRepository.countByStatusIn(UNFINISHED);
+        } catch (RuntimeException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private CatalogCascadeProgressDTO toDTO(CatalogCascadeJob job) {
+        return CatalogCascadeProgressDTO.builder()
+                .id(job.getId())
+                .trigger(job.getTrigger().name())
+                .aggregateId(job.getAggregateId())
+                .field(job.getField())
+                .staleValue(job.getStaleValue())
+                .status(job.getStatus().name())
+                .matchedCount(job.getMatchedCount())
+                .enqueuedCount(job.getEnqueuedCount())
+                .docsPerSecond(this.getThroughput(job))
+                .submittedOn(job.getCreatedOn())
+                .startedOn(job.getStartedOn())
+                .finishedOn(job.getFinishedOn())
+                .error(job.getError())
+                .build();
+    }
+
+    private Double getThroughput(CatalogCascadeJob job) {
+        if (job.getStartedOn() == null) return null;
+        final LocalDateTime until = job.getFinishedOn() != null ? job.getFinishedOn() : LocalDateTime.now();
+        final long elapsedMillis = Duration.between(job.getStartedOn(), until).toMillis();
+        if (elapsedMillis <= 0) return 0.0;
+        return job.getEnqueuedCount() * 1000.0 / elapsedMillis;
+    }
+}
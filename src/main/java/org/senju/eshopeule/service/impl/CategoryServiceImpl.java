@@ -8,6 +8,7 @@ import org.senju.eshopeule.mappers.CategoryMapper;
 import org.senju.eshopeule.model.product.Category;
 import org.senju.eshopeule.repository.jpa.CategoryRepository;
 import org.senju.eshopeule.service.CategoryService;
+import org.senju.eshopeule.service.OutboxService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
@@ -18,6 +19,8 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static org.senju.eshopeule.constant.exceptionMessage.CategoryExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.CATEGORY_DELETED;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.CATEGORY_RENAMED;
 
 @Service
 @Transactional
@@ -26,6 +29,7 @@ public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryMapper categoryMapper;
     private final CategoryRepository categoryRepository;
+    private final OutboxService outboxService;
 
     @Override
     public void createNewCategory(final CategoryDTO dto) {
@@ -51,7 +55,11 @@ public class CategoryServiceImpl implements CategoryService {
         if (categoryRepository.checkCategoryExistsWithNameOrSlugExceptId(dto.getName(), dto.getSlug(), dto.getId())) {
             throw new ObjectAlreadyExistsException(CATEGORY_ALREADY_EXITS_MSG);
         }
+        final String previousName = loadedCategory.getName();
         loadedCategory = categoryMapper.updateFromDTO(dto, loadedCategory);
+        if (!previousName.equals(loadedCategory.getName())) {
+            outboxService.publish(CATEGORY_RENAMED, loadedCategory.getId(), previousName);
+        }
         return categoryMapper.convertToDTO(categoryRepository.save(loadedCategory));
     }
 
@@ -85,7 +93,10 @@ public class CategoryServiceImpl implements CategoryService {
     @Override
     @CacheEvict(cacheNames = "categoryCache", key = "#id")
     public void deleteById(String id) {
-        categoryRepository.updateChildBeforeDeleteParent(id);
-        categoryRepository.deleteById(id);
+        categoryRepository.findById(id).ifPresent(category -> {
+            categoryRepository.updateChildBeforeDeleteParent(id);
+            categoryRepository.delete(category);
+            outboxService.publish(CATEGORY_DELETED, id, category.getName());
+        });
     }
 }
@@ -0,0 +1,126 @@
+package org.senju.eshopeule.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.exceptions.NotFoundException;
+import org.senju.eshopeule.exceptions.ProductException;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.redis.HotStockRepository;
+import org.senju.eshopeule.service.HotStockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+
+@Service
+@RequiredArgsConstructor
+public class HotStockServiceImpl implements HotStockService {
+
+    private final HotStockRepository hotStockRepository;
+    private final ProductRepository productRepository;
+
+    private static final Logger logger = LoggerFactory.getLogger(HotStockServiceImpl.class);
+
+    @Override
+    public void enableHotItem(String productId) {
+        if (!productRepository.existsById(productId)) {
+            throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, productId));
+        }
+
+        // The flag is committed before the counters are loaded, so reservations still going through
+        // the database have either finished (the update waits on their row lock) or will skip the product.
+        // Only the enable that flips the flag loads the counters, a concurrent one is rejected.
+        if (productRepository.markHotItemById(productId) == 0) {
+            throw new ProductException(String.format(PRODUCT_ALREADY_HOT_ITEM_MSG, productId));
+        }
+        final Integer availableQuantity = productRepository.getQuantityViewById(productId).getQuantity();
+        hotStockRepository.load(productId, Math.max(availableQuantity, 0));
+    }
+
+    @Override
+    public void disableHotItem(String productId) {
+        if (!productRepository.checkHotItem(productId)) {
+            throw new ProductException(String.format(PRODUCT_NOT_HOT_ITEM_MSG, productId));
+        }
+
+        hotStockRepository.closeAdmission(productId);
+        this.reconcile(productId);
+        productRepository.updateHotItemById(productId, false);
+        hotStockRepository.delete(productId);
+    }
+
+    @Override
+    public Set<String> filterHotProductIds(Set<String> productIds) {
+        return hotStockRepository.filterHotProductIds(productIds);
+    }
+
+    @Override
+    public Long getAvailableQuantity(String productId) {
+        if (hotStockRepository.filterHotProductIds(Set.of(productId)).isEmpty()) return null;
+        return hotStockRepository.getAvailableQuantity(productId);
+    }
+
+    @Override
+    public boolean acquire(Map<String, Long> quantityByProductId) {
+        final Map<String, Map<Integer, Long>> acquired = new HashMap<>();
+        for (Map.Entry<String, Long> entry : quantityByProductId.entrySet()) {
+            final Map<Integer, Long> takenByStripe = hotStockRepository.take(entry.getKey(), entry.getValue());
+            acquired.put(entry.getKey(), takenByStripe);
+            if (takenByStripe.values().stream().mapToLong(Long::longValue).sum() < entry.getValue()) {
+                acquired.forEach(this::restore);
+                return false;
+            }
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) acquired.forEach(HotStockServiceImpl.this::restore);
+                }
+            });
+        }
+        return true;
+    }
+
+    @Override
+    public void giveBack(Map<String, Long> quantityByProductId) {
+        quantityByProductId.forEach(hotStockRepository::giveBack);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${hot-stock.reconcile-interval}")
+    public void reconcileConsumedStock() {
+        hotStockRepository.getHotProductIds().forEach(this::reconcile);
+    }
+
+    /**
+     * Puts back units taken for an order that did not go through. Once admission to the product
+     * is closed its counters are gone and the consumed units are, or are about to be, reconciled
+     * into the reserved quantity in the database, so they are released from there instead.
+     */
+    private void restore(String productId, Map<Integer, Long> takenByStripe) {
+        final long unrestored = hotStockRepository.restore(productId, takenByStripe, true);
+        if (unrestored > 0) productRepository.decreaseReservedById(productId, unrestored);
+    }
+
+    private void reconcile(String productId) {
+        final Map<Integer, Long> drainedByStripe = hotStockRepository.drainConsumed(productId);
+        if (drainedByStripe.isEmpty()) return;
+
+        final long drained = drainedByStripe.values().stream().mapToLong(Long::longValue).sum();
+        try {
+            if (drained != 0) productRepository.increaseReservedById(productId, drained);
+        } catch (RuntimeException ex) {
+            hotStockRepository.undrain(productId, drainedByStripe);
+            logger.error("Failed to reconcile hot stock of product {}: {}", productId, ex.getMessage());
+        }
+    }
+}
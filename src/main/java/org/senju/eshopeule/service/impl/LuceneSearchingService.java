@@ -0,0 +1,296 @@
+package org.senju.eshopeule.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.index.*;
+import org.apache.lucene.search.*;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.NumericUtils;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.dto.RangeFacetDTO;
+import org.senju.eshopeule.dto.SearchFacetsDTO;
+import org.senju.eshopeule.dto.TermFacetDTO;
+import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.dto.response.ProductSearchSliceResponse;
+import org.senju.eshopeule.exceptions.PagingException;
+import org.senju.eshopeule.mappers.ProductSearchMapper;
+import org.senju.eshopeule.repository.lucene.LuceneProductIndex;
+import org.senju.eshopeule.service.SearchingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+import static org.senju.eshopeule.repository.lucene.LuceneProductIndex.*;
+
+/**
+ * {@link SearchingService} backed by the in-process {@link LuceneProductIndex}. It follows the
+ * Elasticsearch implementation: a fuzzy match on the name, case-insensitive brand and category
+ * filters, an inclusive price range, the same sort fields and the same facets. Popularity
+ * ranking falls back to text relevance, and cursors are not bound to a point in time.
+ */
+@Service
+public class LuceneSearchingService implements SearchingService {
+
+    private static final int MAX_EDITS = 2;
+    private static final int PREFIX_LENGTH = 2;
+    private static final int MAX_EXPANSIONS = 50;
+
+    private final LuceneProductIndex productIndex;
+    private final ProductSearchMapper mapper;
+    private final ObjectMapper objectMapper;
+
+    @Value("${search.facet.size}")
+    private int facetSize;
+
+    @Value("${search.facet.price-buckets}")
+    private int priceBuckets;
+
+    public LuceneSearchingService(LuceneProductIndex productIndex, ProductSearchMapper mapper, ObjectMapper objectMapper) {
+        this.productIndex = productIndex;
+        this.mapper = mapper;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public ProductSearchResultResponse search(String keyword, String brandName, List<String> categoryNames,
+                                              Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                              SearchRanking ranking, Pageable pageRequest) {
+        final IndexSearcher searcher = this.acquireSearcher();
+        try {
+            final Query query = this.buildQuery(keyword, brandName, categoryNames, minPrice, maxPrice);
+            final int from = pageRequest.getPageNumber() * pageRequest.getPageSize();
+            final TopFieldDocs topDocs = searcher.search(query, from + pageRequest.getPageSize(), this.toSort(pageRequest));
+            final int totalElements = searcher.count(query);
+            final ScoreDoc[] pageDocs = Arrays.copyOfRange(topDocs.scoreDocs, Math.min(from, topDocs.scoreDocs.length), topDocs.scoreDocs.length);
+
+            return new ProductSearchResultResponse(
+                    totalElements,
+                    (totalElements + pageRequest.getPageSize() - 1) / pageRequest.getPageSize(),
+                    pageRequest.getPageNumber() + 1,
+                    pageRequest.getPageSize(),
+                    from + pageRequest.getPageSize() >= totalElements,
+                    this.toProducts(searcher, pageDocs),
+                    pageRequest.getPageNumber() == 0 ? this.getFacets(searcher, query, facets) : null
+            );
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            productIndex.releaseSearcher(searcher);
+        }
+    }
+
+    @Override
+    public ProductSearchSliceResponse searchWithCursor(String keyword, String brandName, List<String> categoryNames,
+                                                       Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                                       SearchRanking ranking, String cursor, Pageable pageRequest) {
+        final boolean firstPage = cursor == null || cursor.isBlank();
+        final Sort sort = this.toSort(pageRequest);
+        final IndexSearcher searcher = this.acquireSearcher();
+        try {
+            final Query query = this.buildQuery(keyword, brandName, categoryNames, minPrice, maxPrice);
+            final TopFieldDocs topDocs = firstPage
+                    ? searcher.search(query, pageRequest.getPageSize() + 1, sort)
+                    : searcher.searchAfter(this.decodeCursor(cursor, sort), query, pageRequest.getPageSize() + 1, sort);
+            final boolean hasNext = topDocs.scoreDocs.length > pageRequest.getPageSize();
+            final ScoreDoc[] pageDocs = hasNext
+                    ? Arrays.copyOf(topDocs.scoreDocs, pageRequest.getPageSize())
+                    : topDocs.scoreDocs;
+
+            return new ProductSearchSliceResponse(
+                    hasNext ? this.encodeCursor((FieldDoc) pageDocs[pageDocs.length - 1]) : null,
+                    pageRequest.getPageSize(),
+                    hasNext,
+                    this.toProducts(searcher, pageDocs),
+                    firstPage ? this.getFacets(searcher, query, facets) : null
+            );
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } finally {
+            productIndex.releaseSearcher(searcher);
+        }
+    }
+
+    private IndexSearcher acquireSearcher() {
+        if (!productIndex.isEnabled()) throw new IllegalStateException("Local product index is disabled");
+        return productIndex.acquireSearcher();
+    }
+
+    private Query buildQuery(String keyword, String brandName, List<String> categoryNames,
+                             Double minPrice, Double maxPrice) throws IOException {
+        final BooleanQuery.Builder textQuery = new BooleanQuery.Builder();
+        boolean hasTerms = false;
+        try (TokenStream tokenStream = SEARCH_ANALYZER.tokenStream(NAME_FIELD, keyword)) {
+            final CharTermAttribute termAttribute = tokenStream.addAttribute(CharTermAttribute.class);
+            tokenStream.reset();
+            while (tokenStream.incrementToken()) {
+                textQuery.add(new FuzzyQuery(new Term(NAME_FIELD, termAttribute.toString()),
+                        MAX_EDITS, PREFIX_LENGTH, MAX_EXPANSIONS, true), BooleanClause.Occur.SHOULD);
+                hasTerms = true;
+            }
+            tokenStream.end();
+        }
+
+        final BooleanQuery.Builder query = new BooleanQuery.Builder()
+                .add(hasTerms ? textQuery.build() : new MatchNoDocsQuery(), BooleanClause.Occur.MUST);
+        if (brandName != null) {
+            query.add(new TermQuery(new Term(BRAND_KEY_FIELD, brandName.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER);
+        }
+        if (categoryNames != null) {
+            categoryNames.forEach(categoryName -> query.add(
+                    new TermQuery(new Term(CATEGORY_KEY_FIELD, categoryName.toLowerCase(Locale.ROOT))), BooleanClause.Occur.FILTER));
+        }
+        if (minPrice != null || maxPrice != null) {
+            query.add(DoubleField.newRangeQuery(PRICE_FIELD,
+                    minPrice != null ? minPrice : Double.NEGATIVE_INFINITY,
+                    maxPrice != null ? maxPrice : Double.POSITIVE_INFINITY), BooleanClause.Occur.FILTER);
+        }
+        return query.build();
+    }
+
+    private Sort toSort(Pageable pageRequest) {
+        final List<SortField> sortFields = new ArrayList<>();
+        pageRequest.getSort().forEach(order -> {
+            final boolean reverse = order.isDescending();
+            switch (order.getProperty()) {
+                case "price" -> sortFields.add(new SortedNumericSortField(PRICE_FIELD, SortField.Type.DOUBLE, reverse));
+                case "last_updated" -> sortFields.add(new SortedNumericSortField(LAST_MODIFIED_FIELD, SortField.Type.LONG, reverse));
+                default -> throw new PagingException("Unsupported sort field: " + order.getProperty());
+            }
+        });
+        if (sortFields.isEmpty()) sortFields.add(SortField.FIELD_SCORE);
+        sortFields.add(new SortField(PRODUCT_ID_FIELD, SortField.Type.STRING));
+        return new Sort(sortFields.toArray(new SortField[0]));
+    }
+
+    private List<ProductSimpleDTO> toProducts(IndexSearcher searcher, ScoreDoc[] scoreDocs) throws IOException {
+        final StoredFields storedFields = searcher.storedFields();
+        final List<ProductSimpleDTO> products = new ArrayList<>(scoreDocs.length);
+        for (ScoreDoc scoreDoc : scoreDocs) {
+            products.add(mapper.convertToDTO(productIndex.toProductDoc(storedFields.document(scoreDoc.doc))));
+        }
+        return products;
+    }
+
+    private SearchFacetsDTO getFacets(IndexSearcher searcher, Query query, Set<SearchFacet> facets) throws IOException {
+        if (facets.isEmpty()) return null;
+        final Map<String, Long> brandCounts = new HashMap<>();
+        final Map<String, Long> categoryCounts = new HashMap<>();
+        final List<Double> prices = new ArrayList<>();
+        final List<Double> discountedPrices = new ArrayList<>();
+
+        searcher.search(query, new SimpleCollector() {
+            private SortedSetDocValues brands;
+            private SortedSetDocValues categories;
+            private SortedNumericDocValues priceValues;
+            private SortedNumericDocValues discountedPriceValues;
+
+            @Override
+            protected void doSetNextReader(LeafReaderContext context) throws IOException {
+                brands = DocValues.getSortedSet(context.reader(), BRAND_FIELD);
+                categories = DocValues.getSortedSet(context.reader(), CATEGORIES_FIELD);
+                priceValues = DocValues.getSortedNumeric(context.reader(), PRICE_FIELD);
+                discountedPriceValues = DocValues.getSortedNumeric(context.reader(), DISCOUNTED_PRICE_FIELD);
+            }
+
+            @Override
+            public void collect(int doc) throws IOException {
+                if (facets.contains(SearchFacet.BRAND)) countTerms(brands, doc, brandCounts);
+                if (facets.contains(SearchFacet.CATEGORY)) countTerms(categories, doc, categoryCounts);
+                if (facets.contains(SearchFacet.PRICE) && priceValues.advanceExact(doc)) {
+                    prices.add(NumericUtils.sortableLongToDouble(priceValues.nextValue()));
+                }
+                if (facets.contains(SearchFacet.DISCOUNTED_PRICE) && discountedPriceValues.advanceExact(doc)) {
+                    discountedPrices.add(NumericUtils.sortableLongToDouble(discountedPriceValues.nextValue()));
+                }
+            }
+
+            @Override
+            public ScoreMode scoreMode() {
+                return ScoreMode.COMPLETE_NO_SCORES;
+            }
+        });
+
+        return SearchFacetsDTO.builder()
+                .brands(facets.contains(SearchFacet.BRAND) ? this.toTermFacets(brandCounts) : null)
+                .categories(facets.contains(SearchFacet.CATEGORY) ? this.toTermFacets(categoryCounts) : null)
+                .prices(facets.contains(SearchFacet.PRICE) ? this.toRangeFacets(prices) : null)
+                .discountedPrices(facets.contains(SearchFacet.DISCOUNTED_PRICE) ? this.toRangeFacets(discountedPrices) : null)
+                .build();
+    }
+
+    private static void countTerms(SortedSetDocValues values, int doc, Map<String, Long> counts) throws IOException {
+        if (!values.advanceExact(doc)) return;
+        for (int i = 0; i < values.docValueCount(); i++) {
+            counts.merge(values.lookupOrd(values.nextOrd()).utf8ToString(), 1L, Long::sum);
+        }
+    }
+
+    private List<TermFacetDTO> toTermFacets(Map<String, Long> counts) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(facetSize)
+                .map(entry -> new TermFacetDTO(entry.getKey(), entry.getValue()))
+                .toList();
+    }
+
+    /**
+     * Splits the sorted values into buckets of about the same size, an approximation of the
+     * variable width histogram the Elasticsearch implementation uses.
+     */
+    private List<RangeFacetDTO> toRangeFacets(List<Double> values) {
+        if (values.isEmpty()) return List.of();
+        Collections.sort(values);
+        final int bucketCount = Math.min(priceBuckets, values.size());
+        final List<RangeFacetDTO> buckets = new ArrayList<>(bucketCount);
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            final int from = bucket * values.size() / bucketCount;
+            final int to = (bucket + 1) * values.size() / bucketCount;
+            buckets.add(new RangeFacetDTO(values.get(from), values.get(to - 1), to - from));
+        }
+        return buckets;
+    }
+
+    private String encodeCursor(FieldDoc fieldDoc) {
+        final List<Object> sortValues = Arrays.stream(fieldDoc.fields)
+                .map(value -> value instanceof BytesRef bytesRef ? bytesRef.utf8ToString() : value)
+                .toList();
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(sortValues));
+        } catch (JsonProcessingException ex) {
+            throw new PagingException("Cursor could not be created");
+        }
+    }
+
+    private FieldDoc decodeCursor(String cursor, Sort sort) {
+        try {
+            final List<?> sortValues = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), List.class);
+            final SortField[] sortFields = sort.getSort();
+            if (sortValues.size() != sortFields.length) throw new PagingException("Cursor is invalid");
+            final Object[] fields = new Object[sortFields.length];
+            for (int i = 0; i < sortFields.length; i++) {
+                final SortField.Type type = sortFields[i] instanceof SortedNumericSortField numericSortField
+                        ? numericSortField.getNumericType()
+                        : sortFields[i].getType();
+                fields[i] = switch (type) {
+                    case DOUBLE -> ((Number) sortValues.get(i)).doubleValue();
+                    case LONG -> ((Number) sortValues.get(i)).longValue();
+                    case SCORE -> ((Number) sortValues.get(i)).floatValue();
+                    default -> new BytesRef((String) sortValues.get(i));
+                };
+            }
+            // The tie-breaker on product id is unique, so the doc id never decides.
+            return new FieldDoc(Integer.MAX_VALUE, Float.NaN, fields);
+        } catch (IllegalArgumentException | ClassCastException | IOException ex) {
+            throw new PagingException("Cursor is invalid");
+        }
+    }
+}
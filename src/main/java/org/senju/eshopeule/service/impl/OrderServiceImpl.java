@@ -1,24 +1,34 @@
 package org.senju.eshopeule.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.constant.enums.CartOperationType;
+import org.senju.eshopeule.dto.CartDTO;
+import org.senju.eshopeule.dto.CartItemDTO;
+import org.senju.eshopeule.dto.CartOperationDTO;
 import org.senju.eshopeule.dto.OrderDTO;
+import org.senju.eshopeule.dto.ProductOptionDTO;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
 import org.senju.eshopeule.dto.request.CreateOrderRequest;
 import org.senju.eshopeule.dto.response.OrderPagingResponse;
+import org.senju.eshopeule.dto.response.OrderSliceResponse;
 import org.senju.eshopeule.exceptions.CartException;
 import org.senju.eshopeule.exceptions.NotFoundException;
 import org.senju.eshopeule.exceptions.OrderException;
+import org.senju.eshopeule.mappers.AssociationBatchLoader;
 import org.senju.eshopeule.mappers.OrderMapper;
 import org.senju.eshopeule.model.cart.Cart;
-import org.senju.eshopeule.model.cart.CartItem;
-import org.senju.eshopeule.model.cart.CartStatus;
 import org.senju.eshopeule.model.order.*;
 import org.senju.eshopeule.model.product.Product;
 import org.senju.eshopeule.model.product.ProductOption;
 import org.senju.eshopeule.model.user.Customer;
 import org.senju.eshopeule.repository.jpa.*;
-import org.senju.eshopeule.repository.projection.CartItemQuantityView;
 import org.senju.eshopeule.repository.projection.OrderItemView;
+import org.senju.eshopeule.service.CartService;
 import org.senju.eshopeule.service.OrderService;
+import org.senju.eshopeule.service.OutboxService;
+import org.senju.eshopeule.service.StockReservationService;
+import org.senju.eshopeule.utils.PaginationUtil;
+import org.senju.eshopeule.utils.PaginationUtil.KeysetCursor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
@@ -27,27 +37,25 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Arrays;
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.senju.eshopeule.constant.enums.BootstrapPerm.CUS_WRITE;
 import static org.senju.eshopeule.constant.enums.BootstrapPerm.STAFF_WRITE;
 import static org.senju.eshopeule.constant.exceptionMessage.CartExceptionMsg.ONLY_ONE_ACTIVE_CART_MSG;
-import static org.senju.eshopeule.constant.exceptionMessage.CartExceptionMsg.QUANTITY_EXCEEDED_MSG;
 import static org.senju.eshopeule.constant.exceptionMessage.CustomerExceptionMsg.CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG;
 import static org.senju.eshopeule.constant.exceptionMessage.OrderExceptionMsg.*;
 import static org.senju.eshopeule.model.order.OrderStatus.*;
 import static org.senju.eshopeule.model.order.TransactionType.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.*;
 
 @Service
 @RequiredArgsConstructor
 public class OrderServiceImpl implements OrderService {
 
     private final OrderMapper mapper;
+    private final AssociationBatchLoader associationBatchLoader;
     private final OrderRepository orderRepository;
     private final OrderItemRepository orderItemRepository;
     private final TransactionRepository transactionRepository;
@@ -55,38 +63,103 @@ public class OrderServiceImpl implements OrderService {
     private final CartRepository cartRepository;
     private final CartItemRepository cartItemRepository;
     private final CustomerRepository customerRepository;
+    private final CartService cartService;
+    private final StockReservationService stockReservationService;
+    private final OutboxService outboxService;
 
     @Override
     public OrderDTO getOrderDetail(String orderId) {
-        return mapper.convertToDTO(orderRepository.findById(orderId).orElseThrow(
-                () -> new NotFoundException(String.format(ORDER_NOT_FOUND_WITH_ID_MSG, orderId))
-        ));
+        final Order order = this.loadOrderDetails(List.of(orderId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException(String.format(ORDER_NOT_FOUND_WITH_ID_MSG, orderId)));
+        return associationBatchLoader.assemble(() -> mapper.convertToDTO(order));
     }
 
     @Override
     public OrderPagingResponse getAllOrder(Pageable pageRequest) {
-        return getOrderPaging(orderRepository.findAll(pageRequest), mapper);
+        return getOrderPaging(orderRepository.getAllOrderIds(pageRequest), mapper);
     }
 
     @Override
     public OrderPagingResponse getOrderHistory(Pageable pageRequest) {
         final String username = this.getCurrentUsername();
-        return getOrderPaging(orderRepository.getAllOrderWithUsername(username, pageRequest), mapper);
+        return getOrderPaging(orderRepository.getAllOrderIdsWithUsername(username, pageRequest), mapper);
+    }
+
+    @Override
+    public OrderSliceResponse getAllOrder(String cursor, int pageSize) {
+        PaginationUtil.checkValidPageSize(pageSize);
+        if (cursor == null || cursor.isBlank()) {
+            return getOrderSlice(orderRepository.getFirstOrderSliceIds(pageSize + 1), pageSize, mapper);
+        }
+        final KeysetCursor keysetCursor = PaginationUtil.decodeCursor(cursor);
+        return getOrderSlice(
+                orderRepository.getOrderSliceIds(keysetCursor.createdOn(), keysetCursor.id(), pageSize + 1),
+                pageSize,
+                mapper
+        );
     }
 
-    private OrderPagingResponse getOrderPaging(Page<Order> orderPage, OrderMapper mapper) {
+    @Override
+    public OrderSliceResponse getOrderHistory(String cursor, int pageSize) {
+        PaginationUtil.checkValidPageSize(pageSize);
+        final String username = this.getCurrentUsername();
+        final String customerId = customerRepository.findIdByUsername(username).orElseThrow(
+                () -> new NotFoundException(String.format(CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG, username))
+        );
+        if (cursor == null || cursor.isBlank()) {
+            return getOrderSlice(orderRepository.getFirstOrderSliceIdsWithCustomerId(customerId, pageSize + 1), pageSize, mapper);
+        }
+        final KeysetCursor keysetCursor = PaginationUtil.decodeCursor(cursor);
+        return getOrderSlice(
+                orderRepository.getOrderSliceIdsWithCustomerId(customerId, keysetCursor.createdOn(), keysetCursor.id(), pageSize + 1),
+                pageSize,
+                mapper
+        );
+    }
+
+    private OrderSliceResponse getOrderSlice(List<String> orderIds, int pageSize, OrderMapper mapper) {
+        final boolean hasNext = orderIds.size() > pageSize;
+        final List<Order> content = this.loadOrderDetails(hasNext ? orderIds.subList(0, pageSize) : orderIds);
+        final Order last = content.isEmpty() ? null : content.get(content.size() - 1);
+        return new OrderSliceResponse(
+                hasNext && last != null ? PaginationUtil.encodeCursor(last.getCreatedOn(), last.getId()) : null,
+                pageSize,
+                hasNext,
+                associationBatchLoader.assemble(() -> content.stream()
+                        .map(mapper::convertToDTO)
+                        .toList())
+        );
+    }
+
+    private OrderPagingResponse getOrderPaging(Page<String> orderIdPage, OrderMapper mapper) {
         return new OrderPagingResponse(
-                orderPage.getTotalElements(),
-                orderPage.getTotalPages(),
-                orderPage.getPageable().getPageNumber() + 1,
-                orderPage.getPageable().getPageSize(),
-                orderPage.isLast(),
-                orderPage.getContent().stream()
+                orderIdPage.getTotalElements(),
+                orderIdPage.getTotalPages(),
+                orderIdPage.getPageable().getPageNumber() + 1,
+                orderIdPage.getPageable().getPageSize(),
+                orderIdPage.isLast(),
+                associationBatchLoader.assemble(() -> this.loadOrderDetails(orderIdPage.getContent()).stream()
                         .map(mapper::convertToDTO)
-                        .toList()
+                        .toList())
         );
     }
 
+    /**
+     * Loads orders with customer, transaction and items in one query, keeping the order of
+     * the given ids. Products and options of the items are resolved in batches by the
+     * {@link AssociationBatchLoader} while the DTOs are assembled.
+     */
+    private List<Order> loadOrderDetails(List<String> orderIds) {
+        if (orderIds.isEmpty()) return Collections.emptyList();
+        final Map<String, Order> orderMap = orderRepository.findAllDetailByIds(orderIds).stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        return orderIds.stream()
+                .map(orderMap::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
     @Override
     @Transactional
     public void createOrder(CreateOrderRequest request) {
@@ -104,6 +177,8 @@ public class OrderServiceImpl implements OrderService {
         if (deliveryMethodMap.containsKey(request.getDeliveryMethod())) deliveryMethod = deliveryMethodMap.get(request.getDeliveryMethod());
         else throw new OrderException(String.format(UNSUPPORTED_DELIVERY_METHOD_MSG, request.getDeliveryMethod()));
 
+        // Pending changes of a cart kept in Redis have to be in the database before it is read.
+        cartService.flushActiveCart(this.getCurrentUsername());
         List<Cart> activeCartList = this.getActiveCartsOfCurrentUser();
         if (activeCartList.isEmpty())
             throw new OrderException(NO_ACTIVE_CART_MSG);
@@ -135,21 +210,13 @@ public class OrderServiceImpl implements OrderService {
 
         final List<OrderItem> orderItemList = cartItemRepository.getItemViewByCartId(activeCart.getId())
                 .stream()
-                .map(civ -> {
-                    if (!productRepository.checkAllowedToOrder(civ.getProductId())) {
-                        throw new OrderException(String.format(NOT_ALLOWED_TO_ORDER, civ.getProductId()));
-                    }
-                    if (civ.getItemQuantity() > civ.getProductQuantity()) {
-                        throw new OrderException(QUANTITY_EXCEEDED_MSG);
-                    }
-                    return OrderItem.builder()
-                            .order(newOrder)
-                            .option(civ.getOptionId() != null ? ProductOption.builder().id(civ.getOptionId()).build() : null)
-                            .product(Product.builder().id(civ.getProductId()).build())
-                            .quantity(civ.getItemQuantity())
-                            .total(calculateTotal(civ.getPrice(), civ.getDiscount(), civ.getItemQuantity()))
-                            .build();
-                })
+                .map(civ -> OrderItem.builder()
+                        .order(newOrder)
+                        .option(civ.getOptionId() != null ? ProductOption.builder().id(civ.getOptionId()).build() : null)
+                        .product(Product.builder().id(civ.getProductId()).build())
+                        .quantity(civ.getItemQuantity())
+                        .total(calculateTotal(civ.getPrice(), civ.getDiscount(), civ.getItemQuantity()))
+                        .build())
                 .toList();
 
         newOrder.setItems(orderItemList);
@@ -158,8 +225,11 @@ public class OrderServiceImpl implements OrderService {
                 .reduce(Double::sum)
                 .orElseThrow(() -> new OrderException("Error calculate order price")));
 
-        orderRepository.save(newOrder);
+        final Order savedOrder = orderRepository.saveAndFlush(newOrder);
+        stockReservationService.reserve(savedOrder);
+        outboxService.publish(ORDER_CREATED, savedOrder.getId());
         cartRepository.updateCompletedCartWithUsername(this.getCurrentUsername());
+        cartService.clearActiveCart(this.getCurrentUsername());
     }
 
     @Override
@@ -178,52 +248,30 @@ public class OrderServiceImpl implements OrderService {
             throw new OrderException(String.format(NOT_ALLOWED_TO_ORDER, orderItemView.getProductId()));
         }
 
-        List<Cart> activeCartList = this.getActiveCartsOfCurrentUser();
-        final Cart activeCart;
-        if (activeCartList.isEmpty()) {
-            final String customerId = customerRepository.findIdByUsername(username).orElseThrow(
-                    () -> new NotFoundException(String.format(CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG, username))
-            );
-            activeCart = Cart.builder()
-                    .status(CartStatus.ACTIVE)
-                    .customer(Customer.builder().id(customerId).build())
-                    .build();
-        } else {
-            activeCart = activeCartList.get(0);
-        }
-
-
-        if (activeCart.getId() != null) {
-            CartItemQuantityView existedCartItem = cartItemRepository
-                    .getItemQuantityView(activeCart.getId(), orderItemView.getProductId(), orderItemView.getOptionId())
-                    .orElse(null);
-
-            if (existedCartItem != null) {
-                if (existedCartItem.getQuantity() + 1 > orderItemView.getProductQuantity()) {
-                    throw new CartException(QUANTITY_EXCEEDED_MSG);
-                }
-                cartItemRepository.updateQuantityById(existedCartItem.getId(), existedCartItem.getQuantity() + 1);
-            } else {
-                CartItem newCartItem = this.createCartItem(activeCart, orderItemView.getProductId(), orderItemView.getOptionId());
-                activeCart.getItems().add(newCartItem);
-                cartItemRepository.save(newCartItem);
-            }
-        } else {
-            CartItem newCartItem = this.createCartItem(activeCart, orderItemView.getProductId(), orderItemView.getOptionId());
-            activeCart.setItems(List.of(newCartItem));
-        }
-
-        cartRepository.save(activeCart);
+        // Goes through the cart service, so carts kept in Redis see the item as well.
+        cartService.addToCart(CartItemDTO.builder()
+                .quantity(1)
+                .product(ProductSimpleDTO.builder().id(orderItemView.getProductId()).build())
+                .option(orderItemView.getOptionId() != null ? ProductOptionDTO.builder().id(orderItemView.getOptionId()).build() : null)
+                .build());
     }
 
-
-    private CartItem createCartItem(Cart activeCart, String productId, String optionId) {
-        return CartItem.builder()
-                .quantity(1)
-                .option(optionId != null ? ProductOption.builder().id(optionId).build() : null)
-                .product(Product.builder().id(productId).build())
-                .cart(activeCart)
-                .build();
+    @Override
+    @Transactional
+    public CartDTO buyAgainOrder(String orderId) {
+        final String username = this.getCurrentUsername();
+        if (!orderRepository.checkExistsByUsername(orderId, username)) {
+            throw new NotFoundException(String.format(ORDER_NOT_FOUND_WITH_ID_AND_USERNAME_MSG, orderId, username));
+        }
+        final List<CartOperationDTO> operations = orderItemRepository.getItemQuantitiesByOrderId(orderId).stream()
+                .map(item -> CartOperationDTO.builder()
+                        .type(CartOperationType.ADD.name())
+                        .productId(item.getProductId())
+                        .optionId(item.getOptionId())
+                        .quantity(item.getQuantity().intValue())
+                        .build())
+                .toList();
+        return cartService.applyOperations(operations);
     }
 
     @Override
@@ -240,6 +288,7 @@ public class OrderServiceImpl implements OrderService {
             }
             order.setStatus(COMPLETED);
             orderRepository.save(order);
+            outboxService.publish(ORDER_COMPLETED, orderId);
         } else throw new OrderException(ERROR_UPDATE_ORDER_STATUS);
     }
 
@@ -255,20 +304,10 @@ public class OrderServiceImpl implements OrderService {
                 transaction.setStatus(TransactionStatus.COMPLETED);
                 transactionRepository.save(transaction);
             }
-            order.getItems().forEach(
-                    i -> {
-                        Product product = i.getProduct();
-                        long newProductQuantity = product.getQuantity() - i.getQuantity();
-                        if (newProductQuantity < 0) {
-                            throw new OrderException();
-                        } else {
-                            product.setQuantity(newProductQuantity);
-                            productRepository.save(product);
-                        }
-                    }
-            );
+            stockReservationService.commit(orderId);
             order.setStatus(SHIPPING);
             orderRepository.save(order);
+            outboxService.publish(ORDER_SHIPPING, orderId);
         } else throw new OrderException(ERROR_UPDATE_ORDER_STATUS);
     }
 
@@ -294,22 +333,18 @@ public class OrderServiceImpl implements OrderService {
             case PROCESSING -> {
                 transaction.setStatus(TransactionStatus.CANCELLED);
                 order.setStatus(CANCELLED);
+                stockReservationService.release(orderId);
             }
             case SHIPPING -> {
                 transaction.setStatus(TransactionStatus.CANCELLED);
                 order.setStatus(CANCELLED);
-                order.getItems().forEach(
-                        i -> {
-                            Product product = i.getProduct();
-                            product.setQuantity(product.getQuantity() + i.getQuantity());
-                            productRepository.save(product);
-                        }
-                );
+                productRepository.restockByOrderId(orderId);
             }
             default -> throw new OrderException(ERROR_UPDATE_ORDER_STATUS);
         }
         transactionRepository.save(transaction);
         orderRepository.save(order);
+        outboxService.publish(ORDER_CANCELLED, orderId);
     }
 
     private Double calculateTotal(Double price, Double discount, Integer quantity) {
@@ -0,0 +1,142 @@
+package org.senju.eshopeule.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.listener.OutboxEventDispatcher;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventStatus;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.repository.jpa.OutboxEventRepository;
+import org.senju.eshopeule.service.OutboxService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxEventDispatcher outboxEventDispatcher;
+
+    @Value("${outbox.relay.batch-size}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${outbox.relay.backoff-initial}")
+    private long backoffInitialInSeconds;
+
+    @Value("${outbox.relay.backoff-max}")
+    private long backoffMaxInSeconds;
+
+    @Value("${outbox.retention.processed}")
+    private long processedRetentionInHours;
+
+    @Value("${outbox.retention.failed}")
+    private long failedRetentionInHours;
+
+    @Value("${outbox.retention.batch-size}")
+    private int purgeBatchSize;
+
+    @Value("${outbox.retention.max-batches-per-run}")
+    private int maxPurgeBatchesPerRun;
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxServiceImpl.class);
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEventType type, String aggregateId) {
+        outboxEventRepository.save(this.createEvent(type, aggregateId, null));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEventType type, String aggregateId, String payload) {
+        outboxEventRepository.save(this.createEvent(type, aggregateId, payload));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(OutboxEventType type, Collection<String> aggregateIds) {
+        outboxEventRepository.saveAll(aggregateIds.stream()
+                .map(id -> this.createEvent(type, id, null))
+                .toList());
+    }
+
+    private OutboxEvent createEvent(OutboxEventType type, String aggregateId, String payload) {
+        return OutboxEvent.builder()
+                .type(type)
+                .aggregateId(aggregateId)
+                .payload(payload)
+                .availableOn(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Each event is dispatched in its own transaction while the batch keeps its rows locked, so
+     * a run holds two pooled connections at once. Runs share the single scheduler thread.
+     */
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${outbox.relay.interval}")
+    public void relay() {
+        final List<OutboxEvent> events = outboxEventRepository.findAvailableForUpdate(batchSize);
+        if (events.isEmpty()) return;
+
+        for (OutboxEvent event : events) {
+            try {
+                outboxEventDispatcher.dispatch(event);
+                event.setStatus(OutboxEventStatus.PROCESSED);
+                event.setLastError(null);
+            } catch (RuntimeException ex) {
+                final int attempts = event.getAttempts() + 1;
+                event.setAttempts(attempts);
+                event.setLastError(ex.getMessage());
+                if (attempts >= maxAttempts) {
+                    event.setStatus(OutboxEventStatus.FAILED);
+                    logger.error("Outbox event {} [{}] failed after {} attempts: {}", event.getId(), event.getType(), attempts, ex.getMessage());
+                } else {
+                    event.setAvailableOn(LocalDateTime.now().plusSeconds(this.getBackoffInSeconds(attempts)));
+                }
+            }
+        }
+        outboxEventRepository.saveAll(events);
+    }
+
+    /**
+     * Deletes processed events and, kept longer for inspection, failed ones in small batches,
+     * each in its own transaction. Rows locked by another node are skipped.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${outbox.retention.interval}")
+    public void purgeCompleted() {
+        final int processed = this.purge(OutboxEventStatus.PROCESSED, processedRetentionInHours);
+        final int failed = this.purge(OutboxEventStatus.FAILED, failedRetentionInHours);
+        if (processed + failed > 0) logger.debug("Purged {} processed and {} failed outbox events", processed, failed);
+    }
+
+    private int purge(OutboxEventStatus status, long retentionInHours) {
+        final LocalDateTime before = LocalDateTime.now().minusHours(retentionInHours);
+        int purged = 0;
+        for (int batch = 0; batch < maxPurgeBatchesPerRun; batch++) {
+            final int deleted = outboxEventRepository.deleteByStatusBefore(status.name(), before, purgeBatchSize);
+            purged += deleted;
+            if (deleted < purgeBatchSize) break;
+        }
+        return purged;
+    }
+
+    private long getBackoffInSeconds(int attempts) {
+        final long backoff = backoffInitialInSeconds << Math.min(attempts - 1, 20);
+        return Math.min(backoff, backoffMaxInSeconds);
+    }
+}
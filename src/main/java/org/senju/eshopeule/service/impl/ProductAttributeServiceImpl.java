@@ -7,6 +7,8 @@ import org.senju.eshopeule.exceptions.ObjectAlreadyExistsException;
 import org.senju.eshopeule.mappers.ProductAttributeMapper;
 import org.senju.eshopeule.model.product.ProductAttribute;
 import org.senju.eshopeule.repository.jpa.ProductAttributeRepository;
+import org.senju.eshopeule.repository.jpa.ProductOptionRepository;
+import org.senju.eshopeule.service.OutboxService;
 import org.senju.eshopeule.service.ProductAttributeService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
@@ -17,6 +19,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 
 import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.PRODUCT_OPTIONS_CHANGED;
 
 @Service
 @Transactional
@@ -25,6 +28,8 @@ public class ProductAttributeServiceImpl implements ProductAttributeService {
 
     private final ProductAttributeMapper mapper;
     private final ProductAttributeRepository productAttributeRepository;
+    private final ProductOptionRepository productOptionRepository;
+    private final OutboxService outboxService;
 
     @Override
     @Cacheable(cacheNames = "productAttributeCache", key = "#id")
@@ -66,6 +71,9 @@ public class ProductAttributeServiceImpl implements ProductAttributeService {
             if (productAttributeRepository.checkProdAttrExistsWithNameExceptId(dto.getName(), dto.getId())) {
                 throw new ObjectAlreadyExistsException(PROD_ATT_ALREADY_EXISTS_MSG);
             }
+            if (!dto.getName().equals(loadedEntity.getName())) {
+                outboxService.publish(PRODUCT_OPTIONS_CHANGED, productOptionRepository.getProductIdsWithAttributeId(dto.getId()));
+            }
             loadedEntity.setName(dto.getName());
         }
         return mapper.convertToDTO(productAttributeRepository.save(loadedEntity));
@@ -74,6 +82,7 @@ public class ProductAttributeServiceImpl implements ProductAttributeService {
     @Override
     @CacheEvict(cacheNames = "productAttributeCache", key = "#id")
     public void deleteById(String id) {
+        outboxService.publish(PRODUCT_OPTIONS_CHANGED, productOptionRepository.getProductIdsWithAttributeId(id));
         productAttributeRepository.deleteById(id);
     }
 }
@@ -0,0 +1,214 @@
+package org.senju.eshopeule.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.senju.eshopeule.dto.ProductPubDTO;
+import org.senju.eshopeule.exceptions.NotFoundException;
+import org.senju.eshopeule.model.ProductCacheEntry;
+import org.senju.eshopeule.model.product.ProductDetailView;
+import org.senju.eshopeule.repository.redis.ProductCacheRepository;
+import org.senju.eshopeule.service.ProductCacheService;
+import org.senju.eshopeule.service.ProductDetailViewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Read-through cache of public product DTOs with an on-heap tier per node in front of Redis,
+ * backed by the product detail read model. Concurrent misses of one product on a node share a
+ * single load. Evictions follow the rebuild of the read model once a change is committed,
+ * delete the Redis entry and are broadcast over pub/sub so every node drops its on-heap copy.
+ * A load that raced with an eviction is served but not written back. Redis entries carry the
+ * version of the read model document they were read from, and an entry never replaces one of a
+ * newer version, so a slow load cannot put back a product that was changed in the meantime.
+ */
+@Service
+public class ProductCacheServiceImpl implements ProductCacheService {
+
+    private static final String SLUG_KEY_PREFIX = "product_cache:slug:";
+    private static final String INVALIDATION_CHANNEL = "product_cache:invalidation";
+    private static final String ID_SEPARATOR = ",";
+    private static final Duration EVICTION_MEMORY = Duration.ofMinutes(1);
+    private static final Logger logger = LoggerFactory.getLogger(ProductCacheServiceImpl.class);
+
+    private final ProductDetailViewService productDetailViewService;
+    private final ProductCacheRepository productCacheRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Cache<String, ProductPubDTO> products;
+    private final Cache<String, String> slugIds;
+    private final Cache<String, Long> recentEvictions;
+
+    private final Counter redisHitCounter;
+    private final Counter missCounter;
+
+    @Value("${product-cache.l2-ttl}")
+    private long l2TtlInSeconds;
+
+    public ProductCacheServiceImpl(ProductDetailViewService productDetailViewService,
+                                   ProductCacheRepository productCacheRepository,
+                                   StringRedisTemplate redisTemplate,
+                                   RedisMessageListenerContainer listenerContainer,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${product-cache.l1-max-size}") long l1MaxSize,
+                                   @Value("${product-cache.l1-ttl}") long l1TtlInSeconds) {
+        this.productDetailViewService = productDetailViewService;
+        this.productCacheRepository = productCacheRepository;
+        this.redisTemplate = redisTemplate;
+
+        this.products = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1TtlInSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        this.slugIds = Caffeine.newBuilder()
+                .maximumSize(l1MaxSize)
+                .expireAfterWrite(l1TtlInSeconds, TimeUnit.SECONDS)
+                .build();
+        this.recentEvictions = Caffeine.newBuilder()
+                .expireAfterWrite(EVICTION_MEMORY)
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, products, "product.cache.l1");
+        this.redisHitCounter = meterRegistry.counter("product.cache.l2.requests", "result", "hit");
+        this.missCounter = meterRegistry.counter("product.cache.l2.requests", "result", "miss");
+
+        listenerContainer.addMessageListener(
+                (message, pattern) -> this.evictLocally(Arrays.asList(
+                        new String(message.getBody(), StandardCharsets.UTF_8).split(ID_SEPARATOR))),
+                new ChannelTopic(INVALIDATION_CHANNEL)
+        );
+    }
+
+    @Override
+    public ProductPubDTO getById(String productId) {
+        return products.get(productId, id -> this.load(id, () -> productDetailViewService.getViewById(id)));
+    }
+
+    @Override
+    public ProductPubDTO getBySlug(String productSlug) {
+        final String cachedId = this.getCachedSlugId(productSlug);
+        if (cachedId != null) {
+            try {
+                final ProductPubDTO product = this.getById(cachedId);
+                if (productSlug.equals(product.getSlug())) return product;
+            } catch (NotFoundException ex) {
+                logger.debug("Cached product {} of slug {} no longer exists", cachedId, productSlug);
+            }
+            // The slug was changed or the product was deleted, resolve it again.
+            slugIds.invalidate(productSlug);
+            this.deleteQuietly(SLUG_KEY_PREFIX + productSlug);
+        }
+        final String productId = slugIds.get(productSlug, slug -> {
+            final long startedAt = System.currentTimeMillis();
+            final ProductPubDTO product = this.load(null, () -> productDetailViewService.getViewBySlug(slug));
+            if (!this.isEvictedSince(product.getId(), startedAt)) products.put(product.getId(), product);
+            this.setQuietly(SLUG_KEY_PREFIX + slug, product.getId());
+            return product.getId();
+        });
+        return this.getById(productId);
+    }
+
+    @Override
+    public void evict(String productId) {
+        this.evict(List.of(productId));
+    }
+
+    @Override
+    public void evict(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+        productIds.forEach(productCacheRepository::deleteByKey);
+        redisTemplate.convertAndSend(INVALIDATION_CHANNEL, String.join(ID_SEPARATOR, productIds));
+        this.evictLocally(productIds);
+    }
+
+    private void evictLocally(Collection<String> productIds) {
+        final long now = System.currentTimeMillis();
+        productIds.forEach(id -> recentEvictions.put(id, now));
+        products.invalidateAll(productIds);
+    }
+
+    /**
+     * Looks the product up in Redis before the read model. Loads by slug pass no id, the product
+     * is then only known once it was read from the read model.
+     */
+    private ProductPubDTO load(String productId, Supplier<ProductDetailView> finder) {
+        if (productId != null) {
+            try {
+                final ProductCacheEntry cached = productCacheRepository.getByKey(productId);
+                if (cached != null) {
+                    redisHitCounter.increment();
+                    return cached.getProduct();
+                }
+            } catch (RuntimeException ex) {
+                logger.debug("Failed to read cached product {}: {}", productId, ex.getMessage());
+            }
+        }
+
+        missCounter.increment();
+        final long startedAt = System.currentTimeMillis();
+        final ProductDetailView view = finder.get();
+        final ProductPubDTO product = view.getPublication();
+        if (!this.isEvictedSince(product.getId(), startedAt)) {
+            try {
+                final ProductCacheEntry entry = ProductCacheEntry.builder()
+                        .version(view.getVersion())
+                        .product(product)
+                        .build();
+                if (!productCacheRepository.saveUnlessNewer(product.getId(), entry, l2TtlInSeconds)) {
+                    logger.debug("Skipped caching product {}, a newer version is cached", product.getId());
+                }
+            } catch (RuntimeException ex) {
+                logger.debug("Failed to cache product {}: {}", product.getId(), ex.getMessage());
+            }
+        }
+        return product;
+    }
+
+    private boolean isEvictedSince(String productId, long since) {
+        final Long evictedAt = recentEvictions.getIfPresent(productId);
+        return evictedAt != null && evictedAt >= since;
+    }
+
+    private String getCachedSlugId(String productSlug) {
+        final String cachedId = slugIds.getIfPresent(productSlug);
+        if (cachedId != null) return cachedId;
+        try {
+            final String redisId = redisTemplate.opsForValue().get(SLUG_KEY_PREFIX + productSlug);
+            if (redisId != null) slugIds.put(productSlug, redisId);
+            return redisId;
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to read cached slug {}: {}", productSlug, ex.getMessage());
+            return null;
+        }
+    }
+
+    private void setQuietly(String key, String value) {
+        try {
+            redisTemplate.opsForValue().set(key, value, l2TtlInSeconds, TimeUnit.SECONDS);
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to cache {}: {}", key, ex.getMessage());
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            redisTemplate.delete(key);
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to delete {}: {}", key, ex.getMessage());
+        }
+    }
+}
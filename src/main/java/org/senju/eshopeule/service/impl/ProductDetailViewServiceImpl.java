@@ -0,0 +1,275 @@
+package org.senju.eshopeule.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.senju.eshopeule.dto.ProductDetailDTO;
+import org.senju.eshopeule.dto.ReindexProgressDTO;
+import org.senju.eshopeule.exceptions.NotFoundException;
+import org.senju.eshopeule.exceptions.ProductException;
+import org.senju.eshopeule.mappers.AssociationBatchLoader;
+import org.senju.eshopeule.mappers.ProductDetailMapper;
+import org.senju.eshopeule.mappers.ProductPubMapper;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.product.ProductDetailView;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.mongodb.ProductDetailViewRepository;
+import org.senju.eshopeule.service.ProductDetailViewService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.PRODUCT_NOT_FOUND_WITH_ID_MSG;
+import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.PRODUCT_NOT_FOUND_WITH_SLUG_MSG;
+
+/**
+ * Serves product details from one precomputed document per product instead of assembling them
+ * from Postgres and the product meta on every request. Documents are rebuilt from the outbox
+ * when any of their parts changes and built on first read when missing. Only the stock quantity
+ * of the staff detail is read live, it changes with every order.
+ */
+@Service
+public class ProductDetailViewServiceImpl implements ProductDetailViewService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductDetailViewServiceImpl.class);
+
+    private final ProductDetailViewRepository productDetailViewRepository;
+    private final ProductRepository productRepository;
+    private final ProductDetailMapper productDetailMapper;
+    private final ProductPubMapper productPubMapper;
+    private final AssociationBatchLoader associationBatchLoader;
+    private final MongoTemplate mongoTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean(false);
+    private final AtomicLong rebuiltCount = new AtomicLong();
+    private volatile ReindexProgressDTO progress = ReindexProgressDTO.builder().status("IDLE").build();
+
+    private final Timer rebuildTimer;
+    private final Counter savedCounter;
+    private final Counter discardedCounter;
+
+    @Value("${product-detail-view.batch-size}")
+    private int batchSize;
+
+    public ProductDetailViewServiceImpl(ProductDetailViewRepository productDetailViewRepository,
+                                        ProductRepository productRepository,
+                                        ProductDetailMapper productDetailMapper,
+                                        ProductPubMapper productPubMapper,
+                                        AssociationBatchLoader associationBatchLoader,
+                                        MongoTemplate mongoTemplate,
+                                        PlatformTransactionManager transactionManager,
+                                        MeterRegistry meterRegistry) {
+        this.productDetailViewRepository = productDetailViewRepository;
+        this.productRepository = productRepository;
+        this.productDetailMapper = productDetailMapper;
+        this.productPubMapper = productPubMapper;
+        this.associationBatchLoader = associationBatchLoader;
+        this.mongoTemplate = mongoTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.rebuildTimer = meterRegistry.timer("product.view.rebuild");
+        this.savedCounter = meterRegistry.counter("product.view.documents", "result", "saved");
+        this.discardedCounter = meterRegistry.counter("product.view.documents", "result", "discarded");
+    }
+
+    @Override
+    public ProductDetailDTO getDetailById(String productId) {
+        final ProductDetailDTO detail = this.getViewById(productId).getDetail();
+        detail.setQuantity(productRepository.getQuantityById(productId));
+        return detail;
+    }
+
+    @Override
+    public ProductDetailDTO getDetailBySlug(String productSlug) {
+        final ProductDetailDTO detail = this.getViewBySlug(productSlug).getDetail();
+        detail.setQuantity(productRepository.getQuantityById(detail.getId()));
+        return detail;
+    }
+
+    @Override
+    public ProductDetailView getViewById(String productId) {
+        final ProductDetailView view = productDetailViewRepository.findById(productId)
+                .orElseGet(() -> this.buildMissing(() -> productRepository.findById(productId)));
+        if (view == null || view.isDeleted()) {
+            throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, productId));
+        }
+        return view;
+    }
+
+    @Override
+    public ProductDetailView getViewBySlug(String productSlug) {
+        final ProductDetailView view = productDetailViewRepository.findFirstBySlugAndDeletedIsFalseOrderByVersionDesc(productSlug)
+                .orElseGet(() -> this.buildMissing(() -> productRepository.findBySlug(productSlug)));
+        if (view == null || view.isDeleted()) {
+            throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_SLUG_MSG, productSlug));
+        }
+        return view;
+    }
+
+    /**
+     * Builds the document of a product that has none yet. Nothing is stored for unknown
+     * products, so lookups of random ids or slugs do not fill the collection with tombstones.
+     */
+    private ProductDetailView buildMissing(Supplier<Optional<Product>> finder) {
+        final ProductDetailView view = readOnlyTransactionTemplate.execute(status -> {
+            final long version = productRepository.getCurrentTimeInMicros();
+            return finder.get().map(product -> this.build(product, version)).orElse(null);
+        });
+        if (view != null) this.save(view);
+        return view;
+    }
+
+    @Override
+    public void rebuild(Collection<String> productIds) {
+        final List<String> ids = List.copyOf(new LinkedHashSet<>(productIds));
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            final List<String> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            rebuildTimer.record(() -> this.rebuildBatch(batch));
+        }
+    }
+
+    private void rebuildBatch(List<String> productIds) {
+        final List<ProductDetailView> views = readOnlyTransactionTemplate.execute(status -> {
+            // Read before any of the parts, so a rebuild that started later always wins.
+            final long version = productRepository.getCurrentTimeInMicros();
+            final Map<String, Product> products = productRepository.findAllById(productIds).stream()
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            return associationBatchLoader.assemble(() -> productIds.stream()
+                    .map(id -> products.containsKey(id)
+                            ? this.build(products.get(id), version)
+                            : ProductDetailView.builder()
+                                    .id(id)
+                                    .version(version)
+                                    .deleted(true)
+                                    .rebuiltOn(LocalDateTime.now())
+                                    .build())
+                    .toList());
+        });
+        views.forEach(this::save);
+    }
+
+    private ProductDetailView build(Product product, long version) {
+        return ProductDetailView.builder()
+                .id(product.getId())
+                .slug(product.getSlug())
+                .version(version)
+                .deleted(false)
+                .detail(productDetailMapper.convertToDTO(product))
+                .publication(productPubMapper.convertToDTO(product))
+                .rebuiltOn(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Upserts the document unless one of the same or a newer version exists, in which case the
+     * upsert collides on the id and the stale rebuild is dropped.
+     */
+    private void save(ProductDetailView view) {
+        final Query query = Query.query(Criteria.where("id").is(view.getId()).and("version").lt(view.getVersion()));
+        final Update update = new Update()
+                .set("slug", view.getSlug())
+                .set("version", view.getVersion())
+                .set("deleted", view.isDeleted())
+                .set("detail", view.getDetail())
+                .set("publication", view.getPublication())
+                .set("rebuiltOn", view.getRebuiltOn());
+        try {
+            mongoTemplate.upsert(query, update, ProductDetailView.class);
+            savedCounter.increment();
+        } catch (DuplicateKeyException ex) {
+            discardedCounter.increment();
+            logger.debug("Discard out of order rebuild of product {} at version {}", view.getId(), view.getVersion());
+        }
+    }
+
+    @Override
+    public ReindexProgressDTO startFullRebuild() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ProductException("A product detail rebuild is already running");
+        }
+        rebuiltCount.set(0);
+        this.progress = ReindexProgressDTO.builder()
+                .mode("FULL")
+                .status("RUNNING")
+                .targetIndex(ProductDetailView.class.getSimpleName())
+                .startedOn(LocalDateTime.now())
+                .build();
+        coordinator.execute(() -> {
+            try {
+                String lastId = "";
+                List<String> productIds;
+                do {
+                    productIds = productRepository.getIdsAfter(lastId, batchSize);
+                    if (productIds.isEmpty()) break;
+                    this.rebuild(productIds);
+                    rebuiltCount.addAndGet(productIds.size());
+                    lastId = productIds.getLast();
+                } while (productIds.size() == batchSize);
+                this.finish("COMPLETED", null);
+            } catch (RuntimeException ex) {
+                logger.error("Product detail rebuild failed: {}", ex.getMessage(), ex);
+                this.finish("FAILED", ex.getMessage());
+            } finally {
+                running.set(false);
+            }
+        });
+        return this.getRebuildProgress();
+    }
+
+    @Override
+    public ReindexProgressDTO getRebuildProgress() {
+        final ReindexProgressDTO current = this.progress;
+        if (!"RUNNING".equals(current.getStatus())) return current;
+        return ReindexProgressDTO.builder()
+                .mode(current.getMode())
+                .status(current.getStatus())
+                .targetIndex(current.getTargetIndex())
+                .indexedCount(rebuiltCount.get())
+                .docsPerSecond(this.getThroughput(current.getStartedOn(), LocalDateTime.now()))
+                .startedOn(current.getStartedOn())
+                .build();
+    }
+
+    private void finish(String status, String error) {
+        final ReindexProgressDTO current = this.progress;
+        final LocalDateTime finishedOn = LocalDateTime.now();
+        this.progress = ReindexProgressDTO.builder()
+                .mode(current.getMode())
+                .status(status)
+                .targetIndex(current.getTargetIndex())
+                .indexedCount(rebuiltCount.get())
+                .docsPerSecond(this.getThroughput(current.getStartedOn(), finishedOn))
+                .startedOn(current.getStartedOn())
+                .finishedOn(finishedOn)
+                .error(error)
+                .build();
+        logger.info("Product detail rebuild {} with {} documents", status, rebuiltCount.get());
+    }
+
+    private Double getThroughput(LocalDateTime startedOn, LocalDateTime endedOn) {
+        final long elapsedMillis = Duration.between(startedOn, endedOn).toMillis();
+        if (elapsedMillis <= 0) return 0.0;
+        return rebuiltCount.get() * 1000.0 / elapsedMillis;
+    }
+}
@@ -9,7 +9,7 @@ import org.senju.eshopeule.repository.jpa.ProductImageRepository;
 import org.senju.eshopeule.repository.jpa.ProductRepository;
 import org.senju.eshopeule.service.ImageService;
 import org.senju.eshopeule.service.ProductImageService;
-import org.senju.eshopeule.service.ProductSyncDataService;
+import org.senju.eshopeule.service.OutboxService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -19,6 +19,7 @@ import java.util.Arrays;
 import java.util.List;
 
 import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.PRODUCT_IMAGES_CHANGED;
 
 @Service
 @RequiredArgsConstructor
@@ -27,7 +28,7 @@ public class ProductImageServiceImpl implements ProductImageService {
     private final ProductImageRepository productImageRepository;
     private final ProductRepository productRepository;
     private final ImageService imageService;
-    private final ProductSyncDataService productSyncDataService;
+    private final OutboxService outboxService;
 
     @Override
     public String getImageUrlById(String id) {
@@ -62,7 +63,7 @@ public class ProductImageServiceImpl implements ProductImageService {
                     }
                 }
         );
-        productSyncDataService.syncImageData(productId);
+        outboxService.publish(PRODUCT_IMAGES_CHANGED, productId);
     }
 
     @Override
@@ -93,6 +94,6 @@ public class ProductImageServiceImpl implements ProductImageService {
                 }
         );
         productImageRepository.deleteByProductId(productId);
-        productSyncDataService.syncImageData(productId);
+        outboxService.publish(PRODUCT_IMAGES_CHANGED, productId);
     }
 }
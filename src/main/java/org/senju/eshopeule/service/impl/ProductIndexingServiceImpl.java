@@ -0,0 +1,259 @@
+package org.senju.eshopeule.service.impl;
+
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.ibatis.session.SqlSession;
+import org.senju.eshopeule.constant.enums.LocalSearchMode;
+import org.senju.eshopeule.model.product.ProductESDoc;
+import org.senju.eshopeule.repository.jpa.ProductIndexQueueRepository;
+import org.senju.eshopeule.repository.lucene.LuceneProductIndex;
+import org.senju.eshopeule.service.ProductIndexingService;
+import org.senju.eshopeule.service.SearchResultCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.RefreshPolicy;
+import org.springframework.data.elasticsearch.core.SearchHit;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.BulkOptions;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Collects dirty product ids in the {@code product_index_queue} table and indexes them in the
+ * background. Ids enqueued again before they are flushed are coalesced, and an id is only
+ * flushed once it has been in the queue for the coalescing window. A batch claims its rows
+ * until it is written to Elasticsearch, so pending ids survive restarts and a failed batch is
+ * retried by any node once its claim expires. While a full reindex copies the products into a
+ * new index, the name of that index is kept in Redis and every node writes its batches there too.
+ * The local Lucene index is written first; when it is the primary index, Elasticsearch is not
+ * touched at all and a failed local write keeps the batch in the queue.
+ */
+@Service
+public class ProductIndexingServiceImpl implements ProductIndexingService {
+
+    private static final String NAMESPACE = "org.senju.mybatis.ProductIndexXmlMapper";
+    private static final String PRODUCT_ID_FIELD = "productId";
+    private static final String DUAL_WRITE_KEY = "product_indexing:dual_write_index";
+    private static final Duration DUAL_WRITE_TTL = Duration.ofMinutes(10);
+    private static final Logger logger = LoggerFactory.getLogger(ProductIndexingServiceImpl.class);
+
+    private final SqlSession sqlSession;
+    private final ElasticsearchOperations esOperations;
+    private final SearchResultCacheService searchResultCacheService;
+    private final LuceneProductIndex luceneProductIndex;
+    private final ProductIndexQueueRepository productIndexQueueRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Timer flushTimer;
+    private final Counter indexedCounter;
+    private final Counter failedCounter;
+
+    @Value("${product-indexing.batch-size}")
+    private int batchSize;
+
+    @Value("${product-indexing.max-batches-per-run}")
+    private int maxBatchesPerRun;
+
+    @Value("${product-indexing.coalesce-window}")
+    private long coalesceWindowInMillis;
+
+    @Value("${product-indexing.claim-timeout}")
+    private long claimTimeoutInMillis;
+
+    @Value("${search.local.mode}")
+    private LocalSearchMode localSearchMode;
+
+    public ProductIndexingServiceImpl(SqlSession sqlSession,
+                                      ElasticsearchOperations esOperations,
+                                      SearchResultCacheService searchResultCacheService,
+                                      LuceneProductIndex luceneProductIndex,
+                                      ProductIndexQueueRepository productIndexQueueRepository,
+                                      StringRedisTemplate redisTemplate,
+                                      MeterRegistry meterRegistry) {
+        this.sqlSession = sqlSession;
+        this.esOperations = esOperations;
+        this.searchResultCacheService = searchResultCacheService;
+        this.luceneProductIndex = luceneProductIndex;
+        this.productIndexQueueRepository = productIndexQueueRepository;
+        this.redisTemplate = redisTemplate;
+        Gauge.builder("product.indexing.queue.depth", this, ProductIndexingServiceImpl::getQueueDepth)
+                .register(meterRegistry);
+        Gauge.builder("product.indexing.queue.lag", this, ProductIndexingServiceImpl::getLagInMillis)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        this.flushTimer = meterRegistry.timer("product.indexing.flush");
+        this.indexedCounter = meterRegistry.counter("product.indexing.documents", "result", "indexed");
+        this.failedCounter = meterRegistry.counter("product.indexing.documents", "result", "failed");
+    }
+
+    @Override
+    public void enqueue(String productId) {
+        this.enqueue(List.of(productId));
+    }
+
+    @Override
+    public void enqueue(Collection<String> productIds) {
+        if (productIds.isEmpty()) return;
+        productIndexQueueRepository.enqueueAll(productIds);
+    }
+
+    /**
+     * Flushes at most a bounded number of batches, a longer backlog is continued by the next run.
+     */
+    @Override
+    @Scheduled(fixedDelayString = "${product-indexing.coalesce-window}")
+    public void flush() {
+        ClaimedBatch batch;
+        boolean indexed = false;
+        try {
+            for (int batches = 0; batches < maxBatchesPerRun && !(batch = this.claimBatch()).productIds().isEmpty(); batches++) {
+                final ClaimedBatch currentBatch = batch;
+                try {
+                    flushTimer.record(() -> this.index(currentBatch.productIds()));
+                } catch (RuntimeException ex) {
+                    // Keep the claim until it expires instead of hammering a struggling cluster.
+                    failedCounter.increment(currentBatch.productIds().size());
+                    logger.error("Failed to index {} products: {}", currentBatch.productIds().size(), ex.getMessage());
+                    return;
+                }
+                indexedCounter.increment(currentBatch.productIds().size());
+                indexed = true;
+                this.acknowledge(currentBatch);
+            }
+        } catch (RuntimeException ex) {
+            logger.error("Failed to flush product indexing queue: {}", ex.getMessage());
+        } finally {
+            if (indexed) searchResultCacheService.invalidate();
+        }
+    }
+
+    private ClaimedBatch claimBatch() {
+        final String claimId = UUID.randomUUID().toString();
+        return new ClaimedBatch(claimId, productIndexQueueRepository.claim(
+                claimId, coalesceWindowInMillis, claimTimeoutInMillis, batchSize));
+    }
+
+    /**
+     * Removes the indexed ids from the queue. Ids enqueued again while the batch was indexed
+     * lost its claim, they stay and are picked up by the next batch.
+     */
+    private void acknowledge(ClaimedBatch batch) {
+        productIndexQueueRepository.deleteByClaimId(batch.claimId());
+        productIndexQueueRepository.releaseRequeued(batch.productIds());
+    }
+
+    private void index(Collection<String> productIds) {
+        final List<ProductESDoc> documents = sqlSession.selectList(
+                NAMESPACE + ".getProductIndexDocuments",
+                Map.of("productIds", productIds)
+        );
+        this.indexLocally(productIds, documents);
+        if (documents.isEmpty() || localSearchMode == LocalSearchMode.PRIMARY) return;
+
+        final Map<String, String> documentIds = this.getDocumentIds(productIds);
+        final List<IndexQuery> queries = documents.stream()
+                .map(doc -> {
+                    doc.setId(documentIds.getOrDefault(doc.getProductId(), doc.getProductId()));
+                    return new IndexQueryBuilder()
+                            .withId(doc.getId())
+                            .withObject(doc)
+                            .build();
+                })
+                .toList();
+        // Waits for the refresh, the result cache is invalidated after the batch and must not
+        // cache pages searched before the documents became visible.
+        esOperations.bulkIndex(queries, BulkOptions.builder().withRefreshPolicy(RefreshPolicy.WAIT_UNTIL).build(), ProductESDoc.class);
+
+        // Read after the documents, a reindex started later copies rows at least as fresh.
+        final String dualWriteIndex = redisTemplate.opsForValue().get(DUAL_WRITE_KEY);
+        if (dualWriteIndex != null) {
+            esOperations.bulkIndex(documents.stream()
+                    .map(doc -> {
+                        doc.setId(doc.getProductId());
+                        return new IndexQueryBuilder()
+                                .withId(doc.getId())
+                                .withObject(doc)
+                                .build();
+                    })
+                    .toList(), IndexCoordinates.of(dualWriteIndex));
+        }
+    }
+
+    private void indexLocally(Collection<String> productIds, List<ProductESDoc> documents) {
+        final Set<String> missingIds = new HashSet<>(productIds);
+        documents.forEach(doc -> missingIds.remove(doc.getProductId()));
+        try {
+            luceneProductIndex.index(documents);
+            luceneProductIndex.delete(missingIds);
+        } catch (RuntimeException ex) {
+            if (localSearchMode == LocalSearchMode.PRIMARY) throw ex;
+            // Next to Elasticsearch the local index catches up from the database on its own.
+            logger.error("Failed to index {} products locally: {}", documents.size(), ex.getMessage());
+        }
+    }
+
+    /**
+     * Expires unless called again within the TTL, so a reindex that died with its node does not
+     * leave the other nodes writing to an abandoned index.
+     */
+    @Override
+    public void startDualWrite(String indexName) {
+        redisTemplate.opsForValue().set(DUAL_WRITE_KEY, indexName, DUAL_WRITE_TTL);
+    }
+
+    @Override
+    public void stopDualWrite() {
+        redisTemplate.delete(DUAL_WRITE_KEY);
+    }
+
+    /**
+     * Documents created before this pipeline have generated ids, so they are looked up once per
+     * batch and overwritten in place. New documents use the product id.
+     */
+    private Map<String, String> getDocumentIds(Collection<String> productIds) {
+        final NativeQuery query = NativeQuery.builder()
+                .withQuery(q -> q
+                        .terms(t -> t
+                                .field(PRODUCT_ID_FIELD)
+                                .terms(tv -> tv.value(productIds.stream().map(FieldValue::of).toList()))
+                        )
+                )
+                .withMaxResults(productIds.size())
+                .build();
+        return esOperations.search(query, ProductESDoc.class).stream()
+                .map(SearchHit::getContent)
+                .collect(Collectors.toMap(ProductESDoc::getProductId, ProductESDoc::getId, (a, b) -> a));
+    }
+
+    private double getQueueDepth() {
+        try {
+            return productIndexQueueRepository.count();
+        } catch (RuntimeException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private double getLagInMillis() {
+        try {
+            return productIndexQueueRepository.getLagInMillis();
+        } catch (RuntimeException ex) {
+            return Double.NaN;
+        }
+    }
+
+    private record ClaimedBatch(String claimId, List<String> productIds) {
+    }
+}
@@ -8,11 +8,13 @@ import org.senju.eshopeule.mappers.ProductMetaMapper;
 import org.senju.eshopeule.model.product.ProductMeta;
 import org.senju.eshopeule.repository.jpa.ProductRepository;
 import org.senju.eshopeule.repository.mongodb.ProductMetaRepository;
+import org.senju.eshopeule.service.OutboxService;
 import org.senju.eshopeule.service.ProductMetaService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.PRODUCT_META_CHANGED;
 
 @Service
 @Transactional
@@ -22,6 +24,7 @@ public class ProductMetaServiceImpl implements ProductMetaService {
     private final ProductMetaMapper mapper;
     private final ProductMetaRepository productMetaRepository;
     private final ProductRepository productRepository;
+    private final OutboxService outboxService;
 
 
     @Override
@@ -46,7 +49,9 @@ public class ProductMetaServiceImpl implements ProductMetaService {
         if (productMetaRepository.findByProductId(dto.getProductId()).isPresent()) {
             throw new ObjectAlreadyExistsException(String.format(PROD_META_ALREADY_EXISTS_WITH_PRODUCT_ID_MSG, dto.getProductId()));
         }
-        return mapper.convertToDTO(productMetaRepository.save(mapper.convertToEntity(dto)));
+        final ProductMetaDTO savedMeta = mapper.convertToDTO(productMetaRepository.save(mapper.convertToEntity(dto)));
+        outboxService.publish(PRODUCT_META_CHANGED, dto.getProductId());
+        return savedMeta;
     }
 
     @Override
@@ -60,17 +65,23 @@ public class ProductMetaServiceImpl implements ProductMetaService {
                 throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, dto.getProductId()));
             }
             mapper.updateFromDTO(dto, loadedProdMeta);
-            return mapper.convertToDTO(productMetaRepository.save(loadedProdMeta));
+            final ProductMetaDTO savedMeta = mapper.convertToDTO(productMetaRepository.save(loadedProdMeta));
+            outboxService.publish(PRODUCT_META_CHANGED, loadedProdMeta.getProductId());
+            return savedMeta;
         } else throw new NotFoundException(PROD_META_NOT_FOUND_MSG);
     }
 
     @Override
     public void deleteById(String id) {
-        productMetaRepository.deleteById(id);
+        productMetaRepository.findById(id).ifPresent(meta -> {
+            productMetaRepository.delete(meta);
+            outboxService.publish(PRODUCT_META_CHANGED, meta.getProductId());
+        });
     }
 
     @Override
     public void deleteByProductId(String productId) {
         productMetaRepository.deleteByProductId(productId);
+        outboxService.publish(PRODUCT_META_CHANGED, productId);
     }
 }
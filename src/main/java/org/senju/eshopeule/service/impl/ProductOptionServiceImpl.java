@@ -12,6 +12,7 @@ import org.senju.eshopeule.repository.jpa.ProductAttributeValueRepository;
 import org.senju.eshopeule.repository.jpa.ProductOptionRepository;
 import org.senju.eshopeule.repository.jpa.ProductRepository;
 import org.senju.eshopeule.repository.projection.SimpleProdAttrView;
+import org.senju.eshopeule.service.OutboxService;
 import org.senju.eshopeule.service.ProductOptionService;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -22,6 +23,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.PRODUCT_OPTIONS_CHANGED;
 
 @Service
 @Transactional
@@ -33,6 +35,7 @@ public class ProductOptionServiceImpl implements ProductOptionService {
     private final ProductOptionRepository optionRepository;
     private final ProductAttributeRepository attributeRepository;
     private final ProductAttributeValueRepository attributeValueRepository;
+    private final OutboxService outboxService;
 
     @Override
     public ProductOptionDTO getById(String id) {
@@ -64,7 +67,9 @@ public class ProductOptionServiceImpl implements ProductOptionService {
             this.setAttributeVal(dto, newOption);
         }
 
-        return mapper.convertToDTO(optionRepository.save(newOption));
+        final ProductOptionDTO savedOption = mapper.convertToDTO(optionRepository.save(newOption));
+        outboxService.publish(PRODUCT_OPTIONS_CHANGED, dto.getProductId());
+        return savedOption;
     }
 
     @Override
@@ -83,7 +88,9 @@ public class ProductOptionServiceImpl implements ProductOptionService {
                 this.setAttributeVal(dto, loadedOption);
             }
         }
-        return mapper.convertToDTO(optionRepository.save(loadedOption));
+        final ProductOptionDTO savedOption = mapper.convertToDTO(optionRepository.save(loadedOption));
+        outboxService.publish(PRODUCT_OPTIONS_CHANGED, dto.getProductId());
+        return savedOption;
     }
 
     private void setAttributeVal(ProductOptionDTO dto, ProductOption entity) {
@@ -118,7 +125,10 @@ public class ProductOptionServiceImpl implements ProductOptionService {
 
     @Override
     public void deleteById(String id) {
-        optionRepository.deleteById(id);
+        optionRepository.findById(id).ifPresent(option -> {
+            optionRepository.delete(option);
+            outboxService.publish(PRODUCT_OPTIONS_CHANGED, option.getProduct().getId());
+        });
     }
 
 }
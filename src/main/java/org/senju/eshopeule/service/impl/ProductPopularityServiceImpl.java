@@ -0,0 +1,158 @@
+package org.senju.eshopeule.service.impl;
+
+import org.apache.ibatis.session.SqlSession;
+import org.senju.eshopeule.model.product.ProductPopularity;
+import org.senju.eshopeule.repository.jpa.ProductPopularityRepository;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.mongodb.RatingRepository;
+import org.senju.eshopeule.repository.projection.ProductRatingView;
+import org.senju.eshopeule.service.ProductIndexingService;
+import org.senju.eshopeule.service.ProductPopularityService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Precomputes the popularity signals used by search ranking. Views are counted in Redis on
+ * every product page hit; a background job periodically walks the products in pages of ids,
+ * merges their views with completed order quantities and MongoDB rating summaries, stores the
+ * rows that changed and hands those products to the indexer, so the signals reach
+ * Elasticsearch in batches and no step holds more than one page in memory.
+ */
+@Service
+public class ProductPopularityServiceImpl implements ProductPopularityService {
+
+    private static final String NAMESPACE = "org.senju.mybatis.ProductXmlMapper";
+    private static final String VIEW_COUNT_KEY = "product_popularity:views";
+    private static final String REFRESH_LOCK_KEY = "product_popularity:refresh_lock";
+    private static final Logger logger = LoggerFactory.getLogger(ProductPopularityServiceImpl.class);
+
+    private final SqlSession sqlSession;
+    private final ProductPopularityRepository productPopularityRepository;
+    private final ProductRepository productRepository;
+    private final RatingRepository ratingRepository;
+    private final ProductIndexingService productIndexingService;
+    private final StringRedisTemplate redisTemplate;
+
+    @Value("${product-popularity.batch-size}")
+    private int batchSize;
+
+    @Value("${product-popularity.refresh-interval}")
+    private long refreshIntervalInMillis;
+
+    public ProductPopularityServiceImpl(SqlSession sqlSession,
+                                        ProductPopularityRepository productPopularityRepository,
+                                        ProductRepository productRepository,
+                                        RatingRepository ratingRepository,
+                                        ProductIndexingService productIndexingService,
+                                        StringRedisTemplate redisTemplate) {
+        this.sqlSession = sqlSession;
+        this.productPopularityRepository = productPopularityRepository;
+        this.productRepository = productRepository;
+        this.ratingRepository = ratingRepository;
+        this.productIndexingService = productIndexingService;
+        this.redisTemplate = redisTemplate;
+    }
+
+    @Override
+    public void recordView(String productId) {
+        try {
+            redisTemplate.opsForHash().increment(VIEW_COUNT_KEY, productId, 1);
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to record view of product {}: {}", productId, ex.getMessage());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${product-popularity.refresh-interval}", initialDelayString = "${product-popularity.refresh-interval}")
+    public void refreshSignals() {
+        // Only one node recomputes the signals per interval.
+        final Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(REFRESH_LOCK_KEY, "1", Duration.ofMillis(refreshIntervalInMillis));
+        if (!Boolean.TRUE.equals(acquired)) return;
+
+        long changedCount = 0;
+        String lastId = "";
+        List<String> productIds;
+        do {
+            productIds = productRepository.getIdsAfter(lastId, batchSize);
+            if (productIds.isEmpty()) break;
+            changedCount += this.refreshPage(productIds);
+            lastId = productIds.getLast();
+        } while (productIds.size() == batchSize);
+        logger.info("Refreshed popularity signals of {} products", changedCount);
+    }
+
+    @Override
+    public void refreshSignals(Collection<String> productIds) {
+        final List<String> ids = List.copyOf(productIds);
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            this.refreshPage(ids.subList(from, Math.min(from + batchSize, ids.size())));
+        }
+    }
+
+    /**
+     * Recomputes the signals of one page of products, stores the rows that changed and enqueues
+     * them for indexing.
+     *
+     * @return the number of products whose signals changed
+     */
+    private int refreshPage(List<String> productIds) {
+        final Map<String, ProductPopularity> signals = new HashMap<>();
+        productIds.forEach(productId -> this.getSignal(signals, productId));
+        final List<ProductPopularity> orderedQuantities = sqlSession.selectList(
+                NAMESPACE + ".getOrderedProductQuantities", Map.of("productIds", productIds));
+        orderedQuantities.forEach(ordered -> this.getSignal(signals, ordered.getProductId())
+                .setOrderedQuantity(ordered.getOrderedQuantity()));
+        for (ProductRatingView rating : ratingRepository.getRatingSummariesByProductIds(productIds)) {
+            if (rating.getId() == null) continue;
+            final ProductPopularity signal = this.getSignal(signals, rating.getId());
+            signal.setAverageRating(rating.getAverageRating());
+            signal.setRatingCount(rating.getRatingCount());
+        }
+        final List<String> views = redisTemplate.<String, String>opsForHash().multiGet(VIEW_COUNT_KEY, productIds);
+        for (int i = 0; i < productIds.size(); i++) {
+            if (views.get(i) != null) this.getSignal(signals, productIds.get(i)).setViewCount(Long.parseLong(views.get(i)));
+        }
+
+        final Map<String, ProductPopularity> stored = productPopularityRepository.findAllById(productIds).stream()
+                .collect(Collectors.toMap(ProductPopularity::getProductId, Function.identity()));
+        final List<ProductPopularity> changed = new ArrayList<>();
+        signals.values().forEach(signal -> {
+            final ProductPopularity current = stored.get(signal.getProductId());
+            if (current == null) {
+                // Products nobody ordered, viewed or rated yet keep no row.
+                if (signal.getOrderedQuantity() > 0 || signal.getViewCount() > 0 || signal.getRatingCount() > 0) {
+                    changed.add(signal);
+                }
+            } else if (!current.getOrderedQuantity().equals(signal.getOrderedQuantity())
+                    || !current.getViewCount().equals(signal.getViewCount())
+                    || !current.getAverageRating().equals(signal.getAverageRating())
+                    || !current.getRatingCount().equals(signal.getRatingCount())) {
+                current.setOrderedQuantity(signal.getOrderedQuantity());
+                current.setViewCount(signal.getViewCount());
+                current.setAverageRating(signal.getAverageRating());
+                current.setRatingCount(signal.getRatingCount());
+                changed.add(current);
+            }
+        });
+
+        if (!changed.isEmpty()) {
+            productPopularityRepository.saveAll(changed);
+            productIndexingService.enqueue(changed.stream().map(ProductPopularity::getProductId).toList());
+        }
+        return changed.size();
+    }
+
+    private ProductPopularity getSignal(Map<String, ProductPopularity> signals, String productId) {
+        return signals.computeIfAbsent(productId, id -> ProductPopularity.builder().productId(id).build());
+    }
+}
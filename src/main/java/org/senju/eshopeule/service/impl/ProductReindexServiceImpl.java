@@ -0,0 +1,365 @@
+package org.senju.eshopeule.service.impl;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.senju.eshopeule.dto.ReindexProgressDTO;
+import org.senju.eshopeule.exceptions.ProductException;
+import org.senju.eshopeule.model.outbox.OutboxEvent;
+import org.senju.eshopeule.model.outbox.OutboxEventType;
+import org.senju.eshopeule.model.product.ProductESDoc;
+import org.senju.eshopeule.repository.jpa.OutboxEventRepository;
+import org.senju.eshopeule.repository.redis.JobLeaseRepository;
+import org.senju.eshopeule.service.CatalogCascadeService;
+import org.senju.eshopeule.service.ProductIndexingService;
+import org.senju.eshopeule.service.ProductReindexService;
+import org.senju.eshopeule.service.SearchResultCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.IndexOperations;
+import org.springframework.data.elasticsearch.core.index.AliasAction;
+import org.springframework.data.elasticsearch.core.index.AliasActionParameters;
+import org.springframework.data.elasticsearch.core.index.AliasActions;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
+import org.springframework.data.elasticsearch.core.query.IndexQuery;
+import org.springframework.data.elasticsearch.core.query.IndexQueryBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rebuilds the products index without downtime. A full run streams every product into a new
+ * versioned index, swaps the {@code products} alias onto it in one request and then catches
+ * up on products changed while it was running. An incremental run re-indexes products changed
+ * since the last watermark into the index behind the alias. Changes are found by the
+ * modification time of products and their popularity, and by the outbox events of product,
+ * brand and category changes, so the watermark must be younger than the outbox retention.
+ * One job runs at a time across all nodes, under a Redis lease extended with every batch.
+ */
+@Service
+public class ProductReindexServiceImpl implements ProductReindexService {
+
+    private static final String NAMESPACE = "org.senju.mybatis.ProductIndexXmlMapper";
+    private static final String ALIAS = "products";
+    private static final String VERSIONED_INDEX_PATTERN = ALIAS + "_v*";
+    private static final String WATERMARK_KEY = "product_reindex:watermark";
+    private static final Duration WATERMARK_SKEW = Duration.ofMinutes(1);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+    private static final String JOB_NAME = "product_reindex";
+    private static final Duration LEASE_TTL = Duration.ofMinutes(5);
+    private static final Set<OutboxEventType> CASCADE_DELETE_TYPES = Set.of(
+            OutboxEventType.BRAND_DELETED, OutboxEventType.CATEGORY_DELETED);
+    private static final Logger logger = LoggerFactory.getLogger(ProductReindexServiceImpl.class);
+
+    private final SqlSession sqlSession;
+    private final ElasticsearchOperations esOperations;
+    private final ProductIndexingService productIndexingService;
+    private final CatalogCascadeService catalogCascadeService;
+    private final SearchResultCacheService searchResultCacheService;
+    private final OutboxEventRepository outboxEventRepository;
+    private final StringRedisTemplate redisTemplate;
+    private final JobLeaseRepository jobLeaseRepository;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor();
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicLong indexedCount = new AtomicLong();
+    private volatile ReindexProgressDTO progress = ReindexProgressDTO.builder().status("IDLE").build();
+
+    @Value("${product-reindex.batch-size}")
+    private int batchSize;
+
+    @Value("${product-reindex.workers}")
+    private int workers;
+
+    @Value("${outbox.retention.processed}")
+    private long outboxRetentionInHours;
+
+    public ProductReindexServiceImpl(SqlSession sqlSession,
+                                     ElasticsearchOperations esOperations,
+                                     ProductIndexingService productIndexingService,
+                                     CatalogCascadeService catalogCascadeService,
+                                     SearchResultCacheService searchResultCacheService,
+                                     OutboxEventRepository outboxEventRepository,
+                                     StringRedisTemplate redisTemplate,
+                                     JobLeaseRepository jobLeaseRepository,
+                                     PlatformTransactionManager transactionManager) {
+        this.sqlSession = sqlSession;
+        this.esOperations = esOperations;
+        this.productIndexingService = productIndexingService;
+        this.catalogCascadeService = catalogCascadeService;
+        this.searchResultCacheService = searchResultCacheService;
+        this.outboxEventRepository = outboxEventRepository;
+        this.redisTemplate = redisTemplate;
+        this.jobLeaseRepository = jobLeaseRepository;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public ReindexProgressDTO startFullReindex() {
+        return this.start("FULL", this::runFullReindex);
+    }
+
+    @Override
+    public ReindexProgressDTO startIncrementalReindex() {
+        return this.start("INCREMENTAL", this::runIncrementalReindex);
+    }
+
+    /**
+     * Interrupts a running job, a full run stops its dual writes on the way out.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        coordinator.shutdownNow();
+        if (!coordinator.awaitTermination(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+            logger.warn("Reindex job did not stop within {}", SHUTDOWN_TIMEOUT);
+        }
+    }
+
+    @Override
+    public ReindexProgressDTO getProgress() {
+        final ReindexProgressDTO current = this.progress;
+        if (!"RUNNING".equals(current.getStatus())) return current;
+        return ReindexProgressDTO.builder()
+                .mode(current.getMode())
+                .status(current.getStatus())
+                .targetIndex(current.getTargetIndex())
+                .indexedCount(indexedCount.get())
+                .docsPerSecond(this.getThroughput(current.getStartedOn(), LocalDateTime.now()))
+                .startedOn(current.getStartedOn())
+                .build();
+    }
+
+    private ReindexProgressDTO start(String mode, Runnable job) {
+        if (!jobLeaseRepository.tryAcquire(JOB_NAME, nodeId, LEASE_TTL)) {
+            throw new ProductException("A reindex job is already running");
+        }
+        indexedCount.set(0);
+        this.progress = ReindexProgressDTO.builder()
+                .mode(mode)
+                .status("RUNNING")
+                .startedOn(LocalDateTime.now())
+                .build();
+        try {
+            coordinator.execute(() -> {
+                try {
+                    job.run();
+                    this.finish("COMPLETED", null);
+                } catch (RuntimeException ex) {
+                    logger.error("Reindex job failed: {}", ex.getMessage(), ex);
+                    this.finish("FAILED", ex.getMessage());
+                } finally {
+                    jobLeaseRepository.release(JOB_NAME, nodeId);
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            jobLeaseRepository.release(JOB_NAME, nodeId);
+            throw new ProductException("Reindex jobs are no longer accepted, the node is shutting down");
+        }
+        return this.getProgress();
+    }
+
+    private void finish(String status, String error) {
+        final ReindexProgressDTO current = this.progress;
+        final LocalDateTime finishedOn = LocalDateTime.now();
+        this.progress = ReindexProgressDTO.builder()
+                .mode(current.getMode())
+                .status(status)
+                .targetIndex(current.getTargetIndex())
+                .indexedCount(indexedCount.get())
+                .docsPerSecond(this.getThroughput(current.getStartedOn(), finishedOn))
+                .startedOn(current.getStartedOn())
+                .finishedOn(finishedOn)
+                .error(error)
+                .build();
+        logger.info("Reindex job {} with {} documents", status, indexedCount.get());
+    }
+
+    private void runFullReindex() {
+        final LocalDateTime startedOn = LocalDateTime.now();
+        final String newIndex = ALIAS + "_v" + startedOn.format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        this.progress.setTargetIndex(newIndex);
+
+        final IndexOperations newIndexOps = esOperations.indexOps(IndexCoordinates.of(newIndex));
+        newIndexOps.create(newIndexOps.createSettings(ProductESDoc.class), newIndexOps.createMapping(ProductESDoc.class));
+
+        // Changes indexed while the copy is running go to both indices, the catch-up below
+        // covers the ones that raced with the copy of their row. Every batch keeps the dual
+        // writes and the lease alive.
+        productIndexingService.startDualWrite(newIndex);
+        try {
+            this.streamInto(null, IndexCoordinates.of(newIndex), () -> {
+                this.extendLease();
+                productIndexingService.startDualWrite(newIndex);
+            });
+            newIndexOps.refresh();
+            this.extendLease();
+            this.swapAlias(newIndex);
+            searchResultCacheService.invalidate();
+        } finally {
+            productIndexingService.stopDualWrite();
+        }
+        this.catchUp(startedOn.minus(WATERMARK_SKEW));
+        this.saveWatermark(startedOn);
+        searchResultCacheService.invalidate();
+    }
+
+    private void runIncrementalReindex() {
+        final LocalDateTime startedOn = LocalDateTime.now();
+        final String watermark = redisTemplate.opsForValue().get(WATERMARK_KEY);
+        if (watermark == null) {
+            throw new ProductException("No reindex watermark found, run a full reindex first");
+        }
+        final LocalDateTime changedSince = LocalDateTime.parse(watermark).minus(WATERMARK_SKEW);
+        if (changedSince.isBefore(startedOn.minusHours(outboxRetentionInHours))) {
+            throw new ProductException("Reindex watermark is older than the outbox retention, run a full reindex");
+        }
+        this.progress.setTargetIndex(ALIAS);
+        this.catchUp(changedSince);
+        this.saveWatermark(startedOn);
+        searchResultCacheService.invalidate();
+    }
+
+    /**
+     * Re-indexes the products changed since the given time into the index behind the alias.
+     * Products that lost a deleted brand or category no longer link to it, so those deletes
+     * are cascaded again through the index instead.
+     */
+    private void catchUp(LocalDateTime changedSince) {
+        this.streamInto(changedSince, IndexCoordinates.of(ALIAS), this::extendLease);
+        // Makes the copied documents visible before the result cache is invalidated.
+        esOperations.indexOps(IndexCoordinates.of(ALIAS)).refresh();
+        for (OutboxEvent event : outboxEventRepository
+                .findByTypeInAndCreatedOnGreaterThanEqualOrderByCreatedOn(CASCADE_DELETE_TYPES, changedSince)) {
+            try {
+                catalogCascadeService.submit(event.getType(), event.getAggregateId(), event.getPayload());
+            } catch (ProductException ex) {
+                logger.warn("Skipped cascade of outbox event {}: {}", event.getId(), ex.getMessage());
+            }
+        }
+    }
+
+    private void streamInto(LocalDateTime modifiedSince, IndexCoordinates target, Runnable onBatch) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put("modifiedSince", modifiedSince);
+
+        final ExecutorService bulkWorkers = Executors.newFixedThreadPool(workers);
+        final Semaphore inFlightBatches = new Semaphore(workers * 2);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        try {
+            readOnlyTransactionTemplate.executeWithoutResult(status -> {
+                try (Cursor<ProductESDoc> cursor = sqlSession.selectCursor(NAMESPACE + ".streamProductIndexDocuments", params)) {
+                    List<ProductESDoc> batch = new ArrayList<>(batchSize);
+                    for (ProductESDoc doc : cursor) {
+                        batch.add(doc);
+                        if (batch.size() == batchSize) {
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new ProductException("Reindex job was interrupted");
+                            }
+                            onBatch.run();
+                            this.submit(batch, target, bulkWorkers, inFlightBatches, failure);
+                            batch = new ArrayList<>(batchSize);
+                        }
+                    }
+                    if (!batch.isEmpty()) this.submit(batch, target, bulkWorkers, inFlightBatches, failure);
+                } catch (IOException ex) {
+                    throw new ProductException(ex.getMessage(), ex);
+                }
+            });
+            inFlightBatches.acquireUninterruptibly(workers * 2);
+        } finally {
+            bulkWorkers.shutdown();
+        }
+        if (failure.get() != null) throw failure.get();
+    }
+
+    private void submit(List<ProductESDoc> batch, IndexCoordinates target, ExecutorService bulkWorkers,
+                        Semaphore inFlightBatches, AtomicReference<RuntimeException> failure) {
+        if (failure.get() != null) throw failure.get();
+        // Bounds the number of batches held in memory to twice the number of workers.
+        inFlightBatches.acquireUninterruptibly();
+        bulkWorkers.execute(() -> {
+            try {
+                final List<IndexQuery> queries = batch.stream()
+                        .map(doc -> {
+                            doc.setId(doc.getProductId());
+                            return new IndexQueryBuilder()
+                                    .withId(doc.getId())
+                                    .withObject(doc)
+                                    .build();
+                        })
+                        .toList();
+                esOperations.bulkIndex(queries, target);
+                indexedCount.addAndGet(batch.size());
+            } catch (RuntimeException ex) {
+                failure.compareAndSet(null, ex);
+            } finally {
+                inFlightBatches.release();
+            }
+        });
+    }
+
+    private void swapAlias(String newIndex) {
+        final IndexOperations aliasOps = esOperations.indexOps(IndexCoordinates.of(ALIAS));
+        final Set<String> previousIndices = new HashSet<>(aliasOps.getAliasesForIndex(VERSIONED_INDEX_PATTERN).keySet());
+        previousIndices.remove(newIndex);
+
+        final List<AliasAction> actions = new ArrayList<>();
+        actions.add(new AliasAction.Add(AliasActionParameters.builder()
+                .withIndices(newIndex)
+                .withAliases(ALIAS)
+                .withIsWriteIndex(true)
+                .build()));
+        if (!previousIndices.isEmpty()) {
+            actions.add(new AliasAction.Remove(AliasActionParameters.builder()
+                    .withIndices(previousIndices.toArray(new String[0]))
+                    .withAliases(ALIAS)
+                    .build()));
+        } else if (aliasOps.exists()) {
+            // The first run replaces the concrete index that was created before the alias existed.
+            actions.add(new AliasAction.RemoveIndex(AliasActionParameters.builder()
+                    .withIndices(ALIAS)
+                    .build()));
+        }
+        aliasOps.alias(new AliasActions(actions.toArray(new AliasAction[0])));
+
+        previousIndices.forEach(index -> esOperations.indexOps(IndexCoordinates.of(index)).delete());
+    }
+
+    /**
+     * Stops the job once the lease lapsed, another node may have started a job meanwhile.
+     */
+    private void extendLease() {
+        if (!jobLeaseRepository.extend(JOB_NAME, nodeId, LEASE_TTL)) {
+            throw new ProductException("Lost the reindex lease, another job may be running");
+        }
+    }
+
+    private void saveWatermark(LocalDateTime watermark) {
+        this.extendLease();
+        redisTemplate.opsForValue().set(WATERMARK_KEY, watermark.toString());
+    }
+
+    private Double getThroughput(LocalDateTime startedOn, LocalDateTime endedOn) {
+        final long elapsedMillis = Duration.between(startedOn, endedOn).toMillis();
+        if (elapsedMillis <= 0) return 0.0;
+        return indexedCount.get() * 1000.0 / elapsedMillis;
+    }
+}
@@ -1,41 +1,87 @@
 package org.senju.eshopeule.service.impl;
 
 import co.elastic.clients.elasticsearch._types.SortOrder;
-import co.elastic.clients.elasticsearch._types.aggregations.MultiBucketBase;
-import co.elastic.clients.elasticsearch._types.aggregations.StringTermsAggregate;
-import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregation;
 import co.elastic.clients.elasticsearch._types.query_dsl.BoolQuery;
+import co.elastic.clients.elasticsearch._types.query_dsl.FieldValueFactorModifier;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionBoostMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.FunctionScoreMode;
+import co.elastic.clients.elasticsearch._types.query_dsl.Query;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.elasticsearch.common.unit.Fuzziness;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
 import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.dto.RangeFacetDTO;
+import org.senju.eshopeule.dto.SearchFacetsDTO;
+import org.senju.eshopeule.dto.TermFacetDTO;
 import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.dto.response.ProductSearchSliceResponse;
 import org.senju.eshopeule.exceptions.PagingException;
 import org.senju.eshopeule.mappers.ProductSearchMapper;
 import org.senju.eshopeule.model.product.ProductESDoc;
+import org.senju.eshopeule.service.SearchResultCacheService;
 import org.senju.eshopeule.service.SearchingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
-import org.springframework.data.elasticsearch.client.elc.Aggregation;
 import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregation;
+import org.springframework.data.elasticsearch.client.elc.ElasticsearchAggregations;
 import org.springframework.data.elasticsearch.client.elc.NativeQuery;
 import org.springframework.data.elasticsearch.client.elc.NativeQueryBuilder;
 import org.springframework.data.elasticsearch.core.*;
+import org.springframework.data.elasticsearch.core.mapping.IndexCoordinates;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
 public class ProductSearchingService implements SearchingService {
 
+    private static final String INDEX_NAME = "products";
+    private static final String SEARCH_TIMER = "search.queries";
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchingService.class);
+
     private final ProductSearchMapper mapper;
     private final ElasticsearchOperations esOperations;
+    private final ObjectMapper objectMapper;
+    private final SearchResultCacheService searchResultCacheService;
+    private final MeterRegistry meterRegistry;
     private static final Map<String, String> sortablePropertiesMap;
 
+    @Value("${search.cursor.keep-alive}")
+    private Duration cursorKeepAlive;
+
+    @Value("${search.facet.size}")
+    private int facetSize;
+
+    @Value("${search.facet.price-buckets}")
+    private int priceBuckets;
+
+    @Value("${search.popularity.ordered-quantity-factor}")
+    private double orderedQuantityFactor;
+
+    @Value("${search.popularity.view-count-factor}")
+    private double viewCountFactor;
+
+    @Value("${search.popularity.average-rating-factor}")
+    private double averageRatingFactor;
+
     static {
         sortablePropertiesMap = Map.of(
                 "price", ProductElasticSearchField.PRICE_FIELD,
@@ -45,38 +91,24 @@ public class ProductSearchingService implements SearchingService {
 
     @Override
     public ProductSearchResultResponse search(String keyword, String brandName, List<String> categoryNames,
-                                            Double minPrice, Double maxPrice, Pageable pageRequest) {
-        NativeQueryBuilder nativeQueryBuilder = NativeQuery.builder()
-                .withAggregation("brands", co.elastic.clients.elasticsearch._types.aggregations.Aggregation.of(a -> a
-                        .terms(te -> te.field(ProductElasticSearchField.BRAND_FIELD + ".keyword"))))
-                .withAggregation("categories", co.elastic.clients.elasticsearch._types.aggregations.Aggregation.of(a -> a
-                        .terms(te -> te.field(ProductElasticSearchField.CATEGORIES_FIELD))))
-                .withQuery(q -> q
-                        .bool(b -> b
-                                .must(mu -> mu
-                                        .match(ma -> ma
-                                                .field(ProductElasticSearchField.NAME_FIELD)
-                                                .query(keyword)
-                                                .fuzziness(Fuzziness.TWO.asString())
-                                                .prefixLength(2)
-                                                .maxExpansions(50)
-                                        )
-                                )
-                        )
-                )
-                .withFilter(f -> f
-                        .bool(b -> {
-                            extractedList(brandName != null ? List.of(brandName) : new ArrayList<>(), ProductElasticSearchField.BRAND_FIELD, b);
-                            extractedList(categoryNames, ProductElasticSearchField.CATEGORIES_FIELD, b);
-                            extractedRange(minPrice, maxPrice, ProductElasticSearchField.PRICE_FIELD, b);
-                            return b;
-                        })
-                )
-                .withPageable(PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize()));
+                                            Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                            SearchRanking ranking, Pageable pageRequest) {
+        // Facets only describe the whole result set, so later pages never compute them.
+        final Set<SearchFacet> pageFacets = pageRequest.getPageNumber() == 0 ? facets : Set.of();
+        return searchResultCacheService.get(keyword, brandName, categoryNames, minPrice, maxPrice, pageFacets, ranking, pageRequest,
+                () -> this.searchWithPage(keyword, brandName, categoryNames, minPrice, maxPrice, pageFacets, ranking, pageRequest));
+    }
 
+    private ProductSearchResultResponse searchWithPage(String keyword, String brandName, List<String> categoryNames,
+                                                       Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                                       SearchRanking ranking, Pageable pageRequest) {
+        NativeQueryBuilder nativeQueryBuilder = this.buildSearchQuery(keyword, brandName, categoryNames, minPrice, maxPrice, ranking)
+                .withPageable(PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize()));
+        this.withFacets(facets, nativeQueryBuilder);
         this.mappingSortField(pageRequest.getSort(), nativeQueryBuilder);
 
-        SearchHits<ProductESDoc> searchHitRes = esOperations.search(nativeQueryBuilder.build(), ProductESDoc.class);
+        SearchHits<ProductESDoc> searchHitRes = meterRegistry.timer(SEARCH_TIMER, "ranking", ranking.getRankingName(), "mode", "page")
+                .record(() -> esOperations.search(nativeQueryBuilder.build(), ProductESDoc.class));
         SearchPage<ProductESDoc> searchResPage = SearchHitSupport.searchPageFor(searchHitRes, nativeQueryBuilder.getPageable());
         List<ProductSimpleDTO> productResList = searchResPage.getSearchHits().stream()
                 .map(sh -> mapper.convertToDTO(sh.getContent()))
@@ -89,8 +121,162 @@ public class ProductSearchingService implements SearchingService {
                 searchResPage.getSize(),
                 searchResPage.isLast(),
                 productResList,
-                getAggregation(searchHitRes)
+                this.getFacets(facets, searchHitRes)
+        );
+    }
+
+    @Override
+    public ProductSearchSliceResponse searchWithCursor(String keyword, String brandName, List<String> categoryNames,
+                                                       Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                                       SearchRanking ranking, String cursor, Pageable pageRequest) {
+        final boolean firstPage = cursor == null || cursor.isBlank();
+        final SearchCursor searchCursor = firstPage
+                ? new SearchCursor(esOperations.openPointInTime(IndexCoordinates.of(INDEX_NAME), cursorKeepAlive), null)
+                : this.decodeSearchCursor(cursor);
+
+        // A point in time opened for this request is closed if the first page fails before a cursor hands it out.
+        try {
+            // One extra hit tells whether there is a next page without tracking total hits.
+            NativeQueryBuilder nativeQueryBuilder = this.buildSearchQuery(keyword, brandName, categoryNames, minPrice, maxPrice, ranking)
+                    .withPointInTime(new org.springframework.data.elasticsearch.core.query.Query.PointInTime(searchCursor.pit(), cursorKeepAlive))
+                    .withMaxResults(pageRequest.getPageSize() + 1)
+                    .withTrackTotalHits(false);
+            if (firstPage) this.withFacets(facets, nativeQueryBuilder);
+            else nativeQueryBuilder.withSearchAfter(searchCursor.after());
+            this.mappingSortField(pageRequest.getSort(), nativeQueryBuilder);
+            if (pageRequest.getSort().isUnsorted()) nativeQueryBuilder.withSort(sb -> sb.score(sc -> sc.order(SortOrder.Desc)));
+            nativeQueryBuilder.withSort(sb -> sb.field(fsb -> fsb.field(ProductElasticSearchField.PRODUCT_ID_FIELD).order(SortOrder.Asc)));
+
+            SearchHits<ProductESDoc> searchHitRes;
+            try {
+                searchHitRes = meterRegistry.timer(SEARCH_TIMER, "ranking", ranking.getRankingName(), "mode", "cursor")
+                        .record(() -> esOperations.search(nativeQueryBuilder.build(), ProductESDoc.class));
+            } catch (DataAccessException ex) {
+                logger.debug("Search with cursor failed: {}", ex.getMessage());
+                throw new PagingException("Cursor is invalid or expired");
+            }
+
+            final List<SearchHit<ProductESDoc>> hits = searchHitRes.getSearchHits();
+            final boolean hasNext = hits.size() > pageRequest.getPageSize();
+            final List<SearchHit<ProductESDoc>> pageHits = hasNext ? hits.subList(0, pageRequest.getPageSize()) : hits;
+            final String pitId = searchHitRes.getPointInTimeId() != null ? searchHitRes.getPointInTimeId() : searchCursor.pit();
+
+            String nextCursor = null;
+            if (hasNext) {
+                nextCursor = this.encodeSearchCursor(new SearchCursor(pitId, pageHits.getLast().getSortValues()));
+            } else {
+                esOperations.closePointInTime(pitId);
+            }
+
+            return new ProductSearchSliceResponse(
+                    nextCursor,
+                    pageRequest.getPageSize(),
+                    hasNext,
+                    pageHits.stream().map(sh -> mapper.convertToDTO(sh.getContent())).toList(),
+                    firstPage ? this.getFacets(facets, searchHitRes) : null
+            );
+        } catch (RuntimeException ex) {
+            if (firstPage) this.closePointInTimeQuietly(searchCursor.pit());
+            throw ex;
+        }
+    }
+
+    private void closePointInTimeQuietly(String pitId) {
+        try {
+            esOperations.closePointInTime(pitId);
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to close point in time: {}", ex.getMessage());
+        }
+    }
+
+    private NativeQueryBuilder buildSearchQuery(String keyword, String brandName, List<String> categoryNames,
+                                                Double minPrice, Double maxPrice, SearchRanking ranking) {
+        final Query textQuery = Query.of(q -> q
+                .bool(b -> b
+                        .must(mu -> mu
+                                .match(ma -> ma
+                                        .field(ProductElasticSearchField.NAME_FIELD)
+                                        .query(keyword)
+                                        .fuzziness(Fuzziness.TWO.asString())
+                                        .prefixLength(2)
+                                        .maxExpansions(50)
+                                )
+                        )
+                )
         );
+        return NativeQuery.builder()
+                .withQuery(ranking == SearchRanking.POPULARITY ? this.boostByPopularity(textQuery) : textQuery)
+                .withFilter(f -> f
+                        .bool(b -> {
+                            extractedList(brandName != null ? List.of(brandName) : new ArrayList<>(), ProductElasticSearchField.BRAND_FIELD, b);
+                            extractedList(categoryNames, ProductElasticSearchField.CATEGORIES_FIELD, b);
+                            extractedRange(minPrice, maxPrice, ProductElasticSearchField.PRICE_FIELD, b);
+                            return b;
+                        })
+                );
+    }
+
+    /**
+     * Adds log-dampened sales and views plus the average rating to the text score, so popular
+     * products rank higher without drowning out the text match.
+     */
+    private Query boostByPopularity(Query textQuery) {
+        return Query.of(q -> q
+                .functionScore(fs -> fs
+                        .query(textQuery)
+                        .functions(f -> f.fieldValueFactor(fv -> fv
+                                .field(ProductElasticSearchField.ORDERED_QUANTITY_FIELD)
+                                .modifier(FieldValueFactorModifier.Log1p)
+                                .factor(orderedQuantityFactor)
+                                .missing(0.0)))
+                        .functions(f -> f.fieldValueFactor(fv -> fv
+                                .field(ProductElasticSearchField.VIEW_COUNT_FIELD)
+                                .modifier(FieldValueFactorModifier.Log1p)
+                                .factor(viewCountFactor)
+                                .missing(0.0)))
+                        .functions(f -> f.fieldValueFactor(fv -> fv
+                                .field(ProductElasticSearchField.AVERAGE_RATING_FIELD)
+                                .factor(averageRatingFactor)
+                                .missing(0.0)))
+                        .scoreMode(FunctionScoreMode.Sum)
+                        .boostMode(FunctionBoostMode.Sum)
+                )
+        );
+    }
+
+    private void withFacets(Set<SearchFacet> facets, NativeQueryBuilder builder) {
+        for (SearchFacet facet : facets) {
+            switch (facet) {
+                case BRAND -> builder.withAggregation(facet.getFacetName(), Aggregation.of(a -> a
+                        .terms(te -> te.field(ProductElasticSearchField.BRAND_FIELD).size(facetSize))));
+                case CATEGORY -> builder.withAggregation(facet.getFacetName(), Aggregation.of(a -> a
+                        .terms(te -> te.field(ProductElasticSearchField.CATEGORIES_FIELD).size(facetSize))));
+                case PRICE -> builder.withAggregation(facet.getFacetName(), Aggregation.of(a -> a
+                        .variableWidthHistogram(h -> h.field(ProductElasticSearchField.PRICE_FIELD).buckets(priceBuckets))));
+                case DISCOUNTED_PRICE -> builder.withAggregation(facet.getFacetName(), Aggregation.of(a -> a
+                        .variableWidthHistogram(h -> h.field(ProductElasticSearchField.DISCOUNTED_PRICE_FIELD).buckets(priceBuckets))));
+            }
+        }
+    }
+
+    private String encodeSearchCursor(SearchCursor searchCursor) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(objectMapper.writeValueAsBytes(searchCursor));
+        } catch (JsonProcessingException ex) {
+            throw new PagingException("Cursor could not be created");
+        }
+    }
+
+    private SearchCursor decodeSearchCursor(String cursor) {
+        try {
+            SearchCursor searchCursor = objectMapper.readValue(Base64.getUrlDecoder().decode(cursor), SearchCursor.class);
+            if (searchCursor.pit() == null || searchCursor.after() == null || searchCursor.after().isEmpty()) {
+                throw new PagingException("Cursor is invalid");
+            }
+            return searchCursor;
+        } catch (IllegalArgumentException | IOException ex) {
+            throw new PagingException("Cursor is invalid");
+        }
     }
 
     private void extractedList(List<String> inputSearchList, String documentField, BoolQuery.Builder b) {
@@ -118,28 +304,36 @@ public class ProductSearchingService implements SearchingService {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private Map<String, Map<String, Long>> getAggregation(SearchHits<ProductESDoc> searchResult) {
-        if (searchResult.hasAggregations() && searchResult.getAggregations() != null) {
-            List<Aggregation> aggregations = ((List<ElasticsearchAggregation>) searchResult.getAggregations().aggregations())
-                    .stream()
-                    .map(ElasticsearchAggregation::aggregation)
-                    .toList();
-            return aggregations.stream().collect(Collectors.toMap(
-                    Aggregation::getName,
-                    agg -> {
-                        StringTermsAggregate stringTermsAggregate = (StringTermsAggregate) agg.getAggregate()._get();
-                        List<StringTermsBucket> stringTermsBuckets = (List<StringTermsBucket>) stringTermsAggregate.buckets()._get();
-                        return stringTermsBuckets.stream().collect(Collectors.toMap(
-                                bucket -> bucket.key()._get().toString(),
-                                MultiBucketBase::docCount
-                        ));
-                    }
-            ));
+    private SearchFacetsDTO getFacets(Set<SearchFacet> facets, SearchHits<ProductESDoc> searchResult) {
+        if (facets.isEmpty() || !(searchResult.getAggregations() instanceof ElasticsearchAggregations aggregations)) return null;
+        final SearchFacetsDTO.SearchFacetsDTOBuilder builder = SearchFacetsDTO.builder();
+        for (SearchFacet facet : facets) {
+            final ElasticsearchAggregation aggregation = aggregations.get(facet.getFacetName());
+            if (aggregation == null) continue;
+            final Aggregate aggregate = aggregation.aggregation().getAggregate();
+            switch (facet) {
+                case BRAND -> builder.brands(this.toTermFacets(aggregate));
+                case CATEGORY -> builder.categories(this.toTermFacets(aggregate));
+                case PRICE -> builder.prices(this.toRangeFacets(aggregate));
+                case DISCOUNTED_PRICE -> builder.discountedPrices(this.toRangeFacets(aggregate));
+            }
         }
-        return null;
+        return builder.build();
+    }
+
+    private List<TermFacetDTO> toTermFacets(Aggregate aggregate) {
+        if (!aggregate.isSterms()) return List.of();
+        return aggregate.sterms().buckets().array().stream()
+                .map(bucket -> new TermFacetDTO(bucket.key().stringValue(), bucket.docCount()))
+                .toList();
     }
 
+    private List<RangeFacetDTO> toRangeFacets(Aggregate aggregate) {
+        if (!aggregate.isVariableWidthHistogram()) return List.of();
+        return aggregate.variableWidthHistogram().buckets().array().stream()
+                .map(bucket -> new RangeFacetDTO(bucket.min(), bucket.max(), bucket.docCount()))
+                .toList();
+    }
 
     private void mappingSortField(Sort sort, NativeQueryBuilder builder) {
         sort.forEach(
@@ -161,6 +355,17 @@ public class ProductSearchingService implements SearchingService {
         private static final String CATEGORIES_FIELD = "categories";
         private static final String BRAND_FIELD = "brand";
         private static final String PRICE_FIELD = "price";
+        private static final String DISCOUNTED_PRICE_FIELD = "discountedPrice";
+        private static final String ORDERED_QUANTITY_FIELD = "orderedQuantity";
+        private static final String VIEW_COUNT_FIELD = "viewCount";
+        private static final String AVERAGE_RATING_FIELD = "averageRating";
         private static final String LAST_MODIFIED_FIELD = "lastModifiedOn";
+        private static final String PRODUCT_ID_FIELD = "productId";
     }
+
+    /**
+     * Opaque state of a search_after cursor: the point in time to search and the sort values of
+     * the last hit returned.
+     */
+    private record SearchCursor(String pit, List<Object> after) { }
 }
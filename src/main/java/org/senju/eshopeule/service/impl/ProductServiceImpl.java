@@ -1,28 +1,46 @@
 package org.senju.eshopeule.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.apache.ibatis.session.SqlSession;
 import org.senju.eshopeule.dto.*;
 import org.senju.eshopeule.dto.response.ProductPagingResponse;
+import org.senju.eshopeule.dto.response.ProductSliceResponse;
 import org.senju.eshopeule.exceptions.NotFoundException;
 import org.senju.eshopeule.exceptions.ObjectAlreadyExistsException;
+import org.senju.eshopeule.exceptions.PagingException;
 import org.senju.eshopeule.exceptions.ProductException;
 import org.senju.eshopeule.mappers.*;
 import org.senju.eshopeule.model.product.*;
 import org.senju.eshopeule.repository.jpa.*;
 import org.senju.eshopeule.repository.mongodb.ProductMetaRepository;
+import org.senju.eshopeule.repository.projection.ProductCardRow;
+import org.senju.eshopeule.repository.projection.ProductSummaryView;
 import org.senju.eshopeule.repository.projection.SimpleProdAttrView;
 import org.senju.eshopeule.service.ImageService;
 import org.senju.eshopeule.service.ProductService;
-import org.senju.eshopeule.service.ProductSyncDataService;
+import org.senju.eshopeule.service.OutboxService;
+import org.senju.eshopeule.service.ProductCacheService;
+import org.senju.eshopeule.service.ProductDetailViewService;
+import org.senju.eshopeule.service.ProductPopularityService;
+import org.senju.eshopeule.utils.PaginationUtil;
+import org.senju.eshopeule.utils.PaginationUtil.SortKeysetCursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -30,12 +48,25 @@ import java.util.stream.Collectors;
 import static org.senju.eshopeule.constant.exceptionMessage.BrandExceptionMsg.BRAND_NOT_FOUND_WITH_ID_MSG;
 import static org.senju.eshopeule.constant.exceptionMessage.CategoryExceptionMsg.CATEGORY_NOT_FOUND_MSG;
 import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.*;
 
 @Service
 @Transactional
 @RequiredArgsConstructor
 public class ProductServiceImpl implements ProductService {
 
+    private static final String NAMESPACE = "org.senju.mybatis.ProductXmlMapper";
+    private static final Logger logger = LoggerFactory.getLogger(ProductServiceImpl.class);
+
+    // Sort fields of both the paged and the keyset listings. Only non-null columns, a keyset
+    // seek past a null sort value would skip rows.
+    private static final Map<String, SortKey> SORT_KEYS = Map.of(
+            "name", new SortKey("name", "VARCHAR"),
+            "price", new SortKey("price", "DOUBLE PRECISION"),
+            "createdOn", new SortKey("created_on", "TIMESTAMP"),
+            "lastModifiedOn", new SortKey("last_modified_on", "TIMESTAMP")
+    );
+
     private final ProductRepository productRepository;
     private final ProductAttributeRepository attributeRepository;
     private final ProductImageRepository prodImgRepository;
@@ -44,64 +75,68 @@ public class ProductServiceImpl implements ProductService {
     private final ImageService imageService;
     private final CategoryRepository categoryRepository;
     private final BrandRepository brandRepository;
-    private final ProductSyncDataService productSyncDataService;
+    private final OutboxService outboxService;
+    private final ProductPopularityService productPopularityService;
+    private final ProductCacheService productCacheService;
+    private final ProductDetailViewService productDetailViewService;
+    private final SqlSession sqlSession;
+    private final ObjectMapper objectMapper;
+
 
     private final ProductMetaMapper prodMetaMapper;
     private final ProductSimpleMapper prodSimpleMapper;
-    private final ProductPubMapper prodPubMapper;
-    private final ProductDetailMapper prodDetailMapper;
     private final ProductPostMapper prodPostMapper;
     private final ProductPutMapper prodPutMapper;
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO getProductById(String id) {
-        return prodPubMapper.convertToDTO(productRepository.findById(id).orElseThrow(
-                () -> new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, id))
-        ));
+        ProductPubDTO product = productCacheService.getById(id);
+        productPopularityService.recordView(product.getId());
+        return product;
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO getProductDetailById(String id) {
-        return prodDetailMapper.convertToDTO(productRepository.findById(id).orElseThrow(
-                () -> new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, id))
-        ));
+        return productDetailViewService.getDetailById(id);
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO getProductBySlug(String productSlug) {
-        return prodPubMapper.convertToDTO(productRepository.findBySlug(productSlug).orElseThrow(
-                () -> new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_SLUG_MSG, productSlug))
-        ));
+        ProductPubDTO product = productCacheService.getBySlug(productSlug);
+        productPopularityService.recordView(product.getId());
+        return product;
     }
 
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public ProductDTO getProductDetailBySlug(String productSlug) {
-        return prodDetailMapper.convertToDTO(productRepository.findBySlug(productSlug).orElseThrow(
-                () -> new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_SLUG_MSG, productSlug))
-        ));
+        return productDetailViewService.getDetailBySlug(productSlug);
     }
 
     @Override
     public ProductPagingResponse getAllProductByBrandId(String brandId, Pageable pageRequest) {
-        return getProductPaging(productRepository.findAllByBrandId(brandId, pageRequest), prodSimpleMapper);
+        return getProductPaging(productRepository.getSummariesByBrandId(brandId, toListingPageRequest(pageRequest)));
     }
 
     @Override
     public ProductPagingResponse getAllProductByBrandSlug(String brandSlug, Pageable pageRequest) {
-        return getProductPaging(productRepository.findAllByBrandSlug(brandSlug, pageRequest), prodSimpleMapper);
+        return getProductPaging(productRepository.getSummariesByBrandSlug(brandSlug, toListingPageRequest(pageRequest)));
     }
 
     @Override
     public ProductPagingResponse getAllProductByCategoryId(String categoryId, Pageable pageRequest) {
-        return getProductPaging(productRepository.findAllByCategoryId(categoryId, pageRequest), prodSimpleMapper);
+        return getProductPaging(productRepository.getSummariesByCategoryId(categoryId, toListingPageRequest(pageRequest)));
     }
 
     @Override
     public ProductPagingResponse getAllProductByCategorySlug(String categorySlug, Pageable pageRequest) {
-        return getProductPaging(productRepository.findAllByCategorySlug(categorySlug, pageRequest), prodSimpleMapper);
+        return getProductPaging(productRepository.getSummariesByCategorySlug(categorySlug, toListingPageRequest(pageRequest)));
     }
 
-    private ProductPagingResponse getProductPaging(Page<Product> productPage, ProductMapper<? extends ProductDTO> mapper) {
+    private ProductPagingResponse getProductPaging(Page<ProductSummaryView> productPage) {
         return new ProductPagingResponse(
                 productPage.getTotalElements(),
                 productPage.getTotalPages(),
@@ -109,10 +144,117 @@ public class ProductServiceImpl implements ProductService {
                 productPage.getPageable().getPageSize(),
                 productPage.isLast(),
                 productPage.getContent().stream()
-                        .map(mapper::convertToDTO)
+                        .map(prodSimpleMapper::convertToDTO)
                         .toList());
     }
 
+    /**
+     * Listings are native queries, so their sort fields are translated to the columns of the
+     * products table. The id breaks ties, otherwise rows with equal values may move between pages.
+     */
+    private Pageable toListingPageRequest(Pageable pageRequest) {
+        final List<Sort.Order> orders = new ArrayList<>();
+        for (Sort.Order order : pageRequest.getSort()) {
+            final SortKey sortKey = SORT_KEYS.get(order.getProperty());
+            if (sortKey == null) {
+                throw new PagingException(String.format("Sort field %s is not supported", order.getProperty()));
+            }
+            orders.add(new Sort.Order(order.getDirection(), sortKey.column()));
+        }
+        orders.add(Sort.Order.asc("id"));
+        return PageRequest.of(pageRequest.getPageNumber(), pageRequest.getPageSize(), Sort.by(orders));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductSliceResponse getProductSliceByBrandId(String brandId, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal) {
+        return getProductSlice("brandId", brandId, cursor, pageSize, sortField, sortDirection, withApproximateTotal);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductSliceResponse getProductSliceByBrandSlug(String brandSlug, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal) {
+        return getProductSlice("brandSlug", brandSlug, cursor, pageSize, sortField, sortDirection, withApproximateTotal);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductSliceResponse getProductSliceByCategoryId(String categoryId, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal) {
+        return getProductSlice("categoryId", categoryId, cursor, pageSize, sortField, sortDirection, withApproximateTotal);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ProductSliceResponse getProductSliceByCategorySlug(String categorySlug, String cursor, int pageSize, String sortField, String sortDirection, boolean withApproximateTotal) {
+        return getProductSlice("categorySlug", categorySlug, cursor, pageSize, sortField, sortDirection, withApproximateTotal);
+    }
+
+    /**
+     * Seeks past the (sort value, id) of the cursor instead of skipping rows with an offset, so
+     * every page costs the same however deep it is. The cursor carries its sort key and is
+     * rejected when the request asks for a different one.
+     */
+    private ProductSliceResponse getProductSlice(String filterKey, String filterValue, String cursor, int pageSize,
+                                                 String sortField, String sortDirection, boolean withApproximateTotal) {
+        PaginationUtil.checkValidPageSize(pageSize);
+        final SortKey sortKey = SORT_KEYS.get(sortField);
+        if (sortKey == null) {
+            throw new PagingException(String.format("Sort field %s is not supported", sortField));
+        }
+        if (!Sort.Direction.ASC.name().equalsIgnoreCase(sortDirection) && !Sort.Direction.DESC.name().equalsIgnoreCase(sortDirection)) {
+            throw new PagingException("Sort direction is invalid");
+        }
+        final boolean ascending = Sort.Direction.ASC.name().equalsIgnoreCase(sortDirection);
+
+        final Map<String, Object> params = new HashMap<>();
+        params.put(filterKey, filterValue);
+        params.put("sortColumn", sortKey.column());
+        params.put("sortType", sortKey.type());
+        params.put("sortDirection", ascending ? "ASC" : "DESC");
+        params.put("comparator", ascending ? ">" : "<");
+        params.put("limit", pageSize + 1);
+        if (cursor != null && !cursor.isBlank()) {
+            final SortKeysetCursor keysetCursor = PaginationUtil.decodeSortCursor(cursor);
+            if (!keysetCursor.sortField().equals(sortField) || !keysetCursor.sortDirection().equalsIgnoreCase(sortDirection)) {
+                throw new PagingException("Cursor does not match the requested sort");
+            }
+            params.put("afterValue", keysetCursor.sortValue());
+            params.put("afterId", keysetCursor.id());
+        }
+
+        final List<ProductCardRow> rows = sqlSession.selectList(NAMESPACE + ".getProductCardSlice", params);
+        final boolean hasNext = rows.size() > pageSize;
+        final List<ProductCardRow> content = hasNext ? rows.subList(0, pageSize) : rows;
+        final ProductCardRow last = content.isEmpty() ? null : content.getLast();
+        return new ProductSliceResponse(
+                hasNext && last != null ? PaginationUtil.encodeCursor(sortField, sortDirection, last.getSortValue(), last.getId()) : null,
+                pageSize,
+                hasNext,
+                content.stream()
+                        .map(prodSimpleMapper::convertToDTO)
+                        .toList(),
+                withApproximateTotal ? this.estimateProductCount(filterKey, filterValue) : null
+        );
+    }
+
+    /**
+     * Reads the row estimate of the planner for the listing filter instead of counting it, which
+     * is good enough for "about N products" and does not grow with the size of the listing.
+     */
+    private Long estimateProductCount(String filterKey, String filterValue) {
+        final Map<String, Object> params = new HashMap<>();
+        params.put(filterKey, filterValue);
+        try {
+            final String plan = sqlSession.selectOne(NAMESPACE + ".explainProductCardCount", params);
+            return objectMapper.readTree(plan).path(0).path("Plan").path("Plan Rows").asLong();
+        } catch (JsonProcessingException | RuntimeException ex) {
+            logger.debug("Failed to estimate product count of {} {}: {}", filterKey, filterValue, ex.getMessage());
+            return null;
+        }
+    }
+
+    private record SortKey(String column, String type) { }
+
     @Override
     public ProductDTO createNewProduct(ProductPostDTO dto, MultipartFile[] images) {
         if (productRepository.checkExistsWithSlug(dto.getSlug())) {
@@ -135,7 +277,7 @@ public class ProductServiceImpl implements ProductService {
         this.createProductMeta(dto, newProduct.getId());
         this.createProductImages(images, newProduct);
 
-        productSyncDataService.syncData(newProduct);
+        outboxService.publish(PRODUCT_CREATED, newProduct.getId());
         return prodSimpleMapper.convertToDTO(newProduct);
     }
 
@@ -233,14 +375,31 @@ public class ProductServiceImpl implements ProductService {
             }
         }
         prodPutMapper.updateProductFromDTO(dto, loadedProduct);
+        this.updateProductQuantity(loadedProduct, dto);
         this.updateProductBrand(loadedProduct, dto);
         this.updateProductCategories(loadedProduct, dto);
         loadedProduct = productRepository.save(loadedProduct);
 
-        productSyncDataService.syncData(loadedProduct);
+        outboxService.publish(PRODUCT_UPDATED, loadedProduct.getId());
         return prodSimpleMapper.convertToDTO(loadedProduct);
     }
 
+    /**
+     * Quantity is not written by saving the product, a concurrent reservation would be undone by
+     * the stale value. It is set with a statement that keeps it at or above the reserved stock.
+     * Hot items sell from the Redis counters loaded when they were enabled, their quantity is
+     * locked until they are disabled again.
+     */
+    private void updateProductQuantity(Product loadedProduct, ProductPutDTO dto) {
+        if (dto.getQuantity() == null) return;
+        if (productRepository.updateQuantityById(loadedProduct.getId(), dto.getQuantity()) == 0) {
+            throw new ProductException(String.format(
+                    productRepository.checkHotItem(loadedProduct.getId()) ? PRODUCT_HOT_ITEM_QUANTITY_LOCKED_MSG : PRODUCT_QUANTITY_BELOW_RESERVED_MSG,
+                    loadedProduct.getId()));
+        }
+        loadedProduct.setQuantity(dto.getQuantity());
+    }
+
     private void updateProductBrand(Product loadedProduct, ProductPutDTO dto) {
         if (dto.getBrandId() == null) return;
         if (dto.getBrandId().isBlank()) {
@@ -288,5 +447,6 @@ public class ProductServiceImpl implements ProductService {
         loadedProduct.setIsPublished(false);
         loadedProduct.setIsAllowedToOrder(false);
         productRepository.save(loadedProduct);
+        outboxService.publish(PRODUCT_DELETED, productId);
     }
 }
@@ -0,0 +1,361 @@
+package org.senju.eshopeule.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.senju.eshopeule.dto.CartDTO;
+import org.senju.eshopeule.dto.CartItemDTO;
+import org.senju.eshopeule.dto.CartOperationDTO;
+import org.senju.eshopeule.dto.ProductOptionDTO;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.exceptions.CartException;
+import org.senju.eshopeule.exceptions.NotFoundException;
+import org.senju.eshopeule.mappers.AssociationBatchLoader;
+import org.senju.eshopeule.model.cart.Cart;
+import org.senju.eshopeule.model.cart.CartItem;
+import org.senju.eshopeule.model.cart.CartStatus;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.product.ProductOption;
+import org.senju.eshopeule.repository.jpa.*;
+import org.senju.eshopeule.repository.projection.CartItemView;
+import org.senju.eshopeule.repository.redis.ActiveCartRepository;
+import org.senju.eshopeule.repository.redis.ActiveCartRepository.ItemChange;
+import org.senju.eshopeule.service.CartService;
+import org.senju.eshopeule.service.HotStockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.senju.eshopeule.constant.exceptionMessage.CartExceptionMsg.*;
+import static org.senju.eshopeule.constant.exceptionMessage.CustomerExceptionMsg.CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG;
+import static org.senju.eshopeule.constant.exceptionMessage.OrderExceptionMsg.NOT_ALLOWED_TO_ORDER;
+import static org.senju.eshopeule.constant.exceptionMessage.ProductExceptionMsg.*;
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.OPTION_SUMMARY;
+import static org.senju.eshopeule.mappers.AssociationBatchLoader.Association.PRODUCT_SUMMARY;
+import static org.senju.eshopeule.repository.redis.ActiveCartRepository.*;
+
+/**
+ * Keeps active carts in Redis and writes them behind to the database. Cart changes only touch
+ * the cached cart, the validation rules of products come from a short lived on-heap cache while
+ * the stock of hot items is read live. Changed carts are flushed by a scheduler, or right away
+ * when an order is created from them.
+ * <p>
+ * A flush replaces all items of the persisted cart with the snapshot in one transaction, so a
+ * flush repeated after a crash writes the same cart again. Snapshots carry the version of the
+ * cached cart, the database keeps the highest version written and ignores older ones, so a slow
+ * flush on one node never overwrites a newer one from another. The cart is marked as flushed
+ * only after the commit and only if it did not change meanwhile.
+ */
+@Service
+@ConditionalOnProperty(name = "cart.store", havingValue = "redis")
+public class RedisCartServiceImpl implements CartService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisCartServiceImpl.class);
+
+    private final ActiveCartRepository activeCartRepository;
+    private final AssociationBatchLoader associationBatchLoader;
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final CustomerRepository customerRepository;
+    private final ProductRepository productRepository;
+    private final ProductOptionRepository optionRepository;
+    private final HotStockService hotStockService;
+    private final CartOperationValidator cartOperationValidator;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Cache<String, ProductCartRule> productRules;
+    private final Cache<String, Boolean> existingOptions;
+
+    private final Timer flushTimer;
+    private final Counter flushedCounter;
+    private final Counter failedCounter;
+
+    @Value("${cart.redis.flush-batch-size}")
+    private int flushBatchSize;
+
+    public RedisCartServiceImpl(ActiveCartRepository activeCartRepository,
+                                AssociationBatchLoader associationBatchLoader,
+                                CartRepository cartRepository,
+                                CartItemRepository cartItemRepository,
+                                CustomerRepository customerRepository,
+                                ProductRepository productRepository,
+                                ProductOptionRepository optionRepository,
+                                HotStockService hotStockService,
+                                CartOperationValidator cartOperationValidator,
+                                PlatformTransactionManager transactionManager,
+                                MeterRegistry meterRegistry,
+                                @Value("${cart.redis.validation-ttl}") long validationTtlInSeconds) {
+        this.activeCartRepository = activeCartRepository;
+        this.associationBatchLoader = associationBatchLoader;
+        this.cartRepository = cartRepository;
+        this.cartItemRepository = cartItemRepository;
+        this.customerRepository = customerRepository;
+        this.productRepository = productRepository;
+        this.optionRepository = optionRepository;
+        this.hotStockService = hotStockService;
+        this.cartOperationValidator = cartOperationValidator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.productRules = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(validationTtlInSeconds, TimeUnit.SECONDS)
+                .build();
+        this.existingOptions = Caffeine.newBuilder()
+                .maximumSize(10_000)
+                .expireAfterWrite(validationTtlInSeconds, TimeUnit.SECONDS)
+                .build();
+        this.flushTimer = meterRegistry.timer("cart.flush");
+        this.flushedCounter = meterRegistry.counter("cart.flush.carts", "result", "flushed");
+        this.failedCounter = meterRegistry.counter("cart.flush.carts", "result", "failed");
+    }
+
+    @Override
+    public CartDTO getCartOfCurrentUser() {
+        final Map<String, String> cart = this.getOrLoad(this.getCurrentUsername());
+        return associationBatchLoader.assemble(() -> this.convertToDTO(cart));
+    }
+
+    @Override
+    public CartDTO addToCart(CartItemDTO itemDTO) {
+        if (itemDTO.getProduct() == null || itemDTO.getProduct().getId() == null || itemDTO.getProduct().getId().isBlank()) {
+            throw new NotFoundException(PRODUCT_NOT_FOUND_MSG);
+        }
+        final String productId = itemDTO.getProduct().getId();
+        final ProductCartRule rule = this.getProductRule(productId);
+        if (rule == null) throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, productId));
+        if (!rule.orderable()) throw new CartException(String.format(NOT_ALLOWED_TO_ORDER, productId));
+
+        String optionId = null;
+        if (rule.hasOptions()) {
+            if (itemDTO.getOption() == null || itemDTO.getOption().getId() == null || itemDTO.getOption().getId().isBlank()) {
+                throw new NotFoundException(PROD_OPTION_NOT_FOUND_MSG);
+            }
+            optionId = itemDTO.getOption().getId();
+            if (!existingOptions.get(optionId, optionRepository::existsById)) {
+                throw new NotFoundException(String.format(PROD_OPTION_NOT_FOUND_WITH_ID_MSG, optionId));
+            }
+        }
+
+        final Long hotAvailableQuantity = hotStockService.getAvailableQuantity(productId);
+        final long availableQuantity = hotAvailableQuantity != null ? hotAvailableQuantity : rule.availableQuantity();
+        if (itemDTO.getQuantity() > availableQuantity) {
+            throw new CartException(QUANTITY_EXCEEDED_MSG);
+        }
+
+        final String username = this.getCurrentUsername();
+        long result = activeCartRepository.addQuantity(username, productId, optionId, itemDTO.getQuantity(), availableQuantity);
+        if (result == MISSING) {
+            this.getOrLoad(username);
+            result = activeCartRepository.addQuantity(username, productId, optionId, itemDTO.getQuantity(), availableQuantity);
+        }
+        if (result == EXCEEDED) throw new CartException(QUANTITY_EXCEEDED_MSG);
+        return this.getCartOfCurrentUser();
+    }
+
+    @Override
+    public CartDTO applyOperations(List<CartOperationDTO> operations) {
+        final List<ItemChange> changes = cartOperationValidator.validate(operations).stream()
+                .map(operation -> new ItemChange(operation.type(), operation.productId(), operation.optionId(),
+                        operation.quantity(), operation.maxQuantity()))
+                .toList();
+        final String username = this.getCurrentUsername();
+        long result = activeCartRepository.applyChanges(username, changes);
+        if (result == MISSING) {
+            this.getOrLoad(username);
+            result = activeCartRepository.applyChanges(username, changes);
+        }
+        if (result == EXCEEDED) throw new CartException(QUANTITY_EXCEEDED_MSG);
+        return this.getCartOfCurrentUser();
+    }
+
+    @Override
+    public void deleteCartItemByProductId(String productId) {
+        if (this.getProductRule(productId) == null) {
+            throw new NotFoundException(String.format(PRODUCT_NOT_FOUND_WITH_ID_MSG, productId));
+        }
+        final String username = this.getCurrentUsername();
+        if (activeCartRepository.removeItemsOfProduct(username, productId) == MISSING) {
+            this.getOrLoad(username);
+            activeCartRepository.removeItemsOfProduct(username, productId);
+        }
+    }
+
+    @Override
+    public void deleteCartItemByOptionId(String optionId) {
+        if (!existingOptions.get(optionId, optionRepository::existsById)) {
+            throw new NotFoundException(String.format(PROD_OPTION_NOT_FOUND_WITH_ID_MSG, optionId));
+        }
+        final String username = this.getCurrentUsername();
+        if (activeCartRepository.removeItemsOfOption(username, optionId) == MISSING) {
+            this.getOrLoad(username);
+            activeCartRepository.removeItemsOfOption(username, optionId);
+        }
+    }
+
+    @Override
+    public void flushActiveCart(String username) {
+        if (activeCartRepository.isDirty(username)) this.flush(username);
+    }
+
+    @Override
+    public void clearActiveCart(String username) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            activeCartRepository.delete(username);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activeCartRepository.delete(username);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${cart.redis.flush-interval}")
+    public void flushChangedCarts() {
+        final List<String> usernames = activeCartRepository.getDirtyUsernames(System.currentTimeMillis(), flushBatchSize);
+        for (String username : usernames) {
+            try {
+                flushTimer.record(() -> this.flush(username));
+                flushedCounter.increment();
+            } catch (RuntimeException ex) {
+                failedCounter.increment();
+                logger.warn("Failed to flush cart of {}: {}", username, ex.getMessage());
+            }
+        }
+    }
+
+    private void flush(String username) {
+        final Map<String, String> snapshot = activeCartRepository.get(username);
+        if (snapshot.isEmpty()) {
+            // Expired or checked out meanwhile, only the mark is left.
+            activeCartRepository.acknowledgeFlush(username, "", null);
+            return;
+        }
+        final String version = snapshot.getOrDefault(VERSION_FIELD, "0");
+        final String cartId = transactionTemplate.execute(status -> this.persist(username, snapshot, Long.parseLong(version)));
+        activeCartRepository.acknowledgeFlush(username, version, cartId);
+    }
+
+    /**
+     * Replaces the items of the persisted cart with the snapshot unless the cart already holds the
+     * same or a newer version.
+     *
+     * @return the id of the persisted cart
+     */
+    private String persist(String username, Map<String, String> snapshot, long version) {
+        String cartId = snapshot.get(CART_ID_FIELD);
+        if (cartId == null || !cartRepository.checkActiveById(cartId)) {
+            cartId = cartRepository.getOrCreateActiveCartIdByUsername(username).orElseThrow(
+                    () -> new NotFoundException(String.format(CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG, username))
+            );
+        }
+        if (cartRepository.advanceCacheVersion(cartId, version) == 0) {
+            logger.debug("Skip flush of cart {} at version {}, a newer one is persisted", cartId, version);
+            return cartId;
+        }
+        cartItemRepository.deleteByCartId(cartId);
+
+        final Cart cart = cartRepository.getReferenceById(cartId);
+
+        final List<CartItem> items = new ArrayList<>();
+        snapshot.forEach((field, quantity) -> {
+            if (!field.startsWith(ITEM_FIELD_PREFIX)) return;
+            final String[] ids = parseItemField(field);
+            items.add(CartItem.builder()
+                    .cart(cart)
+                    .product(Product.builder().id(ids[0]).build())
+                    .option(ids[1] != null ? ProductOption.builder().id(ids[1]).build() : null)
+                    .quantity(Integer.parseInt(quantity))
+                    .build());
+        });
+        cartItemRepository.saveAll(items);
+        return cart.getId();
+    }
+
+    private Map<String, String> getOrLoad(String username) {
+        final Map<String, String> cart = activeCartRepository.get(username);
+        if (!cart.isEmpty()) return cart;
+        activeCartRepository.loadIfAbsent(username, this.readPersistedCart(username));
+        return activeCartRepository.get(username);
+    }
+
+    private Map<String, String> readPersistedCart(String username) {
+        final List<Cart> activeCartList = cartRepository.getActiveCartByUsername(username);
+        if (activeCartList.size() > 1) throw new CartException(ONLY_ONE_ACTIVE_CART_MSG);
+
+        final Map<String, String> fields = new HashMap<>();
+        if (activeCartList.isEmpty()) {
+            final String customerId = customerRepository.findIdByUsername(username).orElseThrow(
+                    () -> new NotFoundException(String.format(CUSTOMER_NOT_FOUND_WITH_USERNAME_MSG, username))
+            );
+            fields.put(CUSTOMER_ID_FIELD, customerId);
+            fields.put(VERSION_FIELD, "0");
+            return fields;
+        }
+
+        final Cart cart = activeCartList.getFirst();
+        fields.put(CUSTOMER_ID_FIELD, cart.getCustomer().getId());
+        fields.put(CART_ID_FIELD, cart.getId());
+        fields.put(VERSION_FIELD, String.valueOf(cart.getCacheVersion() != null ? cart.getCacheVersion() : 0));
+        for (CartItemView item : cartItemRepository.getItemViewByCartId(cart.getId())) {
+            fields.merge(itemField(item.getProductId(), item.getOptionId()), String.valueOf(item.getItemQuantity()),
+                    (first, second) -> String.valueOf(Long.parseLong(first) + Long.parseLong(second)));
+        }
+        return fields;
+    }
+
+    private CartDTO convertToDTO(Map<String, String> cart) {
+        final List<CartItemDTO> items = new ArrayList<>();
+        cart.forEach((field, quantity) -> {
+            if (!field.startsWith(ITEM_FIELD_PREFIX)) return;
+            final String[] ids = parseItemField(field);
+            final CartItemDTO item = CartItemDTO.builder()
+                    .quantity(Integer.parseInt(quantity))
+                    .build();
+            AssociationBatchLoader.load(PRODUCT_SUMMARY, ids[0], item::setProduct,
+                    () -> ProductSimpleDTO.builder().id(ids[0]).build());
+            if (ids[1] != null) {
+                AssociationBatchLoader.load(OPTION_SUMMARY, ids[1], item::setOption,
+                        () -> ProductOptionDTO.builder().id(ids[1]).build());
+            }
+            items.add(item);
+        });
+        return CartDTO.builder()
+                .id(cart.get(CART_ID_FIELD))
+                .status(CartStatus.ACTIVE.name())
+                .customerId(cart.get(CUSTOMER_ID_FIELD))
+                .items(items)
+                .build();
+    }
+
+    private ProductCartRule getProductRule(String productId) {
+        return productRules.get(productId, id -> productRepository.getCartRuleById(id)
+                .map(view -> new ProductCartRule(
+                        Boolean.TRUE.equals(view.getOrderable()) && view.getAvailableQuantity() > 0,
+                        Boolean.TRUE.equals(view.getHasOptions()),
+                        view.getAvailableQuantity()))
+                .orElse(null));
+    }
+
+    private String getCurrentUsername() {
+        final String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        if (username == null || username.isBlank()) throw new CartException("Username is invalid");
+        return username;
+    }
+
+    private record ProductCartRule(boolean orderable, boolean hasOptions, long availableQuantity) {
+    }
+}
@@ -7,6 +7,7 @@ import org.senju.eshopeule.mappers.RoleMapper;
 import org.senju.eshopeule.model.user.Permission;
 import org.senju.eshopeule.model.user.Role;
 import org.senju.eshopeule.repository.jpa.RoleRepository;
+import org.senju.eshopeule.security.JwtSessionCache;
 import org.senju.eshopeule.service.RoleService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
@@ -26,6 +27,7 @@ import static org.senju.eshopeule.constant.exceptionMessage.RoleExceptionMsg.*;
 public class RoleServiceImpl implements RoleService {
     private final RoleRepository roleRepository;
     private final RoleMapper roleMapper;
+    private final JwtSessionCache sessionCache;
 
     @Override
     @Cacheable(value = "roleCache", key = "#id")
@@ -49,14 +51,16 @@ public class RoleServiceImpl implements RoleService {
                 () -> new NotFoundException(
                         String.format(ROLE_NOT_EXISTS_WITH_ID_MSG, dto.getId()))
         );
-        loadedRole = roleMapper.updateFromDto(dto, loadedRole);
-        return roleMapper.convertToDTO(roleRepository.save(roleMapper.updateFromDto(dto, loadedRole)));
+        loadedRole = roleRepository.save(roleMapper.updateFromDto(dto, loadedRole));
+        sessionCache.invalidateAll();
+        return roleMapper.convertToDTO(loadedRole);
     }
 
     @Override
     @CacheEvict(value = "roleCache", key = "#id")
     public void deleteById(String id) {
         roleRepository.deleteById(id);
+        sessionCache.invalidateAll();
     }
 
     @Override
@@ -0,0 +1,136 @@
+package org.senju.eshopeule.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.senju.eshopeule.constant.enums.LocalSearchMode;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.dto.response.ProductSearchSliceResponse;
+import org.senju.eshopeule.exceptions.PagingException;
+import org.senju.eshopeule.service.SearchingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Picks the search engine according to {@code search.local.mode}: Elasticsearch only, the local
+ * Lucene index only, or Elasticsearch with the local index as fallback. In fallback mode a failed
+ * Elasticsearch call is answered locally, and after enough consecutive failures the circuit opens
+ * and Elasticsearch is skipped until the open duration has passed. Cursors are tagged with the
+ * engine that issued them: a local cursor keeps paginating the local index, an Elasticsearch
+ * cursor that cannot be answered by Elasticsearch restarts pagination locally.
+ */
+@Primary
+@Service
+public class RoutingSearchingService implements SearchingService {
+
+    // Neither engine issues cursors containing a dot, they are url-safe base64.
+    private static final String ELASTICSEARCH_CURSOR_PREFIX = "es.";
+    private static final String LOCAL_CURSOR_PREFIX = "lc.";
+    private static final Logger logger = LoggerFactory.getLogger(RoutingSearchingService.class);
+
+    private final ProductSearchingService elasticsearchSearchingService;
+    private final LuceneSearchingService luceneSearchingService;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long circuitOpenUntil;
+
+    private final Counter fallbackCounter;
+
+    @Value("${search.local.mode}")
+    private LocalSearchMode mode;
+
+    @Value("${search.local.failure-threshold}")
+    private int failureThreshold;
+
+    @Value("${search.local.open-duration}")
+    private Duration openDuration;
+
+    public RoutingSearchingService(ProductSearchingService elasticsearchSearchingService,
+                                   LuceneSearchingService luceneSearchingService,
+                                   MeterRegistry meterRegistry) {
+        this.elasticsearchSearchingService = elasticsearchSearchingService;
+        this.luceneSearchingService = luceneSearchingService;
+        this.fallbackCounter = meterRegistry.counter("search.local.fallback");
+    }
+
+    @Override
+    public ProductSearchResultResponse search(String keyword, String brandName, List<String> categoryNames,
+                                              Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                              SearchRanking ranking, Pageable pageRequest) {
+        return this.route(
+                () -> elasticsearchSearchingService.search(keyword, brandName, categoryNames, minPrice, maxPrice, facets, ranking, pageRequest),
+                () -> luceneSearchingService.search(keyword, brandName, categoryNames, minPrice, maxPrice, facets, ranking, pageRequest)
+        );
+    }
+
+    @Override
+    public ProductSearchSliceResponse searchWithCursor(String keyword, String brandName, List<String> categoryNames,
+                                                       Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                                       SearchRanking ranking, String cursor, Pageable pageRequest) {
+        final boolean firstPage = cursor == null || cursor.isBlank();
+        if (!firstPage && cursor.startsWith(LOCAL_CURSOR_PREFIX)) {
+            if (mode == LocalSearchMode.OFF) throw new PagingException("Cursor is invalid");
+            return this.tagCursor(LOCAL_CURSOR_PREFIX, luceneSearchingService.searchWithCursor(
+                    keyword, brandName, categoryNames, minPrice, maxPrice, facets, ranking,
+                    cursor.substring(LOCAL_CURSOR_PREFIX.length()), pageRequest));
+        }
+        // Untagged cursors were issued by Elasticsearch before cursors were tagged.
+        final String elasticsearchCursor = firstPage ? null
+                : cursor.startsWith(ELASTICSEARCH_CURSOR_PREFIX) ? cursor.substring(ELASTICSEARCH_CURSOR_PREFIX.length()) : cursor;
+        return this.route(
+                () -> this.tagCursor(ELASTICSEARCH_CURSOR_PREFIX, elasticsearchSearchingService.searchWithCursor(
+                        keyword, brandName, categoryNames, minPrice, maxPrice, facets, ranking, elasticsearchCursor, pageRequest)),
+                // The local index cannot continue after Elasticsearch sort values, it starts over.
+                () -> this.tagCursor(LOCAL_CURSOR_PREFIX, luceneSearchingService.searchWithCursor(
+                        keyword, brandName, categoryNames, minPrice, maxPrice, facets, ranking, null, pageRequest))
+        );
+    }
+
+    private ProductSearchSliceResponse tagCursor(String prefix, ProductSearchSliceResponse slice) {
+        if (slice.getNextCursor() == null) return slice;
+        return new ProductSearchSliceResponse(
+                prefix + slice.getNextCursor(),
+                slice.getPageSize(),
+                slice.isHasNext(),
+                slice.getProducts(),
+                slice.getFacets()
+        );
+    }
+
+    private <T> T route(Supplier<T> elasticsearch, Supplier<T> local) {
+        if (mode == LocalSearchMode.OFF) return elasticsearch.get();
+        if (mode == LocalSearchMode.PRIMARY) return local.get();
+
+        if (System.currentTimeMillis() < circuitOpenUntil) {
+            fallbackCounter.increment();
+            return local.get();
+        }
+        try {
+            final T result = elasticsearch.get();
+            consecutiveFailures.set(0);
+            return result;
+        } catch (PagingException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+                circuitOpenUntil = System.currentTimeMillis() + openDuration.toMillis();
+                consecutiveFailures.set(0);
+                logger.warn("Elasticsearch search circuit opened for {}", openDuration);
+            }
+            logger.error("Elasticsearch search failed, answering from the local index: {}", ex.getMessage());
+            fallbackCounter.increment();
+            return local.get();
+        }
+    }
+}
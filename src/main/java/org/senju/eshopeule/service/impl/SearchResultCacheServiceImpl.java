@@ -0,0 +1,240 @@
+package org.senju.eshopeule.service.impl;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.model.SearchResultCacheEntry;
+import org.senju.eshopeule.repository.redis.SearchResultCacheRepository;
+import org.senju.eshopeule.service.SearchResultCacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Two tier cache of search result pages. Keys are built from the normalized query, so the order
+ * and case of filters do not matter, and are prefixed by a generation that the product sync path
+ * bumps once indexed documents are visible to searches. Nodes poll the generation, so a stale page outlives an
+ * index change by at most the poll interval on other nodes. Concurrent misses of one key on a
+ * node share a single search.
+ */
+@Service
+public class SearchResultCacheServiceImpl implements SearchResultCacheService {
+
+    private static final String GENERATION_KEY = "search_result:generation";
+    private static final char FIELD_SEPARATOR = '\u0001';
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultCacheServiceImpl.class);
+
+    private final SearchResultCacheRepository searchResultCacheRepository;
+    private final StringRedisTemplate redisTemplate;
+
+    private final Cache<String, NearCacheEntry> nearCache;
+    private final ConcurrentHashMap<String, CompletableFuture<ProductSearchResultResponse>> inFlight = new ConcurrentHashMap<>();
+    private volatile long generation;
+
+    private final Counter nearHitCounter;
+    private final Counter redisHitCounter;
+    private final Counter missCounter;
+
+    @Value("${search.cache.near-ttl}")
+    private long nearTtlInSeconds;
+
+    @Value("${search.cache.browse-ttl}")
+    private long browseTtlInSeconds;
+
+    @Value("${search.cache.keyword-ttl}")
+    private long keywordTtlInSeconds;
+
+    @Value("${search.cache.empty-ttl}")
+    private long emptyTtlInSeconds;
+
+    public SearchResultCacheServiceImpl(SearchResultCacheRepository searchResultCacheRepository,
+                                        StringRedisTemplate redisTemplate,
+                                        MeterRegistry meterRegistry,
+                                        @Value("${search.cache.near-max-size}") long nearMaxSize) {
+        this.searchResultCacheRepository = searchResultCacheRepository;
+        this.redisTemplate = redisTemplate;
+        // Entries expire after their own TTL, empty pages sooner than the others.
+        this.nearCache = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfter(Expiry.writing((String key, NearCacheEntry entry) -> Duration.ofSeconds(entry.ttlInSeconds())))
+                .build();
+        this.nearHitCounter = meterRegistry.counter("search.cache.requests", "result", "near_hit");
+        this.redisHitCounter = meterRegistry.counter("search.cache.requests", "result", "redis_hit");
+        this.missCounter = meterRegistry.counter("search.cache.requests", "result", "miss");
+    }
+
+    @Override
+    public ProductSearchResultResponse get(String keyword, String brandName, List<String> categoryNames,
+                                           Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                           SearchRanking ranking, Pageable pageRequest,
+                                           Supplier<ProductSearchResultResponse> loader) {
+        final String normalizedKeyword = normalize(keyword);
+        final String key = generation + ":" + hash(String.join(String.valueOf(FIELD_SEPARATOR),
+                normalizedKeyword,
+                normalize(brandName),
+                categoryNames == null ? "" : String.join(",", categoryNames.stream()
+                        .map(SearchResultCacheServiceImpl::normalize)
+                        .filter(name -> !name.isEmpty())
+                        .distinct()
+                        .sorted()
+                        .toList()),
+                String.valueOf(minPrice),
+                String.valueOf(maxPrice),
+                String.join(",", facets.stream().map(SearchFacet::getFacetName).sorted().toList()),
+                ranking.getRankingName(),
+                String.valueOf(pageRequest.getPageNumber()),
+                String.valueOf(pageRequest.getPageSize()),
+                pageRequest.getSort().toString()
+        ));
+
+        final ProductSearchResultResponse nearCached = this.getNearCached(key);
+        if (nearCached != null) {
+            nearHitCounter.increment();
+            return nearCached;
+        }
+
+        final CompletableFuture<ProductSearchResultResponse> loading = new CompletableFuture<>();
+        final CompletableFuture<ProductSearchResultResponse> existing = inFlight.putIfAbsent(key, loading);
+        if (existing != null) return join(existing);
+        try {
+            final ProductSearchResultResponse result = this.load(key, normalizedKeyword.isEmpty(), loader);
+            loading.complete(result);
+            return result;
+        } catch (RuntimeException ex) {
+            loading.completeExceptionally(ex);
+            throw ex;
+        } finally {
+            inFlight.remove(key, loading);
+        }
+    }
+
+    @Override
+    public void invalidate() {
+        try {
+            final Long nextGeneration = redisTemplate.opsForValue().increment(GENERATION_KEY);
+            if (nextGeneration != null) this.changeGeneration(nextGeneration);
+        } catch (RuntimeException ex) {
+            logger.error("Failed to invalidate search result cache: {}", ex.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${search.cache.generation-poll-interval}")
+    public void pollGeneration() {
+        try {
+            final String currentGeneration = redisTemplate.opsForValue().get(GENERATION_KEY);
+            if (currentGeneration != null) this.changeGeneration(Long.parseLong(currentGeneration));
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to read search result cache generation: {}", ex.getMessage());
+        }
+    }
+
+    private ProductSearchResultResponse load(String key, boolean browse, Supplier<ProductSearchResultResponse> loader) {
+        try {
+            final SearchResultCacheEntry cached = searchResultCacheRepository.getByKey(key);
+            if (cached != null) {
+                redisHitCounter.increment();
+                final ProductSearchResultResponse result = this.toResponse(cached);
+                this.putNearCached(key, result, nearTtlInSeconds);
+                return result;
+            }
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to read cached search result: {}", ex.getMessage());
+        }
+
+        missCounter.increment();
+        final ProductSearchResultResponse result = loader.get();
+        final long ttlInSeconds = result.getProducts() == null || result.getProducts().isEmpty()
+                ? emptyTtlInSeconds
+                : browse ? browseTtlInSeconds : keywordTtlInSeconds;
+        try {
+            searchResultCacheRepository.save(key, this.toCacheEntry(result), ttlInSeconds);
+        } catch (RuntimeException ex) {
+            logger.debug("Failed to cache search result: {}", ex.getMessage());
+        }
+        this.putNearCached(key, result, Math.min(nearTtlInSeconds, ttlInSeconds));
+        return result;
+    }
+
+    private ProductSearchResultResponse getNearCached(String key) {
+        final NearCacheEntry entry = nearCache.getIfPresent(key);
+        return entry != null ? entry.result() : null;
+    }
+
+    private void putNearCached(String key, ProductSearchResultResponse result, long ttlInSeconds) {
+        nearCache.put(key, new NearCacheEntry(result, ttlInSeconds));
+    }
+
+    private void changeGeneration(long nextGeneration) {
+        if (nextGeneration == generation) return;
+        this.generation = nextGeneration;
+        nearCache.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private SearchResultCacheEntry toCacheEntry(ProductSearchResultResponse response) {
+        return SearchResultCacheEntry.builder()
+                .totalElements(response.getTotalElements())
+                .totalPages(response.getTotalPages())
+                .pageNo(response.getPageNo())
+                .pageSize(response.getPageSize())
+                .last(response.getIsLast())
+                .products((List<ProductSimpleDTO>) response.getProducts())
+                .facets(response.getFacets())
+                .build();
+    }
+
+    private ProductSearchResultResponse toResponse(SearchResultCacheEntry entry) {
+        return new ProductSearchResultResponse(
+                entry.getTotalElements(),
+                entry.getTotalPages(),
+                entry.getPageNo(),
+                entry.getPageSize(),
+                entry.isLast(),
+                entry.getProducts(),
+                entry.getFacets()
+        );
+    }
+
+    private static ProductSearchResultResponse join(CompletableFuture<ProductSearchResultResponse> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            throw ex;
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null ? "" : value.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    private static String hash(String value) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private record NearCacheEntry(ProductSearchResultResponse result, long ttlInSeconds) { }
+}
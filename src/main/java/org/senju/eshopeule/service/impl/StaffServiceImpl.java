@@ -8,6 +8,7 @@ import org.senju.eshopeule.model.user.Role;
 import org.senju.eshopeule.model.user.User;
 import org.senju.eshopeule.repository.jpa.RoleRepository;
 import org.senju.eshopeule.repository.jpa.UserRepository;
+import org.senju.eshopeule.security.JwtSessionCache;
 import org.senju.eshopeule.service.StaffService;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
@@ -32,6 +33,7 @@ public class StaffServiceImpl implements StaffService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final StaffMapper staffMapper;
+    private final JwtSessionCache sessionCache;
 
     @Override
     public List<StaffDTO> getAllStaff() {
@@ -55,7 +57,10 @@ public class StaffServiceImpl implements StaffService {
     @Override
     @CacheEvict(value = "staffCache", key = "#id")
     public void deleteStaffWithId(String id) {
-        userRepository.deleteById(id);
+        userRepository.findById(id).ifPresent(user -> {
+            userRepository.delete(user);
+            sessionCache.invalidate(user.getUsername());
+        });
     }
 
     @Override
@@ -99,6 +104,7 @@ public class StaffServiceImpl implements StaffService {
         User loadedStaff = userRepository.findById(dto.getId()).orElseThrow(
                 () -> new NotFoundException(USER_NOT_EXISTS_MSG)
         );
+        final String previousUsername = loadedStaff.getUsername();
         loadedStaff = staffMapper.updateFromDTO(dto, loadedStaff);
 
         boolean isUserExisting = userRepository.checkUserExistsWithUsernameOrEmailExpectId(loadedStaff.getUsername(), loadedStaff.getEmail(), loadedStaff.getId());
@@ -108,6 +114,9 @@ public class StaffServiceImpl implements StaffService {
         if (!isRoleExisting) throw new NotFoundException(ROLE_NOT_EXISTS_MSG);
 
         if (dto.getPassword() != null) loadedStaff.setPassword(passwordEncoder.encode(dto.getPassword()));
-        return staffMapper.convertToDTO(userRepository.save(loadedStaff));
+        loadedStaff = userRepository.save(loadedStaff);
+        sessionCache.invalidate(previousUsername);
+        if (!previousUsername.equals(loadedStaff.getUsername())) sessionCache.invalidate(loadedStaff.getUsername());
+        return staffMapper.convertToDTO(loadedStaff);
     }
 }
@@ -0,0 +1,129 @@
+package org.senju.eshopeule.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.senju.eshopeule.exceptions.OrderException;
+import org.senju.eshopeule.model.order.*;
+import org.senju.eshopeule.repository.jpa.OrderRepository;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.jpa.StockReservationRepository;
+import org.senju.eshopeule.repository.jpa.TransactionRepository;
+import org.senju.eshopeule.repository.projection.ReservedQuantityView;
+import org.senju.eshopeule.service.HotStockService;
+import org.senju.eshopeule.service.OutboxService;
+import org.senju.eshopeule.service.StockReservationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.senju.eshopeule.constant.exceptionMessage.OrderExceptionMsg.OUT_OF_STOCK_MSG;
+import static org.senju.eshopeule.model.outbox.OutboxEventType.ORDER_CANCELLED;
+
+@Service
+@RequiredArgsConstructor
+public class StockReservationServiceImpl implements StockReservationService {
+
+    private final StockReservationRepository reservationRepository;
+    private final OrderRepository orderRepository;
+    private final TransactionRepository transactionRepository;
+    private final ProductRepository productRepository;
+    private final HotStockService hotStockService;
+    private final OutboxService outboxService;
+
+    @Value("${order.reservation.banking-expiration}")
+    private long bankingExpirationInSeconds;
+
+    @Value("${order.reservation.sweep-batch-size}")
+    private int sweepBatchSize;
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationServiceImpl.class);
+
+    @Override
+    @Transactional
+    public void reserve(Order order) {
+        final Map<String, Long> quantityByProductId = order.getItems().stream()
+                .collect(Collectors.groupingBy(i -> i.getProduct().getId(), Collectors.summingLong(OrderItem::getQuantity)));
+
+        final Set<String> hotProductIds = hotStockService.filterHotProductIds(quantityByProductId.keySet());
+        if (!hotProductIds.isEmpty()) {
+            if (productRepository.countOrderableHotItems(hotProductIds) != hotProductIds.size()
+                    || !hotStockService.acquire(quantityByProductId.entrySet().stream()
+                            .filter(e -> hotProductIds.contains(e.getKey()))
+                            .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)))) {
+                throw new OrderException(OUT_OF_STOCK_MSG);
+            }
+        }
+
+        if (reservationRepository.reserveStockByOrderId(order.getId()) != quantityByProductId.size() - hotProductIds.size()) {
+            throw new OrderException(OUT_OF_STOCK_MSG);
+        }
+
+        final LocalDateTime expiresOn = order.getTransaction().getType().equals(TransactionType.BANKING)
+                ? LocalDateTime.now().plusSeconds(bankingExpirationInSeconds)
+                : null;
+        reservationRepository.saveAll(order.getItems().stream()
+                .map(i -> StockReservation.builder()
+                        .order(order)
+                        .orderItem(i)
+                        .product(i.getProduct())
+                        .quantity(i.getQuantity())
+                        .expiresOn(expiresOn)
+                        .build())
+                .toList());
+    }
+
+    @Override
+    @Transactional
+    public void release(String orderId) {
+        this.giveBackHotStockAfterCommit(List.of(orderId));
+        reservationRepository.releaseByOrderIds(List.of(orderId), ReservationStatus.RELEASED.name());
+    }
+
+    @Override
+    @Transactional
+    public void commit(String orderId) {
+        reservationRepository.convertByOrderId(orderId);
+    }
+
+    @Override
+    @Transactional
+    @Scheduled(fixedDelayString = "${order.reservation.sweep-interval}")
+    public void releaseExpiredReservations() {
+        final List<String> expiredOrderIds = reservationRepository.findExpiredOrderIds(sweepBatchSize)
+                .stream()
+                .distinct()
+                .toList();
+        if (expiredOrderIds.isEmpty()) return;
+
+        this.giveBackHotStockAfterCommit(expiredOrderIds);
+        reservationRepository.releaseByOrderIds(expiredOrderIds, ReservationStatus.EXPIRED.name());
+        orderRepository.updateCancelledOrderWithIds(expiredOrderIds);
+        transactionRepository.updateCancelledTransactionWithOrderIds(expiredOrderIds);
+        outboxService.publish(ORDER_CANCELLED, expiredOrderIds);
+        logger.info("Released stock reservations of {} expired orders", expiredOrderIds.size());
+    }
+
+    private void giveBackHotStockAfterCommit(List<String> orderIds) {
+        final Map<String, Long> hotQuantityByProductId = reservationRepository.getHotReservedQuantityByOrderIds(orderIds)
+                .stream()
+                .collect(Collectors.toMap(ReservedQuantityView::getProductId, ReservedQuantityView::getQuantity));
+        if (hotQuantityByProductId.isEmpty()) return;
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hotStockService.giveBack(hotQuantityByProductId);
+            }
+        });
+    }
+}
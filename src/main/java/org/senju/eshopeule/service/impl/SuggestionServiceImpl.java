@@ -0,0 +1,181 @@
+package org.senju.eshopeule.service.impl;
+
+import co.elastic.clients.elasticsearch.core.search.Suggester;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.senju.eshopeule.model.product.ProductESDoc;
+import org.senju.eshopeule.repository.jpa.BrandRepository;
+import org.senju.eshopeule.repository.jpa.CategoryRepository;
+import org.senju.eshopeule.repository.jpa.ProductRepository;
+import org.senju.eshopeule.repository.projection.ProductNameView;
+import org.senju.eshopeule.service.SuggestionService;
+import org.senju.eshopeule.utils.PrefixIndex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.elasticsearch.client.elc.NativeQuery;
+import org.springframework.data.elasticsearch.core.ElasticsearchOperations;
+import org.springframework.data.elasticsearch.core.SearchHits;
+import org.springframework.data.elasticsearch.core.suggest.response.Suggest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Serves search-as-you-type suggestions from an in-process {@link PrefixIndex} over product,
+ * brand and category names. Each node refreshes its own index from the products modified since
+ * the previous refresh and only puts or removes the terms that changed. The Elasticsearch
+ * completion suggester is only asked when the index cannot fill the requested size.
+ */
+@Service
+public class SuggestionServiceImpl implements SuggestionService {
+
+    private static final String SUGGESTER_NAME = "product-suggest";
+    private static final String SUGGEST_FIELD = "suggest";
+    private static final Duration WATERMARK_SKEW = Duration.ofSeconds(5);
+    private static final int CATEGORY_WEIGHT = 3;
+    private static final int BRAND_WEIGHT = 2;
+    private static final int PRODUCT_WEIGHT = 1;
+    private static final Logger logger = LoggerFactory.getLogger(SuggestionServiceImpl.class);
+
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryRepository categoryRepository;
+    private final ElasticsearchOperations esOperations;
+
+    private final Map<String, String> publishedProductNames = new HashMap<>();
+    private Set<String> brandNames = Set.of();
+    private Set<String> categoryNames = Set.of();
+    private Map<String, Integer> indexedTermWeights = Map.of();
+    private LocalDateTime watermark;
+    private volatile PrefixIndex prefixIndex;
+
+    private final Timer suggestTimer;
+    private final Counter fallbackCounter;
+
+    @Value("${search.suggest.max-size}")
+    private int maxSize;
+
+    @Value("${search.suggest.fallback-min-length}")
+    private int fallbackMinLength;
+
+    public SuggestionServiceImpl(ProductRepository productRepository,
+                                 BrandRepository brandRepository,
+                                 CategoryRepository categoryRepository,
+                                 ElasticsearchOperations esOperations,
+                                 MeterRegistry meterRegistry) {
+        this.productRepository = productRepository;
+        this.brandRepository = brandRepository;
+        this.categoryRepository = categoryRepository;
+        this.esOperations = esOperations;
+        this.suggestTimer = Timer.builder("search.suggest")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        this.fallbackCounter = meterRegistry.counter("search.suggest.fallback");
+    }
+
+    @Override
+    public List<String> suggest(String prefix, int size) {
+        final long startedAt = System.nanoTime();
+        final int limit = Math.min(size, maxSize);
+        final PrefixIndex currentIndex = this.prefixIndex;
+        final List<String> suggestions = currentIndex != null
+                ? new ArrayList<>(currentIndex.suggest(prefix, limit))
+                : new ArrayList<>();
+
+        if (suggestions.size() < limit && PrefixIndex.normalize(prefix).length() >= fallbackMinLength) {
+            fallbackCounter.increment();
+            for (String suggestion : this.suggestFromElasticsearch(prefix, limit)) {
+                if (suggestions.size() == limit) break;
+                if (!suggestions.contains(suggestion)) suggestions.add(suggestion);
+            }
+        }
+        suggestTimer.record(Duration.ofNanos(System.nanoTime() - startedAt));
+        return suggestions;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${search.suggest.refresh-interval}")
+    public synchronized void refresh() {
+        final LocalDateTime startedOn = LocalDateTime.now();
+        try {
+            final List<ProductNameView> changedProducts = watermark == null
+                    ? productRepository.getAllProductNames()
+                    : productRepository.getProductNamesModifiedSince(watermark.minus(WATERMARK_SKEW));
+            for (ProductNameView product : changedProducts) {
+                if (Boolean.TRUE.equals(product.getIsPublished())) {
+                    publishedProductNames.put(product.getId(), product.getName());
+                } else {
+                    publishedProductNames.remove(product.getId());
+                }
+            }
+            this.brandNames = new HashSet<>(brandRepository.getAllBrandNames());
+            this.categoryNames = new HashSet<>(categoryRepository.getAllPublishedCategoryNames());
+            this.watermark = startedOn;
+
+            final Map<String, Integer> termWeights = this.getTermWeights();
+            if (prefixIndex == null) {
+                this.prefixIndex = PrefixIndex.build(termWeights, maxSize);
+                logger.debug("Built suggestion index with {} terms", termWeights.size());
+            } else {
+                int changedTerms = 0;
+                for (String term : indexedTermWeights.keySet()) {
+                    if (!termWeights.containsKey(term)) {
+                        prefixIndex.remove(term);
+                        changedTerms++;
+                    }
+                }
+                for (Map.Entry<String, Integer> entry : termWeights.entrySet()) {
+                    if (!entry.getValue().equals(indexedTermWeights.get(entry.getKey()))) {
+                        prefixIndex.put(entry.getKey(), entry.getValue());
+                        changedTerms++;
+                    }
+                }
+                if (changedTerms > 0) logger.debug("Updated {} of {} suggestion terms", changedTerms, termWeights.size());
+            }
+            this.indexedTermWeights = termWeights;
+        } catch (RuntimeException ex) {
+            logger.error("Refresh suggestion index failed: {}", ex.getMessage(), ex);
+        }
+    }
+
+    private Map<String, Integer> getTermWeights() {
+        final Map<String, Integer> termWeights = new HashMap<>();
+        publishedProductNames.values().forEach(name -> termWeights.merge(name, PRODUCT_WEIGHT, Math::max));
+        brandNames.forEach(name -> termWeights.merge(name, BRAND_WEIGHT, Math::max));
+        categoryNames.forEach(name -> termWeights.merge(name, CATEGORY_WEIGHT, Math::max));
+        return termWeights;
+    }
+
+    private List<String> suggestFromElasticsearch(String prefix, int size) {
+        try {
+            final NativeQuery query = NativeQuery.builder()
+                    .withSuggester(Suggester.of(s -> s
+                            .suggesters(SUGGESTER_NAME, fs -> fs
+                                    .prefix(prefix)
+                                    .completion(cs -> cs
+                                            .field(SUGGEST_FIELD)
+                                            .size(size)
+                                            .skipDuplicates(true)
+                                    )
+                            )
+                    ))
+                    .withMaxResults(0)
+                    .build();
+            final SearchHits<ProductESDoc> searchHits = esOperations.search(query, ProductESDoc.class);
+            final Suggest suggest = searchHits.getSuggest();
+            if (suggest == null || suggest.getSuggestion(SUGGESTER_NAME) == null) return List.of();
+            return suggest.getSuggestion(SUGGESTER_NAME).getEntries().stream()
+                    .flatMap(entry -> entry.getOptions().stream())
+                    .map(Suggest.Suggestion.Entry.Option::getText)
+                    .toList();
+        } catch (RuntimeException ex) {
+            logger.debug("Completion suggester failed: {}", ex.getMessage());
+            return List.of();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.senju.eshopeule.utils;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
@@ -16,8 +17,9 @@ import java.util.function.Function;
 
 @Component
 public class JwtUtil {
-    @Value("${security.jwt.secret-key}")
-    private String secretKey;
+    // Decoding the key and building the parser is costly, both are shared by all calls.
+    private final SecretKey signInKey;
+    private final JwtParser parser;
 
     @Value("${security.jwt.access-token.expiration}")
     private long accessTokenExpirationTime;
@@ -25,6 +27,13 @@ public class JwtUtil {
     @Value("${security.jwt.refresh-token.expiration}")
     private long refreshTokenExpirationTime;
 
+    public JwtUtil(@Value("${security.jwt.secret-key}") String secretKey) {
+        this.signInKey = Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.parser = Jwts.parser()
+                .verifyWith(signInKey)
+                .build();
+    }
+
     public String generateAccessToken(String username) {
         return this.buildToken(new HashMap<>(), username, accessTokenExpirationTime);
     }
@@ -67,12 +76,11 @@ public class JwtUtil {
         return extractClaims(token, Claims::getExpiration);
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSignInKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    /**
+     * Verifies the token and returns its claims, throws if the token is invalid or expired.
+     */
+    public Claims extractAllClaims(String token) {
+        return parser.parseSignedClaims(token).getPayload();
     }
 
     private String buildToken(Map<String, Object> extraClaims, String username, long expiration) {
@@ -82,12 +90,7 @@ public class JwtUtil {
                 .subject(username)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSignInKey(), Jwts.SIG.HS256)
+                .signWith(signInKey, Jwts.SIG.HS256)
                 .compact();
     }
-
-    private SecretKey getSignInKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secretKey);
-        return Keys.hmacShaKeyFor(keyBytes);
-    }
 }
@@ -16,6 +16,7 @@ public class MessageUtil {
             switch (contentType) {
                 case FORGOT_PASSWORD -> {return buildResetPasswordEmail(notification);}
                 case VERIFY_SIGNUP -> {return buildVerifySignUpEmail(notification);}
+                case ORDER_CREATED, ORDER_SHIPPING, ORDER_COMPLETED, ORDER_CANCELLED -> {return buildOrderStatusEmail(notification);}
             }
         } else if (sendMethodType.equals(SMS)) {
             switch (contentType) {
@@ -124,6 +125,33 @@ public class MessageUtil {
         return notification;
     }
 
+    private static NotificationDTO buildOrderStatusEmail(NotificationDTO notification) {
+        final String orderId = (String) notification.getMessageBody();
+        final String statusLine = switch (notification.getType().getContentType()) {
+            case ORDER_CREATED -> "We have received your order and are getting it ready.";
+            case ORDER_SHIPPING -> "Your order has left our warehouse and is on its way to you.";
+            case ORDER_COMPLETED -> "Your order has been delivered. Thank you for shopping with us.";
+            case ORDER_CANCELLED -> "Your order has been cancelled. Any payment made for it will be refunded.";
+            default -> "";
+        };
+        notification.setMessageBody(
+                "<div style=\"font-family: Arial, sans-serif; line-height: 1.6; color: #333; margin: 0; padding: 0; background-color: #f4f4f4; width: 100%; max-width: 600px; margin: 0 auto; background-color: #ffffff; padding: 20px; border: 1px solid #dddddd;\">\n" +
+                        "    <div style=\"text-align: center; padding-bottom: 20px;\">\n" +
+                        "        <h1 style=\"margin: 0;\">" + notification.getType().getContentType().getContentName() + "</h1>\n" +
+                        "    </div>\n" +
+                        "    <div style=\"margin-bottom: 20px;\">\n" +
+                        "        <p>" + statusLine + "</p>\n" +
+                        "        <p>Order number: <span style=\"font-weight: bold; color: #007bff;\">" + orderId + "</span></p>\n" +
+                        "        <p>Thank you,<br>The eShop27 Team</p>\n" +
+                        "    </div>\n" +
+                        "    <div style=\"text-align: center; font-size: 12px; color: #777; padding-top: 20px; border-top: 1px solid #dddddd;\">\n" +
+                        "        <p>If you need assistance, please contact our support team at <a href=\"mailto:eshop27test@gmail.com\" style=\"color: #007bff;\">eshop27test@gmail.com</a>.</p>\n" +
+                        "    </div>\n" +
+                        "</div>\n"
+        );
+        return notification;
+    }
+
     private static NotificationDTO buildVerifySignUpSMS(NotificationDTO notification) {
         notification.setMessageBody("Demo");
         return notification;
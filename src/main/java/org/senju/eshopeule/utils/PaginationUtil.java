@@ -6,10 +6,20 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.util.Assert;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.regex.Pattern;
 
 public class PaginationUtil {
 
+    private static final String CURSOR_SEPARATOR = "|";
+
+    // Cursor listings read one row past the page, the bound also keeps that from overflowing.
+    public static final int MAX_PAGE_SIZE = 100;
+
     public static Pageable findPaginated(int pageNo, int pageSize, String sortField, String sortDirection) {
         checkValidSortFieldAndSortDirection(sortField, sortDirection);
         Sort sortSpec = sortDirection.equalsIgnoreCase(Sort.DEFAULT_DIRECTION.name())
@@ -76,6 +86,54 @@ public class PaginationUtil {
         return pagingProperties;
     }
 
+    public static String encodeCursor(LocalDateTime createdOn, String id) {
+        final String cursor = createdOn.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) + CURSOR_SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decodeCursor(String cursor) {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final int separatorIdx = decoded.indexOf(CURSOR_SEPARATOR);
+            return new KeysetCursor(
+                    LocalDateTime.parse(decoded.substring(0, separatorIdx), DateTimeFormatter.ISO_LOCAL_DATE_TIME),
+                    decoded.substring(separatorIdx + 1)
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new PagingException("Cursor is invalid");
+        }
+    }
+
+    /**
+     * Encodes the position after a row of a listing sorted by an arbitrary key. The sort value
+     * goes last, as it is the only part that may contain the separator.
+     */
+    public static String encodeCursor(String sortField, String sortDirection, String sortValue, String id) {
+        final String cursor = String.join(CURSOR_SEPARATOR, sortField, sortDirection.toLowerCase(), id, sortValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SortKeysetCursor decodeSortCursor(String cursor) {
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final String[] parts = decoded.split(Pattern.quote(CURSOR_SEPARATOR), 4);
+            if (parts.length != 4) throw new PagingException("Cursor is invalid");
+            return new SortKeysetCursor(parts[0], parts[1], parts[3], parts[2]);
+        } catch (IllegalArgumentException ex) {
+            throw new PagingException("Cursor is invalid");
+        }
+    }
+
+    public static void checkValidPageSize(int pageSize) {
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            throw new PagingException(String.format("PageSize must be between 1 and %d", MAX_PAGE_SIZE));
+        }
+    }
+
+    public record KeysetCursor(LocalDateTime createdOn, String id) { }
+
+    public record SortKeysetCursor(String sortField, String sortDirection, String sortValue, String id) { }
+
     private static void checkValidSortFieldAndSortDirection(String sortField, String sortDirection) {
         Assert.hasText(sortField, "Sort field must not be null or blank");
         Assert.hasText(sortDirection, "Sort direction must not be null or blank");
@@ -0,0 +1,265 @@
+package org.senju.eshopeule.utils;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Prefix index over weighted terms, so "iph" matches "Apple iPhone 15". Every word of a term and
+ * every pair of adjacent words is inserted into a character trie, so memory grows linearly with
+ * the length of the terms. The node that ends a key lists the terms and positions it occurs at in
+ * rank order, and every node keeps the best terms of its subtree, so a prefix of up to two words
+ * is answered by walking its characters. For more words the terms of the rarest pair of whole
+ * words are compared with the prefix until enough of them match. Terms are added and removed in place; on
+ * removal only the nodes that ranked the term recompute their best terms, from their own terms
+ * and the best terms of their children.
+ */
+public final class PrefixIndex {
+
+    private static final Term[] NO_TERMS = new Term[0];
+
+    private final int maxSuggestions;
+    private final Node root = new Node();
+    private final Map<String, Term> terms = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public PrefixIndex(int maxSuggestions) {
+        this.maxSuggestions = maxSuggestions;
+    }
+
+    public static PrefixIndex build(Map<String, Integer> termWeights, int maxSuggestions) {
+        final PrefixIndex index = new PrefixIndex(maxSuggestions);
+        // Postings are appended and sorted once at the end instead of inserted in rank order.
+        termWeights.forEach((text, weight) -> {
+            final Term term = new Term(text, weight, normalize(text).split(" "));
+            index.terms.put(text, term);
+            index.link(term, false);
+        });
+        index.root.sortPostings();
+        return index;
+    }
+
+    public static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ");
+    }
+
+    /**
+     * Adds a term, or changes the weight of a term already in the index.
+     */
+    public void put(String text, int weight) {
+        lock.writeLock().lock();
+        try {
+            final Term existing = terms.get(text);
+            if (existing != null) {
+                if (existing.weight() == weight) return;
+                this.unlink(existing);
+            }
+            final Term term = new Term(text, weight, normalize(text).split(" "));
+            terms.put(text, term);
+            this.link(term, true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String text) {
+        lock.writeLock().lock();
+        try {
+            final Term term = terms.remove(text);
+            if (term != null) this.unlink(term);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<String> suggest(String prefix, int limit) {
+        final String normalizedPrefix = normalize(prefix);
+        final int size = Math.min(limit, maxSuggestions);
+        if (normalizedPrefix.isEmpty() || size < 1) return List.of();
+        final String[] words = normalizedPrefix.split(" ");
+
+        lock.readLock().lock();
+        try {
+            if (words.length > 2) return this.suggestPhrase(words, size);
+            final Node node = this.find(normalizedPrefix);
+            if (node == null) return List.of();
+            final List<String> suggestions = new ArrayList<>(Math.min(size, node.best.length));
+            for (int i = 0; i < node.best.length && i < size; i++) suggestions.add(node.best[i].text());
+            return suggestions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return terms.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Terms containing the words of the prefix in sequence, the last one matched as a prefix.
+     * Candidates are the terms of the rarest pair of whole words, kept in rank order, so the
+     * scan stops at the first {@code size} matches.
+     */
+    private List<String> suggestPhrase(String[] words, int size) {
+        Node rarest = null;
+        int rarestIndex = -1;
+        for (int i = 0; i < words.length - 2; i++) {
+            final Node node = this.find(words[i] + " " + words[i + 1]);
+            if (node == null || node.postings.isEmpty()) return List.of();
+            if (rarest == null || node.postings.size() < rarest.postings.size()) {
+                rarest = node;
+                rarestIndex = i;
+            }
+        }
+
+        final List<String> suggestions = new ArrayList<>(size);
+        Term previous = null;
+        for (Posting posting : rarest.postings) {
+            // Postings of one term are adjacent, a term already suggested is skipped.
+            if (posting.term() == previous || !matches(posting.term().words(), posting.position() - rarestIndex, words)) continue;
+            previous = posting.term();
+            suggestions.add(posting.term().text());
+            if (suggestions.size() == size) break;
+        }
+        return suggestions;
+    }
+
+    private static boolean matches(String[] termWords, int start, String[] words) {
+        if (start < 0 || start + words.length > termWords.length) return false;
+        for (int i = 0; i < words.length - 1; i++) {
+            if (!termWords[start + i].equals(words[i])) return false;
+        }
+        return termWords[start + words.length - 1].startsWith(words[words.length - 1]);
+    }
+
+    private Node find(String prefix) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) node = node.children.get(prefix.charAt(i));
+        return node;
+    }
+
+    /**
+     * Every word of the term and every pair of adjacent words, by the position of their first
+     * word. Each character of the term is part of at most three keys.
+     */
+    private static Map<String, List<Integer>> keys(Term term) {
+        final Map<String, List<Integer>> positionsByKey = new HashMap<>();
+        final String[] words = term.words();
+        for (int position = 0; position < words.length; position++) {
+            if (words[position].isEmpty()) continue;
+            positionsByKey.computeIfAbsent(words[position], key -> new ArrayList<>(1)).add(position);
+            if (position + 1 < words.length) {
+                positionsByKey.computeIfAbsent(words[position] + " " + words[position + 1], key -> new ArrayList<>(1)).add(position);
+            }
+        }
+        return positionsByKey;
+    }
+
+    private void link(Term term, boolean inRankOrder) {
+        keys(term).forEach((key, positions) -> {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+                node.offer(term, maxSuggestions);
+            }
+            for (int position : positions) {
+                if (inRankOrder) node.addPosting(new Posting(term, position));
+                else node.postings.add(new Posting(term, position));
+            }
+        });
+    }
+
+    private void unlink(Term term) {
+        for (String key : keys(term).keySet()) {
+            final Node[] path = new Node[key.length() + 1];
+            path[0] = root;
+            for (int i = 0; i < key.length(); i++) path[i + 1] = path[i].children.get(key.charAt(i));
+
+            path[key.length()].removePostings(term);
+            // Bottom-up, so every node merges the already recomputed best terms of its child.
+            for (int i = key.length(); i > 0; i--) {
+                final Node node = path[i];
+                if (node.postings.isEmpty() && node.children.isEmpty()) {
+                    path[i - 1].children.remove(key.charAt(i - 1));
+                } else if (node.ranks(term)) {
+                    node.recompute(maxSuggestions);
+                }
+            }
+        }
+    }
+
+    private static final Comparator<Term> RANK = Comparator.<Term>comparingInt(term -> -term.weight())
+            .thenComparingInt(term -> term.text().length())
+            .thenComparing(Term::text);
+
+    private record Term(String text, int weight, String[] words) {
+    }
+
+    private record Posting(Term term, int position) {
+    }
+
+    private static final Comparator<Posting> POSTING_ORDER = Comparator.comparing(Posting::term, RANK)
+            .thenComparingInt(Posting::position);
+
+    private static final class Node {
+
+        private final Map<Character, Node> children = new HashMap<>(4);
+        // Terms with a word ending here, in rank order.
+        private final List<Posting> postings = new ArrayList<>(1);
+        private Term[] best = NO_TERMS;
+
+        private boolean ranks(Term term) {
+            for (Term ranked : best) {
+                if (ranked == term) return true;
+            }
+            return false;
+        }
+
+        private void offer(Term term, int maxSuggestions) {
+            if (maxSuggestions < 1 || this.ranks(term)) return;
+            if (best.length == maxSuggestions && RANK.compare(term, best[best.length - 1]) >= 0) return;
+            final Term[] merged = Arrays.copyOf(best, Math.min(best.length + 1, maxSuggestions));
+            int i = Math.min(best.length, maxSuggestions - 1);
+            while (i > 0 && RANK.compare(term, merged[i - 1]) < 0) {
+                merged[i] = merged[i - 1];
+                i--;
+            }
+            merged[i] = term;
+            this.best = merged;
+        }
+
+        private void addPosting(Posting posting) {
+            final int index = Collections.binarySearch(postings, posting, POSTING_ORDER);
+            postings.add(index < 0 ? -index - 1 : index, posting);
+        }
+
+        private void sortPostings() {
+            postings.sort(POSTING_ORDER);
+            children.values().forEach(Node::sortPostings);
+        }
+
+        private void removePostings(Term term) {
+            int from = Collections.binarySearch(postings, new Posting(term, 0), POSTING_ORDER);
+            if (from < 0) from = -from - 1;
+            int to = from;
+            while (to < postings.size() && postings.get(to).term() == term) to++;
+            postings.subList(from, to).clear();
+        }
+
+        private void recompute(int maxSuggestions) {
+            this.best = NO_TERMS;
+            // Own terms are in rank order, only the first ones can make it.
+            for (int i = 0; i < postings.size() && best.length < maxSuggestions; i++) {
+                this.offer(postings.get(i).term(), maxSuggestions);
+            }
+            for (Node child : children.values()) {
+                for (Term term : child.best) this.offer(term, maxSuggestions);
+            }
+        }
+    }
+}
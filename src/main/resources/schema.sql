@@ -0,0 +1,44 @@
+-- Runs after Hibernate updated the schema and adds the constraints it cannot express.
+-- Every statement has to be safe to run again on each start. Deduplications only scan their
+-- table while the unique index they prepare is missing, a single statement per step is kept as
+-- the script is split at semicolons.
+
+-- Hibernate only creates the check of the cart status with the table, it misses later statuses.
+ALTER TABLE carts DROP CONSTRAINT IF EXISTS carts_status_check;
+
+-- Only one cart of a customer may be active. Items of older duplicates move to the newest cart.
+WITH ranked AS (
+    SELECT id, FIRST_VALUE(id) OVER (PARTITION BY customer_id ORDER BY created_on DESC NULLS LAST, id DESC) AS keeper_id
+    FROM carts WHERE status = 'ACTIVE' AND to_regclass('uk_carts_customer_id_active') IS NULL
+)
+UPDATE cart_items AS ci SET cart_id = r.keeper_id
+FROM ranked AS r WHERE ci.cart_id = r.id AND r.id <> r.keeper_id;
+
+WITH ranked AS (
+    SELECT id, FIRST_VALUE(id) OVER (PARTITION BY customer_id ORDER BY created_on DESC NULLS LAST, id DESC) AS keeper_id
+    FROM carts WHERE status = 'ACTIVE' AND to_regclass('uk_carts_customer_id_active') IS NULL
+)
+UPDATE carts AS c SET status = 'COMPLETED'
+FROM ranked AS r WHERE c.id = r.id AND r.id <> r.keeper_id;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_carts_customer_id_active ON carts (customer_id) WHERE status = 'ACTIVE';
+
+-- An item appears once per cart, duplicates are merged into the oldest row.
+WITH ranked AS (
+    SELECT id,
+           ROW_NUMBER() OVER (PARTITION BY cart_id, product_id, option_id ORDER BY id) AS position,
+           SUM(quantity) OVER (PARTITION BY cart_id, product_id, option_id) AS total
+    FROM cart_items WHERE to_regclass('uk_cart_items_cart_id_product_id_option_id') IS NULL
+)
+UPDATE cart_items AS ci SET quantity = r.total
+FROM ranked AS r WHERE ci.id = r.id AND r.position = 1 AND ci.quantity <> r.total;
+
+DELETE FROM cart_items AS ci
+USING (
+    SELECT id, ROW_NUMBER() OVER (PARTITION BY cart_id, product_id, option_id ORDER BY id) AS position
+    FROM cart_items WHERE to_regclass('uk_cart_items_cart_id_product_id_option_id') IS NULL
+) AS r
+WHERE ci.id = r.id AND r.position > 1;
+
+CREATE UNIQUE INDEX IF NOT EXISTS uk_cart_items_cart_id_product_id_option_id
+    ON cart_items (cart_id, product_id, option_id) NULLS NOT DISTINCT;
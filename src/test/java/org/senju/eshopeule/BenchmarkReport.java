@@ -0,0 +1,55 @@
+package org.senju.eshopeule;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports the numbers measured by the {@code benchmark} tagged tests through the logger, in the
+ * same shape for every benchmark.
+ */
+public final class BenchmarkReport {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkReport.class);
+    private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private BenchmarkReport() {
+    }
+
+    /**
+     * Logs mean, p50, p95, p99 and max of latencies measured in nanoseconds.
+     */
+    public static void latencies(String label, long[] latencies) {
+        if (latencies.length == 0) return;
+        final long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        logger.info("{}: {} samples, mean {} ms, p50 {} ms, p95 {} ms, p99 {} ms, max {} ms",
+                label, sorted.length,
+                millis(Arrays.stream(sorted).average().orElse(0)),
+                millis(percentile(sorted, 50)), millis(percentile(sorted, 95)), millis(percentile(sorted, 99)),
+                millis(sorted[sorted.length - 1]));
+    }
+
+    /**
+     * Logs how many operations completed in the elapsed nanoseconds and the rate per second.
+     */
+    public static void throughput(String label, long operations, long elapsedInNanos) {
+        logger.info("{}: {} operations in {} ms ({} ops/s)",
+                label, operations, millis(elapsedInNanos),
+                String.format("%.0f", operations * 1_000_000_000.0 / Math.max(elapsedInNanos, 1)));
+    }
+
+    /**
+     * The nearest rank percentile of already sorted values.
+     */
+    public static long percentile(long[] sorted, int percentile) {
+        final int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+
+    private static String millis(double nanos) {
+        return String.format("%.3f", nanos / NANOS_PER_MILLI);
+    }
+}
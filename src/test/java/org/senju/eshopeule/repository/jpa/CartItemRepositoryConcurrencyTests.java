@@ -0,0 +1,159 @@
+package org.senju.eshopeule.repository.jpa;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.model.product.Brand;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.user.Customer;
+import org.senju.eshopeule.model.user.User;
+import org.senju.eshopeule.repository.projection.CartItemView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Many requests adding the same item to one cart at once, each in its own transaction. The
+ * stock check of the upsert runs on the locked row, so the cart never holds more than the stock
+ * whatever the requests read before. Seeds committed rows into the configured database and
+ * removes them afterwards.
+ */
+@SpringBootTest
+class CartItemRepositoryConcurrencyTests {
+
+    private static final int REQUESTS = 32;
+    private static final int ADDS_PER_REQUEST = 10;
+    private static final long STOCK = 150;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private String username;
+    private String userId;
+    private String customerId;
+    private String brandId;
+    private String productId;
+    private String cartId;
+
+    @BeforeEach
+    void seedCart() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        final String suffix = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            final User user = User.builder()
+                    .username("cart-upsert-" + suffix)
+                    .email("cart-upsert-" + suffix + "@example.com")
+                    .isEnabled(true)
+                    .isAccountNonLocked(true)
+                    .isAccountNonExpired(true)
+                    .isCredentialsNonExpired(true)
+                    .build();
+            entityManager.persist(user);
+            final Customer customer = new Customer(user);
+            entityManager.persist(customer);
+            final Brand brand = Brand.builder().name("Brand " + suffix).slug("brand-" + suffix).build();
+            entityManager.persist(brand);
+            final Product product = Product.builder()
+                    .name("Product " + suffix)
+                    .slug("product-" + suffix)
+                    .price(10.0)
+                    .quantity(STOCK)
+                    .hasOptions(false)
+                    .isPublished(true)
+                    .isAllowedToOrder(true)
+                    .brand(brand)
+                    .build();
+            entityManager.persist(product);
+
+            username = user.getUsername();
+            userId = user.getId();
+            customerId = customer.getId();
+            brandId = brand.getId();
+            productId = product.getId();
+        });
+        cartId = cartRepository.getOrCreateActiveCartIdByUsername(username).orElseThrow();
+    }
+
+    @AfterEach
+    void removeSeededRows() {
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM cart_items WHERE cart_id = :cartId")
+                    .setParameter("cartId", cartId)
+                    .executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM carts WHERE id = :cartId")
+                    .setParameter("cartId", cartId)
+                    .executeUpdate();
+            entityManager.remove(entityManager.find(Product.class, productId));
+            entityManager.remove(entityManager.find(Brand.class, brandId));
+            entityManager.remove(entityManager.find(Customer.class, customerId));
+            entityManager.remove(entityManager.find(User.class, userId));
+        });
+    }
+
+    @Test
+    void concurrentAddsNeverExceedStock() throws Exception {
+        final AtomicLong added = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService requests = Executors.newFixedThreadPool(REQUESTS);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < REQUESTS; i++) {
+            results.add(requests.submit(() -> {
+                start.await();
+                for (int a = 0; a < ADDS_PER_REQUEST; a++) {
+                    final Integer upserted = transactionTemplate.execute(status ->
+                            cartItemRepository.upsertQuantity(cartId, productId, null, 1, username));
+                    if (upserted != null && upserted > 0) added.incrementAndGet();
+                    else rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) result.get(5, TimeUnit.MINUTES);
+        requests.shutdown();
+
+        final List<CartItemView> items = cartItemRepository.getItemViewByCartId(cartId);
+        assertEquals(1, items.size(), "concurrent inserts of one item end up in one row");
+        assertEquals(STOCK, items.getFirst().getItemQuantity().longValue(), "the cart holds all of the stock, no more");
+        assertEquals(STOCK, added.get());
+        assertEquals((long) REQUESTS * ADDS_PER_REQUEST - STOCK, rejected.get());
+    }
+
+    @Test
+    void addsSeeStockReservedMeanwhile() {
+        transactionTemplate.execute(status -> cartItemRepository.upsertQuantity(cartId, productId, null, 100, username));
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createNativeQuery("UPDATE products SET reserved = :reserved WHERE id = :prodId")
+                .setParameter("reserved", STOCK - 100)
+                .setParameter("prodId", productId)
+                .executeUpdate());
+
+        final Integer upserted = transactionTemplate.execute(status ->
+                cartItemRepository.upsertQuantity(cartId, productId, null, 1, username));
+
+        assertEquals(0, upserted, "the reserved units are no longer available");
+        assertTrue(cartItemRepository.getItemViewByCartId(cartId).stream().allMatch(item -> item.getItemQuantity() == 100));
+    }
+}
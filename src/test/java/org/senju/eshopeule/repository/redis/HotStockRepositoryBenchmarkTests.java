@@ -0,0 +1,133 @@
+package org.senju.eshopeule.repository.redis;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.BenchmarkReport;
+import org.senju.eshopeule.model.product.Brand;
+import org.senju.eshopeule.model.product.Product;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Many buyers taking one unit at a time from the same hot product, once by decrementing the
+ * stock of its single {@code products} row as ordinary reservations do, and once from the
+ * striped Redis counters. Seeds a committed product into the configured database, needs the
+ * configured Redis as well and removes both afterwards.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class HotStockRepositoryBenchmarkTests {
+
+    private static final int BUYERS = 512;
+    private static final long STOCK = 20_000;
+
+    @Autowired
+    private HotStockRepository hotStockRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private String brandId;
+    private String productId;
+
+    @BeforeEach
+    void seedProduct() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        final String suffix = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            final Brand brand = Brand.builder().name("Brand " + suffix).slug("brand-" + suffix).build();
+            entityManager.persist(brand);
+            final Product product = Product.builder()
+                    .name("Product " + suffix)
+                    .slug("product-" + suffix)
+                    .price(10.0)
+                    .quantity(STOCK)
+                    .hasOptions(false)
+                    .isPublished(true)
+                    .isAllowedToOrder(true)
+                    .brand(brand)
+                    .build();
+            entityManager.persist(product);
+
+            brandId = brand.getId();
+            productId = product.getId();
+        });
+    }
+
+    @AfterEach
+    void removeSeededProduct() {
+        hotStockRepository.closeAdmission(productId);
+        hotStockRepository.delete(productId);
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.remove(entityManager.find(Product.class, productId));
+            entityManager.remove(entityManager.find(Brand.class, brandId));
+        });
+    }
+
+    @Test
+    void singleProductRowUnderContention() throws Exception {
+        this.run("products row", () -> Integer.valueOf(1).equals(transactionTemplate.execute(status ->
+                entityManager.createNativeQuery("UPDATE products SET reserved = reserved + 1 " +
+                                "WHERE id = :prodId AND quantity - reserved >= 1")
+                        .setParameter("prodId", productId)
+                        .executeUpdate())));
+
+        transactionTemplate.executeWithoutResult(status ->
+                assertEquals(STOCK, entityManager.find(Product.class, productId).getReserved()));
+    }
+
+    @Test
+    void stripedCountersUnderContention() throws Exception {
+        ReflectionTestUtils.setField(hotStockRepository, "stripes", 8);
+        hotStockRepository.load(productId, STOCK);
+        this.run("8 redis stripes", () -> !hotStockRepository.take(productId, 1).isEmpty());
+
+        assertEquals(0, hotStockRepository.getAvailableQuantity(productId));
+        assertEquals(STOCK, hotStockRepository.drainConsumed(productId).values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    private void run(String label, BooleanSupplier buy) throws Exception {
+        final AtomicLong sold = new AtomicLong();
+        final AtomicLong rejected = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < BUYERS; i++) {
+            results.add(buyers.submit(() -> {
+                start.await();
+                // Keep buying until a purchase fails, afterwards the product is sold out.
+                while (buy.getAsBoolean()) sold.incrementAndGet();
+                rejected.incrementAndGet();
+                return null;
+            }));
+        }
+        final long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> result : results) result.get(10, TimeUnit.MINUTES);
+        final long elapsedInNanos = System.nanoTime() - startedAt;
+        buyers.shutdown();
+
+        BenchmarkReport.throughput(label + ", " + BUYERS + " buyers", sold.get(), elapsedInNanos);
+        assertEquals(STOCK, sold.get(), "every unit is sold exactly once");
+        assertEquals(BUYERS, rejected.get());
+    }
+}
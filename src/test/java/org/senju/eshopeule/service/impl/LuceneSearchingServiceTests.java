@@ -0,0 +1,283 @@
+package org.senju.eshopeule.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.ibatis.session.SqlSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mapstruct.factory.Mappers;
+import org.senju.eshopeule.constant.enums.LocalSearchMode;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.ProductDTO;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.dto.RangeFacetDTO;
+import org.senju.eshopeule.dto.TermFacetDTO;
+import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.dto.response.ProductSearchSliceResponse;
+import org.senju.eshopeule.exceptions.PagingException;
+import org.senju.eshopeule.mappers.ProductSearchMapper;
+import org.senju.eshopeule.model.product.ProductESDoc;
+import org.senju.eshopeule.repository.lucene.LuceneProductIndex;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Runs the local search on a Lucene index in a temporary directory, without Spring, a
+ * database or Elasticsearch.
+ */
+class LuceneSearchingServiceTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 5, 17, 9, 30);
+
+    @TempDir
+    private Path indexDir;
+
+    private LuceneProductIndex productIndex;
+    private LuceneSearchingService searchingService;
+
+    @BeforeEach
+    void openIndex() throws IOException {
+        productIndex = new LuceneProductIndex(mock(SqlSession.class), mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(productIndex, "mode", LocalSearchMode.PRIMARY);
+        ReflectionTestUtils.setField(productIndex, "indexPath", indexDir.toString());
+        productIndex.open();
+        productIndex.index(List.of(
+                product("p1", "Galaxy Phone", "Samsung", 500.0, 0.0, NOW.minusDays(1), "Phones"),
+                product("p2", "Pixel Phone", "Google", 400.0, 10.0, NOW.minusDays(3), "Phones"),
+                product("p3", "Galaxy Tab", "Samsung", 300.0, 0.0, NOW.minusDays(2), "Tablets"),
+                product("p4", "Phone Case", "Spigen", 20.0, 50.0, NOW, "Accessories", "Phones"),
+                product("p5", "Laptop Pro", "Apple", 1500.0, 0.0, NOW.minusDays(4), "Laptops")
+        ));
+
+        searchingService = new LuceneSearchingService(productIndex, Mappers.getMapper(ProductSearchMapper.class), new ObjectMapper());
+        ReflectionTestUtils.setField(searchingService, "facetSize", 20);
+        ReflectionTestUtils.setField(searchingService, "priceBuckets", 2);
+    }
+
+    @AfterEach
+    void closeIndex() throws IOException {
+        productIndex.close();
+    }
+
+    @Test
+    void matchesKeywordOnName() {
+        final ProductSearchResultResponse result = this.search("phone", null, null, null, null, Set.of(), PageRequest.of(0, 10));
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals(Set.of("p1", "p2", "p4"), Set.copyOf(ids(result.getProducts())));
+    }
+
+    @Test
+    void matchesKeywordWithTypos() {
+        final ProductSearchResultResponse result = this.search("galxay", null, null, null, null, Set.of(), PageRequest.of(0, 10));
+
+        assertTrue(ids(result.getProducts()).containsAll(List.of("p1", "p3")));
+    }
+
+    @Test
+    void matchesNothingWithoutKeywordTerms() {
+        final ProductSearchResultResponse result = this.search("  ", null, null, null, null, Set.of(), PageRequest.of(0, 10));
+
+        assertEquals(0, result.getTotalElements());
+        assertTrue(result.getProducts().isEmpty());
+    }
+
+    @Test
+    void filtersByBrandIgnoringCase() {
+        final ProductSearchResultResponse result = this.search("phone", "samsung", null, null, null, Set.of(), PageRequest.of(0, 10));
+
+        assertEquals(List.of("p1"), ids(result.getProducts()));
+    }
+
+    @Test
+    void filtersByEveryCategory() {
+        final ProductSearchResultResponse phones = this.search("phone", null, List.of("phones"), null, null, Set.of(), PageRequest.of(0, 10));
+        final ProductSearchResultResponse accessories = this.search("phone", null, List.of("Phones", "ACCESSORIES"), null, null, Set.of(), PageRequest.of(0, 10));
+
+        assertEquals(3, phones.getTotalElements());
+        assertEquals(List.of("p4"), ids(accessories.getProducts()));
+    }
+
+    @Test
+    void filtersByInclusivePriceRange() {
+        final ProductSearchResultResponse result = this.search("phone", null, null, 20.0, 400.0, Set.of(), PageRequest.of(0, 10));
+
+        assertEquals(Set.of("p2", "p4"), Set.copyOf(ids(result.getProducts())));
+    }
+
+    @Test
+    void sortsByPriceAndLastUpdated() {
+        final ProductSearchResultResponse byPrice = this.search("phone", null, null, null, null, Set.of(),
+                PageRequest.of(0, 10, Sort.by(Sort.Order.asc("price"))));
+        final ProductSearchResultResponse byLastUpdated = this.search("phone", null, null, null, null, Set.of(),
+                PageRequest.of(0, 10, Sort.by(Sort.Order.desc("last_updated"))));
+
+        assertEquals(List.of("p4", "p2", "p1"), ids(byPrice.getProducts()));
+        assertEquals(List.of("p4", "p1", "p2"), ids(byLastUpdated.getProducts()));
+    }
+
+    @Test
+    void rejectsUnsupportedSortField() {
+        assertThrows(PagingException.class, () -> this.search("phone", null, null, null, null, Set.of(),
+                PageRequest.of(0, 10, Sort.by("name"))));
+    }
+
+    @Test
+    void pagesWithOffset() {
+        final Pageable secondPage = PageRequest.of(1, 2, Sort.by(Sort.Order.asc("price")));
+        final ProductSearchResultResponse result = this.search("phone", null, null, null, null, Set.of(SearchFacet.BRAND), secondPage);
+
+        assertEquals(List.of("p1"), ids(result.getProducts()));
+        assertEquals(3, result.getTotalElements());
+        assertEquals(2, result.getTotalPages());
+        assertTrue(result.getIsLast());
+        assertNull(result.getFacets(), "facets are only computed for the first page");
+    }
+
+    @Test
+    void countsTermFacets() {
+        final ProductSearchResultResponse result = this.search("phone", null, null, null, null,
+                Set.of(SearchFacet.BRAND, SearchFacet.CATEGORY), PageRequest.of(0, 10));
+
+        assertEquals(List.of("Google:1", "Samsung:1", "Spigen:1"), terms(result.getFacets().getBrands()));
+        assertEquals(List.of("Phones:3", "Accessories:1"), terms(result.getFacets().getCategories()));
+        assertNull(result.getFacets().getPrices());
+    }
+
+    @Test
+    void bucketsPriceFacets() {
+        final ProductSearchResultResponse result = this.search("phone", null, null, null, null,
+                Set.of(SearchFacet.PRICE, SearchFacet.DISCOUNTED_PRICE), PageRequest.of(0, 10));
+
+        final List<RangeFacetDTO> prices = result.getFacets().getPrices();
+        assertEquals(2, prices.size());
+        assertEquals(20.0, prices.get(0).getFrom());
+        assertEquals(20.0, prices.get(0).getTo());
+        assertEquals(1, prices.get(0).getCount());
+        assertEquals(400.0, prices.get(1).getFrom());
+        assertEquals(500.0, prices.get(1).getTo());
+        assertEquals(2, prices.get(1).getCount());
+        assertEquals(3, result.getFacets().getDiscountedPrices().stream().mapToLong(RangeFacetDTO::getCount).sum());
+        assertNull(result.getFacets().getBrands());
+    }
+
+    @Test
+    void pagesWithCursor() {
+        final Pageable pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Order.asc("price")));
+        final ProductSearchSliceResponse firstPage = searchingService.searchWithCursor("phone", null, null, null, null,
+                Set.of(SearchFacet.BRAND), SearchRanking.RELEVANCE, null, pageRequest);
+
+        assertEquals(List.of("p4", "p2"), ids(firstPage.getProducts()));
+        assertTrue(firstPage.isHasNext());
+        assertNotNull(firstPage.getFacets());
+
+        final ProductSearchSliceResponse secondPage = searchingService.searchWithCursor("phone", null, null, null, null,
+                Set.of(SearchFacet.BRAND), SearchRanking.RELEVANCE, firstPage.getNextCursor(), pageRequest);
+
+        assertEquals(List.of("p1"), ids(secondPage.getProducts()));
+        assertFalse(secondPage.isHasNext());
+        assertNull(secondPage.getNextCursor());
+        assertNull(secondPage.getFacets());
+    }
+
+    @Test
+    void pagesWithCursorByRelevance() {
+        final Pageable pageRequest = PageRequest.of(0, 1);
+        ProductSearchSliceResponse page = searchingService.searchWithCursor("phone", null, null, null, null,
+                Set.of(), SearchRanking.RELEVANCE, null, pageRequest);
+        final List<String> seen = new ArrayList<>(ids(page.getProducts()));
+        while (page.isHasNext()) {
+            page = searchingService.searchWithCursor("phone", null, null, null, null,
+                    Set.of(), SearchRanking.RELEVANCE, page.getNextCursor(), pageRequest);
+            seen.addAll(ids(page.getProducts()));
+        }
+
+        assertEquals(3, seen.size());
+        assertEquals(Set.of("p1", "p2", "p4"), Set.copyOf(seen));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        final Pageable pageRequest = PageRequest.of(0, 2, Sort.by(Sort.Order.asc("price")));
+
+        assertThrows(PagingException.class, () -> searchingService.searchWithCursor("phone", null, null, null, null,
+                Set.of(), SearchRanking.RELEVANCE, "bm90LWEtY3Vyc29y", pageRequest));
+    }
+
+    @Test
+    void replacesReindexedProduct() {
+        productIndex.index(List.of(product("p2", "Pixel Phone", "Google", 10.0, 0.0, NOW, "Phones")));
+
+        final ProductSearchResultResponse result = this.search("phone", null, null, null, null, Set.of(),
+                PageRequest.of(0, 10, Sort.by(Sort.Order.asc("price"))));
+
+        assertEquals(3, result.getTotalElements());
+        assertEquals(List.of("p2", "p4", "p1"), ids(result.getProducts()));
+        assertEquals(10.0, ((ProductSimpleDTO) result.getProducts().getFirst()).getPrice());
+    }
+
+    @Test
+    void removesUnpublishedAndDeletedProducts() {
+        final ProductESDoc unpublished = product("p2", "Pixel Phone", "Google", 400.0, 10.0, NOW, "Phones");
+        unpublished.setIsPublished(false);
+        productIndex.index(List.of(unpublished));
+        productIndex.delete(List.of("p4"));
+
+        final ProductSearchResultResponse result = this.search("phone", null, null, null, null, Set.of(), PageRequest.of(0, 10));
+
+        assertEquals(List.of("p1"), ids(result.getProducts()));
+    }
+
+    @Test
+    void keepsDocumentsAfterReopening() throws IOException {
+        productIndex.close();
+        productIndex.open();
+
+        assertEquals(3, this.search("phone", null, null, null, null, Set.of(), PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    private ProductSearchResultResponse search(String keyword, String brandName, List<String> categoryNames,
+                                               Double minPrice, Double maxPrice, Set<SearchFacet> facets,
+                                               Pageable pageRequest) {
+        return searchingService.search(keyword, brandName, categoryNames, minPrice, maxPrice, facets,
+                SearchRanking.RELEVANCE, pageRequest);
+    }
+
+    private static ProductESDoc product(String id, String name, String brand, Double price, Double discount,
+                                        LocalDateTime lastModifiedOn, String... categories) {
+        return ProductESDoc.builder()
+                .productId(id)
+                .name(name)
+                .slug(id)
+                .price(price)
+                .discount(discount)
+                .discountedPrice(price * (1 - discount / 100.0))
+                .brand(brand)
+                .categories(List.of(categories))
+                .lastModifiedOn(lastModifiedOn)
+                .build();
+    }
+
+    private static List<String> ids(List<? extends ProductDTO> products) {
+        return products.stream().map(product -> ((ProductSimpleDTO) product).getId()).toList();
+    }
+
+    private static List<String> terms(List<TermFacetDTO> facets) {
+        return facets.stream().map(facet -> facet.getValue() + ":" + facet.getCount()).toList();
+    }
+}
@@ -0,0 +1,155 @@
+package org.senju.eshopeule.service.impl;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.dto.response.OrderSliceResponse;
+import org.senju.eshopeule.model.order.*;
+import org.senju.eshopeule.model.product.Brand;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.product.ProductOption;
+import org.senju.eshopeule.model.user.Customer;
+import org.senju.eshopeule.model.user.User;
+import org.senju.eshopeule.service.OrderService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Order pages must be loaded with the same number of statements however many orders and
+ * items they hold, counted with the statistics of Hibernate.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Transactional
+class OrderServiceStatementCountTests {
+
+    private static final int ORDERS = 12;
+    private static final int ITEMS_PER_ORDER = 3;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void seedOrders() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        final String suffix = UUID.randomUUID().toString();
+        final User user = User.builder()
+                .username("statement-count-" + suffix)
+                .email("statement-count-" + suffix + "@example.com")
+                .isEnabled(true)
+                .isAccountNonLocked(true)
+                .isAccountNonExpired(true)
+                .isCredentialsNonExpired(true)
+                .build();
+        entityManager.persist(user);
+        final Customer customer = new Customer(user);
+        entityManager.persist(customer);
+        final Brand brand = Brand.builder().name("Brand " + suffix).slug("brand-" + suffix).build();
+        entityManager.persist(brand);
+
+        for (int o = 0; o < ORDERS; o++) {
+            final Order order = Order.builder()
+                    .total(30.0)
+                    .contactName("Statement Count")
+                    .phoneNumber("0123456789")
+                    .address("1 Test Street")
+                    .status(OrderStatus.PROCESSING)
+                    .deliveryMethod(DeliveryMethod.GRAB_EXPRESS)
+                    .customer(customer)
+                    .build();
+            entityManager.persist(order);
+            entityManager.persist(Transaction.builder().order(order).type(TransactionType.COD).build());
+            for (int i = 0; i < ITEMS_PER_ORDER; i++) {
+                final Product product = Product.builder()
+                        .name("Product " + o + "-" + i)
+                        .slug("product-" + o + "-" + i + "-" + suffix)
+                        .price(10.0)
+                        .quantity(100L)
+                        .hasOptions(true)
+                        .isPublished(true)
+                        .isAllowedToOrder(true)
+                        .brand(brand)
+                        .build();
+                entityManager.persist(product);
+                final ProductOption option = ProductOption.builder().name("Option " + o + "-" + i).product(product).build();
+                entityManager.persist(option);
+                entityManager.persist(OrderItem.builder()
+                        .quantity(1)
+                        .total(10.0)
+                        .product(product)
+                        .option(option)
+                        .order(order)
+                        .build());
+            }
+        }
+        entityManager.flush();
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()));
+    }
+
+    @AfterEach
+    void clearAuthentication() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void cursorPagesUseFixedNumberOfStatements() {
+        final long smallPage = this.countStatements(() -> orderService.getOrderHistory(null, 2));
+        final long largePage = this.countStatements(() -> orderService.getOrderHistory(null, ORDERS));
+
+        assertEquals(smallPage, largePage, "statements must not grow with the page size");
+        assertTrue(largePage <= 8, "an order page takes a handful of statements, took " + largePage);
+    }
+
+    @Test
+    void followingCursorPagesUseSameNumberOfStatements() {
+        final OrderSliceResponse firstPage = orderService.getOrderHistory(null, 4);
+        final long firstPageStatements = this.countStatements(() -> orderService.getOrderHistory(null, 4));
+        final long nextPageStatements = this.countStatements(() -> orderService.getOrderHistory(firstPage.getNextCursor(), 4));
+
+        assertEquals(firstPageStatements, nextPageStatements);
+    }
+
+    @Test
+    void offsetPagesUseFixedNumberOfStatements() {
+        final Sort sort = Sort.by(Sort.Order.desc("createdOn"));
+        final long smallPage = this.countStatements(() -> orderService.getOrderHistory(PageRequest.of(0, 2, sort)));
+        final long largePage = this.countStatements(() -> orderService.getOrderHistory(PageRequest.of(0, ORDERS, sort)));
+
+        assertEquals(smallPage, largePage, "statements must not grow with the page size");
+    }
+
+    private long countStatements(Supplier<?> pageLoad) {
+        // Loaded entities must come from the database, not from the persistence context.
+        entityManager.clear();
+        statistics.clear();
+        statistics.setStatisticsEnabled(true);
+        pageLoad.get();
+        return statistics.getPrepareStatementCount();
+    }
+}
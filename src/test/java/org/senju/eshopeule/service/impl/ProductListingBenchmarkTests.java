@@ -0,0 +1,170 @@
+package org.senju.eshopeule.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.BenchmarkReport;
+import org.senju.eshopeule.dto.ProductDTO;
+import org.senju.eshopeule.dto.ProductSimpleDTO;
+import org.senju.eshopeule.mappers.AssociationBatchLoader;
+import org.senju.eshopeule.mappers.ProductSimpleMapper;
+import org.senju.eshopeule.model.product.Brand;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.product.ProductImage;
+import org.senju.eshopeule.service.ProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Latency and allocation per page of a brand listing, loaded as entities mapped to cards as
+ * before and from the card projection. Needs the configured database.
+ */
+@Tag("benchmark")
+@SpringBootTest
+@Transactional
+class ProductListingBenchmarkTests {
+
+    private static final int PRODUCTS = 500;
+    private static final int IMAGES_PER_PRODUCT = 3;
+    private static final int PAGE_SIZE = 20;
+    private static final int WARM_UP_PAGES = 200;
+    private static final int MEASURED_PAGES = 1000;
+    private static final Logger logger = LoggerFactory.getLogger(ProductListingBenchmarkTests.class);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductSimpleMapper productSimpleMapper;
+
+    @Autowired
+    private AssociationBatchLoader associationBatchLoader;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final com.sun.management.ThreadMXBean threadMXBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private String brandId;
+
+    @BeforeEach
+    void seedProducts() {
+        final String suffix = UUID.randomUUID().toString();
+        final Brand brand = Brand.builder().name("Brand " + suffix).slug("brand-" + suffix).build();
+        entityManager.persist(brand);
+        brandId = brand.getId();
+        for (int p = 0; p < PRODUCTS; p++) {
+            final Product product = Product.builder()
+                    .name("Product " + p)
+                    .slug("product-" + p + "-" + suffix)
+                    .price(10.0 + p)
+                    .discount(0.0)
+                    .quantity(100L)
+                    .hasOptions(false)
+                    .isPublished(true)
+                    .isAllowedToOrder(true)
+                    .brand(brand)
+                    .build();
+            entityManager.persist(product);
+            for (int i = 0; i < IMAGES_PER_PRODUCT; i++) {
+                entityManager.persist(ProductImage.builder()
+                        .name("image-" + p + "-" + i + "-" + suffix)
+                        .imageUrl("https://images.example.com/" + suffix + "/" + p + "/" + i + ".jpg")
+                        .product(product)
+                        .build());
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void brandListingPages() {
+        for (int page = 0; page < PRODUCTS / PAGE_SIZE; page++) {
+            final int pageNo = page;
+            entityManager.clear();
+            final List<String> entityCards = cards(this.loadEntityPage(pageNo));
+            entityManager.clear();
+            final List<String> projectionCards = cards(this.loadProjectionPage(pageNo));
+            assertEquals(entityCards, projectionCards, "both paths render the same cards on page " + pageNo);
+        }
+
+        this.measure("entities", this::loadEntityPage);
+        this.measure("projection", this::loadProjectionPage);
+    }
+
+    /**
+     * The listing before the card projection, entities of the page mapped with their thumbnails
+     * batched.
+     */
+    private List<ProductSimpleDTO> loadEntityPage(int pageNo) {
+        final List<Product> products = entityManager.createQuery(
+                        "SELECT p FROM Product p WHERE p.brand.id = :brandId ORDER BY p.name, p.id", Product.class)
+                .setParameter("brandId", brandId)
+                .setFirstResult(pageNo * PAGE_SIZE)
+                .setMaxResults(PAGE_SIZE)
+                .getResultList();
+        entityManager.createQuery("SELECT COUNT(p) FROM Product p WHERE p.brand.id = :brandId", Long.class)
+                .setParameter("brandId", brandId)
+                .getSingleResult();
+        return associationBatchLoader.assemble(() -> products.stream()
+                .map(productSimpleMapper::convertToDTO)
+                .toList());
+    }
+
+    private List<? extends ProductDTO> loadProjectionPage(int pageNo) {
+        return productService.getAllProductByBrandId(brandId, PageRequest.of(pageNo, PAGE_SIZE, Sort.by("name")))
+                .getProducts();
+    }
+
+    private void measure(String label, PageLoader pageLoader) {
+        final int pages = PRODUCTS / PAGE_SIZE;
+        for (int i = 0; i < WARM_UP_PAGES; i++) this.loadPage(pageLoader, i % pages);
+
+        final long[] latencies = new long[MEASURED_PAGES];
+        long allocatedBytes = 0;
+        for (int i = 0; i < MEASURED_PAGES; i++) {
+            final long allocatedBefore = threadMXBean.getCurrentThreadAllocatedBytes();
+            final long startedAt = System.nanoTime();
+            this.loadPage(pageLoader, i % pages);
+            latencies[i] = System.nanoTime() - startedAt;
+            allocatedBytes += threadMXBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+
+        BenchmarkReport.latencies(label, latencies);
+        logger.info("{}: {} KB allocated per page of {}", label,
+                String.format("%.1f", allocatedBytes / 1024.0 / MEASURED_PAGES), PAGE_SIZE);
+    }
+
+    private void loadPage(PageLoader pageLoader, int pageNo) {
+        // Every page starts from an empty persistence context, as a request would.
+        entityManager.clear();
+        pageLoader.load(pageNo);
+    }
+
+    private static List<String> cards(List<? extends ProductDTO> products) {
+        return products.stream()
+                .map(product -> (ProductSimpleDTO) product)
+                .map(card -> String.join("|", card.getId(), card.getName(), card.getSlug(),
+                        String.valueOf(card.getPrice()), String.valueOf(card.getImageUrl())))
+                .toList();
+    }
+
+    @FunctionalInterface
+    private interface PageLoader {
+        List<? extends ProductDTO> load(int pageNo);
+    }
+}
@@ -0,0 +1,141 @@
+package org.senju.eshopeule.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.BenchmarkReport;
+import org.senju.eshopeule.constant.enums.SearchFacet;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.response.ProductSearchResultResponse;
+import org.senju.eshopeule.service.SearchResultCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Replays a query log against Elasticsearch with relevance and with popularity ranking and
+ * reports the latency of both. The log is a tab separated file of keyword, brand, comma
+ * separated categories, price range and page number, by default {@code search/query-log.tsv}
+ * from the test resources, or the file given by {@code -Dsearch.replay.log}. Needs the
+ * configured Elasticsearch with indexed products.
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ProductSearchingServiceReplayTests {
+
+    private static final int WARM_UP_ROUNDS = 2;
+    private static final int ROUNDS = 10;
+    private static final int PAGE_SIZE = 20;
+
+    @Autowired
+    private ProductSearchingService searchingService;
+
+    // Every query must reach Elasticsearch instead of the result cache.
+    @MockBean
+    private SearchResultCacheService searchResultCacheService;
+
+    @BeforeEach
+    void bypassResultCache() {
+        when(searchResultCacheService.get(any(), any(), any(), any(), any(), any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<ProductSearchResultResponse>>getArgument(8).get());
+    }
+
+    @Test
+    void replayQueryLog() throws IOException {
+        final List<LoggedQuery> queries = this.readQueryLog();
+        assertFalse(queries.isEmpty(), "query log is empty");
+
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            this.replay(queries, SearchRanking.RELEVANCE);
+            this.replay(queries, SearchRanking.POPULARITY);
+        }
+        final long[] relevance = new long[queries.size() * ROUNDS];
+        final long[] popularity = new long[queries.size() * ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            // Interleave the rankings so both see the same cluster state.
+            final long[] relevanceRound = this.replay(queries, SearchRanking.RELEVANCE);
+            final long[] popularityRound = this.replay(queries, SearchRanking.POPULARITY);
+            System.arraycopy(relevanceRound, 0, relevance, i * queries.size(), queries.size());
+            System.arraycopy(popularityRound, 0, popularity, i * queries.size(), queries.size());
+        }
+
+        BenchmarkReport.latencies("relevance", relevance);
+        BenchmarkReport.latencies("popularity", popularity);
+    }
+
+    @Test
+    void popularityRankingKeepsMatchedProducts() throws IOException {
+        for (LoggedQuery query : this.readQueryLog()) {
+            final ProductSearchResultResponse relevance = this.search(query, SearchRanking.RELEVANCE);
+            final ProductSearchResultResponse popularity = this.search(query, SearchRanking.POPULARITY);
+
+            assertEquals(relevance.getTotalElements(), popularity.getTotalElements(),
+                    "popularity only reorders the products matched for " + query);
+        }
+    }
+
+    private long[] replay(List<LoggedQuery> queries, SearchRanking ranking) {
+        final long[] latencies = new long[queries.size()];
+        for (int i = 0; i < queries.size(); i++) {
+            final long startedAt = System.nanoTime();
+            this.search(queries.get(i), ranking);
+            latencies[i] = System.nanoTime() - startedAt;
+        }
+        return latencies;
+    }
+
+    private ProductSearchResultResponse search(LoggedQuery query, SearchRanking ranking) {
+        return searchingService.search(query.keyword(), query.brandName(), query.categoryNames(),
+                query.minPrice(), query.maxPrice(), Set.of(SearchFacet.BRAND, SearchFacet.CATEGORY),
+                ranking, PageRequest.of(query.page(), PAGE_SIZE));
+    }
+
+    private List<LoggedQuery> readQueryLog() throws IOException {
+        final String logPath = System.getProperty("search.replay.log");
+        try (InputStream in = logPath != null
+                ? Files.newInputStream(Path.of(logPath))
+                : getClass().getResourceAsStream("/search/query-log.tsv");
+             BufferedReader reader = new BufferedReader(new InputStreamReader(Objects.requireNonNull(in), StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .filter(line -> !line.isBlank() && !line.startsWith("#"))
+                    .map(LoggedQuery::parse)
+                    .toList();
+        }
+    }
+
+    private record LoggedQuery(String keyword, String brandName, List<String> categoryNames,
+                               Double minPrice, Double maxPrice, int page) {
+
+        private static LoggedQuery parse(String line) {
+            final String[] columns = Arrays.copyOf(line.split("\t", -1), 6);
+            return new LoggedQuery(
+                    columns[0],
+                    blankToNull(columns[1]),
+                    blankToNull(columns[2]) != null ? List.of(columns[2].split(",")) : null,
+                    blankToNull(columns[3]) != null ? Double.valueOf(columns[3]) : null,
+                    blankToNull(columns[4]) != null ? Double.valueOf(columns[4]) : null,
+                    blankToNull(columns[5]) != null ? Integer.parseInt(columns[5]) : 0
+            );
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value;
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package org.senju.eshopeule.service.impl;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.model.cart.Cart;
+import org.senju.eshopeule.model.product.Brand;
+import org.senju.eshopeule.model.product.Product;
+import org.senju.eshopeule.model.user.Customer;
+import org.senju.eshopeule.model.user.User;
+import org.senju.eshopeule.repository.jpa.CartItemRepository;
+import org.senju.eshopeule.repository.jpa.CartRepository;
+import org.senju.eshopeule.repository.projection.CartItemView;
+import org.senju.eshopeule.repository.redis.ActiveCartRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.senju.eshopeule.repository.redis.ActiveCartRepository.*;
+
+/**
+ * Write-behind of active carts when a flush is interrupted or races with other flushes and
+ * changes. Flushes commit as they do in production, so the seeded rows, the persisted carts and
+ * the cached cart are removed afterwards. Needs the configured database and Redis.
+ */
+@SpringBootTest(properties = "cart.store=redis")
+class RedisCartServiceImplFlushTests {
+
+    @Autowired
+    private RedisCartServiceImpl cartService;
+
+    @SpyBean
+    private ActiveCartRepository activeCartRepository;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private CartItemRepository cartItemRepository;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private String username;
+    private String userId;
+    private String customerId;
+    private String brandId;
+    private String firstProductId;
+    private String secondProductId;
+
+    @BeforeEach
+    void seedCustomerAndProducts() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        final String suffix = UUID.randomUUID().toString();
+        transactionTemplate.executeWithoutResult(status -> {
+            final User user = User.builder()
+                    .username("cart-flush-" + suffix)
+                    .email("cart-flush-" + suffix + "@example.com")
+                    .isEnabled(true)
+                    .isAccountNonLocked(true)
+                    .isAccountNonExpired(true)
+                    .isCredentialsNonExpired(true)
+                    .build();
+            entityManager.persist(user);
+            final Customer customer = new Customer(user);
+            entityManager.persist(customer);
+            final Brand brand = Brand.builder().name("Brand " + suffix).slug("brand-" + suffix).build();
+            entityManager.persist(brand);
+            firstProductId = this.persistProduct("first-" + suffix, brand);
+            secondProductId = this.persistProduct("second-" + suffix, brand);
+
+            username = user.getUsername();
+            userId = user.getId();
+            customerId = customer.getId();
+            brandId = brand.getId();
+        });
+        activeCartRepository.loadIfAbsent(username, Map.of(CUSTOMER_ID_FIELD, customerId, VERSION_FIELD, "0"));
+    }
+
+    @AfterEach
+    void removeCartsAndSeededRows() {
+        activeCartRepository.delete(username);
+        transactionTemplate.executeWithoutResult(status -> {
+            entityManager.createNativeQuery("DELETE FROM cart_items WHERE cart_id IN " +
+                            "(SELECT id FROM carts WHERE customer_id = :customerId)")
+                    .setParameter("customerId", customerId)
+                    .executeUpdate();
+            entityManager.createNativeQuery("DELETE FROM carts WHERE customer_id = :customerId")
+                    .setParameter("customerId", customerId)
+                    .executeUpdate();
+            entityManager.remove(entityManager.find(Product.class, firstProductId));
+            entityManager.remove(entityManager.find(Product.class, secondProductId));
+            entityManager.remove(entityManager.find(Brand.class, brandId));
+            entityManager.remove(entityManager.find(Customer.class, customerId));
+            entityManager.remove(entityManager.find(User.class, userId));
+        });
+    }
+
+    @Test
+    void flushInterruptedBeforeAcknowledgeIsRepeated() {
+        activeCartRepository.addQuantity(username, firstProductId, null, 2, 10);
+        doThrow(new IllegalStateException("node stopped")).when(activeCartRepository).acknowledgeFlush(eq(username), any(), any());
+
+        assertThrows(IllegalStateException.class, () -> cartService.flushActiveCart(username));
+        final String cartId = this.getPersistedCartId();
+        assertEquals(Map.of(firstProductId, 2), this.getPersistedQuantities(cartId));
+        assertTrue(activeCartRepository.isDirty(username), "the cart stays marked until the flush is acknowledged");
+
+        doAnswer(invocation -> invocation.callRealMethod()).when(activeCartRepository).acknowledgeFlush(eq(username), any(), any());
+        cartService.flushActiveCart(username);
+
+        assertEquals(Map.of(firstProductId, 2), this.getPersistedQuantities(cartId), "repeating the flush writes the same cart");
+        assertFalse(activeCartRepository.isDirty(username));
+        assertEquals(cartId, activeCartRepository.get(username).get(CART_ID_FIELD));
+        assertEquals(1L, this.getPersistedVersion(cartId));
+    }
+
+    @Test
+    void olderSnapshotDoesNotOverwriteNewerOne() {
+        activeCartRepository.addQuantity(username, firstProductId, null, 1, 10);
+        final Map<String, String> olderSnapshot = new HashMap<>(activeCartRepository.get(username));
+        activeCartRepository.addQuantity(username, secondProductId, null, 3, 10);
+        cartService.flushActiveCart(username);
+        final String cartId = this.getPersistedCartId();
+
+        // A slow node persists the snapshot it took before the second change.
+        final String persistedCartId = transactionTemplate.execute(status ->
+                ReflectionTestUtils.invokeMethod(cartService, "persist", username, olderSnapshot, 1L));
+        final boolean acknowledged = activeCartRepository.acknowledgeFlush(username, "1", persistedCartId);
+
+        assertEquals(cartId, persistedCartId);
+        assertEquals(Map.of(firstProductId, 1, secondProductId, 3), this.getPersistedQuantities(cartId));
+        assertEquals(2L, this.getPersistedVersion(cartId));
+        assertFalse(acknowledged, "an older version does not acknowledge the cached cart");
+    }
+
+    @Test
+    void cartChangedDuringFlushStaysMarked() {
+        activeCartRepository.addQuantity(username, firstProductId, null, 1, 10);
+        doAnswer(invocation -> {
+            // The customer changes the cart between the commit and the acknowledge.
+            activeCartRepository.addQuantity(username, secondProductId, null, 1, 10);
+            return invocation.callRealMethod();
+        }).when(activeCartRepository).acknowledgeFlush(eq(username), any(), any());
+
+        cartService.flushActiveCart(username);
+
+        final String cartId = this.getPersistedCartId();
+        assertEquals(Map.of(firstProductId, 1), this.getPersistedQuantities(cartId));
+        assertTrue(activeCartRepository.isDirty(username), "the newer change is flushed by a later run");
+
+        doAnswer(invocation -> invocation.callRealMethod()).when(activeCartRepository).acknowledgeFlush(eq(username), any(), any());
+        cartService.flushActiveCart(username);
+
+        assertEquals(Map.of(firstProductId, 1, secondProductId, 1), this.getPersistedQuantities(cartId));
+        assertFalse(activeCartRepository.isDirty(username));
+    }
+
+    @Test
+    void expiredCartOnlyClearsMark() {
+        activeCartRepository.addQuantity(username, firstProductId, null, 2, 10);
+        cartService.flushActiveCart(username);
+        final String cartId = this.getPersistedCartId();
+        activeCartRepository.addQuantity(username, firstProductId, null, 1, 10);
+
+        // The hash expired while the cart was still marked as changed.
+        redisTemplate.delete("active_cart:user:" + username);
+        assertTrue(activeCartRepository.isDirty(username));
+        cartService.flushActiveCart(username);
+
+        assertFalse(activeCartRepository.isDirty(username));
+        assertEquals(Map.of(firstProductId, 2), this.getPersistedQuantities(cartId), "the last flushed cart is kept");
+        assertEquals(1L, this.getPersistedVersion(cartId));
+    }
+
+    @Test
+    void flushOfCompletedCartCreatesNewCart() {
+        activeCartRepository.addQuantity(username, firstProductId, null, 1, 10);
+        cartService.flushActiveCart(username);
+        final String completedCartId = this.getPersistedCartId();
+        transactionTemplate.executeWithoutResult(status -> entityManager
+                .createNativeQuery("UPDATE carts SET status = 'COMPLETED' WHERE id = :cartId")
+                .setParameter("cartId", completedCartId)
+                .executeUpdate());
+
+        activeCartRepository.addQuantity(username, secondProductId, null, 1, 10);
+        cartService.flushActiveCart(username);
+
+        final String cartId = this.getPersistedCartId();
+        assertNotEquals(completedCartId, cartId);
+        assertEquals(Map.of(firstProductId, 1, secondProductId, 1), this.getPersistedQuantities(cartId));
+        assertEquals(Map.of(firstProductId, 1), this.getPersistedQuantities(completedCartId));
+    }
+
+    private String persistProduct(String slug, Brand brand) {
+        final Product product = Product.builder()
+                .name("Product " + slug)
+                .slug(slug)
+                .price(10.0)
+                .quantity(100L)
+                .hasOptions(false)
+                .isPublished(true)
+                .isAllowedToOrder(true)
+                .brand(brand)
+                .build();
+        entityManager.persist(product);
+        return product.getId();
+    }
+
+    private String getPersistedCartId() {
+        final List<Cart> carts = cartRepository.getActiveCartByUsername(username);
+        assertEquals(1, carts.size());
+        return carts.getFirst().getId();
+    }
+
+    private Map<String, Integer> getPersistedQuantities(String cartId) {
+        return cartItemRepository.getItemViewByCartId(cartId).stream()
+                .collect(Collectors.toMap(CartItemView::getProductId, CartItemView::getItemQuantity));
+    }
+
+    private Long getPersistedVersion(String cartId) {
+        return transactionTemplate.execute(status -> entityManager.find(Cart.class, cartId).getCacheVersion());
+    }
+}
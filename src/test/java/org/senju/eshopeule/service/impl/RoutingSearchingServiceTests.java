@@ -0,0 +1,95 @@
+package org.senju.eshopeule.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.constant.enums.LocalSearchMode;
+import org.senju.eshopeule.constant.enums.SearchRanking;
+import org.senju.eshopeule.dto.response.ProductSearchSliceResponse;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Cursors stay with the engine that issued them when the fallback circuit opens or closes
+ * during pagination.
+ */
+class RoutingSearchingServiceTests {
+
+    private static final Pageable PAGE_REQUEST = PageRequest.of(0, 2);
+
+    private ProductSearchingService elasticsearch;
+    private LuceneSearchingService local;
+    private RoutingSearchingService routingService;
+
+    @BeforeEach
+    void createService() {
+        elasticsearch = mock(ProductSearchingService.class);
+        local = mock(LuceneSearchingService.class);
+        routingService = new RoutingSearchingService(elasticsearch, local, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(routingService, "mode", LocalSearchMode.FALLBACK);
+        ReflectionTestUtils.setField(routingService, "failureThreshold", 3);
+        ReflectionTestUtils.setField(routingService, "openDuration", Duration.ofSeconds(30));
+    }
+
+    @Test
+    void localCursorKeepsPaginatingLocallyAfterRecovery() {
+        when(elasticsearch.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), isNull(), any()))
+                .thenThrow(new IllegalStateException("cluster down"));
+        when(local.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), isNull(), any()))
+                .thenReturn(slice("local-1"));
+        when(local.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), eq("local-1"), any()))
+                .thenReturn(slice(null));
+
+        final ProductSearchSliceResponse firstPage = this.search(null);
+        this.search(firstPage.getNextCursor());
+
+        assertEquals("lc.local-1", firstPage.getNextCursor());
+        verify(local).searchWithCursor(any(), any(), any(), any(), any(), any(), any(), eq("local-1"), any());
+        verify(elasticsearch, times(1)).searchWithCursor(any(), any(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void elasticsearchCursorRestartsLocallyWhenClusterFails() {
+        when(elasticsearch.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), isNull(), any()))
+                .thenReturn(slice("es-1"));
+        when(elasticsearch.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), eq("es-1"), any()))
+                .thenThrow(new IllegalStateException("cluster down"));
+        when(local.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), isNull(), any()))
+                .thenReturn(slice("local-1"));
+
+        final ProductSearchSliceResponse firstPage = this.search(null);
+        final ProductSearchSliceResponse restarted = this.search(firstPage.getNextCursor());
+
+        assertEquals("es.es-1", firstPage.getNextCursor());
+        assertEquals("lc.local-1", restarted.getNextCursor());
+        verify(local, never()).searchWithCursor(any(), any(), any(), any(), any(), any(), any(), eq("es-1"), any());
+    }
+
+    @Test
+    void untaggedCursorGoesToElasticsearch() {
+        when(elasticsearch.searchWithCursor(any(), any(), any(), any(), any(), any(), any(), eq("legacy"), any()))
+                .thenReturn(slice(null));
+
+        this.search("legacy");
+
+        verifyNoInteractions(local);
+    }
+
+    private ProductSearchSliceResponse search(String cursor) {
+        return routingService.searchWithCursor("phone", null, null, null, null, Set.of(),
+                SearchRanking.RELEVANCE, cursor, PAGE_REQUEST);
+    }
+
+    private static ProductSearchSliceResponse slice(String nextCursor) {
+        return new ProductSearchSliceResponse(nextCursor, PAGE_REQUEST.getPageSize(), nextCursor != null, List.of(), null);
+    }
+}
@@ -0,0 +1,69 @@
+package org.senju.eshopeule.utils;
+
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.exceptions.PagingException;
+import org.senju.eshopeule.utils.PaginationUtil.KeysetCursor;
+import org.senju.eshopeule.utils.PaginationUtil.SortKeysetCursor;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaginationUtilTests {
+
+    @Test
+    void acceptsPageSizesWithinBounds() {
+        assertDoesNotThrow(() -> PaginationUtil.checkValidPageSize(1));
+        assertDoesNotThrow(() -> PaginationUtil.checkValidPageSize(PaginationUtil.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    void rejectsPageSizesOutOfBounds() {
+        assertThrows(PagingException.class, () -> PaginationUtil.checkValidPageSize(0));
+        assertThrows(PagingException.class, () -> PaginationUtil.checkValidPageSize(-1));
+        assertThrows(PagingException.class, () -> PaginationUtil.checkValidPageSize(PaginationUtil.MAX_PAGE_SIZE + 1));
+        assertThrows(PagingException.class, () -> PaginationUtil.checkValidPageSize(Integer.MAX_VALUE));
+    }
+
+    @Test
+    void roundTripsCreatedOnCursor() {
+        final LocalDateTime createdOn = LocalDateTime.of(2024, 5, 17, 9, 30, 15, 123_456_000);
+        final KeysetCursor cursor = PaginationUtil.decodeCursor(PaginationUtil.encodeCursor(createdOn, "order-1"));
+
+        assertEquals(createdOn, cursor.createdOn());
+        assertEquals("order-1", cursor.id());
+    }
+
+    @Test
+    void roundTripsSortCursorWithSeparatorInSortValue() {
+        final String encoded = PaginationUtil.encodeCursor("name", "ASC", "Mug | large", "product-1");
+        final SortKeysetCursor cursor = PaginationUtil.decodeSortCursor(encoded);
+
+        assertEquals("name", cursor.sortField());
+        assertEquals("asc", cursor.sortDirection());
+        assertEquals("Mug | large", cursor.sortValue());
+        assertEquals("product-1", cursor.id());
+    }
+
+    @Test
+    void encodesCursorsUrlSafe() {
+        final String encoded = PaginationUtil.encodeCursor("name", "desc", "??>>??", "product-1");
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+    }
+
+    @Test
+    void rejectsMalformedCursors() {
+        assertThrows(PagingException.class, () -> PaginationUtil.decodeCursor("not base64!"));
+        assertThrows(PagingException.class, () -> PaginationUtil.decodeCursor(encode("2024-05-17T09:30:15")));
+        assertThrows(PagingException.class, () -> PaginationUtil.decodeCursor(encode("yesterday|order-1")));
+        assertThrows(PagingException.class, () -> PaginationUtil.decodeSortCursor("not base64!"));
+        assertThrows(PagingException.class, () -> PaginationUtil.decodeSortCursor(encode("name|asc|product-1")));
+    }
+
+    private static String encode(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
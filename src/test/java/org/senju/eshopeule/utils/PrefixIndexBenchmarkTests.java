@@ -0,0 +1,88 @@
+package org.senju.eshopeule.utils;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.senju.eshopeule.BenchmarkReport;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Suggestion latency over a catalog sized index, for prefixes of one to three words typed
+ * character by character, while a writer keeps putting and removing terms as the refresh does.
+ * The suggest endpoint promises a p99 below 5 ms.
+ */
+@Tag("benchmark")
+class PrefixIndexBenchmarkTests {
+
+    private static final int TERMS = 200_000;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int WARM_UP_QUERIES = 50_000;
+    private static final int MEASURED_QUERIES = 200_000;
+    private static final long P99_BUDGET_IN_NANOS = 5_000_000;
+    private static final String[] WORDS = {
+            "apple", "iphone", "samsung", "galaxy", "xiaomi", "redmi", "phone", "case", "charger", "cable",
+            "wireless", "bluetooth", "headphones", "earbuds", "speaker", "laptop", "notebook", "keyboard", "mouse",
+            "monitor", "camera", "lens", "tripod", "watch", "band", "strap", "glass", "screen", "protector", "stand"
+    };
+
+    @Test
+    void suggestLatency() throws InterruptedException {
+        final Random random = new Random(42);
+        final List<String> terms = new ArrayList<>(TERMS);
+        final Map<String, Integer> termWeights = new HashMap<>();
+        while (termWeights.size() < TERMS) {
+            final String term = randomTerm(random);
+            if (termWeights.putIfAbsent(term, 1 + random.nextInt(3)) == null) terms.add(term);
+        }
+
+        final long buildStartedAt = System.nanoTime();
+        final PrefixIndex index = PrefixIndex.build(termWeights, MAX_SUGGESTIONS);
+        BenchmarkReport.throughput("build", TERMS, System.nanoTime() - buildStartedAt);
+
+        final List<String> prefixes = new ArrayList<>();
+        while (prefixes.size() < MEASURED_QUERIES) {
+            final String term = PrefixIndex.normalize(terms.get(random.nextInt(terms.size())));
+            final int start = term.indexOf(' ') > 0 && random.nextBoolean() ? term.indexOf(' ') + 1 : 0;
+            prefixes.add(term.substring(start, start + 1 + random.nextInt(term.length() - start)));
+        }
+
+        final Thread writer = new Thread(() -> {
+            final Random writes = new Random(7);
+            while (!Thread.currentThread().isInterrupted()) {
+                final String term = terms.get(writes.nextInt(terms.size()));
+                index.remove(term);
+                index.put(term, 1 + writes.nextInt(3));
+            }
+        });
+        writer.start();
+        try {
+            for (int i = 0; i < WARM_UP_QUERIES; i++) index.suggest(prefixes.get(i), MAX_SUGGESTIONS);
+            final long[] latencies = new long[MEASURED_QUERIES];
+            for (int i = 0; i < MEASURED_QUERIES; i++) {
+                final long startedAt = System.nanoTime();
+                index.suggest(prefixes.get(i), MAX_SUGGESTIONS);
+                latencies[i] = System.nanoTime() - startedAt;
+            }
+
+            BenchmarkReport.latencies("suggest, " + TERMS + " terms", latencies);
+            final long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            assertTrue(BenchmarkReport.percentile(sorted, 99) < P99_BUDGET_IN_NANOS, "p99 of suggest is below 5 ms");
+        } finally {
+            writer.interrupt();
+            writer.join();
+        }
+    }
+
+    private static String randomTerm(Random random) {
+        final StringJoiner term = new StringJoiner(" ");
+        final int wordCount = 2 + random.nextInt(4);
+        for (int i = 0; i < wordCount; i++) {
+            final String word = WORDS[random.nextInt(WORDS.length)];
+            term.add(random.nextInt(4) == 0 ? word + random.nextInt(100) : word);
+        }
+        return term.toString();
+    }
+}
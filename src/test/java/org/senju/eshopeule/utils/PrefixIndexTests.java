@@ -0,0 +1,111 @@
+package org.senju.eshopeule.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixIndexTests {
+
+    private static final int MAX_SUGGESTIONS = 10;
+
+    @Test
+    void matchesPrefixOfAnyWord() {
+        final PrefixIndex index = PrefixIndex.build(Map.of("Apple iPhone 15", 1, "Samsung Galaxy", 1), MAX_SUGGESTIONS);
+
+        assertEquals(List.of("Apple iPhone 15"), index.suggest("iph", MAX_SUGGESTIONS));
+        assertEquals(List.of("Apple iPhone 15"), index.suggest("iphone 1", MAX_SUGGESTIONS));
+        assertEquals(List.of("Samsung Galaxy"), index.suggest("gal", MAX_SUGGESTIONS));
+        assertTrue(index.suggest("phone", MAX_SUGGESTIONS).isEmpty(), "only word starts are keys");
+    }
+
+    @Test
+    void normalizesCaseAndWhitespace() {
+        final PrefixIndex index = PrefixIndex.build(Map.of("Apple  iPhone 15", 1), MAX_SUGGESTIONS);
+
+        assertEquals(List.of("Apple  iPhone 15"), index.suggest("  APPLE   iph ", MAX_SUGGESTIONS));
+    }
+
+    @Test
+    void ranksByWeightThenLengthThenTerm() {
+        final PrefixIndex index = PrefixIndex.build(Map.of(
+                "phone case", 5,
+                "phone", 5,
+                "phone charger", 9,
+                "phone stand", 5
+        ), MAX_SUGGESTIONS);
+
+        assertEquals(List.of("phone charger", "phone", "phone case", "phone stand"), index.suggest("pho", MAX_SUGGESTIONS));
+        assertEquals(List.of("phone charger", "phone", "phone case", "phone stand"), index.suggest("ph", MAX_SUGGESTIONS));
+    }
+
+    @Test
+    void suggestsTermMatchedByManyWordsOnce() {
+        final PrefixIndex index = PrefixIndex.build(Map.of("Phone Case for Phone", 1), MAX_SUGGESTIONS);
+
+        assertEquals(List.of("Phone Case for Phone"), index.suggest("ph", MAX_SUGGESTIONS));
+        assertEquals(List.of("Phone Case for Phone"), index.suggest("phone", MAX_SUGGESTIONS));
+    }
+
+    @Test
+    void capsSuggestionsAtLimit() {
+        final Map<String, Integer> termWeights = new HashMap<>();
+        for (int i = 0; i < 30; i++) termWeights.put("phone " + i, i);
+        final PrefixIndex index = PrefixIndex.build(termWeights, MAX_SUGGESTIONS);
+
+        assertEquals(List.of("phone 29", "phone 28", "phone 27"), index.suggest("phone", 3));
+        assertEquals(MAX_SUGGESTIONS, index.suggest("phone", 50).size());
+        assertEquals(MAX_SUGGESTIONS, index.suggest("p", 50).size());
+        assertEquals(30, index.size());
+    }
+
+    @Test
+    void suggestsNothingForBlankPrefixOrLimit() {
+        final PrefixIndex index = PrefixIndex.build(Map.of("phone", 1), MAX_SUGGESTIONS);
+
+        assertTrue(index.suggest("", MAX_SUGGESTIONS).isEmpty());
+        assertTrue(index.suggest("   ", MAX_SUGGESTIONS).isEmpty());
+        assertTrue(index.suggest(null, MAX_SUGGESTIONS).isEmpty());
+        assertTrue(index.suggest("ph", 0).isEmpty());
+        assertTrue(index.suggest("xyz", MAX_SUGGESTIONS).isEmpty());
+        assertTrue(PrefixIndex.build(Map.of(), MAX_SUGGESTIONS).suggest("ph", MAX_SUGGESTIONS).isEmpty());
+    }
+
+    @Test
+    void matchesFullScanForShortAndLongPrefixes() {
+        final Random random = new Random(42);
+        final String[] words = {"apple", "apricot", "banana", "band", "bandana", "phone", "photo", "case", "cable", "cam"};
+        final Map<String, Integer> termWeights = new HashMap<>();
+        while (termWeights.size() < 500) {
+            final int wordCount = 1 + random.nextInt(3);
+            final StringJoiner term = new StringJoiner(" ");
+            for (int i = 0; i < wordCount; i++) term.add(words[random.nextInt(words.length)] + random.nextInt(20));
+            termWeights.put(term.toString(), random.nextInt(100));
+        }
+        final PrefixIndex index = PrefixIndex.build(termWeights, MAX_SUGGESTIONS);
+
+        for (String prefix : List.of("a", "b", "ph", "ca", "ban", "band", "photo1", "cable1 ", "apple3 b", "zz")) {
+            assertEquals(fullScan(termWeights, prefix, MAX_SUGGESTIONS), index.suggest(prefix, MAX_SUGGESTIONS), prefix);
+        }
+    }
+
+    private static List<String> fullScan(Map<String, Integer> termWeights, String prefix, int limit) {
+        final String normalizedPrefix = PrefixIndex.normalize(prefix);
+        return termWeights.keySet().stream()
+                .filter(term -> {
+                    final String[] words = PrefixIndex.normalize(term).split(" ");
+                    for (int i = 0; i < words.length; i++) {
+                        if (String.join(" ", Arrays.copyOfRange(words, i, words.length)).startsWith(normalizedPrefix)) return true;
+                    }
+                    return false;
+                })
+                .sorted(Comparator.<String>comparingInt(term -> -termWeights.get(term))
+                        .thenComparingInt(String::length)
+                        .thenComparing(Comparator.naturalOrder()))
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+}